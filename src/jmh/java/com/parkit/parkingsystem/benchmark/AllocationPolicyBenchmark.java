@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.allocation.AllocationPolicy;
+import com.parkit.parkingsystem.allocation.LevelBalancedPolicy;
+import com.parkit.parkingsystem.allocation.LowestNumberPolicy;
+import com.parkit.parkingsystem.allocation.NearestEntryPolicy;
+import com.parkit.parkingsystem.allocation.ParkingSpotAllocator;
+import com.parkit.parkingsystem.allocation.VehicleFitPolicy;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//an entry and an exit per operation on a lot kept nine tenths full, spread over 8 levels with one spot in ten charging
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationPolicyBenchmark {
+
+    @Param({"lowest", "nearest", "balanced", "fit"})
+    public String policy;
+
+    @Param({"10000", "100000"})
+    public int spots;
+
+    private ParkingSpotAllocator allocator;
+    private int[] parked;
+    private int parkedCount;
+    private int[] exits;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= spots; number++) {
+            ParkingType parkingType = number % 10 == 0 ? ParkingType.EV : ParkingType.CAR;
+            parkingSpots.add(new ParkingSpot(number, parkingType, true, random.nextInt(8), random.nextInt(500)));
+        }
+        allocator = new ParkingSpotAllocator(policy());
+        allocator.load(parkingSpots);
+        parked = new int[spots];
+        while (parkedCount < spots * 9 / 10) {
+            parked[parkedCount++] = allocator.claimNextAvailable(vehicleType(parkedCount));
+        }
+        exits = new int[4096];
+        for (int i = 0; i < exits.length; i++) {
+            exits[i] = random.nextInt(parkedCount);
+        }
+    }
+
+    private AllocationPolicy policy() {
+        switch (policy) {
+            case "nearest":
+                return new NearestEntryPolicy();
+            case "balanced":
+                return new LevelBalancedPolicy();
+            case "fit":
+                return new VehicleFitPolicy(new NearestEntryPolicy());
+            default:
+                return new LowestNumberPolicy();
+        }
+    }
+
+    private static ParkingType vehicleType(int i) {
+        return i % 10 == 0 ? ParkingType.EV : ParkingType.CAR;
+    }
+
+    //a random parked vehicle leaves and an arriving one takes the spot the policy picks
+    @Benchmark
+    public int exitThenEnter() {
+        int i = next++;
+        int slot = exits[i & (exits.length - 1)];
+        allocator.setAvailable(parked[slot], true);
+        int number = allocator.claimNextAvailable(vehicleType(i));
+        if (number == 0) {
+            //an EV whose type is full under a strict policy, put the spot back
+            number = allocator.claimNextAvailable(allocator.getParkingType(parked[slot]));
+        }
+        parked[slot] = number;
+        return number;
+    }
+}
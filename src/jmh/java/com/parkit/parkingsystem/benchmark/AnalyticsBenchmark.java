@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.analytics.Granularity;
+import com.parkit.parkingsystem.analytics.TicketAnalytics;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.RevenueSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZoneId;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//recording a closed ticket and answering finance ranges, with a year of tickets in memory
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyticsBenchmark {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    private static final int TICKETS_PER_DAY = 2000;
+    private static final int SPOTS = 500;
+
+    private TicketAnalytics analytics;
+    private long now;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        analytics = new TicketAnalytics(ZoneId.of("Europe/Paris"));
+        Random random = new Random(42);
+        now = System.currentTimeMillis();
+        for (long out = now - 365 * DAY_MILLIS; out < now; out += DAY_MILLIS / TICKETS_PER_DAY) {
+            long dwell = (long) (random.nextDouble() * 8 * HOUR_MILLIS);
+            ParkingType parkingType = random.nextInt(5) == 0 ? ParkingType.BIKE : ParkingType.CAR;
+            analytics.record(parkingType, 1 + random.nextInt(SPOTS), out - dwell, out, dwell / (double) HOUR_MILLIS * 1.5);
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        long out = now + (next++ & 1023);
+        analytics.record(ParkingType.CAR, 1 + (next & 255), out - HOUR_MILLIS, out, 1.5);
+    }
+
+    //a year with ragged ends: days, then hours and minutes at both ends
+    @Benchmark
+    public RevenueSummary summarizeYear() {
+        return analytics.summarize(now - 365 * DAY_MILLIS + 7 * 60 * 1000L, now - 13 * 60 * 1000L);
+    }
+
+    @Benchmark
+    public RevenueSummary summarizeLastHour() {
+        return analytics.summarize(now - HOUR_MILLIS, now);
+    }
+
+    @Benchmark
+    public double[] revenueByHourForAWeek() {
+        return analytics.revenueSeries(Granularity.HOUR, now - 7 * DAY_MILLIS, now);
+    }
+
+    @Benchmark
+    public double[] revenueBySpotForAMonth() {
+        return analytics.revenueBySpot(now - 30 * DAY_MILLIS, now);
+    }
+}
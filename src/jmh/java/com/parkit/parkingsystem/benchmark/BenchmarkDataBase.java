@@ -0,0 +1,68 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+
+//an embedded database filled to a given size, shared by the benchmarks that go through the DAOs
+class BenchmarkDataBase {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final int INSERT_BATCH = 1000;
+
+    final EmbeddedDataBaseTestConfig dataBaseConfig;
+    final ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+    final TicketDAO ticketDAO = new TicketDAO();
+
+    //spots are split evenly between cars and bikes, closed tickets cycle over the spots and the vehicles of closedTicketVehicleRegNumber
+    BenchmarkDataBase(int parkingSpots, int closedTickets) throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("benchmark" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, parkingSpots / 2, ParkingType.CAR);
+        dataBaseConfig.addParkingSpots(parkingSpots / 2 + 1, parkingSpots - parkingSpots / 2, ParkingType.BIKE);
+        insertClosedTickets(parkingSpots, closedTickets);
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadParkingSpots();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadOpenTickets();
+    }
+
+    static String closedTicketVehicleRegNumber(int index) {
+        return "OLD" + (index % 100000);
+    }
+
+    private void insertClosedTickets(int parkingSpots, int closedTickets) throws Exception {
+        long start = System.currentTimeMillis() - closedTickets * HOUR;
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(
+                "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,1.5,?,?)")) {
+            for (int i = 0; i < closedTickets; i++) {
+                ps.setInt(1, i % parkingSpots + 1);
+                ps.setString(2, closedTicketVehicleRegNumber(i));
+                ps.setTimestamp(3, new Timestamp(start + i * HOUR));
+                ps.setTimestamp(4, new Timestamp(start + i * HOUR + HOUR));
+                ps.addBatch();
+                if (i % INSERT_BATCH == INSERT_BATCH - 1) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    //the console flows print for the attendant, which would only measure the terminal
+    static PrintStream silenceConsole() {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return console;
+    }
+}
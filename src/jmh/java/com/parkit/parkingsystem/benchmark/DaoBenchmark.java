@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//DAO reads as the parking and ticket tables grow
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoBenchmark {
+
+    private static final int PARKED_VEHICLES = 10;
+
+    @Param({"100", "10000"})
+    public int parkingSpots;
+
+    @Param({"1000", "100000"})
+    public int closedTickets;
+
+    private BenchmarkDataBase dataBase;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataBase = new BenchmarkDataBase(parkingSpots, closedTickets);
+        ParkingService parkingService = new ParkingService(dataBase.parkingSpotDAO, dataBase.ticketDAO);
+        for (int i = 0; i < PARKED_VEHICLES; i++) {
+            parkingService.enter("PARKED" + i, ParkingType.CAR);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Vehicles {
+        private int next;
+
+        String nextClosed(int closedTickets) {
+            return BenchmarkDataBase.closedTicketVehicleRegNumber(next++ % closedTickets);
+        }
+
+        String nextParked() {
+            return "PARKED" + (next++ % PARKED_VEHICLES);
+        }
+    }
+
+    @Benchmark
+    public int getNextAvailableSlot() {
+        return dataBase.parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+    }
+
+    //latest ticket of a vehicle that already left, read from the ticket table by the history lookup
+    @Benchmark
+    public Ticket getTicketOfDepartedVehicle(Vehicles vehicles) {
+        return dataBase.ticketDAO.getTicket(vehicles.nextClosed(closedTickets), false);
+    }
+
+    //ticket of a vehicle still parked, answered by the open ticket index
+    @Benchmark
+    public Ticket getTicketOfParkedVehicle(Vehicles vehicles) {
+        return dataBase.ticketDAO.getTicket(vehicles.nextParked());
+    }
+}
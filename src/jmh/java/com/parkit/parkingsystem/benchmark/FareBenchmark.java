@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.TariffRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//fares per second on one core for stays of up to a week, with bands, free minutes and caps in play
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FareBenchmark {
+
+    private static final int STAYS = 4096;
+    private static final long WEEK_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+
+    @Param({"CAR", "BIKE"})
+    public ParkingType parkingType;
+
+    private Tariff tariff;
+    private FareCalculatorService fareCalculatorService;
+    private Ticket[] tickets;
+    private long[] inTimes;
+    private long[] outTimes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<TariffRule> rules = new ArrayList<>();
+        for (ParkingType type : ParkingType.values()) {
+            TariffRule rule = new TariffRule(type, type == ParkingType.BIKE ? 1.0 : 1.5);
+            rule.setFreeMinutes(30);
+            rule.setNightRatePerHour(rule.getDayRatePerHour() / 2);
+            rule.setDayStartMinute(7 * 60);
+            rule.setNightStartMinute(20 * 60);
+            rule.setDailyCap(rule.getDayRatePerHour() * 10);
+            rules.add(rule);
+        }
+        tariff = Tariff.compile(rules, ZoneId.of("Europe/Paris"));
+        fareCalculatorService = new FareCalculatorService(tariff);
+
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        inTimes = new long[STAYS];
+        outTimes = new long[STAYS];
+        for (int i = 0; i < STAYS; i++) {
+            inTimes[i] = now - (long) (random.nextDouble() * 365 * 24 * 60 * 60 * 1000L);
+            outTimes[i] = inTimes[i] + (long) (random.nextDouble() * WEEK_MILLIS);
+        }
+        tickets = new Ticket[STAYS];
+        for (int i = 0; i < STAYS; i++) {
+            tickets[i] = new Ticket();
+            tickets[i].setParkingSpot(new ParkingSpot(1, parkingType, false));
+            tickets[i].setInTimeMillis(inTimes[i]);
+            tickets[i].setOutTimeMillis(outTimes[i]);
+        }
+    }
+
+    @Benchmark
+    public long calculateFareMicros() {
+        int i = next++ & (STAYS - 1);
+        return tariff.calculateFareMicros(parkingType, inTimes[i], outTimes[i]);
+    }
+
+    //the same fares through the service the exit flow calls
+    @Benchmark
+    public double calculateFare() {
+        Ticket ticket = tickets[next++ & (STAYS - 1)];
+        fareCalculatorService.calculateFare(ticket);
+        return ticket.getPrice();
+    }
+}
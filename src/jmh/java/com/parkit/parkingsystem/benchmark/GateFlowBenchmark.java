@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.journal.FsyncPolicy;
+import com.parkit.parkingsystem.journal.TicketJournal;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+ * An entry and the exit of the same vehicle through the gate API in journal mode, the flows with no database call in
+ * them. The projector is stopped so only the gate thread allocates, run with -prof gc for gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GateFlowBenchmark {
+
+    private Path journalDir;
+    private TicketJournal journal;
+    private ParkingService parkingService;
+    private String[] vehicles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDataBase dataBase = new BenchmarkDataBase(1000, 0);
+        journalDir = Files.createTempDirectory("gate-flow");
+        journal = TicketJournal.open(journalDir, 64 * 1024, FsyncPolicy.NEVER, 0);
+        if (!dataBase.ticketDAO.enableJournal(journal, dataBase.parkingSpotDAO)) {
+            throw new IllegalStateException("Unable to enable the ticket journal");
+        }
+        dataBase.ticketDAO.getJournalProjector().close();
+        parkingService = new ParkingService(dataBase.parkingSpotDAO, dataBase.ticketDAO);
+        vehicles = new String[1024];
+        for (int i = 0; i < vehicles.length; i++) {
+            vehicles[i] = "GATE" + i;
+        }
+    }
+
+    //nothing is projected, the full segments are dropped so the journal does not fill the disk
+    @TearDown(Level.Iteration)
+    public void releaseJournal() throws IOException {
+        journal.release(journal.getLastSeq());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(journalDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public GateStatus enterThenExit() {
+        String vehicle = vehicles[next++ & (vehicles.length - 1)];
+        parkingService.enter(vehicle, ParkingType.CAR);
+        return parkingService.exit(vehicle).getStatus();
+    }
+}
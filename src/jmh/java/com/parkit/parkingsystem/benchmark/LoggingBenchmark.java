@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+//one gate cycle (entry then exit) under each logging setup, the difference to noLogging is what logging costs per operation
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoggingBenchmark {
+
+    private static final String CONFIGURATION = "-Dlog4j2.configurationFile=log4j2-logging-benchmark.xml";
+    private static final String SYNCHRONOUS = "-Dlog4j2.contextSelector=org.apache.logging.log4j.core.selector.ClassLoaderContextSelector";
+
+    @State(Scope.Thread)
+    public static class Gate {
+
+        ParkingService parkingService;
+        private int vehicle;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            BenchmarkDataBase dataBase = new BenchmarkDataBase(100, 1000);
+            parkingService = new ParkingService(dataBase.parkingSpotDAO, dataBase.ticketDAO);
+        }
+
+        String nextVehicle() {
+            return "CAR" + (vehicle++ % 100000);
+        }
+    }
+
+    //the previous setup: synchronous DEBUG with the caller's line number, flushed on every message
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIGURATION, SYNCHRONOUS, "-Dbenchmark.logLevel=debug",
+            "-Dbenchmark.pattern=%d{yyyy-MM-dd HH:mm:ss} %-5p %c{1}:%L - %m%n", "-Dbenchmark.immediateFlush=true"})
+    public void synchronousDebug(Gate gate, Blackhole blackhole) {
+        gateCycle(gate, blackhole);
+    }
+
+    //the connection chatter still on, handed to the ring buffer, dropped when it is full
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIGURATION, "-Dbenchmark.logLevel=debug"})
+    public void asynchronousDebug(Gate gate, Blackhole blackhole) {
+        gateCycle(gate, blackhole);
+    }
+
+    //the shipped setup: asynchronous INFO, the per-connection messages are disabled
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIGURATION, "-Dbenchmark.logLevel=info"})
+    public void asynchronousInfo(Gate gate, Blackhole blackhole) {
+        gateCycle(gate, blackhole);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIGURATION, "-Dbenchmark.logLevel=off"})
+    public void noLogging(Gate gate, Blackhole blackhole) {
+        gateCycle(gate, blackhole);
+    }
+
+    private static void gateCycle(Gate gate, Blackhole blackhole) {
+        String vehicleRegNumber = gate.nextVehicle();
+        blackhole.consume(gate.parkingService.enter(vehicleRegNumber, ParkingType.CAR));
+        blackhole.consume(gate.parkingService.exit(vehicleRegNumber));
+    }
+}
@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+//the attendant flows end to end, DAOs on an embedded database holding closedTickets of history
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParkingServiceBenchmark {
+
+    @State(Scope.Thread)
+    public abstract static class Lot {
+
+        @Param({"1000", "100000"})
+        public int closedTickets;
+
+        ScriptedInputReader inputReader;
+        ParkingService parkingService;
+        private PrintStream console;
+        private int vehicle;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            BenchmarkDataBase dataBase = new BenchmarkDataBase(100, closedTickets);
+            inputReader = new ScriptedInputReader(1);
+            parkingService = new ParkingService(inputReader, dataBase.parkingSpotDAO, dataBase.ticketDAO);
+            console = BenchmarkDataBase.silenceConsole();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.setOut(console);
+        }
+
+        void nextVehicle() {
+            inputReader.setVehicleRegNumber("CAR" + (vehicle++ % 100000));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class EmptyLot extends Lot {
+
+        @Setup(Level.Invocation)
+        public void arrivingVehicle() {
+            nextVehicle();
+        }
+
+        //leaves the lot as it was, so the entries never run out of spots
+        @TearDown(Level.Invocation)
+        public void exitVehicle() {
+            parkingService.processExitingVehicle();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ParkedVehicle extends Lot {
+
+        @Setup(Level.Invocation)
+        public void enterVehicle() {
+            nextVehicle();
+            parkingService.processIncomingVehicle();
+        }
+    }
+
+    @Benchmark
+    public void processIncomingVehicle(EmptyLot lot) {
+        lot.parkingService.processIncomingVehicle();
+    }
+
+    @Benchmark
+    public void processExitingVehicle(ParkedVehicle lot) {
+        lot.parkingService.processExitingVehicle();
+    }
+}
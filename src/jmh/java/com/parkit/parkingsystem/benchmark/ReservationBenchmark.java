@@ -0,0 +1,104 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.allocation.ParkingSpotAllocator;
+import com.parkit.parkingsystem.allocation.ReservationIndex;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//availability queries and bookings against a lot with a month of bookings on most of its spots
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationBenchmark {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Param({"1000", "20000"})
+    public int spots;
+
+    private ReservationIndex index;
+    private ParkingSpotAllocator allocator;
+    private long[] windows;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= spots; number++) {
+            parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, true));
+        }
+        index = new ReservationIndex();
+        index.load(parkingSpots);
+        allocator = new ParkingSpotAllocator();
+        allocator.load(parkingSpots);
+        Random random = new Random(42);
+        //two and a half bookings per spot, a few spots stay unbooked
+        for (int i = 0; i < spots * 5 / 2; i++) {
+            long from = random.nextInt(30 * 24) * HOUR;
+            Reservation reservation = new Reservation("V" + i, ParkingType.CAR, from, from + (1 + random.nextInt(8)) * HOUR);
+            reservation.setParkingNumber(1 + random.nextInt(spots - spots / 50));
+            index.book(reservation);
+        }
+        windows = new long[1024];
+        for (int i = 0; i < windows.length; i += 2) {
+            windows[i] = random.nextInt(30 * 24) * HOUR;
+            windows[i + 1] = windows[i] + (1 + random.nextInt(8)) * HOUR;
+        }
+    }
+
+    @Benchmark
+    public boolean isAnyFree() {
+        int window = next++ & (windows.length - 2);
+        return index.isAnyFree(ParkingType.CAR, windows[window], windows[window + 1]);
+    }
+
+    @Benchmark
+    public int lowestFree() {
+        int window = next++ & (windows.length - 2);
+        return index.lowestFree(ParkingType.CAR, 1, windows[window], windows[window + 1]);
+    }
+
+    //books the lowest free spot and gives it back, so the index stays the same size
+    @Benchmark
+    public int bookAndCancel() {
+        int window = next++ & (windows.length - 2);
+        Reservation reservation = new Reservation("BENCH", ParkingType.CAR, windows[window], windows[window + 1]);
+        int number = index.bookLowest(reservation);
+        if (number > 0) {
+            index.cancel(reservation);
+        }
+        return number;
+    }
+
+    //a walk-in stepping between the free spots and the unbooked ones, then leaving
+    @Benchmark
+    public int walkIn() {
+        int window = next++ & (windows.length - 2);
+        int number = allocator.claimNextAvailable(ParkingType.CAR, index, windows[window], windows[window] + 2 * HOUR);
+        if (number > 0) {
+            allocator.setAvailable(number, true);
+        }
+        return number;
+    }
+}
@@ -0,0 +1,28 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+//answers the shell prompts without a terminal: the vehicle type, then the registration number set before each flow
+class ScriptedInputReader extends InputReaderUtil {
+
+    private final int vehicleTypeSelection;
+    private String vehicleRegNumber;
+
+    ScriptedInputReader(int vehicleTypeSelection) {
+        this.vehicleTypeSelection = vehicleTypeSelection;
+    }
+
+    void setVehicleRegNumber(String vehicleRegNumber) {
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    @Override
+    public int readSelection() {
+        return vehicleTypeSelection;
+    }
+
+    @Override
+    public String readVehicleRegistrationNumber() {
+        return vehicleRegNumber;
+    }
+}
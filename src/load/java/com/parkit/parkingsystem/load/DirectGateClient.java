@@ -0,0 +1,28 @@
+package com.parkit.parkingsystem.load;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.ParkingService;
+
+class DirectGateClient implements GateClient {
+
+    private final ParkingService parkingService;
+
+    DirectGateClient(ParkingService parkingService) {
+        this.parkingService = parkingService;
+    }
+
+    @Override
+    public GateStatus enter(String vehicleRegNumber, ParkingType parkingType) {
+        return parkingService.enter(vehicleRegNumber, parkingType).getStatus();
+    }
+
+    @Override
+    public GateStatus exit(String vehicleRegNumber) {
+        return parkingService.exit(vehicleRegNumber).getStatus();
+    }
+
+    @Override
+    public void close() {
+    }
+}
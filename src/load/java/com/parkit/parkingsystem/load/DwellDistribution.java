@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.load;
+
+import java.util.Random;
+
+//how long a vehicle stays between its entry and its exit, around a mean
+public enum DwellDistribution {
+    FIXED {
+        @Override
+        long sample(long meanMillis, Random random) {
+            return meanMillis;
+        }
+    },
+    UNIFORM {
+        @Override
+        long sample(long meanMillis, Random random) {
+            return (long) (random.nextDouble() * 2 * meanMillis);
+        }
+    },
+    EXPONENTIAL {
+        @Override
+        long sample(long meanMillis, Random random) {
+            return (long) (-Math.log(1 - random.nextDouble()) * meanMillis);
+        }
+    };
+
+    abstract long sample(long meanMillis, Random random);
+}
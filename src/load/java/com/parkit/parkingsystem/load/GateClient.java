@@ -0,0 +1,15 @@
+package com.parkit.parkingsystem.load;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+//how the load generator reaches the gates: straight into ParkingService or through the HTTP API
+interface GateClient extends AutoCloseable {
+
+    GateStatus enter(String vehicleRegNumber, ParkingType parkingType);
+
+    GateStatus exit(String vehicleRegNumber);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,305 @@
+package com.parkit.parkingsystem.load;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.web.GateHttpServer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives ParkingService entries and exits on an embedded database with open-loop arrivals: vehicles arrive on a
+ * Poisson schedule whether or not the gates keep up, and latency is measured from the scheduled arrival.
+ *
+ * mvn -P load-test test -Dload.args="--rate=200 --gates=4 --dwell=exponential:2000 --car-share=0.8 --duration=30"
+ * adds --saturation to double the rate until the gates fall behind, then bisect to the highest sustained rate,
+ * and --http to go through the gate HTTP API on a local port.
+ */
+public class GateLoadGenerator {
+
+    private static final int WARMUP_SECONDS = 3;
+    private static final int REFINE_STEPS = 4;
+    private static final long DRAIN_TIMEOUT_MILLIS = 10000;
+
+    private double sloP99Millis = 50;
+    private double maxArrivalsPerSecond = 50000;
+    private boolean saturation;
+    private Path resultFile = Paths.get("target", "load-result.json");
+    private Path historyFile;
+    private final String version = System.getProperty("load.version", "dev");
+
+    public static void main(String[] args) throws Exception {
+        LoadProfile profile = new LoadProfile();
+        GateLoadGenerator generator = new GateLoadGenerator();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+            int equals = arg.indexOf('=');
+            String name = arg.substring(2, equals < 0 ? arg.length() : equals);
+            String value = equals < 0 ? "true" : arg.substring(equals + 1);
+            if (!profile.apply(name, value) && !generator.apply(name, value)) {
+                throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        try {
+            generator.run(profile);
+        } finally {
+            DataBaseConfig.closeAllPools();
+        }
+    }
+
+    private boolean apply(String name, String value) {
+        switch (name) {
+            case "saturation":
+                saturation = Boolean.parseBoolean(value);
+                return true;
+            case "slo-p99-ms":
+                sloP99Millis = Double.parseDouble(value);
+                return true;
+            case "max-rate":
+                maxArrivalsPerSecond = Double.parseDouble(value);
+                return true;
+            case "out":
+                resultFile = Paths.get(value);
+                return true;
+            case "history":
+                historyFile = Paths.get(value);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void run(LoadProfile profile) throws Exception {
+        System.out.println("Load test " + version + ": " + profile + ", p99 objective " + sloP99Millis + " ms");
+        List<StepResult> steps = new ArrayList<>();
+        StepResult saturationStep = null;
+        if (saturation) {
+            saturationStep = findSaturation(profile, steps);
+            System.out.println(saturationStep == null
+                    ? "No sustained rate found"
+                    : String.format(Locale.ROOT, "Saturation point: %.0f arrivals/s", saturationStep.getProfile().getArrivalsPerSecond()));
+        } else {
+            steps.add(runStep(profile));
+        }
+        writeResult(profile, steps, saturationStep);
+        if (historyFile != null && saturationStep != null) {
+            appendHistory(saturationStep);
+        }
+    }
+
+    //doubles the rate until a step falls behind, then bisects between the last sustained and the first failed rate
+    private StepResult findSaturation(LoadProfile profile, List<StepResult> steps) throws Exception {
+        StepResult sustained = null;
+        double failedRate = 0;
+        for (double rate = profile.getArrivalsPerSecond(); rate <= maxArrivalsPerSecond; rate *= 2) {
+            StepResult step = runStep(atRate(profile, rate));
+            steps.add(step);
+            if (!step.isSustained(sloP99Millis)) {
+                failedRate = rate;
+                break;
+            }
+            sustained = step;
+        }
+        if (failedRate == 0) {
+            return sustained;
+        }
+        double low = sustained == null ? 0 : sustained.getProfile().getArrivalsPerSecond();
+        double high = failedRate;
+        for (int i = 0; i < REFINE_STEPS; i++) {
+            StepResult step = runStep(atRate(profile, (low + high) / 2));
+            steps.add(step);
+            if (step.isSustained(sloP99Millis)) {
+                sustained = step;
+                low = step.getProfile().getArrivalsPerSecond();
+            } else {
+                high = step.getProfile().getArrivalsPerSecond();
+            }
+        }
+        return sustained;
+    }
+
+    //the lot grows with the rate so occupancy stays under half and entries keep reaching the database instead of FULL
+    private static LoadProfile atRate(LoadProfile profile, double arrivalsPerSecond) {
+        LoadProfile step = profile.copy();
+        step.setArrivalsPerSecond(arrivalsPerSecond);
+        int needed = (int) Math.ceil(arrivalsPerSecond * profile.getMeanDwellMillis() / 1000.0 * 2);
+        step.setParkingSpots(Math.max(profile.getParkingSpots(), needed));
+        return step;
+    }
+
+    private StepResult runStep(LoadProfile profile) throws Exception {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("load" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        int carSpots = (int) Math.round(profile.getParkingSpots() * profile.getCarShare());
+        if (carSpots > 0) {
+            dataBaseConfig.addParkingSpots(1, carSpots, ParkingType.CAR);
+        }
+        if (carSpots < profile.getParkingSpots()) {
+            dataBaseConfig.addParkingSpots(carSpots + 1, profile.getParkingSpots() - carSpots, ParkingType.BIKE);
+        }
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadParkingSpots();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadOpenTickets();
+        if (profile.isWriteBehind()) {
+            ticketDAO.enableWriteBehind(10000, TicketWriteBehind.DEFAULT_BATCH_SIZE, TicketWriteBehind.DEFAULT_LINGER_MILLIS, parkingSpotDAO);
+        }
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+        GateClient gateClient = profile.isHttp()
+                ? new HttpGateClient(parkingService, GateHttpServer.DEFAULT_MAX_IN_FLIGHT)
+                : new DirectGateClient(parkingService);
+
+        OperationStats entries = new OperationStats("entry");
+        OperationStats exits = new OperationStats("exit");
+        //one platform thread per physical gate, a busy gate makes the next vehicles queue
+        ExecutorService gates = Executors.newFixedThreadPool(profile.getGates());
+        ScheduledExecutorService departures = Executors.newSingleThreadScheduledExecutor();
+        Random random = new Random(42);
+
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(profile.getDurationSeconds());
+        long nextArrival = start;
+        int vehicle = 0;
+        while (true) {
+            nextArrival += (long) (-Math.log(1 - random.nextDouble()) * 1e9 / profile.getArrivalsPerSecond());
+            if (nextArrival >= end) {
+                break;
+            }
+            long wait = nextArrival - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String vehicleRegNumber = "L" + vehicle++;
+            ParkingType parkingType = random.nextDouble() < profile.getCarShare() ? ParkingType.CAR : ParkingType.BIKE;
+            long dwellNanos = TimeUnit.MILLISECONDS.toNanos(profile.getDwellDistribution().sample(profile.getMeanDwellMillis(), random));
+            long arrival = nextArrival;
+            boolean measured = arrival >= measureFrom;
+            gates.execute(() -> {
+                long begin = System.nanoTime();
+                GateStatus status = gateClient.enter(vehicleRegNumber, parkingType);
+                long done = System.nanoTime();
+                if (measured) {
+                    entries.record(arrival, begin, done, status);
+                }
+                if (status == GateStatus.OK) {
+                    scheduleExit(gateClient, vehicleRegNumber, done + dwellNanos, measureFrom, exits, gates, departures);
+                }
+            });
+        }
+
+        //departures not yet due fall outside the window, queued gate work still runs so a backlog shows in the latency
+        departures.shutdownNow();
+        gates.shutdown();
+        int dropped = 0;
+        if (!gates.awaitTermination(DRAIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            dropped = gates.shutdownNow().size();
+            gates.awaitTermination(DRAIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        double measuredSeconds = (System.nanoTime() - measureFrom) / 1e9;
+        gateClient.close();
+        ticketDAO.close();
+        shutdown(dataBaseConfig);
+
+        StepResult step = new StepResult(profile, entries, exits, measuredSeconds, dropped);
+        System.out.println(step);
+        return step;
+    }
+
+    private static void scheduleExit(GateClient gateClient, String vehicleRegNumber, long departure, long measureFrom,
+                                     OperationStats exits, ExecutorService gates, ScheduledExecutorService departures) {
+        try {
+            departures.schedule(() -> {
+                try {
+                    gates.execute(() -> {
+                        long begin = System.nanoTime();
+                        GateStatus status = gateClient.exit(vehicleRegNumber);
+                        long done = System.nanoTime();
+                        if (departure >= measureFrom) {
+                            exits.record(departure, begin, done, status);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    //the step is over
+                }
+            }, departure - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            //the step is over
+        }
+    }
+
+    //drops the in-memory database so a saturation search does not keep every step in memory
+    private static void shutdown(EmbeddedDataBaseTestConfig dataBaseConfig) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try {
+            con.createStatement().execute("SHUTDOWN");
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        DataBaseConfig.closeAllPools();
+    }
+
+    private void writeResult(LoadProfile profile, List<StepResult> steps, StepResult saturationStep) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"version\": \"").append(version).append("\",\n");
+        json.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"profile\": \"").append(profile).append("\",\n");
+        json.append("  \"sloP99Millis\": ").append(sloP99Millis).append(",\n");
+        json.append("  \"saturationArrivalsPerSecond\": ").append(saturationStep == null ? "null"
+                : String.format(Locale.ROOT, "%.1f", saturationStep.getProfile().getArrivalsPerSecond())).append(",\n");
+        json.append("  \"steps\": [\n");
+        for (int i = 0; i < steps.size(); i++) {
+            json.append("    ").append(steps.get(i).toJson(sloP99Millis)).append(i < steps.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+        if (resultFile.getParent() != null) {
+            Files.createDirectories(resultFile.getParent());
+        }
+        Files.write(resultFile, json.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Results written to " + resultFile);
+    }
+
+    //one line per run, kept in the repository so the saturation point can be compared release to release
+    private void appendHistory(StepResult saturationStep) throws IOException {
+        LoadProfile profile = saturationStep.getProfile();
+        StringBuilder line = new StringBuilder();
+        if (!Files.exists(historyFile)) {
+            line.append("version,timestamp,gates,carShare,dwell,writeBehind,http,sloP99Millis,saturationPerSecond,entryP99Millis,exitP99Millis\n");
+        }
+        line.append(String.format(Locale.ROOT, "%s,%s,%d,%.2f,%s:%d,%b,%b,%.1f,%.1f,%.3f,%.3f%n",
+                version, Instant.now(), profile.getGates(), profile.getCarShare(),
+                profile.getDwellDistribution().name().toLowerCase(Locale.ROOT), profile.getMeanDwellMillis(),
+                profile.isWriteBehind(), profile.isHttp(), sloP99Millis, profile.getArrivalsPerSecond(),
+                saturationStep.getEntries().getLatencyMillis(99), saturationStep.getExits().getLatencyMillis(99)));
+        Files.write(historyFile, line.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.out.println("Saturation point appended to " + historyFile);
+    }
+}
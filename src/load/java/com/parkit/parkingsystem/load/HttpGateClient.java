@@ -0,0 +1,139 @@
+package com.parkit.parkingsystem.load;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.web.GateHttpServer;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A GateHttpServer on a local port in front of ParkingService, called the way a gate controller would: each gate
+ * thread keeps one connection open and sends its requests on it one after the other.
+ *
+ * The requests are written by hand on a plain socket because java.net.http.HttpClient costs about as much CPU per call
+ * as the server does, which on a small load machine would measure the client rather than the server.
+ */
+class HttpGateClient implements GateClient {
+
+    private static final String STATUS = "\"status\": \"";
+
+    private final GateHttpServer server;
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Connection> connections = ThreadLocal.withInitial(this::connect);
+
+    HttpGateClient(ParkingService parkingService, int maxInFlight) throws IOException {
+        server = new GateHttpServer(parkingService, new InetSocketAddress("localhost", 0), maxInFlight);
+        server.start();
+    }
+
+    @Override
+    public GateStatus enter(String vehicleRegNumber, ParkingType parkingType) {
+        return post("/entry?vehicle=" + URLEncoder.encode(vehicleRegNumber, StandardCharsets.UTF_8) + "&type=" + parkingType);
+    }
+
+    @Override
+    public GateStatus exit(String vehicleRegNumber) {
+        return post("/exit?vehicle=" + URLEncoder.encode(vehicleRegNumber, StandardCharsets.UTF_8));
+    }
+
+    //a refused or failed call, including a 503 from the in-flight limit, counts as an error of the gate
+    private GateStatus post(String path) {
+        Connection connection = connections.get();
+        try {
+            String body = connection.post(path);
+            int status = body.indexOf(STATUS);
+            if (status < 0) {
+                return GateStatus.ERROR;
+            }
+            int from = status + STATUS.length();
+            return GateStatus.valueOf(body.substring(from, body.indexOf('"', from)));
+        } catch (IOException e) {
+            //the next call on this gate opens a new connection
+            connections.remove();
+            connection.close();
+            return GateStatus.ERROR;
+        }
+    }
+
+    private Connection connect() {
+        try {
+            Socket socket = new Socket("localhost", server.getPort());
+            socket.setTcpNoDelay(true);
+            sockets.add(socket);
+            return new Connection(socket);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to connect to the gate API", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Socket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //already gone
+            }
+        }
+        server.close();
+    }
+
+    private static class Connection {
+
+        private final Socket socket;
+        private final OutputStream out;
+        private final InputStream in;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+            this.in = new BufferedInputStream(socket.getInputStream());
+        }
+
+        String post(String path) throws IOException {
+            out.write(("POST " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            readLine();
+            int contentLength = 0;
+            for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+                if (header.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+                    contentLength = Integer.parseInt(header.substring("content-length:".length()).trim());
+                }
+            }
+            return new String(in.readNBytes(contentLength), StandardCharsets.UTF_8);
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (int c = in.read(); c != '\n'; c = in.read()) {
+                if (c < 0) {
+                    throw new IOException("Connection closed by the server");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //already gone
+            }
+        }
+    }
+}
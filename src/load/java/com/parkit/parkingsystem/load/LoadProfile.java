@@ -0,0 +1,122 @@
+package com.parkit.parkingsystem.load;
+
+import java.util.Locale;
+
+//the traffic one load step offers to the gates
+public class LoadProfile {
+
+    private double arrivalsPerSecond = 100;
+    private double carShare = 0.8;
+    private DwellDistribution dwellDistribution = DwellDistribution.EXPONENTIAL;
+    private long meanDwellMillis = 2000;
+    private int gates = 4;
+    private int durationSeconds = 20;
+    private int parkingSpots = 1000;
+    private boolean writeBehind;
+    private boolean http;
+
+    public LoadProfile copy() {
+        LoadProfile copy = new LoadProfile();
+        copy.arrivalsPerSecond = arrivalsPerSecond;
+        copy.carShare = carShare;
+        copy.dwellDistribution = dwellDistribution;
+        copy.meanDwellMillis = meanDwellMillis;
+        copy.gates = gates;
+        copy.durationSeconds = durationSeconds;
+        copy.parkingSpots = parkingSpots;
+        copy.writeBehind = writeBehind;
+        copy.http = http;
+        return copy;
+    }
+
+    //applies one --name=value option, returns false when the option is not a profile option
+    public boolean apply(String name, String value) {
+        switch (name) {
+            case "rate":
+                arrivalsPerSecond = Double.parseDouble(value);
+                return true;
+            case "car-share":
+                carShare = Double.parseDouble(value);
+                return true;
+            case "dwell":
+                //distribution:meanMillis, e.g. exponential:2000
+                int colon = value.indexOf(':');
+                dwellDistribution = DwellDistribution.valueOf(value.substring(0, colon).toUpperCase(Locale.ROOT));
+                meanDwellMillis = Long.parseLong(value.substring(colon + 1));
+                return true;
+            case "gates":
+                gates = Integer.parseInt(value);
+                return true;
+            case "duration":
+                durationSeconds = Integer.parseInt(value);
+                return true;
+            case "spots":
+                parkingSpots = Integer.parseInt(value);
+                return true;
+            case "write-behind":
+                writeBehind = Boolean.parseBoolean(value);
+                return true;
+            case "http":
+                //the gates call the HTTP API instead of ParkingService, each gate is one controller connection
+                http = Boolean.parseBoolean(value);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public double getArrivalsPerSecond() {
+        return arrivalsPerSecond;
+    }
+
+    public void setArrivalsPerSecond(double arrivalsPerSecond) {
+        this.arrivalsPerSecond = arrivalsPerSecond;
+    }
+
+    public double getCarShare() {
+        return carShare;
+    }
+
+    public DwellDistribution getDwellDistribution() {
+        return dwellDistribution;
+    }
+
+    public long getMeanDwellMillis() {
+        return meanDwellMillis;
+    }
+
+    public int getGates() {
+        return gates;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public int getParkingSpots() {
+        return parkingSpots;
+    }
+
+    public void setParkingSpots(int parkingSpots) {
+        this.parkingSpots = parkingSpots;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public boolean isHttp() {
+        return http;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%.0f arrivals/s, %.0f%% cars, dwell %s %d ms, %d gates, %d spots%s%s",
+                arrivalsPerSecond, carShare * 100, dwellDistribution.name().toLowerCase(Locale.ROOT), meanDwellMillis,
+                gates, parkingSpots, writeBehind ? ", write-behind" : "", http ? ", over HTTP" : "");
+    }
+}
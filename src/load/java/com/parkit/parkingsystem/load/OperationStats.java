@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.load;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+//what one kind of gate operation did during a load step
+public class OperationStats {
+
+    private final String name;
+    //from the moment the vehicle reached the gate, so time spent queueing behind a busy gate counts
+    private final LatencyHistogram latency = new LatencyHistogram();
+    //from the moment a gate started on the vehicle
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final LongAdder[] statuses = new LongAdder[GateStatus.values().length];
+
+    public OperationStats(String name) {
+        this.name = name;
+        for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = new LongAdder();
+        }
+    }
+
+    public void record(long arrivalNanos, long startNanos, long endNanos, GateStatus status) {
+        latency.record(endNanos - arrivalNanos);
+        serviceTime.record(endNanos - startNanos);
+        statuses[status.ordinal()].increment();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public LatencyHistogram getServiceTime() {
+        return serviceTime;
+    }
+
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    public long getCount(GateStatus status) {
+        return statuses[status.ordinal()].sum();
+    }
+
+    public double getLatencyMillis(double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1_000_000.0;
+    }
+
+    public String toJson(double seconds) {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT, "{\"count\": %d, \"perSecond\": %.1f, ", getCount(), getCount() / seconds));
+        json.append(String.format(Locale.ROOT,
+                "\"latencyMillis\": {\"p50\": %.3f, \"p99\": %.3f, \"p99.9\": %.3f, \"max\": %.3f, \"mean\": %.3f}, ",
+                getLatencyMillis(50), getLatencyMillis(99), getLatencyMillis(99.9),
+                latency.getMax() / 1_000_000.0, latency.getMean() / 1_000_000.0));
+        json.append(String.format(Locale.ROOT, "\"serviceMillis\": {\"p50\": %.3f, \"p99\": %.3f, \"p99.9\": %.3f}, ",
+                serviceTime.getValueAtPercentile(50) / 1_000_000.0, serviceTime.getValueAtPercentile(99) / 1_000_000.0,
+                serviceTime.getValueAtPercentile(99.9) / 1_000_000.0));
+        json.append("\"statuses\": {");
+        String separator = "";
+        for (GateStatus status : GateStatus.values()) {
+            if (getCount(status) > 0) {
+                json.append(separator).append('"').append(status).append("\": ").append(getCount(status));
+                separator = ", ";
+            }
+        }
+        return json.append("}}").toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%-5s p50 %8.3f ms  p99 %8.3f ms  p99.9 %8.3f ms  full %d  errors %d",
+                name, getLatencyMillis(50), getLatencyMillis(99), getLatencyMillis(99.9),
+                getCount(GateStatus.FULL), getCount(GateStatus.ERROR));
+    }
+}
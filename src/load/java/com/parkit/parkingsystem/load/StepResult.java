@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.load;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+
+import java.util.Locale;
+
+//one load step: the offered profile and what the gates managed over the measured window
+public class StepResult {
+
+    //a step keeps up when it completes this share of the offered arrivals
+    private static final double KEEPS_UP_SHARE = 0.95;
+
+    private final LoadProfile profile;
+    private final OperationStats entries;
+    private final OperationStats exits;
+    private final double measuredSeconds;
+    private final int dropped;
+
+    public StepResult(LoadProfile profile, OperationStats entries, OperationStats exits, double measuredSeconds, int dropped) {
+        this.profile = profile;
+        this.entries = entries;
+        this.exits = exits;
+        this.measuredSeconds = measuredSeconds;
+        this.dropped = dropped;
+    }
+
+    public LoadProfile getProfile() {
+        return profile;
+    }
+
+    public OperationStats getEntries() {
+        return entries;
+    }
+
+    public OperationStats getExits() {
+        return exits;
+    }
+
+    public double getEntriesPerSecond() {
+        return entries.getCount() / measuredSeconds;
+    }
+
+    //keeps up with the arrivals, within the p99 objective, and without failed operations
+    public boolean isSustained(double sloP99Millis) {
+        return dropped == 0
+                && getEntriesPerSecond() >= KEEPS_UP_SHARE * profile.getArrivalsPerSecond()
+                && entries.getLatencyMillis(99) <= sloP99Millis
+                && exits.getLatencyMillis(99) <= sloP99Millis
+                && entries.getCount(GateStatus.ERROR) == 0
+                && exits.getCount(GateStatus.ERROR) == 0;
+    }
+
+    public String toJson(double sloP99Millis) {
+        return String.format(Locale.ROOT,
+                "{\"offeredPerSecond\": %.1f, \"parkingSpots\": %d, \"measuredSeconds\": %.1f, \"dropped\": %d, \"sustained\": %b,%n"
+                        + "      \"entry\": %s,%n      \"exit\": %s}",
+                profile.getArrivalsPerSecond(), profile.getParkingSpots(), measuredSeconds, dropped, isSustained(sloP99Millis),
+                entries.toJson(measuredSeconds), exits.toJson(measuredSeconds));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "offered %.0f/s, entries %.1f/s, exits %.1f/s, dropped %d%n  %s%n  %s",
+                profile.getArrivalsPerSecond(), getEntriesPerSecond(), exits.getCount() / measuredSeconds, dropped,
+                entries, exits);
+    }
+}
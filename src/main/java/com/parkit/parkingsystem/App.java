@@ -1,13 +1,50 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.service.FareRepricingLauncher;
+import com.parkit.parkingsystem.service.GateEventIngestionLauncher;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.TicketArchivalLauncher;
+import com.parkit.parkingsystem.web.GateHttpServer;
+import com.parkit.parkingsystem.web.GateServerLauncher;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Duration;
+
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
     public static void main(String args[]){
         logger.info("Initializing Parking System");
-        InteractiveShell.loadInterface();
+        //-Dparkit.metrics.dumpSeconds=N logs the operation latency summary every N seconds
+        long metricsDumpSeconds = Long.getLong("parkit.metrics.dumpSeconds", 0);
+        if(metricsDumpSeconds > 0){
+            Metrics.startSummaryDump(metricsDumpSeconds);
+        }
+        try {
+            new SchemaMigrator(new DataBaseConfig()).migrate();
+        } catch (Exception e) {
+            logger.error("Unable to migrate the database schema", e);
+        }
+        if(args.length > 0 && args[0].equals("reprice")){
+            //reprice [jobName]: re-prices closed tickets with the current tariff, resuming an interrupted run
+            FareRepricingLauncher.reprice(args.length > 1 ? args[1] : "reprice");
+        }else if(args.length > 0 && args[0].equals("serve")){
+            //serve [port]: the gate HTTP API, runs until the process is stopped
+            GateServerLauncher.serve(args.length > 1 ? Integer.parseInt(args[1]) : GateHttpServer.DEFAULT_PORT);
+            return;
+        }else if(args.length > 1 && args[0].equals("archive")){
+            //archive <days>: moves the tickets closed more than that many days ago to the monthly archive tables
+            TicketArchivalLauncher.archive(Duration.ofDays(Long.parseLong(args[1])));
+        }else if(args.length > 1 && args[0].equals("ingest")){
+            //ingest <file>: replays a dump of gate events buffered by the controllers while the site was offline
+            GateEventIngestionLauncher.ingest(args[1]);
+        }else{
+            InteractiveShell.loadInterface();
+        }
+        Metrics.stopSummaryDump();
+        DataBaseConfig.closeAllPools();
     }
 }
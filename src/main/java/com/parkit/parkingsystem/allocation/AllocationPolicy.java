@@ -0,0 +1,28 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Which free spot a vehicle is given. The allocator compiles the policy when the spots are loaded: the spots of each
+ * type are grouped into zones and ordered within them, and a claim takes the first free spot of the zone the policy
+ * prefers. The order is fixed at load, so a claim never compares spots and only moves counters and bits.
+ */
+public interface AllocationPolicy {
+
+    //spots of the same zone are handed out one after the other in the order below
+    int zoneOf(ParkingSpot parkingSpot);
+
+    Comparator<ParkingSpot> order();
+
+    //true to prefer the zone with the most free spots, false for the lowest zone that has one
+    boolean balancesZones();
+
+    //the spot types a vehicle of the type may be given, most wanted first, as a list that cannot be changed
+    default List<ParkingType> spotTypesFor(ParkingType vehicleType) {
+        return List.of(vehicleType);
+    }
+}
@@ -0,0 +1,25 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.Comparator;
+
+//spreads the vehicles over the levels: the level with the most free spots of the type, the lowest level among ties
+public class LevelBalancedPolicy implements AllocationPolicy {
+
+    @Override
+    public int zoneOf(ParkingSpot parkingSpot) {
+        return parkingSpot.getLevel();
+    }
+
+    //nearest the entry within the level, which is also nearest the ramps
+    @Override
+    public Comparator<ParkingSpot> order() {
+        return Comparator.comparingInt(ParkingSpot::getEntryDistance).thenComparingInt(ParkingSpot::getId);
+    }
+
+    @Override
+    public boolean balancesZones() {
+        return true;
+    }
+}
@@ -0,0 +1,24 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.Comparator;
+
+//the lowest free spot number, what the gates have always done
+public class LowestNumberPolicy implements AllocationPolicy {
+
+    @Override
+    public int zoneOf(ParkingSpot parkingSpot) {
+        return 0;
+    }
+
+    @Override
+    public Comparator<ParkingSpot> order() {
+        return Comparator.comparingInt(ParkingSpot::getId);
+    }
+
+    @Override
+    public boolean balancesZones() {
+        return false;
+    }
+}
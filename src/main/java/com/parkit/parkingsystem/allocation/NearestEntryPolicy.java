@@ -0,0 +1,24 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.Comparator;
+
+//the free spot closest to the entry gate, the lowest number among spots as close
+public class NearestEntryPolicy implements AllocationPolicy {
+
+    @Override
+    public int zoneOf(ParkingSpot parkingSpot) {
+        return 0;
+    }
+
+    @Override
+    public Comparator<ParkingSpot> order() {
+        return Comparator.comparingInt(ParkingSpot::getEntryDistance).thenComparingInt(ParkingSpot::getId);
+    }
+
+    @Override
+    public boolean balancesZones() {
+        return false;
+    }
+}
@@ -0,0 +1,440 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ * The free spots of each type, handed out in the order of the allocation policy. The policy is compiled at load into
+ * a rank per spot, grouped by zone: a free set over the ranks, a first-free hint per zone and a tree of the free counts
+ * of the zones, so a claim picks the zone in O(log zones) and its first free spot with a word scan from the hint.
+ */
+public class ParkingSpotAllocator {
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final AllocationPolicy allocationPolicy;
+
+    //replaced as a whole on (re)load so readers never see a half-built lot
+    private volatile Lot lot;
+
+    public ParkingSpotAllocator() {
+        this(new LowestNumberPolicy());
+    }
+
+    public ParkingSpotAllocator(AllocationPolicy allocationPolicy) {
+        this.allocationPolicy = allocationPolicy;
+    }
+
+    public AllocationPolicy getAllocationPolicy() {
+        return allocationPolicy;
+    }
+
+    public boolean isLoaded() {
+        return lot != null;
+    }
+
+    public void load(Collection<ParkingSpot> parkingSpots) {
+        int maxNumber = 0;
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            maxNumber = Math.max(maxNumber, parkingSpot.getId());
+        }
+        Lot newLot = new Lot(maxNumber);
+        List<List<ParkingSpot>> byType = new ArrayList<>();
+        for (int type = 0; type < PARKING_TYPES.length; type++) {
+            byType.add(new ArrayList<>());
+        }
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            int type = parkingSpot.getParkingType().ordinal();
+            newLot.types[parkingSpot.getId()] = parkingSpot.getParkingType();
+            newLot.parkingSpots[parkingSpot.getId()] = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(),
+                    false, parkingSpot.getLevel(), parkingSpot.getEntryDistance());
+            newLot.capacities[type]++;
+            if (parkingSpot.isAvailable()) {
+                newLot.freeCounts.incrementAndGet(type);
+            }
+            byType.get(type).add(parkingSpot);
+        }
+        for (int type = 0; type < PARKING_TYPES.length; type++) {
+            newLot.spots[type] = new TypeSpots(byType.get(type), allocationPolicy, newLot);
+            List<ParkingType> spotTypes = allocationPolicy.spotTypesFor(PARKING_TYPES[type]);
+            newLot.fits[type] = new int[spotTypes.size()];
+            for (int i = 0; i < spotTypes.size(); i++) {
+                newLot.fits[type][i] = spotTypes.get(i).ordinal();
+            }
+        }
+        lot = newLot;
+    }
+
+    //the spot the policy would give a vehicle of the type, 0 when none fits
+    public int getNextAvailable(ParkingType vehicleType) {
+        Lot current = requireLoaded();
+        for (int type : current.fits[vehicleType.ordinal()]) {
+            TypeSpots spots = current.spots[type];
+            synchronized (spots) {
+                int zone = spots.preferredZone();
+                if (zone >= 0) {
+                    return spots.numbers[spots.firstFree(zone)];
+                }
+            }
+        }
+        return 0;
+    }
+
+    //like getNextAvailable, skipping the spots booked over [from, to)
+    public int getNextAvailable(ParkingType vehicleType, ReservationIndex reservations, long from, long to) {
+        Lot current = requireLoaded();
+        for (int type : current.fits[vehicleType.ordinal()]) {
+            TypeSpots spots = current.spots[type];
+            synchronized (spots) {
+                int rank = firstUnbooked(current, spots, PARKING_TYPES[type], reservations, from, to);
+                if (rank >= 0) {
+                    return spots.numbers[rank];
+                }
+            }
+        }
+        return 0;
+    }
+
+    //takes the spot the policy picks out of the free set in one step, 0 when none fits
+    public int claimNextAvailable(ParkingType vehicleType) {
+        Lot current = requireLoaded();
+        for (int type : current.fits[vehicleType.ordinal()]) {
+            TypeSpots spots = current.spots[type];
+            synchronized (spots) {
+                int zone = spots.preferredZone();
+                if (zone >= 0) {
+                    int rank = spots.firstFree(zone);
+                    spots.take(rank, zone);
+                    current.freeCounts.decrementAndGet(type);
+                    return spots.numbers[rank];
+                }
+            }
+        }
+        return 0;
+    }
+
+    //like claimNextAvailable, skipping the spots booked over [from, to)
+    public int claimNextAvailable(ParkingType vehicleType, ReservationIndex reservations, long from, long to) {
+        Lot current = requireLoaded();
+        for (int type : current.fits[vehicleType.ordinal()]) {
+            TypeSpots spots = current.spots[type];
+            synchronized (spots) {
+                int rank = firstUnbooked(current, spots, PARKING_TYPES[type], reservations, from, to);
+                if (rank >= 0) {
+                    int number = spots.numbers[rank];
+                    spots.take(rank, current.zones[number]);
+                    current.freeCounts.decrementAndGet(type);
+                    return number;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /*
+     * Books the spot the policy would give a walk-in now that also has no booking over the reservation's window, 0
+     * when there is none. Walk-ins claim under the same lock, so none can take the spot between the check and the
+     * booking. Only spots of the reservation's own type are booked.
+     */
+    public int bookNextAvailable(ReservationIndex reservations, Reservation reservation) {
+        Lot current = requireLoaded();
+        ParkingType parkingType = reservation.getParkingType();
+        TypeSpots spots = current.spots[parkingType.ordinal()];
+        synchronized (spots) {
+            int rank;
+            while ((rank = firstUnbooked(current, spots, parkingType, reservations, reservation.getStartMillis(),
+                    reservation.getEndMillis())) >= 0) {
+                reservation.setParkingNumber(spots.numbers[rank]);
+                //false when a booking that need not wait for this lock took the spot in between
+                if (reservations.book(reservation)) {
+                    return spots.numbers[rank];
+                }
+            }
+            reservation.setParkingNumber(0);
+            return 0;
+        }
+    }
+
+    //takes the spot out of the free set, false when it is not free
+    public boolean claim(int number) {
+        Lot current = requireLoaded();
+        ParkingType parkingType = current.typeOf(number);
+        if (parkingType == null) {
+            return false;
+        }
+        int type = parkingType.ordinal();
+        TypeSpots spots = current.spots[type];
+        synchronized (spots) {
+            int rank = current.ranks[number];
+            if (!spots.free.get(rank)) {
+                return false;
+            }
+            spots.take(rank, current.zones[number]);
+            current.freeCounts.decrementAndGet(type);
+            return true;
+        }
+    }
+
+    /*
+     * The first spot in the policy's order that is both free and unbooked, as a rank, -1 when there is none; the
+     * caller holds the type's lock. Spots ordered by number step between the free set and the unbooked spots of the
+     * index; other orders do the same per zone over the index's tree in the allocator's order, the preferred zone first
+     * and then the others in turn.
+     */
+    private static int firstUnbooked(Lot current, TypeSpots spots, ParkingType parkingType, ReservationIndex reservations,
+                                     long from, long to) {
+        int zone = spots.preferredZone();
+        if (zone < 0) {
+            return -1;
+        }
+        if (!reservations.hasBookings(parkingType)) {
+            return spots.firstFree(zone);
+        }
+        if (spots.byNumber) {
+            int rank = spots.firstFree(zone);
+            while (rank >= 0) {
+                int number = spots.numbers[rank];
+                int unbooked = reservations.lowestFree(parkingType, number, from, to);
+                if (unbooked == number) {
+                    return rank;
+                }
+                if (unbooked == 0) {
+                    return -1;
+                }
+                rank = spots.free.nextSetBit(current.ranks[unbooked]);
+            }
+            return -1;
+        }
+        int rank = spots.firstUnbooked(zone, parkingType, reservations, from, to);
+        for (int other = 0; rank < 0 && other < spots.zoneCount(); other++) {
+            if (other != zone) {
+                rank = spots.firstUnbooked(other, parkingType, reservations, from, to);
+            }
+        }
+        return rank;
+    }
+
+    public void setAvailable(int number, boolean available) {
+        Lot current = requireLoaded();
+        ParkingType parkingType = current.typeOf(number);
+        if (parkingType == null) {
+            return;
+        }
+        int type = parkingType.ordinal();
+        TypeSpots spots = current.spots[type];
+        synchronized (spots) {
+            int rank = current.ranks[number];
+            if (spots.free.get(rank) == available) {
+                return;
+            }
+            if (available) {
+                spots.put(rank, current.zones[number]);
+            } else {
+                spots.take(rank, current.zones[number]);
+            }
+            current.freeCounts.addAndGet(type, available ? 1 : -1);
+        }
+    }
+
+    public boolean isAvailable(int number) {
+        Lot current = requireLoaded();
+        ParkingType parkingType = current.typeOf(number);
+        if (parkingType == null) {
+            return false;
+        }
+        TypeSpots spots = current.spots[parkingType.ordinal()];
+        synchronized (spots) {
+            return spots.free.get(current.ranks[number]);
+        }
+    }
+
+    public ParkingType getParkingType(int number) {
+        return requireLoaded().typeOf(number);
+    }
+
+    //the one instance of the spot that tickets refer to, shared by all of them so it stays marked taken and is never changed
+    public ParkingSpot getParkingSpot(int number) {
+        ParkingSpot[] parkingSpots = requireLoaded().parkingSpots;
+        return (number > 0 && number < parkingSpots.length) ? parkingSpots[number] : null;
+    }
+
+    //the counters move under the type's lock together with the free set, reading them takes no lock
+    public int getAvailableCount(ParkingType parkingType) {
+        return requireLoaded().freeCounts.get(parkingType.ordinal());
+    }
+
+    public int getOccupiedCount(ParkingType parkingType) {
+        Lot current = requireLoaded();
+        int type = parkingType.ordinal();
+        return current.capacities[type] - current.freeCounts.get(type);
+    }
+
+    public int getCapacity(ParkingType parkingType) {
+        return requireLoaded().capacities[parkingType.ordinal()];
+    }
+
+    private Lot requireLoaded() {
+        Lot current = lot;
+        if (current == null) {
+            throw new IllegalStateException("Parking spots have not been loaded");
+        }
+        return current;
+    }
+
+    private static class Lot {
+        private final TypeSpots[] spots;
+        //per vehicle type, the ordinals of the spot types it may be given
+        private final int[][] fits;
+        private final AtomicIntegerArray freeCounts;
+        private final int[] capacities;
+        //per spot number
+        private final ParkingType[] types;
+        private final int[] ranks;
+        private final int[] zones;
+        private final ParkingSpot[] parkingSpots;
+
+        private Lot(int maxNumber) {
+            spots = new TypeSpots[PARKING_TYPES.length];
+            fits = new int[PARKING_TYPES.length][];
+            freeCounts = new AtomicIntegerArray(PARKING_TYPES.length);
+            capacities = new int[PARKING_TYPES.length];
+            types = new ParkingType[maxNumber + 1];
+            ranks = new int[maxNumber + 1];
+            zones = new int[maxNumber + 1];
+            parkingSpots = new ParkingSpot[maxNumber + 1];
+        }
+
+        private ParkingType typeOf(int number) {
+            return (number > 0 && number < types.length) ? types[number] : null;
+        }
+    }
+
+    //the spots of one type in the policy's order, guarded by its own monitor
+    private static class TypeSpots {
+        //spot number at each rank, the ranks of a zone follow each other
+        private final int[] numbers;
+        private final BitSet free;
+        //zone z holds the ranks from zoneStarts[z] to zoneStarts[z + 1]
+        private final int[] zoneStarts;
+        //every free rank of a zone is at or above its hint
+        private final int[] firstFreeHints;
+        //free spots per zone at the leaves, the larger child in every parent
+        private final int[] freeTree;
+        private final int leaves;
+        private final boolean balances;
+        //one zone in number order, so the reservation index can be stepped through directly
+        private final boolean byNumber;
+
+        private TypeSpots(List<ParkingSpot> parkingSpots, AllocationPolicy allocationPolicy, Lot lot) {
+            List<ParkingSpot> ordered = new ArrayList<>(parkingSpots);
+            ordered.sort(Comparator.comparingInt(allocationPolicy::zoneOf).thenComparing(allocationPolicy.order()));
+            numbers = new int[ordered.size()];
+            free = new BitSet(ordered.size());
+            int[] starts = new int[ordered.size() + 1];
+            int zoneCount = 0;
+            boolean ascending = true;
+            int previousZone = 0;
+            for (int rank = 0; rank < ordered.size(); rank++) {
+                ParkingSpot parkingSpot = ordered.get(rank);
+                int zone = allocationPolicy.zoneOf(parkingSpot);
+                if (rank == 0 || zone != previousZone) {
+                    starts[zoneCount++] = rank;
+                    previousZone = zone;
+                }
+                numbers[rank] = parkingSpot.getId();
+                ascending &= rank == 0 || numbers[rank] > numbers[rank - 1];
+                lot.ranks[parkingSpot.getId()] = rank;
+                lot.zones[parkingSpot.getId()] = zoneCount - 1;
+                free.set(rank, parkingSpot.isAvailable());
+            }
+            starts[zoneCount] = ordered.size();
+            zoneStarts = new int[zoneCount + 1];
+            System.arraycopy(starts, 0, zoneStarts, 0, zoneCount + 1);
+            firstFreeHints = new int[zoneCount];
+            System.arraycopy(zoneStarts, 0, firstFreeHints, 0, zoneCount);
+            leaves = Integer.highestOneBit(Math.max(1, zoneCount - 1)) << 1;
+            freeTree = new int[2 * leaves];
+            for (int zone = 0; zone < zoneCount; zone++) {
+                freeTree[leaves + zone] = free.get(zoneStarts[zone], zoneStarts[zone + 1]).cardinality();
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                freeTree[node] = Math.max(freeTree[2 * node], freeTree[2 * node + 1]);
+            }
+            balances = allocationPolicy.balancesZones();
+            byNumber = zoneCount <= 1 && ascending;
+        }
+
+        private int zoneCount() {
+            return firstFreeHints.length;
+        }
+
+        //the zone to claim from, -1 when every zone is full
+        private int preferredZone() {
+            if (freeTree[1] == 0) {
+                return -1;
+            }
+            int node = 1;
+            while (node < leaves) {
+                int left = 2 * node;
+                node = (balances ? freeTree[left] == freeTree[node] : freeTree[left] > 0) ? left : left + 1;
+            }
+            return node - leaves;
+        }
+
+        //the first free rank of a zone that has one
+        private int firstFree(int zone) {
+            int rank = free.nextSetBit(firstFreeHints[zone]);
+            firstFreeHints[zone] = rank;
+            return rank;
+        }
+
+        //steps between the free ranks of the zone and the unbooked ones the index finds in the same order
+        private int firstUnbooked(int zone, ParkingType parkingType, ReservationIndex reservations, long from, long to) {
+            int end = zoneStarts[zone + 1];
+            int rank = free.nextSetBit(firstFreeHints[zone]);
+            while (rank >= 0 && rank < end) {
+                int unbooked = reservations.firstFree(parkingType, numbers, rank, from, to);
+                if (unbooked < 0 || unbooked >= end) {
+                    return -1;
+                }
+                if (unbooked == rank) {
+                    return rank;
+                }
+                rank = free.nextSetBit(unbooked);
+            }
+            return -1;
+        }
+
+        private void take(int rank, int zone) {
+            free.clear(rank);
+            if (rank == firstFreeHints[zone]) {
+                firstFreeHints[zone] = rank + 1;
+            }
+            addFree(zone, -1);
+        }
+
+        private void put(int rank, int zone) {
+            free.set(rank);
+            if (rank < firstFreeHints[zone]) {
+                firstFreeHints[zone] = rank;
+            }
+            addFree(zone, 1);
+        }
+
+        private void addFree(int zone, int delta) {
+            int node = leaves + zone;
+            freeTree[node] += delta;
+            for (node >>= 1; node > 0; node >>= 1) {
+                freeTree[node] = Math.max(freeTree[2 * node], freeTree[2 * node + 1]);
+            }
+        }
+    }
+}
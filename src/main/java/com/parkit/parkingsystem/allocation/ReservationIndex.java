@@ -0,0 +1,434 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ * The bookings of a lot, indexed for the two questions asked when booking: is any spot of a type free over a window,
+ * and which is the lowest one. Each spot keeps its bookings sorted by start, so it is free over the gaps between them.
+ * Per type, a segment tree over the spots in number order keeps at each node the gaps of its spots that no other gap of
+ * the node contains, sorted by start with their ends rising. A node holds a spot free over [from, to) exactly when the
+ * last of those gaps starting at or before from ends at or after to, one binary search, so the lowest free spot is found
+ * descending O(log n) nodes. A booking rebuilds the nodes above its spot from their children. Any spot with no booking
+ * has the gap that contains all others, which keeps the nodes small unless every spot under them is booked. The spots
+ * of a type may also be indexed in another order, the allocator's, in a second tree of the same kind.
+ */
+public class ReservationIndex {
+
+    //how long a walk-in is expected to stay, a booked spot is held back from walk-ins that long before its booking starts
+    public static final long DEFAULT_HOLD_MILLIS = 2 * 60 * 60 * 1000L;
+
+    //free from the beginning to the end of time, the gap of a spot with no booking
+    private static final long[] UNBOOKED = {Long.MIN_VALUE, Long.MAX_VALUE};
+    private static final long[] NO_GAP = new long[0];
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    //the bookings of each spot that has some, by start
+    private final Map<Integer, TreeMap<Long, Reservation>> bookings = new HashMap<>();
+    private final Map<String, List<Reservation>> bookingsByVehicle = new HashMap<>();
+    //bookings do not overlap on a spot, so no two of them end at the same time on the same spot
+    private final TreeSet<Reservation> bookingsByEnd = new TreeSet<>(
+            Comparator.comparingLong(Reservation::getEndMillis).thenComparingInt(Reservation::getParkingNumber));
+    //read without the lock, walk-ins skip the index while their type has no booking
+    private final AtomicIntegerArray bookingCounts = new AtomicIntegerArray(PARKING_TYPES.length);
+    private volatile long holdMillis;
+
+    //null until the spots are loaded
+    private ParkingType[] types;
+    private SpotTree[] trees;
+    //per type, the spots in the order last asked for by firstFree, null until then
+    private OrderedTree[] orderedTrees;
+
+    public ReservationIndex() {
+        this(DEFAULT_HOLD_MILLIS);
+    }
+
+    public ReservationIndex(long holdMillis) {
+        this.holdMillis = holdMillis;
+    }
+
+    public long getHoldMillis() {
+        return holdMillis;
+    }
+
+    public void setHoldMillis(long holdMillis) {
+        this.holdMillis = holdMillis;
+    }
+
+    //the bookings survive a reload, those of spots that are gone or changed type are dropped
+    public synchronized void load(Collection<ParkingSpot> parkingSpots) {
+        int maxNumber = 0;
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            maxNumber = Math.max(maxNumber, parkingSpot.getId());
+        }
+        ParkingType[] newTypes = new ParkingType[maxNumber + 1];
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            newTypes[parkingSpot.getId()] = parkingSpot.getParkingType();
+        }
+        for (Reservation reservation : new ArrayList<>(bookingsByEnd)) {
+            int number = reservation.getParkingNumber();
+            if (number >= newTypes.length || newTypes[number] != reservation.getParkingType()) {
+                unlink(reservation);
+            }
+        }
+        SpotTree[] newTrees = new SpotTree[PARKING_TYPES.length];
+        for (ParkingType parkingType : PARKING_TYPES) {
+            int count = 0;
+            for (ParkingType type : newTypes) {
+                count += type == parkingType ? 1 : 0;
+            }
+            int[] numbers = new int[count];
+            long[][] leafGaps = new long[count][];
+            int position = 0;
+            for (int number = 1; number < newTypes.length; number++) {
+                if (newTypes[number] == parkingType) {
+                    numbers[position] = number;
+                    leafGaps[position++] = gapsBetween(bookings.get(number));
+                }
+            }
+            newTrees[parkingType.ordinal()] = new SpotTree(numbers, leafGaps);
+        }
+        types = newTypes;
+        trees = newTrees;
+        orderedTrees = new OrderedTree[PARKING_TYPES.length];
+    }
+
+    public synchronized boolean isLoaded() {
+        return trees != null;
+    }
+
+    public boolean hasBookings(ParkingType parkingType) {
+        return bookingCounts.get(parkingType.ordinal()) > 0;
+    }
+
+    //whether the spot has no booking over [from, to)
+    public synchronized boolean isFree(int number, long from, long to) {
+        TreeMap<Long, Reservation> spotBookings = bookings.get(number);
+        if (spotBookings == null) {
+            return true;
+        }
+        //the last booking starting before to is the one ending last
+        Map.Entry<Long, Reservation> last = spotBookings.lowerEntry(to);
+        return last == null || last.getValue().getEndMillis() <= from;
+    }
+
+    public synchronized boolean isAnyFree(ParkingType parkingType, long from, long to) {
+        return fits(requireLoaded()[parkingType.ordinal()].gaps[1], from, to);
+    }
+
+    //the lowest spot of the type numbered fromNumber or more with no booking over [from, to), 0 when there is none
+    public synchronized int lowestFree(ParkingType parkingType, int fromNumber, long from, long to) {
+        return requireLoaded()[parkingType.ordinal()].lowest(fromNumber, from, to);
+    }
+
+    /*
+     * The first position from fromPosition on of a spot with no booking over [from, to), -1 when there is none, with the
+     * spots of the type listed in the given order. The tree over that order is built on the first call and kept up to
+     * date with the bookings, so the caller passes the same array every time and never changes it.
+     */
+    public synchronized int firstFree(ParkingType parkingType, int[] order, int fromPosition, long from, long to) {
+        requireLoaded();
+        OrderedTree ordered = orderedTrees[parkingType.ordinal()];
+        if (ordered == null || ordered.order != order) {
+            ordered = orderedTree(order);
+            orderedTrees[parkingType.ordinal()] = ordered;
+        }
+        return ordered.tree.lowestFrom(fromPosition, from, to);
+    }
+
+    //books the reservation's spot, false when that overlaps one of its bookings or is not a spot of the reservation's type
+    public synchronized boolean book(Reservation reservation) {
+        requireLoaded();
+        int number = reservation.getParkingNumber();
+        if (typeOf(number) != reservation.getParkingType()
+                || !isFree(number, reservation.getStartMillis(), reservation.getEndMillis())) {
+            return false;
+        }
+        add(reservation);
+        return true;
+    }
+
+    //books the lowest spot of the reservation's type with no booking over its window, 0 when there is none
+    public synchronized int bookLowest(Reservation reservation) {
+        int number = lowestFree(reservation.getParkingType(), 1, reservation.getStartMillis(), reservation.getEndMillis());
+        if (number > 0) {
+            reservation.setParkingNumber(number);
+            add(reservation);
+        }
+        return number;
+    }
+
+    public synchronized boolean cancel(Reservation reservation) {
+        TreeMap<Long, Reservation> spotBookings = bookings.get(reservation.getParkingNumber());
+        if (spotBookings == null || spotBookings.get(reservation.getStartMillis()) != reservation) {
+            return false;
+        }
+        unlink(reservation);
+        updateLeaf(reservation.getParkingNumber());
+        return true;
+    }
+
+    //null when the vehicle holds no booking with that id
+    public synchronized Reservation getReservation(String vehicleRegNumber, int id) {
+        for (Reservation reservation : bookingsByVehicle.getOrDefault(key(vehicleRegNumber), List.of())) {
+            if (reservation.getId() == id) {
+                return reservation;
+            }
+        }
+        return null;
+    }
+
+    //sets the id the database gave the booking, under the lock that lookups by id take
+    public synchronized void setId(Reservation reservation, int id) {
+        reservation.setId(id);
+    }
+
+    //the spot the vehicle booked for now, from the hold time before the booking starts, 0 when it has none
+    public synchronized int getReservedSpot(String vehicleRegNumber, ParkingType parkingType, long now) {
+        for (Reservation reservation : bookingsByVehicle.getOrDefault(key(vehicleRegNumber), List.of())) {
+            if (reservation.getParkingType() == parkingType && reservation.getStartMillis() - holdMillis <= now
+                    && now < reservation.getEndMillis()) {
+                return reservation.getParkingNumber();
+            }
+        }
+        return 0;
+    }
+
+    //drops the bookings that have ended, the number dropped
+    public synchronized int expire(long now) {
+        int expired = 0;
+        while (!bookingsByEnd.isEmpty() && bookingsByEnd.first().getEndMillis() <= now) {
+            Reservation reservation = bookingsByEnd.first();
+            unlink(reservation);
+            updateLeaf(reservation.getParkingNumber());
+            expired++;
+        }
+        return expired;
+    }
+
+    private void add(Reservation reservation) {
+        int number = reservation.getParkingNumber();
+        bookings.computeIfAbsent(number, n -> new TreeMap<>()).put(reservation.getStartMillis(), reservation);
+        bookingsByVehicle.computeIfAbsent(key(reservation.getVehicleRegNumber()), v -> new ArrayList<>()).add(reservation);
+        bookingsByEnd.add(reservation);
+        bookingCounts.incrementAndGet(reservation.getParkingType().ordinal());
+        updateLeaf(number);
+    }
+
+    //forgets the booking, leaving its spot's leaf to the caller
+    private void unlink(Reservation reservation) {
+        int number = reservation.getParkingNumber();
+        TreeMap<Long, Reservation> spotBookings = bookings.get(number);
+        spotBookings.remove(reservation.getStartMillis());
+        if (spotBookings.isEmpty()) {
+            bookings.remove(number);
+        }
+        String vehicle = key(reservation.getVehicleRegNumber());
+        List<Reservation> vehicleBookings = bookingsByVehicle.get(vehicle);
+        vehicleBookings.remove(reservation);
+        if (vehicleBookings.isEmpty()) {
+            bookingsByVehicle.remove(vehicle);
+        }
+        bookingsByEnd.remove(reservation);
+        bookingCounts.decrementAndGet(reservation.getParkingType().ordinal());
+    }
+
+    private void updateLeaf(int number) {
+        long[] leafGaps = gapsBetween(bookings.get(number));
+        SpotTree tree = trees[types[number].ordinal()];
+        tree.setLeaf(Arrays.binarySearch(tree.numbers, number), leafGaps);
+        OrderedTree ordered = orderedTrees[types[number].ordinal()];
+        if (ordered != null && number < ordered.positions.length && ordered.positions[number] >= 0) {
+            ordered.tree.setLeaf(ordered.positions[number], leafGaps);
+        }
+    }
+
+    private OrderedTree orderedTree(int[] order) {
+        int maxNumber = types.length - 1;
+        for (int number : order) {
+            maxNumber = Math.max(maxNumber, number);
+        }
+        int[] positions = new int[maxNumber + 1];
+        Arrays.fill(positions, -1);
+        long[][] leafGaps = new long[order.length][];
+        for (int position = 0; position < order.length; position++) {
+            positions[order[position]] = position;
+            leafGaps[position] = gapsBetween(bookings.get(order[position]));
+        }
+        return new OrderedTree(order, positions, new SpotTree(order, leafGaps));
+    }
+
+    private ParkingType typeOf(int number) {
+        return (number > 0 && number < types.length) ? types[number] : null;
+    }
+
+    private SpotTree[] requireLoaded() {
+        if (trees == null) {
+            throw new IllegalStateException("Parking spots have not been loaded");
+        }
+        return trees;
+    }
+
+    private static String key(String vehicleRegNumber) {
+        return vehicleRegNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    //the gaps left by the spot's bookings as start, end pairs
+    private static long[] gapsBetween(TreeMap<Long, Reservation> spotBookings) {
+        if (spotBookings == null) {
+            return UNBOOKED;
+        }
+        long[] gaps = new long[2 * (spotBookings.size() + 1)];
+        int size = 0;
+        long start = Long.MIN_VALUE;
+        for (Reservation reservation : spotBookings.values()) {
+            if (reservation.getStartMillis() > start) {
+                gaps[size++] = start;
+                gaps[size++] = reservation.getStartMillis();
+            }
+            start = reservation.getEndMillis();
+        }
+        gaps[size++] = start;
+        gaps[size++] = Long.MAX_VALUE;
+        return size == gaps.length ? gaps : Arrays.copyOf(gaps, size);
+    }
+
+    //whether a gap holds [from, to): with the ends rising, the last gap starting at or before from is the one to check
+    private static boolean fits(long[] gaps, long from, long to) {
+        int low = 0;
+        int high = gaps.length / 2 - 1;
+        int last = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (gaps[2 * middle] <= from) {
+                last = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return last >= 0 && gaps[2 * last + 1] >= to;
+    }
+
+    //the gaps of both nodes that no other gap contains, one of the two arrays when the other adds nothing
+    private static long[] merge(long[] left, long[] right) {
+        if (left.length == 0) {
+            return right;
+        }
+        if (right.length == 0) {
+            return left;
+        }
+        long[] merged = new long[left.length + right.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        long furthestEnd = Long.MIN_VALUE;
+        while (i < left.length || j < right.length) {
+            //by start, the longer first on equal starts, so a gap is contained in another exactly when one before it ends as late
+            boolean fromLeft = j == right.length
+                    || (i < left.length && (left[i] < right[j] || (left[i] == right[j] && left[i + 1] >= right[j + 1])));
+            long[] gaps = fromLeft ? left : right;
+            int index = fromLeft ? i : j;
+            if (gaps[index + 1] > furthestEnd) {
+                merged[size++] = gaps[index];
+                merged[size++] = gaps[index + 1];
+                furthestEnd = gaps[index + 1];
+            }
+            if (fromLeft) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        if (Arrays.equals(merged, 0, size, left, 0, left.length)) {
+            return left;
+        }
+        if (Arrays.equals(merged, 0, size, right, 0, right.length)) {
+            return right;
+        }
+        return Arrays.copyOf(merged, size);
+    }
+
+    private static class SpotTree {
+        //the spot numbers of the type in ascending order, a spot's leaf is at its position
+        private final int[] numbers;
+        private final int leaves;
+        //node 1 is the root, node n has children 2n and 2n + 1, the leaves start at index leaves
+        private final long[][] gaps;
+
+        private SpotTree(int[] numbers, long[][] leafGaps) {
+            this.numbers = numbers;
+            int size = 1;
+            while (size < numbers.length) {
+                size <<= 1;
+            }
+            leaves = size;
+            gaps = new long[2 * leaves][];
+            for (int position = 0; position < leaves; position++) {
+                gaps[leaves + position] = position < numbers.length ? leafGaps[position] : NO_GAP;
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                gaps[node] = merge(gaps[2 * node], gaps[2 * node + 1]);
+            }
+        }
+
+        private void setLeaf(int position, long[] leafGaps) {
+            int node = leaves + position;
+            gaps[node] = leafGaps;
+            for (node >>= 1; node > 0; node >>= 1) {
+                gaps[node] = merge(gaps[2 * node], gaps[2 * node + 1]);
+            }
+        }
+
+        //the numbers must be ascending
+        private int lowest(int fromNumber, long from, long to) {
+            int fromPosition = Arrays.binarySearch(numbers, fromNumber);
+            int position = lowestFrom(fromPosition < 0 ? -fromPosition - 1 : fromPosition, from, to);
+            return position < 0 ? 0 : numbers[position];
+        }
+
+        private int lowestFrom(int fromPosition, long from, long to) {
+            return lowest(1, 0, leaves, fromPosition, from, to);
+        }
+
+        //the first position of the node's range [low, high) from fromPosition on with a spot free over [from, to), -1 if none
+        private int lowest(int node, int low, int high, int fromPosition, long from, long to) {
+            if (high <= fromPosition || !fits(gaps[node], from, to)) {
+                return -1;
+            }
+            if (high - low == 1) {
+                return low;
+            }
+            int middle = (low + high) >>> 1;
+            int position = lowest(2 * node, low, middle, fromPosition, from, to);
+            return position >= 0 ? position : lowest(2 * node + 1, middle, high, fromPosition, from, to);
+        }
+    }
+
+    //a tree over the spots of a type in the order of the array, which is kept to tell the order apart
+    private static class OrderedTree {
+        private final int[] order;
+        //per spot number, its position in the order, -1 when it is not listed
+        private final int[] positions;
+        private final SpotTree tree;
+
+        private OrderedTree(int[] order, int[] positions, SpotTree tree) {
+            this.order = order;
+            this.positions = positions;
+            this.tree = tree;
+        }
+    }
+}
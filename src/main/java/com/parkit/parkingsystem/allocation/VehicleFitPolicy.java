@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem.allocation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.Comparator;
+import java.util.List;
+
+/*
+ * Keeps the charging and oversized spots for the vehicles that need them. An EV is given a charging spot while one is
+ * free and a car spot after that, cars never take charging spots and oversized vehicles only fit oversized spots. The
+ * spots of each type are picked in the order of the wrapped policy.
+ */
+public class VehicleFitPolicy implements AllocationPolicy {
+
+    private static final List<ParkingType> EV_SPOT_TYPES = List.of(ParkingType.EV, ParkingType.CAR);
+
+    private final AllocationPolicy orderPolicy;
+
+    public VehicleFitPolicy() {
+        this(new LowestNumberPolicy());
+    }
+
+    public VehicleFitPolicy(AllocationPolicy orderPolicy) {
+        this.orderPolicy = orderPolicy;
+    }
+
+    @Override
+    public int zoneOf(ParkingSpot parkingSpot) {
+        return orderPolicy.zoneOf(parkingSpot);
+    }
+
+    @Override
+    public Comparator<ParkingSpot> order() {
+        return orderPolicy.order();
+    }
+
+    @Override
+    public boolean balancesZones() {
+        return orderPolicy.balancesZones();
+    }
+
+    @Override
+    public List<ParkingType> spotTypesFor(ParkingType vehicleType) {
+        return vehicleType == ParkingType.EV ? EV_SPOT_TYPES : List.of(vehicleType);
+    }
+}
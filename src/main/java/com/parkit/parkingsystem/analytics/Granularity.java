@@ -0,0 +1,18 @@
+package com.parkit.parkingsystem.analytics;
+
+//bucket sizes of the analytics, in local wall clock time
+public enum Granularity {
+    MINUTE(60 * 1000L),
+    HOUR(60 * 60 * 1000L),
+    DAY(24 * 60 * 60 * 1000L);
+
+    private final long millis;
+
+    Granularity(long millis) {
+        this.millis = millis;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+}
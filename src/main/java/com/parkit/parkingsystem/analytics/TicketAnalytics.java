@@ -0,0 +1,175 @@
+package com.parkit.parkingsystem.analytics;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+import com.parkit.parkingsystem.model.RevenueSummary;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Date;
+
+/*
+ * Revenue, ticket counts and time parked of the closed tickets, kept in memory so finance never queries the ticket table.
+ * Every closed ticket is added to its minute, hour and day of the local calendar, by parking type, and to its day by spot.
+ * A range is summed from the coarsest buckets that fit in it, so a year is a few hundred days plus at most a day of hours
+ * and two hours of minutes at its ends. Minutes are kept for two days, hours for three months and days for over a year:
+ * the part of a range that starts or ends inside an hour older than the minute window, or a day older than the hour
+ * window, is left out. Ranges are taken to the minute.
+ */
+public class TicketAnalytics {
+
+    public static final int DEFAULT_MINUTE_BUCKETS = 2 * 24 * 60;
+    public static final int DEFAULT_HOUR_BUCKETS = 92 * 24;
+    public static final int DEFAULT_DAY_BUCKETS = 400;
+    public static final int DEFAULT_REBUILD_CHUNK_SIZE = 1000;
+
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final double MICROS_PER_UNIT_OF_CURRENCY = 1_000_000;
+    //grows with the highest spot number seen
+    private static final int INITIAL_SPOTS = 64;
+
+    private final ZoneRules zoneRules;
+    private final TimeBuckets minutes;
+    private final TimeBuckets hours;
+    private final TimeBuckets days;
+    private final TimeBuckets spotDays;
+
+    public TicketAnalytics(ZoneId zoneId) {
+        this(zoneId, DEFAULT_MINUTE_BUCKETS, DEFAULT_HOUR_BUCKETS, DEFAULT_DAY_BUCKETS);
+    }
+
+    public TicketAnalytics(ZoneId zoneId, int minuteBuckets, int hourBuckets, int dayBuckets) {
+        int types = ParkingType.values().length;
+        this.zoneRules = zoneId.getRules();
+        this.minutes = new TimeBuckets(minuteBuckets, types);
+        this.hours = new TimeBuckets(hourBuckets, types);
+        this.days = new TimeBuckets(dayBuckets, types);
+        this.spotDays = new TimeBuckets(dayBuckets, INITIAL_SPOTS);
+    }
+
+    //counts a ticket that has just been closed
+    public void record(Ticket ticket) {
+        record(ticket.getParkingSpot().getParkingType(), ticket.getParkingSpot().getId(), ticket.getInTimeMillis(),
+                ticket.getOutTimeMillis(), ticket.getPrice());
+    }
+
+    public synchronized void record(ParkingType parkingType, int parkingNumber, long inTimeMillis, long outTimeMillis, double price) {
+        long local = localMillis(outTimeMillis);
+        long priceMicros = Math.round(price * MICROS_PER_UNIT_OF_CURRENCY);
+        long dwell = Math.max(0, outTimeMillis - inTimeMillis);
+        int type = parkingType.ordinal();
+        minutes.add(Math.floorDiv(local, Granularity.MINUTE.getMillis()), type, priceMicros, dwell);
+        hours.add(Math.floorDiv(local, Granularity.HOUR.getMillis()), type, priceMicros, dwell);
+        long day = Math.floorDiv(local, Granularity.DAY.getMillis());
+        days.add(day, type, priceMicros, dwell);
+        if (parkingNumber >= 0) {
+            spotDays.add(day, parkingNumber, priceMicros, dwell);
+        }
+    }
+
+    //the tickets closed from fromMillis included to toMillis excluded
+    public synchronized RevenueSummary summarize(long fromMillis, long toMillis) {
+        int types = ParkingType.values().length;
+        int[] tickets = new int[types];
+        long[] revenueMicros = new long[types];
+        long[] dwellMillis = new long[types];
+        long minute = Math.floorDiv(localMillis(fromMillis), Granularity.MINUTE.getMillis());
+        long end = Math.floorDiv(localMillis(toMillis), Granularity.MINUTE.getMillis());
+        //no ticket was counted outside the days of the ring
+        long oldestDay = days.getOldest();
+        if (oldestDay == Long.MIN_VALUE) {
+            end = minute;
+        } else {
+            minute = Math.max(minute, oldestDay * MINUTES_PER_DAY);
+            end = Math.min(end, (oldestDay + days.getCapacity()) * MINUTES_PER_DAY);
+        }
+        while (minute < end) {
+            if (Math.floorMod(minute, MINUTES_PER_DAY) == 0 && minute + MINUTES_PER_DAY <= end
+                    && days.retains(Math.floorDiv(minute, MINUTES_PER_DAY))) {
+                days.sumInto(Math.floorDiv(minute, MINUTES_PER_DAY), tickets, revenueMicros, dwellMillis);
+                minute += MINUTES_PER_DAY;
+            } else if (Math.floorMod(minute, MINUTES_PER_HOUR) == 0 && minute + MINUTES_PER_HOUR <= end
+                    && hours.retains(Math.floorDiv(minute, MINUTES_PER_HOUR))) {
+                hours.sumInto(Math.floorDiv(minute, MINUTES_PER_HOUR), tickets, revenueMicros, dwellMillis);
+                minute += MINUTES_PER_HOUR;
+            } else if (minutes.retains(minute)) {
+                minutes.sumInto(minute, tickets, revenueMicros, dwellMillis);
+                minute++;
+            } else {
+                //a part of an hour the minutes no longer cover
+                minute = (Math.floorDiv(minute, MINUTES_PER_HOUR) + 1) * MINUTES_PER_HOUR;
+            }
+        }
+        return new RevenueSummary(fromMillis, toMillis, tickets, revenueMicros, dwellMillis);
+    }
+
+    //revenue of each bucket overlapping the range, NaN for a bucket no longer kept
+    public synchronized double[] revenueSeries(Granularity granularity, long fromMillis, long toMillis) {
+        TimeBuckets buckets = granularity == Granularity.MINUTE ? minutes : granularity == Granularity.HOUR ? hours : days;
+        long first = Math.floorDiv(localMillis(fromMillis), granularity.getMillis());
+        long last = Math.floorDiv(localMillis(toMillis) - 1, granularity.getMillis());
+        if (last - first + 1 > buckets.getCapacity()) {
+            throw new IllegalArgumentException("At most " + buckets.getCapacity() + " buckets of a " + granularity
+                    + " are kept");
+        }
+        double[] series = new double[(int) Math.max(0, last - first + 1)];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = buckets.retains(first + i) ? buckets.revenueMicros(first + i) / MICROS_PER_UNIT_OF_CURRENCY : Double.NaN;
+        }
+        return series;
+    }
+
+    //revenue indexed by spot number, over the local days the range covers whole
+    public synchronized double[] revenueBySpot(long fromMillis, long toMillis) {
+        long day = Math.floorDiv(localMillis(fromMillis) + Granularity.DAY.getMillis() - 1, Granularity.DAY.getMillis());
+        long end = Math.floorDiv(localMillis(toMillis), Granularity.DAY.getMillis());
+        int spots = spotDays.getWidth();
+        int[] tickets = new int[spots];
+        long[] revenueMicros = new long[spots];
+        long[] dwellMillis = new long[spots];
+        long oldestDay = spotDays.getOldest();
+        if (oldestDay == Long.MIN_VALUE) {
+            end = day;
+        } else {
+            day = Math.max(day, oldestDay);
+            end = Math.min(end, oldestDay + spotDays.getCapacity());
+        }
+        for (; day < end; day++) {
+            spotDays.sumInto(day, tickets, revenueMicros, dwellMillis);
+        }
+        double[] revenue = new double[spots];
+        for (int spot = 0; spot < spots; spot++) {
+            revenue[spot] = revenueMicros[spot] / MICROS_PER_UNIT_OF_CURRENCY;
+        }
+        return revenue;
+    }
+
+    //one pass over the tickets closed within the day window, meant for an empty instance before the gates open
+    public long rebuild(TicketHistoryDAO ticketHistoryDAO, int chunkSize) throws ClassNotFoundException, SQLException {
+        Date since = new Date(System.currentTimeMillis() - days.getCapacity() * Granularity.DAY.getMillis());
+        ClosedTicketBatch batch = new ClosedTicketBatch(chunkSize);
+        long loaded = 0;
+        int lastTicketId = 0;
+        while (ticketHistoryDAO.readClosedTicketsSince(since, lastTicketId, batch) > 0) {
+            for (int i = 0; i < batch.size(); i++) {
+                record(batch.getParkingType(i), batch.getParkingNumber(i), batch.getInTime(i), batch.getOutTime(i),
+                        batch.getPrice(i));
+            }
+            loaded += batch.size();
+            lastTicketId = batch.getLastId();
+            if (batch.size() < batch.getCapacity()) {
+                break;
+            }
+        }
+        return loaded;
+    }
+
+    private long localMillis(long epochMillis) {
+        return epochMillis + zoneRules.getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds() * 1000L;
+    }
+}
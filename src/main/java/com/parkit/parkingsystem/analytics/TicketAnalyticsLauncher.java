@@ -0,0 +1,31 @@
+package com.parkit.parkingsystem.analytics;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.ZoneId;
+
+//the revenue analytics of a lot, rebuilt from its closed tickets before the gates open
+public class TicketAnalyticsLauncher {
+
+    private static final Logger logger = LogManager.getLogger("TicketAnalyticsLauncher");
+
+    public static TicketAnalytics rebuild(String lot, DataBaseConfig lotConfig){
+        TicketAnalytics ticketAnalytics = new TicketAnalytics(ZoneId.systemDefault());
+        TicketHistoryDAO ticketHistoryDAO = new TicketHistoryDAO();
+        ticketHistoryDAO.dataBaseConfig = lotConfig;
+        long start = System.nanoTime();
+        try {
+            long loaded = ticketAnalytics.rebuild(ticketHistoryDAO, TicketAnalytics.DEFAULT_REBUILD_CHUNK_SIZE);
+            logger.info("Revenue analytics of lot {} rebuilt from {} closed tickets in {} ms", lot, loaded,
+                    (System.nanoTime() - start) / 1_000_000);
+            return ticketAnalytics;
+        } catch (Exception e) {
+            logger.error("Unable to rebuild the revenue analytics of lot {}, they only count tickets closed from now on", lot, e);
+            //a partly loaded history would be taken for the whole of it
+            return new TicketAnalytics(ZoneId.systemDefault());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.parkit.parkingsystem.analytics;
+
+import java.util.Arrays;
+
+//a ring of consecutive time buckets, each a row of columns in parallel arrays, the oldest bucket is reused for the next one
+final class TimeBuckets {
+
+    private static final long UNUSED = Long.MIN_VALUE;
+
+    private final int capacity;
+    private int width;
+    //the bucket number each slot currently holds
+    private final long[] buckets;
+    private int[] tickets;
+    private long[] revenueMicros;
+    private long[] dwellMillis;
+    private long newest = UNUSED;
+
+    TimeBuckets(int capacity, int width) {
+        this.capacity = capacity;
+        this.width = width;
+        buckets = new long[capacity];
+        Arrays.fill(buckets, UNUSED);
+        tickets = new int[capacity * width];
+        revenueMicros = new long[capacity * width];
+        dwellMillis = new long[capacity * width];
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    //false when the bucket has already left the ring, the ticket is then not counted at this granularity
+    boolean add(long bucket, int column, long priceMicros, long dwell) {
+        if (!retains(bucket)) {
+            return false;
+        }
+        if (column >= width) {
+            grow(Math.max(column + 1, width * 2));
+        }
+        int slot = (int) Math.floorMod(bucket, (long) capacity);
+        if (buckets[slot] != bucket) {
+            if (buckets[slot] > bucket) {
+                return false;
+            }
+            Arrays.fill(tickets, slot * width, (slot + 1) * width, 0);
+            Arrays.fill(revenueMicros, slot * width, (slot + 1) * width, 0);
+            Arrays.fill(dwellMillis, slot * width, (slot + 1) * width, 0);
+            buckets[slot] = bucket;
+        }
+        newest = Math.max(newest, bucket);
+        int index = slot * width + column;
+        tickets[index]++;
+        revenueMicros[index] += priceMicros;
+        dwellMillis[index] += dwell;
+        return true;
+    }
+
+    //whether the ring still answers for the bucket, a bucket it retains and holds no row for had no tickets
+    boolean retains(long bucket) {
+        return newest == UNUSED || bucket > newest - capacity;
+    }
+
+    //the oldest bucket the ring answers for, Long.MIN_VALUE while it is empty
+    long getOldest() {
+        return newest == UNUSED ? Long.MIN_VALUE : newest - capacity + 1;
+    }
+
+    //adds the bucket's columns to the totals, nothing when no ticket closed in it
+    void sumInto(long bucket, int[] totalTickets, long[] totalRevenueMicros, long[] totalDwellMillis) {
+        int slot = (int) Math.floorMod(bucket, (long) capacity);
+        if (buckets[slot] != bucket) {
+            return;
+        }
+        int columns = Math.min(width, totalTickets.length);
+        for (int column = 0; column < columns; column++) {
+            int index = slot * width + column;
+            totalTickets[column] += tickets[index];
+            totalRevenueMicros[column] += revenueMicros[index];
+            totalDwellMillis[column] += dwellMillis[index];
+        }
+    }
+
+    long revenueMicros(long bucket) {
+        int slot = (int) Math.floorMod(bucket, (long) capacity);
+        if (buckets[slot] != bucket) {
+            return 0;
+        }
+        long revenue = 0;
+        for (int index = slot * width; index < (slot + 1) * width; index++) {
+            revenue += revenueMicros[index];
+        }
+        return revenue;
+    }
+
+    private void grow(int newWidth) {
+        int[] newTickets = new int[capacity * newWidth];
+        long[] newRevenueMicros = new long[capacity * newWidth];
+        long[] newDwellMillis = new long[capacity * newWidth];
+        for (int slot = 0; slot < capacity; slot++) {
+            System.arraycopy(tickets, slot * width, newTickets, slot * newWidth, width);
+            System.arraycopy(revenueMicros, slot * width, newRevenueMicros, slot * newWidth, width);
+            System.arraycopy(dwellMillis, slot * width, newDwellMillis, slot * newWidth, width);
+        }
+        tickets = newTickets;
+        revenueMicros = newRevenueMicros;
+        dwellMillis = newDwellMillis;
+        width = newWidth;
+    }
+}
@@ -0,0 +1,409 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConnectionPool {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    //connections returned to the pool less than this long ago are handed out without a validation round trip
+    private static final long VALIDATION_INTERVAL_MILLIS = 1000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+
+    //most recently returned connections sit at the head, idle eviction works from the tail
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger pendingThreads = new AtomicInteger();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long acquireTimeoutMillis, long idleTimeoutMillis) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size min:" + minSize + " max:" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeoutMillis / 2, 10);
+        housekeeper.scheduleWithFixedDelay(this::maintain, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        pendingThreads.incrementAndGet();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis
+                        + "ms waiting for a connection to " + url);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        } finally {
+            pendingThreads.decrementAndGet();
+        }
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            recordWait(System.nanoTime() - start);
+            activeConnections.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            validationFailureCount.incrementAndGet();
+            discard(pooled);
+        }
+        //holding a permit guarantees fewer than maxSize connections are in use, so one can be opened
+        return create();
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastReturned < VALIDATION_INTERVAL_MILLIS) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        totalConnections.incrementAndGet();
+        try {
+            Connection physical = DriverManager.getConnection(url, user, password);
+            createdCount.incrementAndGet();
+            return new PooledConnection(physical);
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection pooled, boolean broken) {
+        activeConnections.decrementAndGet();
+        try {
+            if (closed || broken || pooled.physical.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastReturned = System.currentTimeMillis();
+            idleConnections.offerFirst(pooled);
+        } catch (SQLException e) {
+            logger.error("Error while returning connection to pool", e);
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing pooled connection", e);
+        }
+    }
+
+    private void maintain() {
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+            while (iterator.hasNext() && totalConnections.get() > minSize) {
+                PooledConnection pooled = iterator.next();
+                if (now - pooled.lastReturned > idleTimeoutMillis && idleConnections.remove(pooled)) {
+                    evictedCount.incrementAndGet();
+                    discard(pooled);
+                }
+            }
+            while (!closed && totalConnections.get() < minSize && permits.tryAcquire()) {
+                try {
+                    PooledConnection pooled = create();
+                    pooled.lastReturned = now;
+                    idleConnections.offerLast(pooled);
+                } finally {
+                    permits.release();
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error while maintaining connection pool for {}", url, e);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWaitNanos.get()) && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            //retry until the larger wait is recorded
+        }
+    }
+
+    public PoolStats getStats() {
+        return new PoolStats(totalConnections.get(), activeConnections.get(), idleConnections.size(),
+                pendingThreads.get(), acquireCount.get(), timeoutCount.get(), totalWaitNanos.get(),
+                maxWaitNanos.get(), createdCount.get(), evictedCount.get(), validationFailureCount.get());
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long lastReturned;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        private Connection lease() {
+            LeaseHandler handler = new LeaseHandler(this);
+            handler.proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, handler);
+            return handler.proxy;
+        }
+    }
+
+    /*
+     * Hands the physical connection back to the pool instead of closing it, and fences off the lease afterwards. The
+     * statements of the lease are wrapped too: they answer getConnection with the lease, and the ones still open when
+     * it is returned are closed with their result sets, so a DAO that gave up on an exception leaves no cursor behind
+     * on a connection that outlives it.
+     */
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean returned = new AtomicBoolean();
+        private final List<Statement> openStatements = new ArrayList<>(2);
+        private volatile boolean broken;
+        private Connection proxy;
+
+        private LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        closeStatements();
+                        release(pooled, broken);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                default:
+                    Object result = call(pooled.physical, method, args);
+                    return result instanceof Statement ? track((Statement) result, method.getReturnType()) : result;
+            }
+        }
+
+        private Object call(Object target, Method method, Object[] args) throws Throwable {
+            if (returned.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isFatal((SQLException) cause)) {
+                    broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        private Object track(Statement statement, Class<?> type) {
+            synchronized (openStatements) {
+                openStatements.add(statement);
+            }
+            return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler(this, statement));
+        }
+
+        private void forget(Statement statement) {
+            synchronized (openStatements) {
+                openStatements.remove(statement);
+            }
+        }
+
+        private void closeStatements() {
+            synchronized (openStatements) {
+                for (Statement statement : openStatements) {
+                    try {
+                        statement.close();
+                    } catch (SQLException e) {
+                        logger.error("Error while closing a statement left open on a pooled connection", e);
+                        broken = true;
+                    }
+                }
+                openStatements.clear();
+            }
+        }
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final LeaseHandler lease;
+        private final Statement statement;
+
+        private StatementHandler(LeaseHandler lease, Statement statement) {
+            this.lease = lease;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    lease.forget(statement);
+                    statement.close();
+                    return null;
+                case "isClosed":
+                    return statement.isClosed();
+                case "getConnection":
+                    return lease.proxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + statement;
+                default:
+                    Object result = lease.call(statement, method, args);
+                    if (result instanceof ResultSet) {
+                        return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                                new Class<?>[]{ResultSet.class}, new ResultSetHandler((Statement) proxy, (ResultSet) result));
+                    }
+                    return result;
+            }
+        }
+    }
+
+    //only there so getStatement answers the wrapped statement, the result set closes with it
+    private static class ResultSetHandler implements InvocationHandler {
+        private final Statement statement;
+        private final ResultSet resultSet;
+
+        private ResultSetHandler(Statement statement, ResultSet resultSet) {
+            this.statement = statement;
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getStatement":
+                    return statement;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    try {
+                        return method.invoke(resultSet, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    private static boolean isFatal(SQLException e) {
+        //SQLState class 08 is "connection exception"
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+}
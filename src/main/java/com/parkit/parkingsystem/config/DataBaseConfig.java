@@ -1,26 +1,186 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    private static final OperationMetrics GET_CONNECTION = Metrics.operation("DataBaseConfig.getConnection");
+    private static final OperationMetrics COMMIT = Metrics.operation("DataBaseConfig.commit");
+    private static final OperationMetrics GET_READ_CONNECTION = Metrics.operation("DataBaseConfig.getReadConnection");
+
+    public static final int POOL_MIN_SIZE = 2;
+    public static final int POOL_MAX_SIZE = 10;
+    public static final long POOL_ACQUIRE_TIMEOUT_MILLIS = 5000;
+    public static final long POOL_IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+    public static final long REPLICA_HEARTBEAT_MILLIS = 1000;
+    public static final long REPLICA_MAX_LAG_MILLIS = 5000;
+
+    //DAOs each hold their own config instance, so pools are shared per JDBC url
+    private static final ConcurrentMap<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+    //keyed by the url of the primary
+    private static final ConcurrentMap<String, ReplicaSet> replicaSets = new ConcurrentHashMap<>();
+
+    private List<String> replicaUrls;
+
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","rootroot");
+        long start = System.nanoTime();
+        try {
+            return getConnectionPool().getConnection();
+        } catch (ClassNotFoundException | SQLException | RuntimeException e) {
+            GET_CONNECTION.recordError();
+            throw e;
+        } finally {
+            GET_CONNECTION.record(start);
+        }
+    }
+
+    /*
+     * A connection for a read-only query that must see the writes committed up to writtenAtMillis, 0 when it may miss
+     * the latest ones. It comes from a replica that has those writes when there is one, otherwise from the primary.
+     */
+    public Connection getReadConnection(long writtenAtMillis) throws ClassNotFoundException, SQLException {
+        long start = System.nanoTime();
+        try {
+            ReplicaSet replicaSet = getReplicaSet();
+            Replica replica = replicaSet == null ? null : replicaSet.pick(writtenAtMillis);
+            if (replica != null) {
+                try {
+                    return getConnectionPool(replica.getUrl()).getConnection();
+                } catch (SQLException e) {
+                    logger.warn("Replica {} refused a connection, reading from the primary", replica.getUrl(), e);
+                    replica.failed();
+                }
+            }
+            return getConnection();
+        } catch (ClassNotFoundException | SQLException | RuntimeException e) {
+            GET_READ_CONNECTION.recordError();
+            throw e;
+        } finally {
+            GET_READ_CONNECTION.record(start);
+        }
+    }
+
+    public boolean hasReplicas() {
+        if (replicaUrls == null) {
+            replicaUrls = getReplicaUrls();
+        }
+        return !replicaUrls.isEmpty();
+    }
+
+    //null when the primary has no replicas
+    public ReplicaSet getReplicaSet() {
+        if (!hasReplicas()) {
+            return null;
+        }
+        return replicaSets.computeIfAbsent(getUrl(),
+                url -> new ReplicaSet(this, replicaUrls, getReplicaHeartbeatMillis(), REPLICA_MAX_LAG_MILLIS));
+    }
+
+    public void commit(Connection con) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            con.commit();
+        } catch (SQLException | RuntimeException e) {
+            COMMIT.recordError();
+            throw e;
+        } finally {
+            COMMIT.record(start);
+        }
+    }
+
+    public ConnectionPool getConnectionPool() throws ClassNotFoundException {
+        return getConnectionPool(getUrl());
+    }
+
+    ConnectionPool getConnectionPool(String url) throws ClassNotFoundException {
+        ConnectionPool pool = pools.get(url);
+        if (pool == null) {
+            synchronized (pools) {
+                pool = pools.get(url);
+                if (pool == null) {
+                    Class.forName(getDriverClassName());
+                    logger.info("Create DB connection pool for {}", url);
+                    pool = createConnectionPool(url);
+                    pools.put(url, pool);
+                }
+            }
+        }
+        return pool;
+    }
+
+    public PoolStats getPoolStats() throws ClassNotFoundException {
+        return getConnectionPool().getStats();
+    }
+
+    protected ConnectionPool createConnectionPool(String url) {
+        return new ConnectionPool(url, getUser(), getPassword(), POOL_MIN_SIZE, POOL_MAX_SIZE,
+                POOL_ACQUIRE_TIMEOUT_MILLIS, POOL_IDLE_TIMEOUT_MILLIS);
+    }
+
+    protected String getDriverClassName() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    protected String getUrl() {
+        return "jdbc:mysql://localhost:3306/prod";
+    }
+
+    protected String getUser() {
+        return "root";
+    }
+
+    protected String getPassword() {
+        return "rootroot";
+    }
+
+    //-Dparkit.db.replicas=URL,URL lists the read replicas of the primary, they share its user and password
+    protected List<String> getReplicaUrls() {
+        List<String> urls = new ArrayList<>();
+        String replicas = System.getProperty("parkit.db.replicas");
+        if (replicas != null) {
+            for (String url : replicas.split(",")) {
+                if (!url.trim().isEmpty()) {
+                    urls.add(url.trim());
+                }
+            }
+        }
+        return urls;
+    }
+
+    protected long getReplicaHeartbeatMillis() {
+        return REPLICA_HEARTBEAT_MILLIS;
+    }
+
+    public static void closeAllPools() {
+        for (ReplicaSet replicaSet : replicaSets.values()) {
+            replicaSet.close();
+        }
+        replicaSets.clear();
+        synchronized (pools) {
+            for (ConnectionPool pool : pools.values()) {
+                logger.info("Closing DB connection pool for {}", pool.getUrl());
+                pool.close();
+            }
+            pools.clear();
+        }
     }
 
     public void closeConnection(Connection con){
         if(con!=null){
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                logger.debug("Closing DB connection");
             } catch (SQLException e) {
                 logger.error("Error while closing connection",e);
             }
@@ -31,7 +191,7 @@ public class DataBaseConfig {
         if(ps!=null){
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                logger.debug("Closing Prepared Statement");
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
@@ -42,7 +202,7 @@ public class DataBaseConfig {
         if(rs!=null){
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                logger.debug("Closing Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//the database of one lot when the site is split across several, same driver and credentials as the default one
+public class LotDataBaseConfig extends DataBaseConfig {
+
+    private static final Logger logger = LogManager.getLogger("LotDataBaseConfig");
+
+    private final String url;
+    private final List<String> replicaUrls;
+
+    public LotDataBaseConfig(String url, List<String> replicaUrls) {
+        this.url = url;
+        this.replicaUrls = replicaUrls;
+    }
+
+    //the databases of "north=URL,south=URL", by lot name and migrated; name=primary|replica|replica adds read replicas
+    public static Map<String, DataBaseConfig> parseLots(String lots) {
+        Map<String, DataBaseConfig> lotConfigs = new LinkedHashMap<>();
+        for (String lot : lots.split(",")) {
+            int equals = lot.indexOf('=');
+            List<String> urls = new ArrayList<>();
+            for (String url : lot.substring(equals + 1).split("\\|")) {
+                urls.add(url.trim());
+            }
+            DataBaseConfig lotConfig = new LotDataBaseConfig(urls.get(0), urls.subList(1, urls.size()));
+            try {
+                new SchemaMigrator(lotConfig).migrate();
+            } catch (Exception e) {
+                logger.error("Unable to migrate the database schema of lot {}", lot, e);
+            }
+            lotConfigs.put(lot.substring(0, equals).trim(), lotConfig);
+        }
+        return lotConfigs;
+    }
+
+    @Override
+    protected String getUrl() {
+        return url;
+    }
+
+    @Override
+    protected List<String> getReplicaUrls() {
+        return replicaUrls;
+    }
+}
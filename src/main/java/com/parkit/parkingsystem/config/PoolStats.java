@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem.config;
+
+public class PoolStats {
+    private final int totalConnections;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int pendingThreads;
+    private final long acquireCount;
+    private final long timeoutCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long createdCount;
+    private final long evictedCount;
+    private final long validationFailureCount;
+
+    public PoolStats(int totalConnections, int activeConnections, int idleConnections, int pendingThreads,
+                     long acquireCount, long timeoutCount, long totalWaitNanos, long maxWaitNanos,
+                     long createdCount, long evictedCount, long validationFailureCount) {
+        this.totalConnections = totalConnections;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.pendingThreads = pendingThreads;
+        this.acquireCount = acquireCount;
+        this.timeoutCount = timeoutCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.createdCount = createdCount;
+        this.evictedCount = evictedCount;
+        this.validationFailureCount = validationFailureCount;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getPendingThreads() {
+        return pendingThreads;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    public long getAverageWaitNanos() {
+        return acquireCount == 0 ? 0 : totalWaitNanos / acquireCount;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    public long getValidationFailureCount() {
+        return validationFailureCount;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{total=" + totalConnections + ", active=" + activeConnections + ", idle=" + idleConnections
+                + ", pending=" + pendingThreads + ", acquired=" + acquireCount + ", timeouts=" + timeoutCount
+                + ", avgWaitMicros=" + getAverageWaitNanos() / 1000 + ", maxWaitMicros=" + maxWaitNanos / 1000
+                + ", created=" + createdCount + ", evicted=" + evictedCount
+                + ", validationFailures=" + validationFailureCount + "}";
+    }
+}
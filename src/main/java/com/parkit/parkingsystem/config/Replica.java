@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//a read replica of the primary and what its last heartbeat check found, published over JMX as type=Replica
+public class Replica implements ReplicaMBean {
+
+    private final String url;
+    private volatile boolean healthy;
+    //the primary heartbeat the replica had applied at the last check, every write committed before it is on the replica
+    private volatile long replicatedThroughMillis;
+    private volatile long lagMillis = -1;
+    private final AtomicLong readCount = new AtomicLong();
+    private final AtomicLong checkFailureCount = new AtomicLong();
+
+    public Replica(String url) {
+        this.url = url;
+    }
+
+    @Override
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    @Override
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getReplicatedThroughMillis() {
+        return replicatedThroughMillis;
+    }
+
+    @Override
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    @Override
+    public long getCheckFailureCount() {
+        return checkFailureCount.get();
+    }
+
+    void checked(long replicatedThroughMillis, long lagMillis, boolean healthy) {
+        this.replicatedThroughMillis = replicatedThroughMillis;
+        this.lagMillis = lagMillis;
+        this.healthy = healthy;
+    }
+
+    void failed() {
+        checkFailureCount.incrementAndGet();
+        healthy = false;
+    }
+
+    void read() {
+        readCount.incrementAndGet();
+    }
+}
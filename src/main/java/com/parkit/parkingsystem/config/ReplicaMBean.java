@@ -0,0 +1,15 @@
+package com.parkit.parkingsystem.config;
+
+public interface ReplicaMBean {
+
+    String getUrl();
+
+    boolean isHealthy();
+
+    //-1 until the replica has answered a heartbeat check
+    long getLagMillis();
+
+    long getReadCount();
+
+    long getCheckFailureCount();
+}
@@ -0,0 +1,135 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * The read replicas of one primary. Every heartbeat the time is written to the primary's replica_heartbeat row and read
+ * back from each replica: the value a replica returns is the point up to which it has applied the primary's writes,
+ * and its distance to the last value written is the replica's lag. Replicas further behind than the lag limit, or that
+ * fail the check, get no reads until they catch up.
+ */
+public class ReplicaSet {
+
+    private static final Logger logger = LogManager.getLogger("ReplicaSet");
+
+    private final DataBaseConfig dataBaseConfig;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long heartbeatMillis;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong primaryReadCount = new AtomicLong();
+    private volatile long lastBeatMillis;
+    private final ScheduledExecutorService monitor;
+
+    ReplicaSet(DataBaseConfig dataBaseConfig, List<String> replicaUrls, long heartbeatMillis, long maxLagMillis) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.heartbeatMillis = heartbeatMillis;
+        this.maxLagMillis = maxLagMillis;
+        for (String url : replicaUrls) {
+            Replica replica = new Replica(url);
+            replicas.add(replica);
+            Metrics.publish("Replica", url, replica);
+        }
+        monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleWithFixedDelay(this::check, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public List<Replica> getReplicas() {
+        return Collections.unmodifiableList(replicas);
+    }
+
+    //reads that no replica could serve
+    public long getPrimaryReadCount() {
+        return primaryReadCount.get();
+    }
+
+    //the next replica in turn that has the writes committed up to writtenAtMillis, null when the read must go to the primary
+    Replica pick(long writtenAtMillis) {
+        long now = System.currentTimeMillis();
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            long replicatedThrough = replica.getReplicatedThroughMillis();
+            //a replica that stopped answering since its last check is not trusted beyond the lag limit either
+            if (replica.isHealthy() && replicatedThrough > writtenAtMillis
+                    && now - replicatedThrough <= maxLagMillis + heartbeatMillis) {
+                replica.read();
+                return replica;
+            }
+        }
+        primaryReadCount.incrementAndGet();
+        return null;
+    }
+
+    void check() {
+        long beat = System.currentTimeMillis();
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_REPLICA_HEARTBEAT);
+            ps.setLong(1, beat);
+            ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            lastBeatMillis = beat;
+        } catch (Exception e) {
+            logger.debug("Unable to write the replica heartbeat", e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        for (Replica replica : replicas) {
+            check(replica);
+        }
+    }
+
+    private void check(Replica replica) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnectionPool(replica.getUrl()).getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_REPLICA_HEARTBEAT);
+            ResultSet rs = ps.executeQuery();
+            long replicatedThrough = rs.next() ? rs.getLong(1) : 0;
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            long lag = Math.max(0, lastBeatMillis - replicatedThrough);
+            boolean healthy = lag <= maxLagMillis;
+            if (healthy != replica.isHealthy()) {
+                if (healthy) {
+                    logger.info("Replica {} is {} ms behind, serving reads", replica.getUrl(), lag);
+                } else {
+                    logger.warn("Replica {} is {} ms behind, reads go to the primary", replica.getUrl(), lag);
+                }
+            }
+            replica.checked(replicatedThrough, lag, healthy);
+        } catch (Exception e) {
+            if (replica.isHealthy()) {
+                logger.warn("Replica {} failed its check, reads go to the primary", replica.getUrl(), e);
+            }
+            replica.failed();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    void close() {
+        monitor.shutdownNow();
+    }
+}
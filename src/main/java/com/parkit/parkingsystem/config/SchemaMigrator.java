@@ -0,0 +1,136 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+//applies the versioned scripts under db/migration that the database has not seen yet
+public class SchemaMigrator {
+
+    private static final Logger logger = LogManager.getLogger("SchemaMigrator");
+
+    //in order, a script is never edited once released, changes go into a new version
+    private static final String[] MIGRATIONS = {
+            "V1__baseline.sql",
+            "V2__ticket_lookup_indexes.sql",
+            "V3__open_ticket_table.sql",
+            "V4__repricing_checkpoint.sql",
+            "V5__ticket_journal.sql",
+            "V6__replica_heartbeat.sql",
+            "V7__ticket_archive.sql",
+            "V8__reservation.sql",
+            "V9__parking_spot_layout.sql",
+            "V10__normalized_registrations.sql"
+    };
+
+    private static final String CREATE_SCHEMA_VERSION = "create table if not exists schema_version("
+            + "VERSION int PRIMARY KEY, DESCRIPTION varchar(100) NOT NULL, APPLIED_ON DATETIME NOT NULL)";
+    private static final String GET_SCHEMA_VERSION = "select max(VERSION) from schema_version";
+    private static final String SAVE_SCHEMA_VERSION = "insert into schema_version(VERSION, DESCRIPTION, APPLIED_ON) values(?,?,?)";
+
+    private final DataBaseConfig dataBaseConfig;
+
+    public SchemaMigrator(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public int migrate() throws ClassNotFoundException, SQLException, IOException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (Statement statement = con.createStatement()) {
+                statement.execute(CREATE_SCHEMA_VERSION);
+            }
+            int currentVersion = getCurrentVersion(con);
+            int appliedVersion = currentVersion;
+            for (String migration : MIGRATIONS) {
+                int version = versionOf(migration);
+                if (version > currentVersion) {
+                    apply(con, migration, version);
+                    appliedVersion = version;
+                }
+            }
+            if (appliedVersion == currentVersion) {
+                logger.info("Schema is up to date at version {}", currentVersion);
+            }
+            return appliedVersion;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public int getCurrentVersion() throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            return getCurrentVersion(con);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private int getCurrentVersion(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery(GET_SCHEMA_VERSION)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    //MySQL commits DDL implicitly, so a script that fails halfway has to be fixed by hand before it is retried
+    private void apply(Connection con, String migration, int version) throws SQLException, IOException {
+        logger.info("Applying schema migration {}", migration);
+        try (Statement statement = con.createStatement()) {
+            for (String sql : readStatements("/db/migration/" + migration)) {
+                statement.execute(sql);
+            }
+        }
+        try (PreparedStatement ps = con.prepareStatement(SAVE_SCHEMA_VERSION)) {
+            ps.setInt(1, version);
+            ps.setString(2, descriptionOf(migration));
+            ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            ps.executeUpdate();
+        }
+    }
+
+    static List<String> readStatements(String resource) throws IOException {
+        String script;
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Missing schema migration " + resource);
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        StringBuilder withoutComments = new StringBuilder();
+        for (String line : script.split("\n")) {
+            if (!line.trim().startsWith("--")) {
+                withoutComments.append(line).append('\n');
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : withoutComments.toString().split(";")) {
+            if (sql.trim().length() > 0) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+
+    private static int versionOf(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+
+    private static String descriptionOf(String migration) {
+        return migration.substring(migration.indexOf("__") + 2, migration.lastIndexOf('.')).replace('_', ' ');
+    }
+}
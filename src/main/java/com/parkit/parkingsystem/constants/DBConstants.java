@@ -3,9 +3,49 @@ package com.parkit.parkingsystem.constants;
 public class DBConstants {
 
     public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String COUNT_AVAILABLE_PARKING_SPOTS = "select count(*) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String COUNT_PARKING_SPOTS_BY_TYPE = "select TYPE, AVAILABLE, count(*) from parking group by TYPE, AVAILABLE";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE, LEVEL_NUMBER, ENTRY_DISTANCE from parking";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String CLAIM_PARKING_SPOT = "update parking set AVAILABLE = false where PARKING_NUMBER = ? and AVAILABLE = true";
 
     public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME  limit 1";
+    public static final String SAVE_OPEN_TICKET = "insert into open_ticket(VEHICLE_REG_NUMBER, TICKET_ID, PARKING_NUMBER, IN_TIME) values(?,?,?,?)";
+    public static final String DELETE_OPEN_TICKET = "delete from open_ticket where TICKET_ID=?";
+    public static final String GET_OPEN_TICKET = "select o.TICKET_ID, o.VEHICLE_REG_NUMBER, o.PARKING_NUMBER, p.TYPE, o.IN_TIME from open_ticket o,parking p where p.parking_number = o.parking_number and o.VEHICLE_REG_NUMBER=?";
+    public static final String GET_OPEN_TICKETS = "select o.TICKET_ID, o.VEHICLE_REG_NUMBER, o.PARKING_NUMBER, p.TYPE, o.IN_TIME from open_ticket o,parking p where p.parking_number = o.parking_number";
+    public static final String GET_JOURNAL_OPEN_TICKETS = "select o.TICKET_ID, o.VEHICLE_REG_NUMBER, o.PARKING_NUMBER, p.TYPE, o.IN_TIME, t.JOURNAL_SEQ from open_ticket o,parking p,ticket t where p.parking_number = o.parking_number and t.ID = o.TICKET_ID";
+    public static final String SAVE_JOURNAL_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, JOURNAL_SEQ) values(?,?,?,?,?,?)";
+    public static final String UPDATE_JOURNAL_TICKET = "update ticket set PRICE=?, OUT_TIME=? where JOURNAL_SEQ=?";
+    public static final String DELETE_JOURNAL_OPEN_TICKET = "delete from open_ticket where TICKET_ID=(select ID from ticket where JOURNAL_SEQ=?)";
+    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME desc limit 1";
+
+    public static final String GET_CLOSED_TICKETS_AFTER = "select t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.PARKING_NUMBER from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME is not null and t.ID > ? order by t.ID limit ?";
+    public static final String GET_CLOSED_TICKETS_SINCE = "select t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE, t.PARKING_NUMBER from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME >= ? and t.ID > ? order by t.ID limit ?";
+    public static final String UPDATE_TICKET_PRICE = "update ticket set PRICE=? where ID=?";
+    public static final String GET_REPRICING_CHECKPOINT = "select LAST_TICKET_ID from repricing_checkpoint where JOB_NAME=?";
+    public static final String SAVE_REPRICING_CHECKPOINT = "insert into repricing_checkpoint(JOB_NAME, LAST_TICKET_ID, UPDATED_ON) values(?,?,?)";
+    public static final String UPDATE_REPRICING_CHECKPOINT = "update repricing_checkpoint set LAST_TICKET_ID=?, UPDATED_ON=? where JOB_NAME=?";
+    public static final String DELETE_REPRICING_CHECKPOINT = "delete from repricing_checkpoint where JOB_NAME=?";
+
+    public static final String GET_JOURNAL_CHECKPOINT = "select LAST_SEQ from journal_checkpoint where JOURNAL_NAME=?";
+    public static final String SAVE_JOURNAL_CHECKPOINT = "insert into journal_checkpoint(JOURNAL_NAME, LAST_SEQ, UPDATED_ON) values(?,?,?)";
+    public static final String UPDATE_JOURNAL_CHECKPOINT = "update journal_checkpoint set LAST_SEQ=?, UPDATED_ON=? where JOURNAL_NAME=?";
+
+    public static final String SAVE_RESERVATION = "insert into reservation(PARKING_NUMBER, VEHICLE_REG_NUMBER, START_TIME, END_TIME) values(?,?,?,?)";
+    public static final String DELETE_RESERVATION = "delete from reservation where ID=?";
+    public static final String GET_RESERVATIONS_ENDING_AFTER = "select r.ID, r.PARKING_NUMBER, p.TYPE, r.VEHICLE_REG_NUMBER, r.START_TIME, r.END_TIME from reservation r,parking p where p.parking_number = r.parking_number and r.END_TIME > ?";
+
+    public static final String UPDATE_REPLICA_HEARTBEAT = "update replica_heartbeat set BEAT_MILLIS=? where ID=1";
+    public static final String GET_REPLICA_HEARTBEAT = "select BEAT_MILLIS from replica_heartbeat where ID=1";
+
+    public static final String GET_ARCHIVABLE_TICKETS = "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.OUT_TIME < ? order by t.OUT_TIME limit ?";
+    public static final String DELETE_ARCHIVED_TICKET = "delete from ticket where ID=? and OUT_TIME is not null";
+    public static final String GET_ARCHIVE_PARTITIONS = "select PARTITION_MONTH, TABLE_NAME from ticket_archive_partition order by PARTITION_MONTH desc";
+    public static final String SAVE_ARCHIVE_PARTITION = "insert into ticket_archive_partition(PARTITION_MONTH, TABLE_NAME, CREATED_ON) values(?,?,?)";
+    //the archive tables are named per month, %s is the table; keyed for the lookup by vehicle, newest visit last
+    public static final String CREATE_ARCHIVE_PARTITION = "create table if not exists %s(ID int NOT NULL, PARKING_NUMBER int NOT NULL, VEHICLE_REG_NUMBER varchar(10) NOT NULL, PRICE double, IN_TIME DATETIME NOT NULL, OUT_TIME DATETIME NOT NULL, PRIMARY KEY (VEHICLE_REG_NUMBER, IN_TIME, ID))";
+    public static final String SAVE_ARCHIVED_TICKET = "insert into %s(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?,?)";
+    public static final String GET_ARCHIVED_TICKET = "select a.PARKING_NUMBER, a.ID, a.PRICE, a.IN_TIME, a.OUT_TIME, p.TYPE from %s a,parking p where p.parking_number = a.parking_number and a.VEHICLE_REG_NUMBER=? order by a.IN_TIME desc limit 1";
 }
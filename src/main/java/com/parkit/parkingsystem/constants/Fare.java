@@ -3,4 +3,6 @@ package com.parkit.parkingsystem.constants;
 public class Fare {
     public static final double BIKE_RATE_PER_HOUR = 1.0;
     public static final double CAR_RATE_PER_HOUR = 1.5;
+    public static final double EV_RATE_PER_HOUR = 2.0;
+    public static final double OVERSIZE_RATE_PER_HOUR = 3.0;
 }
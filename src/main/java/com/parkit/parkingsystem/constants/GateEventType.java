@@ -0,0 +1,6 @@
+package com.parkit.parkingsystem.constants;
+
+public enum GateEventType {
+    ENTRY,
+    EXIT
+}
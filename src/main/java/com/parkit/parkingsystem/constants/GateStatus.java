@@ -0,0 +1,10 @@
+package com.parkit.parkingsystem.constants;
+
+public enum GateStatus {
+    OK,
+    FULL,
+    ALREADY_PARKED,
+    NOT_FOUND,
+    INVALID_REQUEST,
+    ERROR
+}
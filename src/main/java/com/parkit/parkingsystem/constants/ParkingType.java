@@ -1,6 +1,9 @@
 package com.parkit.parkingsystem.constants;
 
+//the journal and the event log store the ordinal, new types go at the end
 public enum ParkingType {
     CAR,
-    BIKE
+    BIKE,
+    EV,
+    OVERSIZE
 }
@@ -0,0 +1,111 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationMetrics;
+import com.parkit.parkingsystem.model.OpenTicket;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * ParkingSpotDAO and TicketDAO behind CompletableFutures, each call running on a fixed pool of JDBC threads so callers
+ * compose gate flows without holding a thread while the database answers. The pool has as many threads as the
+ * connection pool has connections, and a bounded queue: a call that finds it full fails with a
+ * RejectedExecutionException instead of waiting. The futures complete on the JDBC threads, so continuations that block
+ * should move to their own executor.
+ */
+public class AsyncParkingDAO implements AutoCloseable {
+
+    private static final OperationMetrics QUEUE_WAIT = Metrics.operation("AsyncParkingDAO.queueWait");
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+    private final ThreadPoolExecutor executor;
+
+    public AsyncParkingDAO(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, int threads, int queueCapacity) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "jdbc-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public CompletableFuture<ParkingSpot> claimNextAvailableSlot(ParkingType parkingType, String vehicleRegNumber) {
+        return submit(() -> parkingSpotDAO.claimNextAvailableSlot(parkingType, vehicleRegNumber));
+    }
+
+    public CompletableFuture<Boolean> updateParking(ParkingSpot parkingSpot, boolean available) {
+        return submit(() -> parkingSpotDAO.updateParking(parkingSpot, available));
+    }
+
+    public CompletableFuture<OpenTicket> getOpenTicket(String vehicleRegNumber) {
+        return submit(() -> ticketDAO.getOpenTicket(vehicleRegNumber));
+    }
+
+    public CompletableFuture<Ticket> getTicket(String vehicleRegNumber) {
+        return submit(() -> ticketDAO.getTicket(vehicleRegNumber));
+    }
+
+    public CompletableFuture<Boolean> saveTicket(Ticket ticket) {
+        return submit(() -> ticketDAO.saveTicket(ticket));
+    }
+
+    public CompletableFuture<Boolean> updateTicket(Ticket ticket) {
+        return submit(() -> ticketDAO.updateTicket(ticket));
+    }
+
+    //writes the priced ticket and frees its spot's row at the same time, the spot is only offered to entries once the
+    //ticket is closed and its row goes back to taken when the ticket could not be written
+    public CompletableFuture<Boolean> closeTicket(Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        //a call turned away by a full queue never ran
+        CompletableFuture<Boolean> ticketClosed = updateTicket(ticket).exceptionally(e -> false);
+        CompletableFuture<Boolean> spotReleased = submit(() -> parkingSpotDAO.updateParkingRow(parkingSpot, true)).exceptionally(e -> false);
+        return ticketClosed.thenCombine(spotReleased, (closed, freed) -> {
+            if(closed && freed){
+                parkingSpotDAO.updateAllocator(parkingSpot, true);
+            }else if(!closed && freed){
+                parkingSpotDAO.updateParkingRow(parkingSpot, false);
+            }
+            return closed;
+        });
+    }
+
+    //waits for the calls already queued
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        long queued = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                QUEUE_WAIT.record(queued);
+                return call.get();
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            QUEUE_WAIT.recordError();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
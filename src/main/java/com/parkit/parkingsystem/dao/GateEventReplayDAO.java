@@ -0,0 +1,115 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.GateEventBatch;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+//writes replayed gate events a chunk at a time with batched statements, errors are thrown so the replay stops at the last committed chunk
+public class GateEventReplayDAO {
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //the opened tickets get their generated ids
+    public void saveBatch(GateEventBatch batch) throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            //open_ticket is keyed by vehicle, a vehicle that left and came back in the chunk must lose its old row first
+            closeTickets(con, batch.getClosedTickets());
+            saveOpenedTickets(con, batch.getOpenedTickets());
+            updateParkingSpots(con, batch.getSpotAvailability());
+            dataBaseConfig.commit(con);
+        }finally {
+            //the pool rolls back anything left uncommitted when the connection is returned
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void saveOpenedTickets(Connection con, List<Ticket> tickets) throws SQLException {
+        if(tickets.isEmpty()){
+            return;
+        }
+        PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+        for(Ticket ticket : tickets){
+            ps.setInt(1, ticket.getParkingSpot().getId());
+            ps.setString(2, OpenTicketIndex.normalize(ticket.getVehicleRegNumber()));
+            ps.setDouble(3, ticket.getPrice());
+            ps.setTimestamp(4, new Timestamp(ticket.getInTimeMillis()));
+            ps.setTimestamp(5, ticket.hasOutTime() ? new Timestamp(ticket.getOutTimeMillis()) : null);
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        ResultSet rs = ps.getGeneratedKeys();
+        for(Ticket ticket : tickets){
+            if(!rs.next()){
+                throw new SQLException("Missing generated id for the ticket of vehicle " + ticket.getVehicleRegNumber());
+            }
+            ticket.setId(rs.getInt(1));
+        }
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        ps = con.prepareStatement(DBConstants.SAVE_OPEN_TICKET);
+        int open = 0;
+        for(Ticket ticket : tickets){
+            if(!ticket.hasOutTime()){
+                ps.setString(1, OpenTicketIndex.normalize(ticket.getVehicleRegNumber()));
+                ps.setInt(2, ticket.getId());
+                ps.setInt(3, ticket.getParkingSpot().getId());
+                ps.setTimestamp(4, new Timestamp(ticket.getInTimeMillis()));
+                ps.addBatch();
+                open++;
+            }
+        }
+        if(open > 0){
+            ps.executeBatch();
+        }
+        dataBaseConfig.closePreparedStatement(ps);
+    }
+
+    private void closeTickets(Connection con, List<Ticket> tickets) throws SQLException {
+        if(tickets.isEmpty()){
+            return;
+        }
+        PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
+        for(Ticket ticket : tickets){
+            ps.setDouble(1, ticket.getPrice());
+            ps.setTimestamp(2, new Timestamp(ticket.getOutTimeMillis()));
+            ps.setInt(3, ticket.getId());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        dataBaseConfig.closePreparedStatement(ps);
+        ps = con.prepareStatement(DBConstants.DELETE_OPEN_TICKET);
+        for(Ticket ticket : tickets){
+            ps.setInt(1, ticket.getId());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        dataBaseConfig.closePreparedStatement(ps);
+    }
+
+    private void updateParkingSpots(Connection con, Map<Integer, Boolean> spotAvailability) throws SQLException {
+        if(spotAvailability.isEmpty()){
+            return;
+        }
+        PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+        for(Map.Entry<Integer, Boolean> spot : spotAvailability.entrySet()){
+            ps.setBoolean(1, spot.getValue());
+            ps.setInt(2, spot.getKey());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        dataBaseConfig.closePreparedStatement(ps);
+    }
+}
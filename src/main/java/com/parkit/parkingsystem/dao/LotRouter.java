@@ -0,0 +1,149 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationMetrics;
+import com.parkit.parkingsystem.model.LotTicket;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/*
+ * Routes every operation to the database of its lot. Each lot has its own database, connection pool, spot allocator
+ * and open ticket index, so a lot only ever waits on its own database. Lookups that do not know the lot, like finding
+ * where a vehicle is parked, ask all lots in parallel.
+ */
+public class LotRouter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("LotRouter");
+
+    private static final OperationMetrics LOAD = Metrics.operation("LotRouter.load");
+    private static final OperationMetrics LOCATE = Metrics.operation("LotRouter.locate");
+
+    private static final long FAN_OUT_TIMEOUT_MILLIS = 5000;
+
+    private final Map<String, ParkingSpotDAO> parkingSpotDAOs = new LinkedHashMap<>();
+    private final Map<String, TicketDAO> ticketDAOs = new LinkedHashMap<>();
+    private final ExecutorService fanOut = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lot-fan-out-", 0).factory());
+
+    public LotRouter(Map<String, ? extends DataBaseConfig> lots) {
+        for (Map.Entry<String, ? extends DataBaseConfig> lot : lots.entrySet()) {
+            ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+            parkingSpotDAO.dataBaseConfig = lot.getValue();
+            parkingSpotDAOs.put(lot.getKey(), parkingSpotDAO);
+            TicketDAO ticketDAO = new TicketDAO();
+            ticketDAO.dataBaseConfig = lot.getValue();
+            ticketDAOs.put(lot.getKey(), ticketDAO);
+        }
+    }
+
+    public Set<String> getLots() {
+        return Collections.unmodifiableSet(parkingSpotDAOs.keySet());
+    }
+
+    public ParkingSpotDAO getParkingSpotDAO(String lot) {
+        ParkingSpotDAO parkingSpotDAO = parkingSpotDAOs.get(lot);
+        if (parkingSpotDAO == null) {
+            throw new IllegalArgumentException("Unknown lot: " + lot);
+        }
+        return parkingSpotDAO;
+    }
+
+    public TicketDAO getTicketDAO(String lot) {
+        TicketDAO ticketDAO = ticketDAOs.get(lot);
+        if (ticketDAO == null) {
+            throw new IllegalArgumentException("Unknown lot: " + lot);
+        }
+        return ticketDAO;
+    }
+
+    //loads the spots and open tickets of every lot in parallel, false if any lot could not be read
+    public boolean load() {
+        long start = System.nanoTime();
+        try {
+            List<Boolean> loaded = fanOut(lot -> getParkingSpotDAO(lot).loadParkingSpots() && getTicketDAO(lot).loadOpenTickets());
+            boolean all = loaded.stream().allMatch(Boolean.TRUE::equals);
+            if (!all) {
+                LOAD.recordError();
+            }
+            return all;
+        } finally {
+            LOAD.record(start);
+        }
+    }
+
+    /*
+     * The lot where the vehicle is parked now and its open ticket, null when no lot has one. If several lots do, which
+     * only happens when an exit was missed, the latest entry wins. A lot that does not answer is logged and skipped.
+     */
+    public LotTicket locate(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            List<Ticket> tickets = fanOut(lot -> getTicketDAO(lot).getTicket(vehicleRegNumber));
+            List<String> lots = new ArrayList<>(ticketDAOs.keySet());
+            LotTicket located = null;
+            for (int i = 0; i < lots.size(); i++) {
+                Ticket ticket = tickets.get(i);
+                if (ticket != null && !ticket.hasOutTime()
+                        && (located == null || ticket.getInTimeMillis() > located.getTicket().getInTimeMillis())) {
+                    located = new LotTicket(lots.get(i), ticket);
+                }
+            }
+            return located;
+        } finally {
+            LOCATE.record(start);
+        }
+    }
+
+    //one answer per lot in lot order, null for a lot that failed or timed out
+    private <T> List<T> fanOut(Function<String, T> call) {
+        List<Callable<T>> calls = new ArrayList<>();
+        for (String lot : ticketDAOs.keySet()) {
+            calls.add(() -> call.apply(lot));
+        }
+        List<T> answers = new ArrayList<>();
+        try {
+            List<Future<T>> futures = fanOut.invokeAll(calls, FAN_OUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            List<String> lots = new ArrayList<>(ticketDAOs.keySet());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    answers.add(futures.get(i).get());
+                } catch (ExecutionException | CancellationException e) {
+                    logger.error("Lot {} did not answer", lots.get(i), e);
+                    answers.add(null);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            while (answers.size() < calls.size()) {
+                answers.add(null);
+            }
+        }
+        return answers;
+    }
+
+    //stops the reconcilers, write-behind writers and journals of all lots
+    @Override
+    public void close() {
+        for (Map.Entry<String, TicketDAO> lot : ticketDAOs.entrySet()) {
+            lot.getValue().close();
+            getParkingSpotDAO(lot.getKey()).stopOccupancyReconciliation();
+        }
+        fanOut.close();
+    }
+}
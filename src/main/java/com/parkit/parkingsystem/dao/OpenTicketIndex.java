@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.OpenTicket;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//tickets without an out time, keyed by normalized registration number, only changed after the DB write succeeded
+public class OpenTicketIndex {
+
+    private final ConcurrentMap<String, OpenTicket> openTickets = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public static String normalize(String vehicleRegNumber) {
+        return vehicleRegNumber.trim().toUpperCase();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void load(Collection<OpenTicket> tickets) {
+        openTickets.clear();
+        for (OpenTicket openTicket : tickets) {
+            put(openTicket);
+        }
+        loaded = true;
+    }
+
+    public OpenTicket get(String vehicleRegNumber) {
+        return openTickets.get(normalize(vehicleRegNumber));
+    }
+
+    //keeps the most recent entry if a vehicle somehow has several open tickets
+    public void put(OpenTicket openTicket) {
+        openTickets.merge(normalize(openTicket.getVehicleRegNumber()), openTicket,
+                (current, added) -> added.getInTimeMillis() >= current.getInTimeMillis() ? added : current);
+    }
+
+    public boolean remove(String vehicleRegNumber, int ticketId) {
+        return remove(vehicleRegNumber, ticketId, 0);
+    }
+
+    //a ticket opened through the journal is matched by its entry record, it may have been given a row id since
+    public boolean remove(String vehicleRegNumber, int ticketId, long journalSeq) {
+        String key = normalize(vehicleRegNumber);
+        OpenTicket current = openTickets.get(key);
+        return current != null
+                && (journalSeq > 0 ? current.getJournalSeq() == journalSeq : current.getTicketId() == ticketId)
+                && openTickets.remove(key, current);
+    }
+
+    public int size() {
+        return openTickets.size();
+    }
+
+    public void clear() {
+        openTickets.clear();
+        loaded = false;
+    }
+}
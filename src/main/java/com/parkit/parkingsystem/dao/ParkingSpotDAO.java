@@ -1,22 +1,105 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.allocation.ParkingSpotAllocator;
+import com.parkit.parkingsystem.allocation.ReservationIndex;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationMetrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class ParkingSpotDAO {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
+    private static final OperationMetrics LOAD_PARKING_SPOTS = Metrics.operation("ParkingSpotDAO.loadParkingSpots");
+    private static final OperationMetrics GET_NEXT_AVAILABLE_SLOT = Metrics.operation("ParkingSpotDAO.getNextAvailableSlot");
+    private static final OperationMetrics CLAIM_NEXT_AVAILABLE_SLOT = Metrics.operation("ParkingSpotDAO.claimNextAvailableSlot");
+    private static final OperationMetrics BOOK_NEXT_AVAILABLE_SLOT = Metrics.operation("ParkingSpotDAO.bookNextAvailableSlot");
+    private static final OperationMetrics GET_AVAILABLE_COUNT = Metrics.operation("ParkingSpotDAO.getAvailableCount");
+    private static final OperationMetrics UPDATE_PARKING = Metrics.operation("ParkingSpotDAO.updateParking");
+    private static final OperationMetrics RECONCILE_OCCUPANCY = Metrics.operation("ParkingSpotDAO.reconcileOccupancy");
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    public ParkingSpotAllocator parkingSpotAllocator = new ParkingSpotAllocator();
+
+    //the bookings of the spots, walk-ins are only given spots with no booking within the hold time
+    public ReservationIndex reservationIndex = new ReservationIndex();
+
+    private ScheduledExecutorService occupancyReconciler;
+
+    //set once the ticket journal is enabled, the allocator is the record of availability and the projector writes the table
+    private volatile boolean journaled;
+
+    public void enableJournalMode(){
+        journaled = true;
+    }
+
+    public boolean loadParkingSpots(){
+        long start = System.nanoTime();
+        try {
+            return doLoadParkingSpots();
+        } finally {
+            LOAD_PARKING_SPOTS.record(start);
+        }
+    }
+
+    private boolean doLoadParkingSpots(){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOTS);
+            ResultSet rs = ps.executeQuery();
+            List<ParkingSpot> parkingSpots = new ArrayList<>();
+            while(rs.next()){
+                parkingSpots.add(new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(3)), rs.getBoolean(2),
+                        rs.getInt(4), rs.getInt(5)));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            parkingSpotAllocator.load(parkingSpots);
+            reservationIndex.load(parkingSpots);
+            logger.info("Loaded {} parking spots", parkingSpots.size());
+            return true;
+        }catch (Exception ex){
+            logger.error("Error loading parking spots",ex);
+            LOAD_PARKING_SPOTS.recordError();
+            return false;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
     public int getNextAvailableSlot(ParkingType parkingType){
+        long start = System.nanoTime();
+        try {
+            return doGetNextAvailableSlot(parkingType);
+        } finally {
+            GET_NEXT_AVAILABLE_SLOT.record(start);
+        }
+    }
+
+    private int doGetNextAvailableSlot(ParkingType parkingType){
+        if(parkingSpotAllocator.isLoaded() || loadAllocatorOnce()){
+            long now = System.currentTimeMillis();
+            return parkingSpotAllocator.getNextAvailable(parkingType, reservationIndex, now, now + reservationIndex.getHoldMillis());
+        }
         Connection con = null;
         int result=-1;
         try {
@@ -31,29 +114,324 @@ public class ParkingSpotDAO {
             dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
+            GET_NEXT_AVAILABLE_SLOT.recordError();
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return result;
+    }
+
+    public ParkingSpot claimNextAvailableSlot(ParkingType parkingType){
+        return claimNextAvailableSlot(parkingType, null);
+    }
+
+    /*
+     * The spot the vehicle booked for now when it has one, otherwise the one the allocation policy picks among those not
+     * booked within the hold time. The spot returned carries its own type, which the policy may have chosen over the
+     * vehicle's.
+     */
+    public ParkingSpot claimNextAvailableSlot(ParkingType parkingType, String vehicleRegNumber){
+        long start = System.nanoTime();
+        try {
+            return doClaimNextAvailableSlot(parkingType, vehicleRegNumber);
+        } finally {
+            CLAIM_NEXT_AVAILABLE_SLOT.record(start);
+        }
+    }
+
+    private ParkingSpot doClaimNextAvailableSlot(ParkingType parkingType, String vehicleRegNumber){
+        if(!parkingSpotAllocator.isLoaded() && !loadAllocatorOnce()){
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        int reserved = vehicleRegNumber == null ? 0 : reservationIndex.getReservedSpot(vehicleRegNumber, parkingType, now);
+        if(journaled){
+            int claimed = reserved > 0 && parkingSpotAllocator.claim(reserved) ? reserved : claimWalkIn(parkingType, now);
+            return claimed > 0 ? claimedSpot(claimed) : null;
+        }
+        Connection con = null;
+        int number = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.CLAIM_PARKING_SPOT);
+            if(reserved > 0 && parkingSpotAllocator.claim(reserved)){
+                number = reserved;
+                ps.setInt(1, number);
+                if(ps.executeUpdate() == 1){
+                    dataBaseConfig.closePreparedStatement(ps);
+                    return claimedSpot(number);
+                }
+                logger.info("Booked parking spot {} was already taken, trying the next one", number);
+            }
+            //the conditional update only succeeds for one claimer, so a spot taken by another process is skipped
+            while((number = claimWalkIn(parkingType, now)) > 0){
+                ps.setInt(1, number);
+                if(ps.executeUpdate() == 1){
+                    dataBaseConfig.closePreparedStatement(ps);
+                    return claimedSpot(number);
+                }
+                logger.info("Parking spot {} was already taken, trying the next one", number);
+            }
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            logger.error("Error claiming next available slot",ex);
+            CLAIM_NEXT_AVAILABLE_SLOT.recordError();
+            if(number > 0){
+                parkingSpotAllocator.setAvailable(number, true);
+            }
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return null;
+    }
+
+    //a walk-in may stay as long as the hold time, so it is not given a spot booked before that
+    private int claimWalkIn(ParkingType parkingType, long now){
+        return parkingSpotAllocator.claimNextAvailable(parkingType, reservationIndex, now, now + reservationIndex.getHoldMillis());
+    }
+
+    private ParkingSpot claimedSpot(int number){
+        return parkingSpotAllocator.getParkingSpot(number);
+    }
+
+    /*
+     * Books the lowest spot with no booking over the reservation's window, in memory only, and returns its number: 0
+     * when there is none and -1 when the spots could not be loaded. A window starting within the hold time also needs
+     * the spot to be free now, since a vehicle parked there may stay that long, and takes the one the allocation
+     * policy would give a walk-in.
+     */
+    public int bookNextAvailableSlot(Reservation reservation){
+        long start = System.nanoTime();
+        try {
+            return doBookNextAvailableSlot(reservation);
+        } finally {
+            BOOK_NEXT_AVAILABLE_SLOT.record(start);
+        }
+    }
+
+    private int doBookNextAvailableSlot(Reservation reservation){
+        if(!parkingSpotAllocator.isLoaded() && !loadAllocatorOnce()){
+            BOOK_NEXT_AVAILABLE_SLOT.recordError();
+            return -1;
+        }
+        long now = System.currentTimeMillis();
+        reservationIndex.expire(now);
+        if(reservation.getStartMillis() - reservationIndex.getHoldMillis() < now){
+            return parkingSpotAllocator.bookNextAvailable(reservationIndex, reservation);
+        }
+        return reservationIndex.bookLowest(reservation);
+    }
+
+    //whether a spot of the type could be booked over [from, to), false when the spots could not be loaded
+    public boolean isAvailable(ParkingType parkingType, long from, long to){
+        if(!parkingSpotAllocator.isLoaded() && !loadAllocatorOnce()){
+            return false;
+        }
+        if(from - reservationIndex.getHoldMillis() < System.currentTimeMillis()){
+            return parkingSpotAllocator.getNextAvailable(parkingType, reservationIndex, from, to) > 0;
+        }
+        return reservationIndex.isAnyFree(parkingType, from, to);
+    }
+
+    public void cancelBooking(Reservation reservation){
+        reservationIndex.cancel(reservation);
+    }
+
+    public int getAvailableCount(ParkingType parkingType){
+        long start = System.nanoTime();
+        try {
+            return doGetAvailableCount(parkingType);
+        } finally {
+            GET_AVAILABLE_COUNT.record(start);
+        }
+    }
+
+    private int doGetAvailableCount(ParkingType parkingType){
+        if(parkingSpotAllocator.isLoaded() || loadAllocatorOnce()){
+            return parkingSpotAllocator.getAvailableCount(parkingType);
+        }
+        Connection con = null;
+        int result=-1;
+        try {
+            //a display count may lag a little, it is read from a replica when there is one
+            con = dataBaseConfig.getReadConnection(0);
+            PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_AVAILABLE_PARKING_SPOTS);
+            ps.setString(1, parkingType.toString());
+            ResultSet rs = ps.executeQuery();
+            if(rs.next()){
+                result = rs.getInt(1);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            logger.error("Error counting available slots",ex);
+            GET_AVAILABLE_COUNT.recordError();
         }finally {
             dataBaseConfig.closeConnection(con);
         }
         return result;
     }
 
+    //-1 when the spots could not be loaded
+    public int getCapacity(ParkingType parkingType){
+        if(parkingSpotAllocator.isLoaded() || loadAllocatorOnce()){
+            return parkingSpotAllocator.getCapacity(parkingType);
+        }
+        return -1;
+    }
+
+    //-1 when the spots could not be loaded, otherwise read from the allocator's counters without touching the database
+    public int getOccupiedCount(ParkingType parkingType){
+        if(parkingSpotAllocator.isLoaded() || loadAllocatorOnce()){
+            return parkingSpotAllocator.getOccupiedCount(parkingType);
+        }
+        return -1;
+    }
+
+    /*
+     * Compares the occupancy counters with the parking table and reloads the spots when they disagree, which happens
+     * when another process changed the table. A round where the counters moved while the table was counted proves
+     * nothing and is skipped. Returns false when the table could not be read.
+     */
+    public boolean reconcileOccupancy(){
+        long start = System.nanoTime();
+        try {
+            return doReconcileOccupancy();
+        } finally {
+            RECONCILE_OCCUPANCY.record(start);
+        }
+    }
+
+    private boolean doReconcileOccupancy(){
+        if(!parkingSpotAllocator.isLoaded()){
+            return loadAllocatorOnce();
+        }
+        if(journaled){
+            //the table trails the journal, the counters are the ones that are right
+            return true;
+        }
+        Connection con = null;
+        try {
+            int[] countedBefore = countedFree();
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_PARKING_SPOTS_BY_TYPE);
+            ResultSet rs = ps.executeQuery();
+            int[] free = new int[PARKING_TYPES.length];
+            int[] capacities = new int[PARKING_TYPES.length];
+            while(rs.next()){
+                int type = ParkingType.valueOf(rs.getString(1)).ordinal();
+                capacities[type] += rs.getInt(3);
+                if(rs.getBoolean(2)){
+                    free[type] += rs.getInt(3);
+                }
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+            con = null;
+            if(!Arrays.equals(countedBefore, countedFree())){
+                logger.debug("Parking spots changed while they were counted, reconciliation skipped");
+                return true;
+            }
+            for(ParkingType parkingType : PARKING_TYPES){
+                int type = parkingType.ordinal();
+                if(free[type] != countedBefore[type] || capacities[type] != parkingSpotAllocator.getCapacity(parkingType)){
+                    logger.warn("{} occupancy drifted: counted {} free of {}, the database has {} free of {}, reloading the spots",
+                            parkingType, countedBefore[type], parkingSpotAllocator.getCapacity(parkingType), free[type], capacities[type]);
+                    return loadParkingSpots();
+                }
+            }
+            return true;
+        }catch (Exception ex){
+            logger.error("Error reconciling the occupancy counters",ex);
+            RECONCILE_OCCUPANCY.recordError();
+            return false;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private int[] countedFree(){
+        int[] free = new int[PARKING_TYPES.length];
+        for(ParkingType parkingType : PARKING_TYPES){
+            free[parkingType.ordinal()] = parkingSpotAllocator.getAvailableCount(parkingType);
+        }
+        return free;
+    }
+
+    public synchronized void startOccupancyReconciliation(long periodSeconds){
+        if(occupancyReconciler == null){
+            occupancyReconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "occupancy-reconciler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            occupancyReconciler.scheduleWithFixedDelay(this::reconcileOccupancy, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void stopOccupancyReconciliation(){
+        if(occupancyReconciler != null){
+            occupancyReconciler.shutdownNow();
+            occupancyReconciler = null;
+        }
+    }
+
+    private synchronized boolean loadAllocatorOnce(){
+        return parkingSpotAllocator.isLoaded() || loadParkingSpots();
+    }
+
     public boolean updateParking(ParkingSpot parkingSpot){
+        return updateParking(parkingSpot, parkingSpot.isAvailable());
+    }
+
+    //claimed spots are shared instances, so they are released by passing the availability instead of setting it on them
+    public boolean updateParking(ParkingSpot parkingSpot, boolean available){
+        long start = System.nanoTime();
+        try {
+            return doUpdateParking(parkingSpot, available);
+        } finally {
+            UPDATE_PARKING.record(start);
+        }
+    }
+
+    private boolean doUpdateParking(ParkingSpot parkingSpot, boolean available){
+        if(!updateParkingRow(parkingSpot, available)){
+            return false;
+        }
+        updateAllocator(parkingSpot, available);
+        return true;
+    }
+
+    //the parking table half of updateParking, a spot released here is only offered to entries by updateAllocator
+    boolean updateParkingRow(ParkingSpot parkingSpot, boolean available){
+        if(journaled){
+            return true;
+        }
         //update the availability fo that parking slot
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-            ps.setBoolean(1, parkingSpot.isAvailable());
+            ps.setBoolean(1, available);
             ps.setInt(2, parkingSpot.getId());
             int updateRowCount = ps.executeUpdate();
             dataBaseConfig.closePreparedStatement(ps);
             return (updateRowCount == 1);
         }catch (Exception ex){
             logger.error("Error updating parking info",ex);
+            UPDATE_PARKING.recordError();
             return false;
         }finally {
             dataBaseConfig.closeConnection(con);
         }
     }
 
+    //the allocator half of updateParking
+    void updateAllocator(ParkingSpot parkingSpot, boolean available){
+        if(journaled || parkingSpotAllocator.isLoaded()){
+            parkingSpotAllocator.setAvailable(parkingSpot.getId(), available);
+        }
+    }
+
 }
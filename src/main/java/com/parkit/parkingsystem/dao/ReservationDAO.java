@@ -0,0 +1,134 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.allocation.ReservationIndex;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationMetrics;
+import com.parkit.parkingsystem.model.Reservation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+//the reservation table, the spots are booked in the ReservationIndex of ParkingSpotDAO and the rows record the bookings
+public class ReservationDAO {
+    private static final Logger logger = LogManager.getLogger("ReservationDAO");
+
+    private static final OperationMetrics LOAD_RESERVATIONS = Metrics.operation("ReservationDAO.loadReservations");
+    private static final OperationMetrics SAVE_RESERVATION = Metrics.operation("ReservationDAO.saveReservation");
+    private static final OperationMetrics DELETE_RESERVATION = Metrics.operation("ReservationDAO.deleteReservation");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //books the reservations that have not ended into the index, which must hold the spots already
+    public boolean loadReservations(ReservationIndex reservationIndex){
+        long start = System.nanoTime();
+        try {
+            return doLoadReservations(reservationIndex);
+        } finally {
+            LOAD_RESERVATIONS.record(start);
+        }
+    }
+
+    private boolean doLoadReservations(ReservationIndex reservationIndex){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_RESERVATIONS_ENDING_AFTER);
+            ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            ResultSet rs = ps.executeQuery();
+            int loaded = 0;
+            while(rs.next()){
+                Reservation reservation = new Reservation(rs.getString(4), ParkingType.valueOf(rs.getString(3)),
+                        rs.getTimestamp(5).getTime(), rs.getTimestamp(6).getTime());
+                reservation.setId(rs.getInt(1));
+                reservation.setParkingNumber(rs.getInt(2));
+                if(reservationIndex.book(reservation)){
+                    loaded++;
+                }else{
+                    logger.warn("Reservation {} overlaps another booking of parking spot {}, skipped", reservation.getId(),
+                            reservation.getParkingNumber());
+                }
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            logger.info("Loaded {} reservations", loaded);
+            return true;
+        }catch (Exception ex){
+            logger.error("Error loading reservations",ex);
+            LOAD_RESERVATIONS.recordError();
+            return false;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    //records a booked reservation, the id it is given is set through the index
+    public boolean saveReservation(Reservation reservation, ReservationIndex reservationIndex){
+        long start = System.nanoTime();
+        try {
+            return doSaveReservation(reservation, reservationIndex);
+        } finally {
+            SAVE_RESERVATION.record(start);
+        }
+    }
+
+    private boolean doSaveReservation(Reservation reservation, ReservationIndex reservationIndex){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_RESERVATION, Statement.RETURN_GENERATED_KEYS);
+            ps.setInt(1, reservation.getParkingNumber());
+            ps.setString(2, reservation.getVehicleRegNumber());
+            ps.setTimestamp(3, new Timestamp(reservation.getStartMillis()));
+            ps.setTimestamp(4, new Timestamp(reservation.getEndMillis()));
+            int insertRowCount = ps.executeUpdate();
+            ResultSet rs = ps.getGeneratedKeys();
+            if(rs.next()){
+                reservationIndex.setId(reservation, rs.getInt(1));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return insertRowCount == 1;
+        }catch (Exception ex){
+            logger.error("Error saving reservation",ex);
+            SAVE_RESERVATION.recordError();
+            return false;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public boolean deleteReservation(Reservation reservation){
+        long start = System.nanoTime();
+        try {
+            return doDeleteReservation(reservation);
+        } finally {
+            DELETE_RESERVATION.record(start);
+        }
+    }
+
+    private boolean doDeleteReservation(Reservation reservation){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_RESERVATION);
+            ps.setInt(1, reservation.getId());
+            int deleteRowCount = ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            return deleteRowCount == 1;
+        }catch (Exception ex){
+            logger.error("Error deleting reservation",ex);
+            DELETE_RESERVATION.recordError();
+            return false;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
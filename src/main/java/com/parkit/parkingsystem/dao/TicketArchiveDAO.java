@@ -0,0 +1,147 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+//moves closed tickets from ticket into the monthly archive tables, errors are thrown so the job stops and retries later
+public class TicketArchiveDAO {
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //partitions known to exist, so the table is only created once per month
+    private final Set<Integer> partitions = ConcurrentHashMap.newKeySet();
+
+    //the closed tickets that left before the cutoff, oldest first
+    public List<Ticket> readArchivable(Date cutoff, int max) throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_ARCHIVABLE_TICKETS);
+            ps.setTimestamp(1, new Timestamp(cutoff.getTime()));
+            ps.setInt(2, max);
+            ResultSet rs = ps.executeQuery();
+            List<Ticket> tickets = new ArrayList<>();
+            while(rs.next()){
+                Ticket ticket = new Ticket();
+                ticket.setId(rs.getInt(1));
+                ticket.setParkingSpot(new ParkingSpot(rs.getInt(2), ParkingType.valueOf(rs.getString(7)), false));
+                ticket.setVehicleRegNumber(rs.getString(3));
+                ticket.setPrice(rs.getDouble(4));
+                ticket.setInTimeMillis(rs.getTimestamp(5).getTime());
+                ticket.setOutTimeMillis(rs.getTimestamp(6).getTime());
+                tickets.add(ticket);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return tickets;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    //copies the tickets into their month's archive table and deletes them from ticket in one transaction
+    public void archive(List<Ticket> tickets) throws ClassNotFoundException, SQLException {
+        Map<Integer, List<Ticket>> byMonth = new TreeMap<>();
+        for(Ticket ticket : tickets){
+            byMonth.computeIfAbsent(partitionOf(ticket.getOutTimeMillis()), month -> new ArrayList<>()).add(ticket);
+        }
+        //MySQL commits DDL implicitly, so the tables are created before the transaction starts
+        for(int month : byMonth.keySet()){
+            ensurePartition(month);
+        }
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            for(Map.Entry<Integer, List<Ticket>> month : byMonth.entrySet()){
+                PreparedStatement ps = con.prepareStatement(String.format(DBConstants.SAVE_ARCHIVED_TICKET, tableOf(month.getKey())));
+                for(Ticket ticket : month.getValue()){
+                    ps.setInt(1, ticket.getId());
+                    ps.setInt(2, ticket.getParkingSpot().getId());
+                    ps.setString(3, OpenTicketIndex.normalize(ticket.getVehicleRegNumber()));
+                    ps.setDouble(4, ticket.getPrice());
+                    ps.setTimestamp(5, new Timestamp(ticket.getInTimeMillis()));
+                    ps.setTimestamp(6, new Timestamp(ticket.getOutTimeMillis()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+            PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_ARCHIVED_TICKET);
+            for(Ticket ticket : tickets){
+                ps.setInt(1, ticket.getId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.commit(con);
+        }finally {
+            //the pool rolls back anything left uncommitted when the connection is returned
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void ensurePartition(int month) throws ClassNotFoundException, SQLException {
+        if(partitions.contains(month)){
+            return;
+        }
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (Statement statement = con.createStatement()) {
+                statement.execute(String.format(DBConstants.CREATE_ARCHIVE_PARTITION, tableOf(month)));
+            }
+            if(!listPartitions(con).containsKey(month)){
+                PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_ARCHIVE_PARTITION);
+                ps.setInt(1, month);
+                ps.setString(2, tableOf(month));
+                ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+                ps.executeUpdate();
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+            partitions.add(month);
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    //archive table names by month, newest month first
+    static Map<Integer, String> listPartitions(Connection con) throws SQLException {
+        Map<Integer, String> tables = new TreeMap<>((a, b) -> Integer.compare(b, a));
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_ARCHIVE_PARTITIONS);
+             ResultSet rs = ps.executeQuery()) {
+            while(rs.next()){
+                tables.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return tables;
+    }
+
+    //yyyymm of the local date the ticket was closed
+    static int partitionOf(long outTimeMillis) {
+        LocalDateTime closed = new Timestamp(outTimeMillis).toLocalDateTime();
+        return closed.getYear() * 100 + closed.getMonthValue();
+    }
+
+    static String tableOf(int month) {
+        return "ticket_archive_" + month;
+    }
+}
@@ -2,7 +2,13 @@ package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.GateEventType;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.journal.TicketJournal;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationMetrics;
+import com.parkit.parkingsystem.model.OpenTicket;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
@@ -11,79 +17,549 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class TicketDAO {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
+    private static final OperationMetrics LOAD_OPEN_TICKETS = Metrics.operation("TicketDAO.loadOpenTickets");
+    private static final OperationMetrics GET_OPEN_TICKET = Metrics.operation("TicketDAO.getOpenTicket");
+    private static final OperationMetrics SAVE_TICKET = Metrics.operation("TicketDAO.saveTicket");
+    private static final OperationMetrics GET_TICKET = Metrics.operation("TicketDAO.getTicket");
+    private static final OperationMetrics UPDATE_TICKET = Metrics.operation("TicketDAO.updateTicket");
+    private static final OperationMetrics GET_ARCHIVED_TICKET = Metrics.operation("TicketDAO.getArchivedTicket");
+
+    private static final long FLUSH_TIMEOUT_MILLIS = 5000;
+    //writes older than this are on every replica that is allowed to serve reads
+    private static final long RECENT_WRITE_MILLIS = DataBaseConfig.REPLICA_MAX_LAG_MILLIS + 2 * DataBaseConfig.REPLICA_HEARTBEAT_MILLIS;
+    private static final int RECENT_WRITES_PRUNE_SIZE = 4096;
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    public OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+
+    //when each vehicle's tickets were last written, so its reads only go to replicas that already have the write
+    private final ConcurrentMap<String, Long> recentWrites = new ConcurrentHashMap<>();
+
+    //null unless write-behind mode is enabled, saveTicket is synchronous then
+    private volatile TicketWriteBehind ticketWriteBehind;
+
+    //null unless journal mode is enabled, tickets are appended to the journal and projected to the tables then
+    private volatile TicketJournal ticketJournal;
+    private TicketJournalProjector journalProjector;
+    //the last journal record of each vehicle, so a read of its tickets only waits for that record to be projected
+    private final ConcurrentMap<String, Long> journaledSeqs = new ConcurrentHashMap<>();
+
+    //the spots of tickets the writer fails to insert are given back through parkingSpotDAO
+    public synchronized void enableWriteBehind(int capacity, int batchSize, long lingerMillis, ParkingSpotDAO parkingSpotDAO){
+        if(ticketJournal != null){
+            throw new IllegalStateException("Write-behind cannot be combined with the ticket journal");
+        }
+        if(ticketWriteBehind == null){
+            ticketWriteBehind = new TicketWriteBehind(dataBaseConfig, capacity, batchSize, lingerMillis, this::indexOpenTicket,
+                    ticket -> dropUnwrittenTicket(ticket, parkingSpotDAO));
+        }
+    }
+
+    //the gate answered OK for a ticket that never reached the table, so the vehicle is not parked and its spot is free
+    private void dropUnwrittenTicket(Ticket ticket, ParkingSpotDAO parkingSpotDAO){
+        openTicketIndex.remove(ticket.getVehicleRegNumber(), ticket.getId());
+        if(!parkingSpotDAO.updateParking(ticket.getParkingSpot(), true)){
+            logger.error("Unable to release parking spot {} of unwritten ticket", ticket.getParkingSpot().getId());
+        }
+    }
+
+    /*
+     * Makes the journal the record of entries and exits: the open tickets and the spots are loaded from the tables,
+     * the records the tables do not reflect yet are replayed on top of them, and the projector starts writing the
+     * journal to the tables in the background. Returns false when the tables could not be read.
+     */
+    public synchronized boolean enableJournal(TicketJournal journal, ParkingSpotDAO parkingSpotDAO){
+        if(ticketWriteBehind != null){
+            throw new IllegalStateException("The ticket journal cannot be combined with write-behind");
+        }
+        if(ticketJournal != null){
+            return true;
+        }
+        TicketJournalProjector projector = new TicketJournalProjector(dataBaseConfig, journal, TicketJournalProjector.DEFAULT_BATCH_SIZE);
+        long checkpoint;
+        try {
+            checkpoint = projector.readCheckpoint();
+        }catch (Exception ex){
+            logger.error("Error reading the journal checkpoint",ex);
+            return false;
+        }
+        if(!parkingSpotDAO.loadParkingSpots() || !loadOpenTickets(true)){
+            return false;
+        }
+        long replayed = 0;
+        List<JournalRecord> records;
+        while(!(records = journal.read(checkpoint + replayed + 1, TicketJournalProjector.DEFAULT_BATCH_SIZE)).isEmpty()){
+            for(JournalRecord record : records){
+                replay(record, parkingSpotDAO);
+            }
+            replayed += records.size();
+        }
+        logger.info("Replayed {} journal records after record {}", replayed, checkpoint);
+        parkingSpotDAO.enableJournalMode();
+        journalProjector = projector;
+        ticketJournal = journal;
+        projector.start(checkpoint);
+        return true;
+    }
+
+    private void replay(JournalRecord record, ParkingSpotDAO parkingSpotDAO){
+        if(record.getType() == GateEventType.ENTRY){
+            if(record.getOutTimeMillis() == 0){
+                openTicketIndex.put(new OpenTicket(record.getTicketId(), record.getJournalSeq(), record.getVehicleRegNumber(),
+                        record.getParkingNumber(), record.getParkingType(), record.getInTimeMillis()));
+            }
+            parkingSpotDAO.parkingSpotAllocator.setAvailable(record.getParkingNumber(), false);
+        }else{
+            openTicketIndex.remove(record.getVehicleRegNumber(), record.getTicketId(), record.getJournalSeq());
+            parkingSpotDAO.parkingSpotAllocator.setAvailable(record.getParkingNumber(), true);
+        }
+    }
+
+    public TicketJournalProjector getJournalProjector(){
+        return journalProjector;
+    }
+
+    public boolean loadOpenTickets(){
+        return loadOpenTickets(false);
+    }
+
+    /*
+     * With journalIds, tickets opened through the journal are indexed with the JOURNAL_SEQ of their entry record, which
+     * is what their exits are matched on. Exits journaled before a restart, when the ticket had no row id yet, then
+     * find them on replay.
+     */
+    private boolean loadOpenTickets(boolean journalIds){
+        long start = System.nanoTime();
+        try {
+            return doLoadOpenTickets(journalIds);
+        } finally {
+            LOAD_OPEN_TICKETS.record(start);
+        }
+    }
+
+    private boolean doLoadOpenTickets(boolean journalIds){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(journalIds ? DBConstants.GET_JOURNAL_OPEN_TICKETS : DBConstants.GET_OPEN_TICKETS);
+            ResultSet rs = ps.executeQuery();
+            List<OpenTicket> openTickets = new ArrayList<>();
+            while(rs.next()){
+                openTickets.add(journalIds ? toJournalOpenTicket(rs) : toOpenTicket(rs));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            openTicketIndex.load(openTickets);
+            logger.info("Loaded {} open tickets", openTicketIndex.size());
+            return true;
+        }catch (Exception ex){
+            logger.error("Error loading open tickets",ex);
+            LOAD_OPEN_TICKETS.recordError();
+            return false;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public OpenTicket getOpenTicket(String vehicleRegNumber){
+        long start = System.nanoTime();
+        try {
+            return doGetOpenTicket(vehicleRegNumber);
+        } finally {
+            GET_OPEN_TICKET.record(start);
+        }
+    }
+
+    private OpenTicket doGetOpenTicket(String vehicleRegNumber){
+        if(openTicketIndex.isLoaded()){
+            return openTicketIndex.get(vehicleRegNumber);
+        }
+        Connection con = null;
+        OpenTicket openTicket = null;
+        try {
+            awaitPendingWrites(vehicleRegNumber);
+            con = dataBaseConfig.getReadConnection(writtenAt(vehicleRegNumber));
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_OPEN_TICKET);
+            ps.setString(1, OpenTicketIndex.normalize(vehicleRegNumber));
+            ResultSet rs = ps.executeQuery();
+            if(rs.next()){
+                openTicket = toOpenTicket(rs);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }catch (Exception ex){
+            logger.error("Error fetching open ticket",ex);
+            GET_OPEN_TICKET.recordError();
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return openTicket;
+    }
+
+    public TicketWriteBehind getTicketWriteBehind(){
+        return ticketWriteBehind;
+    }
+
+    //flushes and stops the write-behind writer or the journal projector, later saves are synchronous again
+    public synchronized void close(){
+        if(ticketWriteBehind != null){
+            ticketWriteBehind.close();
+            ticketWriteBehind = null;
+        }
+        if(ticketJournal != null){
+            TicketJournal journal = ticketJournal;
+            ticketJournal = null;
+            journalProjector.close();
+            journalProjector = null;
+            journal.close();
+            journaledSeqs.clear();
+        }
+    }
+
     public boolean saveTicket(Ticket ticket){
+        long start = System.nanoTime();
+        try {
+            return recordWrite(ticket, doSaveTicket(ticket));
+        } finally {
+            SAVE_TICKET.record(start);
+        }
+    }
+
+    private boolean doSaveTicket(Ticket ticket){
+        TicketWriteBehind writeBehind = ticketWriteBehind;
+        if(writeBehind != null){
+            //indexed before the writer can see it, so a re-entry finds the vehicle parked and the id written later is kept
+            indexOpenTicket(ticket);
+            if(writeBehind.offer(ticket)){
+                return true;
+            }
+            openTicketIndex.remove(ticket.getVehicleRegNumber(), 0);
+        }
+        TicketJournal journal = ticketJournal;
+        if(journal != null){
+            return journalEntry(journal, ticket);
+        }
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
+            con.setAutoCommit(false);
+            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
             //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            //ps.setInt(1,ticket.getId());
             ps.setInt(1,ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
+            ps.setString(2, OpenTicketIndex.normalize(ticket.getVehicleRegNumber()));
             ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            ps.setTimestamp(4, new Timestamp(ticket.getInTimeMillis()));
+            ps.setTimestamp(5, ticket.hasOutTime() ? new Timestamp(ticket.getOutTimeMillis()) : null);
+            int insertRowCount = ps.executeUpdate();
+            ResultSet rs = ps.getGeneratedKeys();
+            if(rs.next()){
+                ticket.setId(rs.getInt(1));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            if(insertRowCount != 1){
+                con.rollback();
+                return false;
+            }
+            if(!ticket.hasOutTime()){
+                saveOpenTicket(con, ticket);
+            }
+            dataBaseConfig.commit(con);
+            indexOpenTicket(ticket);
+            return true;
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            logger.error("Error saving ticket info",ex);
+            SAVE_TICKET.recordError();
+            return false;
         }finally {
             dataBaseConfig.closeConnection(con);
-            return false;
         }
     }
 
+    //the vehicle's open ticket, answered from the index alone once it is loaded; closed tickets are read by the history lookup
     public Ticket getTicket(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return doGetTicket(vehicleRegNumber, false);
+        } finally {
+            GET_TICKET.record(start);
+        }
+    }
+
+    private Ticket doGetTicket(String vehicleRegNumber, boolean history) {
         Connection con = null;
         Ticket ticket = null;
+        OpenTicket openTicket = openTicketIndex.get(vehicleRegNumber);
         try {
-            con = dataBaseConfig.getConnection();
+            if(openTicket != null && openTicket.getTicketId() == 0 && openTicket.getJournalSeq() == 0){
+                //queued by write-behind, its id only exists once written and it is gone from the index if it was not
+                awaitPendingWrites(vehicleRegNumber);
+                openTicket = openTicketIndex.get(vehicleRegNumber);
+            }
+            if(openTicket != null){
+                //vehicles still parked are answered from memory, no read query needed
+                ticket = toTicket(openTicket);
+                return ticket;
+            }
+            if(!history && openTicketIndex.isLoaded()){
+                //every parked vehicle is in the index, a vehicle missing from it is not parked whatever the tables say yet
+                return null;
+            }
+            awaitPendingWrites(vehicleRegNumber);
+            con = dataBaseConfig.getReadConnection(writtenAt(vehicleRegNumber));
             PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
             //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            ps.setString(1,vehicleRegNumber);
+            ps.setString(1, OpenTicketIndex.normalize(vehicleRegNumber));
             ResultSet rs = ps.executeQuery();
             if(rs.next()){
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
+                ticket = toTicket(rs, vehicleRegNumber);
             }
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
         }catch (Exception ex){
             logger.error("Error fetching next available slot",ex);
+            GET_TICKET.recordError();
         }finally {
             dataBaseConfig.closeConnection(con);
             return ticket;
         }
     }
 
+    //the vehicle's latest ticket, closed or not, looked up in the archive as well when the live table has none and includeArchive is set
+    public Ticket getTicket(String vehicleRegNumber, boolean includeArchive) {
+        long start = System.nanoTime();
+        Ticket ticket;
+        try {
+            ticket = doGetTicket(vehicleRegNumber, true);
+        } finally {
+            GET_TICKET.record(start);
+        }
+        if(ticket != null || !includeArchive){
+            return ticket;
+        }
+        start = System.nanoTime();
+        try {
+            return doGetArchivedTicket(vehicleRegNumber);
+        } finally {
+            GET_ARCHIVED_TICKET.record(start);
+        }
+    }
+
+    private Ticket doGetArchivedTicket(String vehicleRegNumber) {
+        Connection con = null;
+        try {
+            //archived tickets are months old, any replica has them
+            con = dataBaseConfig.getReadConnection(0);
+            for(String table : TicketArchiveDAO.listPartitions(con).values()){
+                PreparedStatement ps = con.prepareStatement(String.format(DBConstants.GET_ARCHIVED_TICKET, table));
+                ps.setString(1, OpenTicketIndex.normalize(vehicleRegNumber));
+                ResultSet rs = ps.executeQuery();
+                Ticket ticket = rs.next() ? toTicket(rs, vehicleRegNumber) : null;
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+                if(ticket != null){
+                    return ticket;
+                }
+            }
+        }catch (Exception ex){
+            logger.error("Error fetching archived ticket",ex);
+            GET_ARCHIVED_TICKET.recordError();
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return null;
+    }
+
     public boolean updateTicket(Ticket ticket) {
+        long start = System.nanoTime();
+        try {
+            return recordWrite(ticket, doUpdateTicket(ticket));
+        } finally {
+            UPDATE_TICKET.record(start);
+        }
+    }
+
+    private boolean doUpdateTicket(Ticket ticket) {
+        TicketJournal journal = ticketJournal;
+        if(journal != null){
+            return journalExit(journal, ticket);
+        }
         Connection con = null;
         try {
+            if(ticket.getId() == 0){
+                //the ticket is still queued for insertion and has no id yet
+                awaitPendingWrites(ticket.getVehicleRegNumber());
+            }
             con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
             ps.setDouble(1, ticket.getPrice());
-            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+            ps.setTimestamp(2, new Timestamp(ticket.getOutTimeMillis()));
             ps.setInt(3,ticket.getId());
-            ps.execute();
+            int updateRowCount = ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            if(updateRowCount != 1){
+                con.rollback();
+                return false;
+            }
+            ps = con.prepareStatement(DBConstants.DELETE_OPEN_TICKET);
+            ps.setInt(1, ticket.getId());
+            ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.commit(con);
+            openTicketIndex.remove(ticket.getVehicleRegNumber(), ticket.getId());
             return true;
         }catch (Exception ex){
             logger.error("Error saving ticket info",ex);
+            UPDATE_TICKET.recordError();
         }finally {
             dataBaseConfig.closeConnection(con);
         }
         return false;
     }
+
+    private boolean journalEntry(TicketJournal journal, Ticket ticket){
+        try {
+            recordJournaled(ticket, journal.appendEntry(ticket));
+            indexOpenTicket(ticket);
+            return true;
+        }catch (Exception ex){
+            logger.error("Error journaling ticket info",ex);
+            SAVE_TICKET.recordError();
+            return false;
+        }
+    }
+
+    private boolean journalExit(TicketJournal journal, Ticket ticket){
+        try {
+            recordJournaled(ticket, journal.appendExit(ticket));
+            openTicketIndex.remove(ticket.getVehicleRegNumber(), ticket.getId(), ticket.getJournalSeq());
+            return true;
+        }catch (Exception ex){
+            logger.error("Error journaling ticket info",ex);
+            UPDATE_TICKET.recordError();
+            return false;
+        }
+    }
+
+    private void recordJournaled(Ticket ticket, long seq){
+        journaledSeqs.put(OpenTicketIndex.normalize(ticket.getVehicleRegNumber()), seq);
+        TicketJournalProjector projector = journalProjector;
+        if(projector != null && journaledSeqs.size() > RECENT_WRITES_PRUNE_SIZE){
+            long projectedSeq = projector.getProjectedSeq();
+            journaledSeqs.values().removeIf(journaledSeq -> journaledSeq <= projectedSeq);
+        }
+    }
+
+    private void saveOpenTicket(Connection con, Ticket ticket) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_OPEN_TICKET);
+        try {
+            ps.setString(1, OpenTicketIndex.normalize(ticket.getVehicleRegNumber()));
+            ps.setInt(2, ticket.getId());
+            ps.setInt(3, ticket.getParkingSpot().getId());
+            ps.setTimestamp(4, new Timestamp(ticket.getInTimeMillis()));
+            ps.executeUpdate();
+        } finally {
+            ps.close();
+        }
+    }
+
+    private static OpenTicket toOpenTicket(ResultSet rs) throws SQLException {
+        return new OpenTicket(rs.getInt(1), rs.getString(2), rs.getInt(3),
+                ParkingType.valueOf(rs.getString(4)), rs.getTimestamp(5).getTime());
+    }
+
+    //TICKET_ID, VEHICLE_REG_NUMBER, PARKING_NUMBER, TYPE, IN_TIME, JOURNAL_SEQ
+    private static OpenTicket toJournalOpenTicket(ResultSet rs) throws SQLException {
+        //0 for a ticket written before the journal
+        return new OpenTicket(rs.getInt(1), rs.getLong(6), rs.getString(2), rs.getInt(3),
+                ParkingType.valueOf(rs.getString(4)), rs.getTimestamp(5).getTime());
+    }
+
+    private void indexOpenTicket(Ticket ticket){
+        if(!ticket.hasOutTime()){
+            openTicketIndex.put(new OpenTicket(ticket.getId(), ticket.getJournalSeq(), ticket.getVehicleRegNumber(),
+                    ticket.getParkingSpot(), ticket.getInTimeMillis()));
+        }
+    }
+
+    //PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME, TYPE
+    private static Ticket toTicket(ResultSet rs, String vehicleRegNumber) throws SQLException {
+        Ticket ticket = new Ticket();
+        ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setId(rs.getInt(2));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(rs.getDouble(3));
+        ticket.setInTimeMillis(rs.getTimestamp(4).getTime());
+        Timestamp outTime = rs.getTimestamp(5);
+        ticket.setOutTimeMillis(outTime == null ? Ticket.NO_OUT_TIME : outTime.getTime());
+        return ticket;
+    }
+
+    private static Ticket toTicket(OpenTicket openTicket){
+        Ticket ticket = new Ticket();
+        ticket.setId(openTicket.getTicketId());
+        ticket.setJournalSeq(openTicket.getJournalSeq());
+        ticket.setParkingSpot(openTicket.getParkingSpot());
+        ticket.setVehicleRegNumber(openTicket.getVehicleRegNumber());
+        ticket.setPrice(0);
+        ticket.setInTimeMillis(openTicket.getInTimeMillis());
+        ticket.setOutTimeMillis(Ticket.NO_OUT_TIME);
+        return ticket;
+    }
+
+    //only reads sent to replicas look at the write times, a lot without any does not keep them
+    private boolean recordWrite(Ticket ticket, boolean written){
+        if(written && dataBaseConfig.hasReplicas()){
+            long now = System.currentTimeMillis();
+            recentWrites.put(OpenTicketIndex.normalize(ticket.getVehicleRegNumber()), now);
+            if(recentWrites.size() > RECENT_WRITES_PRUNE_SIZE){
+                recentWrites.values().removeIf(writtenAt -> now - writtenAt > RECENT_WRITE_MILLIS);
+            }
+        }
+        return written;
+    }
+
+    //0 when the vehicle has no recent write and any healthy replica will do
+    private long writtenAt(String vehicleRegNumber){
+        Long writtenAt = recentWrites.get(OpenTicketIndex.normalize(vehicleRegNumber));
+        if(writtenAt == null){
+            return 0;
+        }
+        //queued and journaled tickets reach the table after they were accepted, once awaited they are only known to be in by now
+        return (ticketWriteBehind != null || ticketJournal != null) ? System.currentTimeMillis() : writtenAt;
+    }
+
+    //reads of the vehicle's tickets must see the ones that were accepted but not yet written
+    private void awaitPendingWrites(String vehicleRegNumber) throws InterruptedException {
+        TicketWriteBehind writeBehind = ticketWriteBehind;
+        if(writeBehind != null && writeBehind.hasPendingWrites() && !writeBehind.flush(FLUSH_TIMEOUT_MILLIS)){
+            logger.error("Timed out waiting for queued tickets to be written");
+        }
+        TicketJournalProjector projector = journalProjector;
+        String key = OpenTicketIndex.normalize(vehicleRegNumber);
+        Long seq = journaledSeqs.get(key);
+        if(projector == null || seq == null){
+            return;
+        }
+        if(projector.awaitProjected(seq, FLUSH_TIMEOUT_MILLIS)){
+            journaledSeqs.remove(key, seq);
+        }else{
+            logger.error("Timed out waiting for journal record {} to be written, {} records behind", seq, projector.getLag());
+        }
+    }
 }
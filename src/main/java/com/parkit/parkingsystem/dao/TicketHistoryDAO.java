@@ -0,0 +1,144 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+
+//bulk access to closed tickets for batch jobs, errors are thrown so a job stops at its last checkpoint
+public class TicketHistoryDAO {
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    //fills the batch with the closed tickets following afterTicketId in id order, returns how many were read
+    public int readClosedTickets(int afterTicketId, ClosedTicketBatch batch) throws ClassNotFoundException, SQLException {
+        batch.clear();
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_CLOSED_TICKETS_AFTER);
+            ps.setFetchSize(batch.getCapacity());
+            ps.setInt(1, afterTicketId);
+            ps.setInt(2, batch.getCapacity());
+            ResultSet rs = ps.executeQuery();
+            addClosedTickets(rs, batch);
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return batch.size();
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    //like readClosedTickets for the tickets closed since the date, read from a replica when one is up to date
+    public int readClosedTicketsSince(Date since, int afterTicketId, ClosedTicketBatch batch) throws ClassNotFoundException, SQLException {
+        batch.clear();
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getReadConnection(0);
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_CLOSED_TICKETS_SINCE);
+            ps.setFetchSize(batch.getCapacity());
+            ps.setTimestamp(1, new Timestamp(since.getTime()));
+            ps.setInt(2, afterTicketId);
+            ps.setInt(3, batch.getCapacity());
+            ResultSet rs = ps.executeQuery();
+            addClosedTickets(rs, batch);
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return batch.size();
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static void addClosedTickets(ResultSet rs, ClosedTicketBatch batch) throws SQLException {
+        while(rs.next()){
+            batch.add(rs.getInt(1), rs.getDouble(2), rs.getTimestamp(3).getTime(),
+                    rs.getTimestamp(4).getTime(), ParkingType.valueOf(rs.getString(5)), rs.getInt(6));
+        }
+    }
+
+    //writes the changed prices and moves the checkpoint past the batch in one transaction, returns how many changed
+    public int savePrices(String jobName, ClosedTicketBatch batch) throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET_PRICE);
+            int repriced = 0;
+            for(int i = 0; i < batch.size(); i++){
+                if(batch.isRepriced(i)){
+                    ps.setDouble(1, batch.getNewPrice(i));
+                    ps.setInt(2, batch.getId(i));
+                    ps.addBatch();
+                    repriced++;
+                }
+            }
+            if(repriced > 0){
+                ps.executeBatch();
+            }
+            dataBaseConfig.closePreparedStatement(ps);
+            saveCheckpoint(con, jobName, batch.getLastId());
+            dataBaseConfig.commit(con);
+            return repriced;
+        }finally {
+            //the pool rolls back anything left uncommitted when the connection is returned
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    //0 when the job has never run
+    public int getCheckpoint(String jobName) throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_REPRICING_CHECKPOINT);
+            ps.setString(1, jobName);
+            ResultSet rs = ps.executeQuery();
+            int lastTicketId = rs.next() ? rs.getInt(1) : 0;
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return lastTicketId;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public void deleteCheckpoint(String jobName) throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_REPRICING_CHECKPOINT);
+            ps.setString(1, jobName);
+            ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void saveCheckpoint(Connection con, String jobName, int lastTicketId) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_REPRICING_CHECKPOINT);
+        ps.setInt(1, lastTicketId);
+        ps.setTimestamp(2, now);
+        ps.setString(3, jobName);
+        int updated = ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+        if(updated == 0){
+            ps = con.prepareStatement(DBConstants.SAVE_REPRICING_CHECKPOINT);
+            ps.setString(1, jobName);
+            ps.setInt(2, lastTicketId);
+            ps.setTimestamp(3, now);
+            ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.journal.TicketJournal;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationMetrics;
+import com.parkit.parkingsystem.model.GateEventBatch;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Applies the ticket journal to the ticket, open_ticket and parking tables in the background, a batch of records per
+ * transaction together with the checkpoint, so every record is applied exactly once across restarts. While the
+ * database is unreachable the records wait in the journal and the batch is retried.
+ */
+public class TicketJournalProjector implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TicketJournalProjector");
+
+    private static final OperationMetrics PROJECT = Metrics.operation("TicketJournalProjector.project");
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    private static final String JOURNAL_NAME = "tickets";
+    private static final long IDLE_WAIT_MILLIS = 100;
+    private static final long RETRY_MILLIS = 1000;
+
+    private final DataBaseConfig dataBaseConfig;
+    private final TicketJournal journal;
+    private final int batchSize;
+    private Thread projector;
+    private volatile boolean running;
+
+    private final Object progress = new Object();
+    private volatile long projectedSeq;
+    private final AtomicLong failedCount = new AtomicLong();
+
+    public TicketJournalProjector(DataBaseConfig dataBaseConfig, TicketJournal journal, int batchSize) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.journal = journal;
+        this.batchSize = batchSize;
+    }
+
+    //the last record applied to the tables, 0 when none has been
+    public long readCheckpoint() throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = con.prepareStatement(DBConstants.GET_JOURNAL_CHECKPOINT);
+            ps.setString(1, JOURNAL_NAME);
+            ResultSet rs = ps.executeQuery();
+            long lastSeq = rs.next() ? rs.getLong(1) : 0;
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            return lastSeq;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public synchronized void start(long checkpoint) {
+        if(projector == null) {
+            projectedSeq = checkpoint;
+            running = true;
+            projector = new Thread(this::projectLoop, "journal-projector");
+            projector.setDaemon(true);
+            projector.start();
+        }
+    }
+
+    public long getProjectedSeq() {
+        return projectedSeq;
+    }
+
+    //records in the journal the tables do not reflect yet
+    public long getLag() {
+        return journal.getLastSeq() - projectedSeq;
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    //waits until the tables reflect the journal up to seq, false on timeout
+    public boolean awaitProjected(long seq, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (progress) {
+            while(projectedSeq < seq) {
+                long remaining = deadline - System.currentTimeMillis();
+                if(remaining <= 0) {
+                    return false;
+                }
+                progress.wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    private void projectLoop() {
+        boolean failing = false;
+        while(running) {
+            try {
+                List<JournalRecord> records = journal.read(projectedSeq + 1, batchSize);
+                if(records.isEmpty()) {
+                    journal.awaitAppended(projectedSeq + 1, IDLE_WAIT_MILLIS);
+                    continue;
+                }
+                project(records);
+                if(failing) {
+                    logger.info("Journal projection resumed, {} records behind", getLag());
+                    failing = false;
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (Exception e) {
+                failedCount.incrementAndGet();
+                //one error per outage, the retries stay quiet until the database answers again
+                if(!failing) {
+                    logger.error("Unable to apply the ticket journal after record {}, retrying", projectedSeq, e);
+                    failing = true;
+                }
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    running = false;
+                }
+            }
+        }
+    }
+
+    private void project(List<JournalRecord> records) throws Exception {
+        long start = System.nanoTime();
+        try {
+            save(toBatch(records), records.get(records.size() - 1).getSeq());
+        } catch (Exception e) {
+            PROJECT.recordError();
+            throw e;
+        } finally {
+            PROJECT.record(start);
+        }
+        long lastSeq = records.get(records.size() - 1).getSeq();
+        journal.release(lastSeq);
+        synchronized (progress) {
+            projectedSeq = lastSeq;
+            progress.notifyAll();
+        }
+    }
+
+    //the net effect of the records: a visit that starts and ends in the batch becomes one closed ticket
+    private static GateEventBatch toBatch(List<JournalRecord> records) {
+        GateEventBatch batch = new GateEventBatch();
+        Map<Long, Ticket> opened = new HashMap<>();
+        for(JournalRecord record : records) {
+            if(record.getType() == GateEventType.ENTRY) {
+                Ticket ticket = toTicket(record);
+                batch.addOpenedTicket(ticket);
+                opened.put(ticket.getJournalSeq(), ticket);
+                batch.setSpotAvailable(record.getParkingNumber(), false);
+            } else {
+                Ticket ticket = record.getJournalSeq() > 0 ? opened.get(record.getJournalSeq()) : null;
+                if(ticket != null) {
+                    ticket.setOutTimeMillis(record.getOutTimeMillis());
+                    ticket.setPrice(record.getPrice());
+                } else {
+                    batch.addClosedTicket(toTicket(record));
+                }
+                batch.setSpotAvailable(record.getParkingNumber(), true);
+            }
+        }
+        return batch;
+    }
+
+    private void save(GateEventBatch batch, long lastSeq) throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            //open_ticket is keyed by vehicle, the rows of departed vehicles go before the new ones
+            closeTickets(con, batch.getClosedTickets());
+            saveOpenedTickets(con, batch.getOpenedTickets());
+            updateParkingSpots(con, batch.getSpotAvailability());
+            saveCheckpoint(con, lastSeq);
+            dataBaseConfig.commit(con);
+        }finally {
+            //the pool rolls back anything left uncommitted when the connection is returned
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void closeTickets(Connection con, List<Ticket> tickets) throws SQLException {
+        List<Ticket> byId = new ArrayList<>();
+        List<Ticket> bySeq = new ArrayList<>();
+        for(Ticket ticket : tickets) {
+            (ticket.getJournalSeq() > 0 ? bySeq : byId).add(ticket);
+        }
+        closeTickets(con, byId, DBConstants.UPDATE_TICKET, DBConstants.DELETE_OPEN_TICKET);
+        closeTickets(con, bySeq, DBConstants.UPDATE_JOURNAL_TICKET, DBConstants.DELETE_JOURNAL_OPEN_TICKET);
+    }
+
+    //tickets opened through the journal are found by their entry record, the others by id
+    private void closeTickets(Connection con, List<Ticket> tickets, String update, String delete) throws SQLException {
+        if(tickets.isEmpty()) {
+            return;
+        }
+        PreparedStatement ps = con.prepareStatement(update);
+        for(Ticket ticket : tickets) {
+            ps.setDouble(1, ticket.getPrice());
+            ps.setTimestamp(2, new Timestamp(ticket.getOutTimeMillis()));
+            ps.setLong(3, ticket.getJournalSeq() > 0 ? ticket.getJournalSeq() : ticket.getId());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        dataBaseConfig.closePreparedStatement(ps);
+        ps = con.prepareStatement(delete);
+        for(Ticket ticket : tickets) {
+            ps.setLong(1, ticket.getJournalSeq() > 0 ? ticket.getJournalSeq() : ticket.getId());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        dataBaseConfig.closePreparedStatement(ps);
+    }
+
+    private void saveOpenedTickets(Connection con, List<Ticket> tickets) throws SQLException {
+        if(tickets.isEmpty()) {
+            return;
+        }
+        PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_JOURNAL_TICKET, Statement.RETURN_GENERATED_KEYS);
+        for(Ticket ticket : tickets) {
+            ps.setInt(1, ticket.getParkingSpot().getId());
+            ps.setString(2, OpenTicketIndex.normalize(ticket.getVehicleRegNumber()));
+            ps.setDouble(3, ticket.getPrice());
+            ps.setTimestamp(4, new Timestamp(ticket.getInTimeMillis()));
+            ps.setTimestamp(5, ticket.hasOutTime() ? new Timestamp(ticket.getOutTimeMillis()) : null);
+            ps.setLong(6, ticket.getJournalSeq());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        ResultSet rs = ps.getGeneratedKeys();
+        int[] ids = new int[tickets.size()];
+        for(int i = 0; i < ids.length; i++) {
+            if(!rs.next()) {
+                throw new SQLException("Missing generated id for the ticket of vehicle " + tickets.get(i).getVehicleRegNumber());
+            }
+            ids[i] = rs.getInt(1);
+        }
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        ps = con.prepareStatement(DBConstants.SAVE_OPEN_TICKET);
+        int open = 0;
+        for(int i = 0; i < ids.length; i++) {
+            Ticket ticket = tickets.get(i);
+            if(!ticket.hasOutTime()) {
+                ps.setString(1, OpenTicketIndex.normalize(ticket.getVehicleRegNumber()));
+                ps.setInt(2, ids[i]);
+                ps.setInt(3, ticket.getParkingSpot().getId());
+                ps.setTimestamp(4, new Timestamp(ticket.getInTimeMillis()));
+                ps.addBatch();
+                open++;
+            }
+        }
+        if(open > 0) {
+            ps.executeBatch();
+        }
+        dataBaseConfig.closePreparedStatement(ps);
+    }
+
+    private void updateParkingSpots(Connection con, Map<Integer, Boolean> spotAvailability) throws SQLException {
+        if(spotAvailability.isEmpty()) {
+            return;
+        }
+        PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+        for(Map.Entry<Integer, Boolean> spot : spotAvailability.entrySet()) {
+            ps.setBoolean(1, spot.getValue());
+            ps.setInt(2, spot.getKey());
+            ps.addBatch();
+        }
+        ps.executeBatch();
+        dataBaseConfig.closePreparedStatement(ps);
+    }
+
+    private void saveCheckpoint(Connection con, long lastSeq) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_JOURNAL_CHECKPOINT);
+        ps.setLong(1, lastSeq);
+        ps.setTimestamp(2, now);
+        ps.setString(3, JOURNAL_NAME);
+        int updated = ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+        if(updated == 0) {
+            ps = con.prepareStatement(DBConstants.SAVE_JOURNAL_CHECKPOINT);
+            ps.setString(1, JOURNAL_NAME);
+            ps.setLong(2, lastSeq);
+            ps.setTimestamp(3, now);
+            ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    private static Ticket toTicket(JournalRecord record) {
+        Ticket ticket = new Ticket();
+        ticket.setId(record.getTicketId());
+        ticket.setJournalSeq(record.getJournalSeq());
+        ticket.setParkingSpot(new ParkingSpot(record.getParkingNumber(), record.getParkingType(), false));
+        ticket.setVehicleRegNumber(record.getVehicleRegNumber());
+        ticket.setPrice(record.getPrice());
+        ticket.setInTimeMillis(record.getInTimeMillis());
+        ticket.setOutTimeMillis(record.getOutTimeMillis() == 0 ? Ticket.NO_OUT_TIME : record.getOutTimeMillis());
+        return ticket;
+    }
+
+    //stops the background thread, then applies what it left behind if the database allows
+    @Override
+    public void close() {
+        synchronized (this) {
+            running = false;
+            if(projector != null) {
+                projector.interrupt();
+                try {
+                    projector.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                projector = null;
+            }
+        }
+        try {
+            List<JournalRecord> records;
+            while(!(records = journal.read(projectedSeq + 1, batchSize)).isEmpty()) {
+                project(records);
+            }
+        } catch (Exception e) {
+            logger.warn("{} journal records are not in the database yet, they are applied at the next start", getLag(), e);
+        }
+        logger.info("Journal projector stopped at record {}", projectedSeq);
+    }
+}
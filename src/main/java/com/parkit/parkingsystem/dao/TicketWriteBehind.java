@@ -0,0 +1,252 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+ * Durability: a ticket accepted by offer() is only in memory until its batch commits. Tickets are
+ * committed within about lingerMillis, flush() waits for everything accepted so far, and close()
+ * drains the queue before returning. A crash of the JVM loses whatever was still queued.
+ * A ticket the database rejects, even when retried on its own, is given to onFailed with its id
+ * reset to 0. The gate already answered OK for it, so the owner has to give its spot back.
+ */
+public class TicketWriteBehind implements AutoCloseable, TicketWriteBehindMBean {
+
+    private static final Logger logger = LogManager.getLogger("TicketWriteBehind");
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final long DEFAULT_LINGER_MILLIS = 5;
+
+    private final DataBaseConfig dataBaseConfig;
+    private final Consumer<Ticket> onWritten;
+    private final Consumer<Ticket> onFailed;
+    private final BlockingQueue<Ticket> queue;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    //sequence numbers of accepted and of written (or given up) tickets, flush() waits for them to meet
+    private final Object progress = new Object();
+    private long acceptedSeq;
+    private long completedSeq;
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public TicketWriteBehind(DataBaseConfig dataBaseConfig, int capacity, int batchSize, long lingerMillis,
+                             Consumer<Ticket> onWritten, Consumer<Ticket> onFailed) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.onWritten = onWritten;
+        this.onFailed = onFailed;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.writer = new Thread(this::writeLoop, "ticket-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    //false when the queue is full or closed, the caller is expected to write synchronously instead
+    public boolean offer(Ticket ticket) {
+        synchronized (progress) {
+            if (!running || !queue.offer(ticket)) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            acceptedSeq++;
+            return true;
+        }
+    }
+
+    public boolean hasPendingWrites() {
+        synchronized (progress) {
+            return completedSeq < acceptedSeq;
+        }
+    }
+
+    //waits until every ticket accepted before this call has been written or given up on
+    public boolean flush(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (progress) {
+            long target = acceptedSeq;
+            while (completedSeq < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                progress.wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private void writeLoop() {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Ticket first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long lingerDeadline = System.currentTimeMillis() + lingerMillis;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = lingerDeadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Ticket next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                logger.error("Ticket writer interrupted, draining remaining tickets", e);
+                running = false;
+            } catch (Exception e) {
+                logger.error("Unexpected error in ticket writer", e);
+            } finally {
+                if (!batch.isEmpty()) {
+                    complete(batch.size());
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private void write(List<Ticket> batch) {
+        try {
+            insertBatch(batch);
+            writtenCount.addAndGet(batch.size());
+            batchCount.incrementAndGet();
+        } catch (Exception e) {
+            //one bad row should not lose the whole batch, retry the tickets one by one
+            logger.error("Error saving ticket batch of {}, retrying one by one", batch.size(), e);
+            for (Ticket ticket : batch) {
+                try {
+                    insertBatch(Collections.singletonList(ticket));
+                    writtenCount.incrementAndGet();
+                } catch (Exception ex) {
+                    failedCount.incrementAndGet();
+                    logger.error("Error saving ticket info for vehicle {}", ticket.getVehicleRegNumber(), ex);
+                    //the insert was rolled back, the generated id it may have been given does not exist
+                    ticket.setId(0);
+                    onFailed.accept(ticket);
+                }
+            }
+        }
+    }
+
+    private void insertBatch(List<Ticket> batch) throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+            for (Ticket ticket : batch) {
+                ps.setInt(1, ticket.getParkingSpot().getId());
+                ps.setString(2, OpenTicketIndex.normalize(ticket.getVehicleRegNumber()));
+                ps.setDouble(3, ticket.getPrice());
+                ps.setTimestamp(4, new Timestamp(ticket.getInTimeMillis()));
+                ps.setTimestamp(5, ticket.hasOutTime() ? new Timestamp(ticket.getOutTimeMillis()) : null);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ResultSet rs = ps.getGeneratedKeys();
+            for (Ticket ticket : batch) {
+                if (rs.next()) {
+                    ticket.setId(rs.getInt(1));
+                }
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            ps = con.prepareStatement(DBConstants.SAVE_OPEN_TICKET);
+            for (Ticket ticket : batch) {
+                if (!ticket.hasOutTime()) {
+                    ps.setString(1, OpenTicketIndex.normalize(ticket.getVehicleRegNumber()));
+                    ps.setInt(2, ticket.getId());
+                    ps.setInt(3, ticket.getParkingSpot().getId());
+                    ps.setTimestamp(4, new Timestamp(ticket.getInTimeMillis()));
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.commit(con);
+            for (Ticket ticket : batch) {
+                onWritten.accept(ticket);
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (con != null) {
+                con.rollback();
+            }
+            throw e;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void complete(int count) {
+        synchronized (progress) {
+            completedSeq += count;
+            progress.notifyAll();
+        }
+    }
+
+    //stops accepting tickets and returns once the queued ones are written
+    @Override
+    public void close() {
+        synchronized (progress) {
+            running = false;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Ticket writer stopped, written:{} failed:{}", writtenCount.get(), failedCount.get());
+    }
+}
@@ -0,0 +1,17 @@
+package com.parkit.parkingsystem.dao;
+
+public interface TicketWriteBehindMBean {
+
+    //tickets accepted and not yet taken by the writer
+    int getQueueDepth();
+
+    long getWrittenCount();
+
+    //tickets the database rejected, their spots were given back
+    long getFailedCount();
+
+    long getBatchCount();
+
+    //tickets turned away because the queue was full, written synchronously instead
+    long getRejectedCount();
+}
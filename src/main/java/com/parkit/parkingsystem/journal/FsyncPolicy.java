@@ -0,0 +1,11 @@
+package com.parkit.parkingsystem.journal;
+
+//when appended journal records are forced to disk, records in the page cache already survive a crash of the JVM
+public enum FsyncPolicy {
+    //before the append returns, nothing acknowledged is lost when the machine goes down
+    ALWAYS,
+    //every fsync interval, a power loss loses at most that much
+    INTERVAL,
+    //left to the operating system's write-back
+    NEVER
+}
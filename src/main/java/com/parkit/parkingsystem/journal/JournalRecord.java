@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+public class JournalRecord {
+    private final long seq;
+    private final GateEventType type;
+    private final int ticketId;
+    private final long journalSeq;
+    private final int parkingNumber;
+    private final ParkingType parkingType;
+    private final String vehicleRegNumber;
+    private final long inTimeMillis;
+    private final long outTimeMillis;
+    private final double price;
+
+    public JournalRecord(long seq, GateEventType type, int ticketId, long journalSeq, int parkingNumber, ParkingType parkingType,
+                         String vehicleRegNumber, long inTimeMillis, long outTimeMillis, double price) {
+        this.seq = seq;
+        this.type = type;
+        this.ticketId = ticketId;
+        this.journalSeq = journalSeq;
+        this.parkingNumber = parkingNumber;
+        this.parkingType = parkingType;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.inTimeMillis = inTimeMillis;
+        this.outTimeMillis = outTimeMillis;
+        this.price = price;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public GateEventType getType() {
+        return type;
+    }
+
+    //the id of the ticket in the table, 0 when it came through the journal and had no row yet when the record was written
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    //the seq of the ticket's entry record, the record's own for entries and 0 for exits of tickets opened before the journal
+    public long getJournalSeq() {
+        return journalSeq;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public long getInTimeMillis() {
+        return inTimeMillis;
+    }
+
+    //0 for entries
+    public long getOutTimeMillis() {
+        return outTimeMillis;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+}
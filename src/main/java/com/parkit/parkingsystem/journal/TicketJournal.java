@@ -0,0 +1,321 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only journal of ticket entries and exits in memory-mapped segment files of fixed 128 byte records. Records
+ * are numbered from 1 without gaps, a segment file is named after its first record and a new one is started when it
+ * is full. On opening, the records are read back up to the first one that is missing or fails its checksum, which is
+ * where a crash in the middle of an append leaves the end of the journal.
+ *
+ * Record layout: seq(8) type(1) parkingType(1) vehicleLength(1) pad(1) ticketId(4) parkingNumber(4) pad(4)
+ * inTime(8) outTime(8) price(8) journalSeq(8) vehicle(64) crc32(4) pad(4), the checksum covering the first 120 bytes.
+ */
+public class TicketJournal implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("TicketJournal");
+
+    public static final int RECORD_BYTES = 128;
+    public static final int DEFAULT_SEGMENT_RECORDS = 512 * 1024;
+    public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 100;
+    private static final int MAX_VEHICLE_BYTES = 64;
+    private static final int CHECKSUMMED_BYTES = 120;
+    private static final String SEGMENT_PREFIX = "tickets-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final byte ENTRY = 1;
+    private static final byte EXIT = 2;
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final FsyncPolicy fsyncPolicy;
+    private final List<Segment> segments = new ArrayList<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private ScheduledExecutorService flusher;
+    //written under the journal's lock, volatile so the projector's lag can be read without it
+    private volatile long lastSeq;
+
+    private TicketJournal(Path directory, int segmentRecords, FsyncPolicy fsyncPolicy) {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    public static TicketJournal open(Path directory, FsyncPolicy fsyncPolicy) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_RECORDS, fsyncPolicy, DEFAULT_FSYNC_INTERVAL_MILLIS);
+    }
+
+    public static TicketJournal open(Path directory, int segmentRecords, FsyncPolicy fsyncPolicy,
+                                     long fsyncIntervalMillis) throws IOException {
+        Files.createDirectories(directory);
+        TicketJournal journal = new TicketJournal(directory, segmentRecords, fsyncPolicy);
+        journal.recover();
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            journal.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            journal.flusher.scheduleWithFixedDelay(journal::force, fsyncIntervalMillis, fsyncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        logger.info("Opened ticket journal {} at record {} ({} segments, fsync {})", directory, journal.lastSeq,
+                journal.segments.size(), fsyncPolicy);
+        return journal;
+    }
+
+    //the ticket is known by the seq of its entry record, the row and the id the projector gives it come later
+    public synchronized long appendEntry(Ticket ticket) throws IOException {
+        long seq = lastSeq + 1;
+        append(seq, ENTRY, seq, ticket);
+        ticket.setJournalSeq(seq);
+        return seq;
+    }
+
+    public synchronized long appendExit(Ticket ticket) throws IOException {
+        long seq = lastSeq + 1;
+        append(seq, EXIT, ticket.getJournalSeq(), ticket);
+        return seq;
+    }
+
+    private void append(long seq, byte type, long journalSeq, Ticket ticket) throws IOException {
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        //plates are ASCII, their chars go to the record as they are and only others are encoded into a new array
+        byte[] vehicle = isAscii(vehicleRegNumber) ? null : vehicleRegNumber.getBytes(StandardCharsets.UTF_8);
+        int vehicleLength = vehicle == null ? vehicleRegNumber.length() : vehicle.length;
+        if (vehicleLength > MAX_VEHICLE_BYTES) {
+            throw new IOException("Vehicle registration number too long for the journal: " + ticket.getVehicleRegNumber());
+        }
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.count == segment.capacity) {
+            segment = createSegment(seq);
+        }
+        scratch.clear();
+        scratch.putLong(seq);
+        scratch.put(type);
+        scratch.put((byte) ticket.getParkingSpot().getParkingType().ordinal());
+        scratch.put((byte) vehicleLength);
+        scratch.put((byte) 0);
+        scratch.putInt(ticket.getId());
+        scratch.putInt(ticket.getParkingSpot().getId());
+        scratch.putInt(0);
+        scratch.putLong(ticket.getInTimeMillis());
+        scratch.putLong(ticket.hasOutTime() ? ticket.getOutTimeMillis() : 0);
+        scratch.putDouble(ticket.getPrice());
+        scratch.putLong(journalSeq);
+        if (vehicle == null) {
+            for (int i = 0; i < vehicleLength; i++) {
+                scratch.put((byte) vehicleRegNumber.charAt(i));
+            }
+        } else {
+            scratch.put(vehicle);
+        }
+        crc.reset();
+        crc.update(scratch.array(), 0, CHECKSUMMED_BYTES);
+        scratch.putInt(CHECKSUMMED_BYTES, (int) crc.getValue());
+        int offset = segment.count * RECORD_BYTES;
+        segment.buffer.put(offset, scratch.array(), 0, RECORD_BYTES);
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            segment.buffer.force(offset, RECORD_BYTES);
+        }
+        segment.count++;
+        lastSeq = seq;
+        notifyAll();
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    //up to max records from fromSeq on, fewer or none at the end of the journal
+    public synchronized List<JournalRecord> read(long fromSeq, int max) {
+        List<JournalRecord> records = new ArrayList<>();
+        for (long seq = Math.max(fromSeq, 1); seq <= lastSeq && records.size() < max; seq++) {
+            Segment segment = segmentOf(seq);
+            if (segment == null) {
+                throw new IllegalStateException("Journal record " + seq + " has already been released");
+            }
+            records.add(decode(segment.buffer, (int) (seq - segment.firstSeq) * RECORD_BYTES));
+        }
+        return records;
+    }
+
+    //waits until the journal goes past seq, false on timeout
+    public synchronized boolean awaitAppended(long seq, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (lastSeq < seq) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    //deletes the full segments whose records are all at or below projectedSeq
+    public synchronized void release(long projectedSeq) throws IOException {
+        while (segments.size() > 1 && segments.get(0).firstSeq + segments.get(0).count - 1 <= projectedSeq) {
+            Segment segment = segments.remove(0);
+            segment.channel.close();
+            Files.delete(segment.path);
+            logger.debug("Released journal segment {}", segment.path);
+        }
+    }
+
+    //the fsync runs outside the lock, so gates keep appending while it waits on the disk
+    public void force() {
+        MappedByteBuffer current;
+        synchronized (this) {
+            if (segments.isEmpty()) {
+                return;
+            }
+            current = segments.get(segments.size() - 1).buffer;
+        }
+        current.force();
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        synchronized (this) {
+            force();
+            for (Segment segment : segments) {
+                try {
+                    segment.channel.close();
+                } catch (IOException e) {
+                    logger.error("Error closing journal segment {}", segment.path, e);
+                }
+            }
+            segments.clear();
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            files.forEach(paths::add);
+        }
+        //the zero padded first seq makes the names sort in journal order
+        paths.sort(null);
+        boolean ended = false;
+        for (Path path : paths) {
+            if (ended) {
+                logger.warn("Deleting journal segment {} found after the end of the journal", path);
+                Files.delete(path);
+                continue;
+            }
+            long firstSeq = Long.parseLong(path.getFileName().toString()
+                    .substring(SEGMENT_PREFIX.length(), path.getFileName().toString().length() - SEGMENT_SUFFIX.length()));
+            if (lastSeq > 0 && firstSeq != lastSeq + 1) {
+                throw new IOException("Journal segment " + path + " does not follow record " + lastSeq);
+            }
+            Segment segment = mapSegment(path, firstSeq, (int) (Files.size(path) / RECORD_BYTES));
+            segments.add(segment);
+            while (segment.count < segment.capacity && isValid(segment.buffer, segment.count * RECORD_BYTES, firstSeq + segment.count)) {
+                segment.count++;
+            }
+            if (segment.count > 0) {
+                lastSeq = firstSeq + segment.count - 1;
+            } else if (lastSeq == 0) {
+                //a journal whose projected segments were all released starts at the first seq of the segment left
+                lastSeq = firstSeq - 1;
+            }
+            ended = segment.count < segment.capacity;
+        }
+    }
+
+    private Segment createSegment(long firstSeq) throws IOException {
+        if (!segments.isEmpty() && fsyncPolicy != FsyncPolicy.NEVER) {
+            //the interval flusher only looks at the newest segment
+            segments.get(segments.size() - 1).buffer.force();
+        }
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        Segment segment = mapSegment(path, firstSeq, segmentRecords);
+        segments.add(segment);
+        return segment;
+    }
+
+    private static Segment mapSegment(Path path, long firstSeq, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * RECORD_BYTES);
+        return new Segment(path, firstSeq, capacity, channel, buffer);
+    }
+
+    private Segment segmentOf(long seq) {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Segment segment = segments.get(i);
+            if (seq >= segment.firstSeq) {
+                return seq < segment.firstSeq + segment.count ? segment : null;
+            }
+        }
+        return null;
+    }
+
+    private boolean isValid(MappedByteBuffer buffer, int offset, long expectedSeq) {
+        if (buffer.getLong(offset) != expectedSeq) {
+            return false;
+        }
+        crc.reset();
+        crc.update(buffer.slice(offset, CHECKSUMMED_BYTES));
+        return buffer.getInt(offset + CHECKSUMMED_BYTES) == (int) crc.getValue();
+    }
+
+    private static JournalRecord decode(MappedByteBuffer buffer, int offset) {
+        byte[] vehicle = new byte[buffer.get(offset + 10)];
+        buffer.get(offset + 56, vehicle);
+        return new JournalRecord(buffer.getLong(offset), buffer.get(offset + 8) == ENTRY ? GateEventType.ENTRY : GateEventType.EXIT,
+                buffer.getInt(offset + 12), buffer.getLong(offset + 48), buffer.getInt(offset + 16), PARKING_TYPES[buffer.get(offset + 9)],
+                new String(vehicle, StandardCharsets.UTF_8), buffer.getLong(offset + 24), buffer.getLong(offset + 32),
+                buffer.getDouble(offset + 40));
+    }
+
+    private static class Segment {
+        private final Path path;
+        private final long firstSeq;
+        private final int capacity;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int count;
+
+        private Segment(Path path, long firstSeq, int capacity, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstSeq = firstSeq;
+            this.capacity = capacity;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
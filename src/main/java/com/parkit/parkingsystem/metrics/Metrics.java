@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//process-wide registry of operation metrics, each one published as an MBean under com.parkit.parkingsystem:type=Operation
+public final class Metrics {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    private static final String DOMAIN = "com.parkit.parkingsystem";
+
+    private static final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService summaryDumper;
+
+    private Metrics() {
+    }
+
+    //the same instance for the same name, callers keep it in a static field so the hot path never looks it up
+    public static OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, Metrics::register);
+    }
+
+    private static OperationMetrics register(String name) {
+        OperationMetrics metrics = new OperationMetrics(name);
+        publish("Operation", name, metrics);
+        return metrics;
+    }
+
+    //publishes a standard MBean under com.parkit.parkingsystem:type=<type>, replacing one published under the same name
+    public static void publish(String type, String name, Object mbean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+        } catch (JMException e) {
+            logger.error("Unable to publish metrics for {} over JMX", name, e);
+        }
+    }
+
+    public static List<OperationMetrics> getOperations() {
+        List<OperationMetrics> list = new ArrayList<>(operations.values());
+        list.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return list;
+    }
+
+    //one line per operation that has been called
+    public static String summary() {
+        StringBuilder summary = new StringBuilder("Operation latency since start:");
+        for (OperationMetrics metrics : getOperations()) {
+            if (metrics.getCount() > 0) {
+                summary.append(System.lineSeparator()).append("  ").append(metrics);
+            }
+        }
+        return summary.toString();
+    }
+
+    public static synchronized void startSummaryDump(long periodSeconds) {
+        if (summaryDumper == null) {
+            summaryDumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-summary");
+                thread.setDaemon(true);
+                return thread;
+            });
+            summaryDumper.scheduleAtFixedRate(() -> logger.info(summary()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public static synchronized void stopSummaryDump() {
+        if (summaryDumper != null) {
+            summaryDumper.shutdownNow();
+            summaryDumper = null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+//latency and failures of one instrumented operation, safe to record from any number of threads without locking
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    //startNanos is the System.nanoTime() taken when the operation began
+    public void record(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+
+    //failed calls are timed by record like any other, this only counts them
+    public void recordError() {
+        errors.increment();
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getValueAtPercentile(50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return latency.getValueAtPercentile(99.9) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s count=%d errors=%d mean=%.3fms p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms",
+                name, getCount(), getErrorCount(), getMeanMillis(), getP50Millis(), getP99Millis(), getP999Millis(), getMaxMillis());
+    }
+}
@@ -0,0 +1,20 @@
+package com.parkit.parkingsystem.metrics;
+
+public interface OperationMetricsMBean {
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
@@ -0,0 +1,30 @@
+package com.parkit.parkingsystem.model;
+
+public class ArchivalResult {
+    private final long ticketsArchived;
+    private final int batches;
+    private final long elapsedMillis;
+
+    public ArchivalResult(long ticketsArchived, int batches, long elapsedMillis) {
+        this.ticketsArchived = ticketsArchived;
+        this.batches = batches;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getTicketsArchived() {
+        return ticketsArchived;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return ticketsArchived + " tickets archived in " + batches + " batches in " + elapsedMillis + " ms";
+    }
+}
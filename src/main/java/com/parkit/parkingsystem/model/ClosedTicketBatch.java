@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+//one chunk of closed tickets in parallel arrays, reused chunk after chunk so a long repricing run keeps a fixed footprint
+public class ClosedTicketBatch {
+
+    private final int[] ids;
+    private final double[] prices;
+    private final double[] newPrices;
+    private final long[] inTimes;
+    private final long[] outTimes;
+    private final ParkingType[] parkingTypes;
+    private final int[] parkingNumbers;
+    private int size;
+
+    public ClosedTicketBatch(int capacity) {
+        ids = new int[capacity];
+        prices = new double[capacity];
+        newPrices = new double[capacity];
+        inTimes = new long[capacity];
+        outTimes = new long[capacity];
+        parkingTypes = new ParkingType[capacity];
+        parkingNumbers = new int[capacity];
+    }
+
+    public int getCapacity() {
+        return ids.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int id, double price, long inTimeMillis, long outTimeMillis, ParkingType parkingType, int parkingNumber) {
+        ids[size] = id;
+        prices[size] = price;
+        newPrices[size] = price;
+        inTimes[size] = inTimeMillis;
+        outTimes[size] = outTimeMillis;
+        parkingTypes[size] = parkingType;
+        parkingNumbers[size] = parkingNumber;
+        size++;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public int getLastId() {
+        return size == 0 ? 0 : ids[size - 1];
+    }
+
+    public double getPrice(int index) {
+        return prices[index];
+    }
+
+    public long getInTime(int index) {
+        return inTimes[index];
+    }
+
+    public long getOutTime(int index) {
+        return outTimes[index];
+    }
+
+    public ParkingType getParkingType(int index) {
+        return parkingTypes[index];
+    }
+
+    public int getParkingNumber(int index) {
+        return parkingNumbers[index];
+    }
+
+    public double getNewPrice(int index) {
+        return newPrices[index];
+    }
+
+    public void setNewPrice(int index, double newPrice) {
+        newPrices[index] = newPrice;
+    }
+
+    public boolean isRepriced(int index) {
+        return newPrices[index] != prices[index];
+    }
+}
@@ -0,0 +1,36 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+public class GateEvent {
+    private final GateEventType type;
+    private final String vehicleRegNumber;
+    private final ParkingType parkingType;
+
+    public GateEvent(GateEventType type, String vehicleRegNumber, ParkingType parkingType) {
+        this.type = type;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+    }
+
+    public static GateEvent entry(String vehicleRegNumber, ParkingType parkingType) {
+        return new GateEvent(GateEventType.ENTRY, vehicleRegNumber, parkingType);
+    }
+
+    public static GateEvent exit(String vehicleRegNumber) {
+        return new GateEvent(GateEventType.EXIT, vehicleRegNumber, null);
+    }
+
+    public GateEventType getType() {
+        return type;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+}
@@ -0,0 +1,61 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//the writes of one chunk of replayed gate events, saved in a single transaction
+public class GateEventBatch {
+
+    //tickets opened by the chunk, closed within it when they have an out time
+    private final List<Ticket> openedTickets = new ArrayList<>();
+    //tickets opened before the chunk and closed by it
+    private final List<Ticket> closedTickets = new ArrayList<>();
+    //the last availability of each spot the chunk touched
+    private final Map<Integer, Boolean> spotAvailability = new LinkedHashMap<>();
+    private int lastLineNumber;
+
+    public void addOpenedTicket(Ticket ticket) {
+        openedTickets.add(ticket);
+    }
+
+    public void addClosedTicket(Ticket ticket) {
+        closedTickets.add(ticket);
+    }
+
+    public void setSpotAvailable(int parkingNumber, boolean available) {
+        spotAvailability.put(parkingNumber, available);
+    }
+
+    public List<Ticket> getOpenedTickets() {
+        return openedTickets;
+    }
+
+    public List<Ticket> getClosedTickets() {
+        return closedTickets;
+    }
+
+    public Map<Integer, Boolean> getSpotAvailability() {
+        return spotAvailability;
+    }
+
+    public int getLastLineNumber() {
+        return lastLineNumber;
+    }
+
+    public void setLastLineNumber(int lastLineNumber) {
+        this.lastLineNumber = lastLineNumber;
+    }
+
+    public boolean isEmpty() {
+        return openedTickets.isEmpty() && closedTickets.isEmpty() && spotAvailability.isEmpty();
+    }
+
+    public void clear() {
+        openedTickets.clear();
+        closedTickets.clear();
+        spotAvailability.clear();
+        lastLineNumber = 0;
+    }
+}
@@ -0,0 +1,171 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//the events of a gate event file in parallel arrays, registration numbers kept as bytes until an event is applied
+public class GateEventLog {
+
+    private static final GateEventType[] EVENT_TYPES = GateEventType.values();
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private int size;
+    private long[] times;
+    private byte[] eventTypes;
+    private byte[] parkingTypes;
+    private int[] lineNumbers;
+    private int[] vehicleOffsets;
+    private byte[] vehicleLengths;
+    private byte[] vehicleBytes;
+    private int vehicleBytesUsed;
+    //position i of the time order is event order[i], null while the events are in file order
+    private int[] order;
+    private boolean inTimeOrder = true;
+
+    private final List<Integer> rejectedLines = new ArrayList<>();
+    private final List<String> rejectedReasons = new ArrayList<>();
+
+    public GateEventLog(int expectedEvents) {
+        int capacity = Math.max(16, expectedEvents);
+        times = new long[capacity];
+        eventTypes = new byte[capacity];
+        parkingTypes = new byte[capacity];
+        lineNumbers = new int[capacity];
+        vehicleOffsets = new int[capacity];
+        vehicleLengths = new byte[capacity];
+        vehicleBytes = new byte[capacity * 8];
+    }
+
+    //the registration number is copied from source[from, from + length), at most 255 bytes
+    public void add(long timeMillis, GateEventType eventType, ParkingType parkingType, int lineNumber,
+                    ByteBuffer source, int from, int length) {
+        if (order != null) {
+            throw new IllegalStateException("Events cannot be added once sorted");
+        }
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            eventTypes = Arrays.copyOf(eventTypes, capacity);
+            parkingTypes = Arrays.copyOf(parkingTypes, capacity);
+            lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+            vehicleOffsets = Arrays.copyOf(vehicleOffsets, capacity);
+            vehicleLengths = Arrays.copyOf(vehicleLengths, capacity);
+        }
+        if (vehicleBytesUsed + length > vehicleBytes.length) {
+            vehicleBytes = Arrays.copyOf(vehicleBytes, Math.max(vehicleBytes.length * 2, vehicleBytesUsed + length));
+        }
+        source.get(from, vehicleBytes, vehicleBytesUsed, length);
+        if (size > 0 && timeMillis < times[size - 1]) {
+            inTimeOrder = false;
+        }
+        times[size] = timeMillis;
+        eventTypes[size] = (byte) eventType.ordinal();
+        parkingTypes[size] = (byte) (parkingType == null ? -1 : parkingType.ordinal());
+        lineNumbers[size] = lineNumber;
+        vehicleOffsets[size] = vehicleBytesUsed;
+        vehicleLengths[size] = (byte) length;
+        vehicleBytesUsed += length;
+        size++;
+    }
+
+    public void reject(int lineNumber, String reason) {
+        rejectedLines.add(lineNumber);
+        rejectedReasons.add(reason);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Orders the events by time, events with the same time keep their file order. The time and the file position are
+     * packed into one long so a primitive sort does the work; a file too large or too long in time for that falls back
+     * to sorting boxed positions.
+     */
+    public void sortByTime() {
+        if (inTimeOrder || size == 0) {
+            return;
+        }
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            minTime = Math.min(minTime, times[i]);
+            maxTime = Math.max(maxTime, times[i]);
+        }
+        int indexBits = 64 - Long.numberOfLeadingZeros(size);
+        int timeBits = 64 - Long.numberOfLeadingZeros(maxTime - minTime);
+        order = new int[size];
+        if (indexBits + timeBits <= 63) {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = (times[i] - minTime) << indexBits | i;
+            }
+            Arrays.parallelSort(keys);
+            long indexMask = (1L << indexBits) - 1;
+            for (int i = 0; i < size; i++) {
+                order[i] = (int) (keys[i] & indexMask);
+            }
+        } else {
+            Integer[] boxed = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                boxed[i] = i;
+            }
+            Arrays.parallelSort(boxed, (a, b) -> times[a] != times[b] ? Long.compare(times[a], times[b]) : Integer.compare(a, b));
+            for (int i = 0; i < size; i++) {
+                order[i] = boxed[i];
+            }
+        }
+        inTimeOrder = true;
+    }
+
+    public boolean isInTimeOrder() {
+        return inTimeOrder;
+    }
+
+    //the accessors below take the position in time order once sortByTime has run, in file order before
+
+    public long getTime(int i) {
+        return times[index(i)];
+    }
+
+    public GateEventType getEventType(int i) {
+        return EVENT_TYPES[eventTypes[index(i)]];
+    }
+
+    //null for exits
+    public ParkingType getParkingType(int i) {
+        byte parkingType = parkingTypes[index(i)];
+        return parkingType < 0 ? null : PARKING_TYPES[parkingType];
+    }
+
+    public int getLineNumber(int i) {
+        return lineNumbers[index(i)];
+    }
+
+    public String getVehicleRegNumber(int i) {
+        int event = index(i);
+        return new String(vehicleBytes, vehicleOffsets[event], vehicleLengths[event] & 0xFF, StandardCharsets.UTF_8);
+    }
+
+    public int getRejectedCount() {
+        return rejectedLines.size();
+    }
+
+    public int getRejectedLine(int i) {
+        return rejectedLines.get(i);
+    }
+
+    public String getRejectedReason(int i) {
+        return rejectedReasons.get(i);
+    }
+
+    private int index(int i) {
+        return order == null ? i : order[i];
+    }
+}
@@ -0,0 +1,38 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+
+public class GateResult {
+    //a result without a ticket is only its status, so one instance of each is shared
+    private static final GateResult[] WITHOUT_TICKET = new GateResult[GateStatus.values().length];
+
+    static {
+        for (GateStatus status : GateStatus.values()) {
+            WITHOUT_TICKET[status.ordinal()] = new GateResult(status, null);
+        }
+    }
+
+    private final GateStatus status;
+    private final Ticket ticket;
+
+    public GateResult(GateStatus status, Ticket ticket) {
+        this.status = status;
+        this.ticket = ticket;
+    }
+
+    public static GateResult of(GateStatus status) {
+        return WITHOUT_TICKET[status.ordinal()];
+    }
+
+    public GateStatus getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == GateStatus.OK;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+}
@@ -0,0 +1,57 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+public class IngestionResult {
+    private final long linesRead;
+    private final long eventsApplied;
+    private final Map<String, Integer> rejectedByReason;
+    private final long elapsedMillis;
+
+    public IngestionResult(long linesRead, long eventsApplied, Map<String, Integer> rejectedByReason, long elapsedMillis) {
+        this.linesRead = linesRead;
+        this.eventsApplied = eventsApplied;
+        this.rejectedByReason = new TreeMap<>(rejectedByReason);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getLinesRead() {
+        return linesRead;
+    }
+
+    public long getEventsApplied() {
+        return eventsApplied;
+    }
+
+    public long getRejected() {
+        long rejected = 0;
+        for (int count : rejectedByReason.values()) {
+            rejected += count;
+        }
+        return rejected;
+    }
+
+    //0 when no line was rejected for that reason
+    public int getRejected(String reason) {
+        return rejectedByReason.getOrDefault(reason, 0);
+    }
+
+    public Map<String, Integer> getRejectedByReason() {
+        return rejectedByReason;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getLinesPerSecond() {
+        return elapsedMillis == 0 ? 0 : linesRead * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return linesRead + " lines read, " + eventsApplied + " events applied, " + getRejected() + " rejected "
+                + rejectedByReason + " in " + elapsedMillis + " ms (" + Math.round(getLinesPerSecond()) + " lines/s)";
+    }
+}
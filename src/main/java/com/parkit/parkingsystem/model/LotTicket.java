@@ -0,0 +1,20 @@
+package com.parkit.parkingsystem.model;
+
+//a ticket together with the lot whose database holds it
+public class LotTicket {
+    private final String lot;
+    private final Ticket ticket;
+
+    public LotTicket(String lot, Ticket ticket) {
+        this.lot = lot;
+        this.ticket = ticket;
+    }
+
+    public String getLot() {
+        return lot;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+}
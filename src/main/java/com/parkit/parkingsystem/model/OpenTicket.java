@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+public class OpenTicket {
+    private final int ticketId;
+    private final long journalSeq;
+    private final String vehicleRegNumber;
+    private final ParkingSpot parkingSpot;
+    private final long inTimeMillis;
+
+    public OpenTicket(int ticketId, String vehicleRegNumber, int parkingNumber, ParkingType parkingType, long inTimeMillis) {
+        this(ticketId, 0, vehicleRegNumber, parkingNumber, parkingType, inTimeMillis);
+    }
+
+    public OpenTicket(int ticketId, long journalSeq, String vehicleRegNumber, int parkingNumber, ParkingType parkingType,
+                      long inTimeMillis) {
+        this(ticketId, journalSeq, vehicleRegNumber, new ParkingSpot(parkingNumber, parkingType, false), inTimeMillis);
+    }
+
+    //keeps the ticket's spot so the ticket is rebuilt at the exit without a new one
+    public OpenTicket(int ticketId, String vehicleRegNumber, ParkingSpot parkingSpot, long inTimeMillis) {
+        this(ticketId, 0, vehicleRegNumber, parkingSpot, inTimeMillis);
+    }
+
+    public OpenTicket(int ticketId, long journalSeq, String vehicleRegNumber, ParkingSpot parkingSpot, long inTimeMillis) {
+        this.ticketId = ticketId;
+        this.journalSeq = journalSeq;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingSpot = parkingSpot;
+        this.inTimeMillis = inTimeMillis;
+    }
+
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    //0 when the ticket did not come through the journal
+    public long getJournalSeq() {
+        return journalSeq;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public ParkingSpot getParkingSpot() {
+        return parkingSpot;
+    }
+
+    public int getParkingNumber() {
+        return parkingSpot.getId();
+    }
+
+    public ParkingType getParkingType() {
+        return parkingSpot.getParkingType();
+    }
+
+    public long getInTimeMillis() {
+        return inTimeMillis;
+    }
+}
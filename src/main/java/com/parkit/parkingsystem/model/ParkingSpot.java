@@ -6,6 +6,9 @@ public class ParkingSpot {
     private int number;
     private ParkingType parkingType;
     private boolean isAvailable;
+    //where the spot is, read by the allocation policies
+    private int level;
+    private int entryDistance;
 
     public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
         this.number = number;
@@ -13,6 +16,12 @@ public class ParkingSpot {
         this.isAvailable = isAvailable;
     }
 
+    public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable, int level, int entryDistance) {
+        this(number, parkingType, isAvailable);
+        this.level = level;
+        this.entryDistance = entryDistance;
+    }
+
     public int getId() {
         return number;
     }
@@ -37,6 +46,23 @@ public class ParkingSpot {
         isAvailable = available;
     }
 
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    //metres walked or driven from the entry gate
+    public int getEntryDistance() {
+        return entryDistance;
+    }
+
+    public void setEntryDistance(int entryDistance) {
+        this.entryDistance = entryDistance;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,41 @@
+package com.parkit.parkingsystem.model;
+
+public class RepricingResult {
+    private final long ticketsRead;
+    private final long ticketsRepriced;
+    private final int lastTicketId;
+    private final long elapsedMillis;
+
+    public RepricingResult(long ticketsRead, long ticketsRepriced, int lastTicketId, long elapsedMillis) {
+        this.ticketsRead = ticketsRead;
+        this.ticketsRepriced = ticketsRepriced;
+        this.lastTicketId = lastTicketId;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getTicketsRead() {
+        return ticketsRead;
+    }
+
+    public long getTicketsRepriced() {
+        return ticketsRepriced;
+    }
+
+    public int getLastTicketId() {
+        return lastTicketId;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getTicketsPerSecond() {
+        return elapsedMillis == 0 ? 0 : ticketsRead * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return ticketsRead + " tickets read, " + ticketsRepriced + " repriced in " + elapsedMillis
+                + " ms (" + Math.round(getTicketsPerSecond()) + " tickets/s), last ticket " + lastTicketId;
+    }
+}
@@ -0,0 +1,53 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+//a spot booked for a vehicle from startMillis included to endMillis excluded
+public class Reservation {
+    private int id;
+    private int parkingNumber;
+    private final ParkingType parkingType;
+    private final String vehicleRegNumber;
+    private final long startMillis;
+    private final long endMillis;
+
+    public Reservation(String vehicleRegNumber, ParkingType parkingType, long startMillis, long endMillis) {
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    //0 until a spot is booked
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public void setParkingNumber(int parkingNumber) {
+        this.parkingNumber = parkingNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getEndMillis() {
+        return endMillis;
+    }
+}
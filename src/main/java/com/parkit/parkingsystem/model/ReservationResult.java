@@ -0,0 +1,25 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+
+public class ReservationResult {
+    private final GateStatus status;
+    private final Reservation reservation;
+
+    public ReservationResult(GateStatus status, Reservation reservation) {
+        this.status = status;
+        this.reservation = reservation;
+    }
+
+    public GateStatus getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == GateStatus.OK;
+    }
+
+    public Reservation getReservation() {
+        return reservation;
+    }
+}
@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+//the tickets closed in a time range by parking type, with what they paid and how long they stayed
+public class RevenueSummary {
+
+    private static final double MICROS_PER_UNIT_OF_CURRENCY = 1_000_000;
+
+    private final long fromMillis;
+    private final long toMillis;
+    //indexed by ParkingType ordinal
+    private final int[] tickets;
+    private final long[] revenueMicros;
+    private final long[] dwellMillis;
+
+    public RevenueSummary(long fromMillis, long toMillis, int[] tickets, long[] revenueMicros, long[] dwellMillis) {
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        this.tickets = tickets;
+        this.revenueMicros = revenueMicros;
+        this.dwellMillis = dwellMillis;
+    }
+
+    public long getFromMillis() {
+        return fromMillis;
+    }
+
+    public long getToMillis() {
+        return toMillis;
+    }
+
+    public int getTickets(ParkingType parkingType) {
+        return tickets[parkingType.ordinal()];
+    }
+
+    public double getRevenue(ParkingType parkingType) {
+        return revenueMicros[parkingType.ordinal()] / MICROS_PER_UNIT_OF_CURRENCY;
+    }
+
+    //0 when no ticket of the type closed in the range
+    public long getAverageDwellMillis(ParkingType parkingType) {
+        int type = parkingType.ordinal();
+        return tickets[type] == 0 ? 0 : dwellMillis[type] / tickets[type];
+    }
+
+    public int getTickets() {
+        int total = 0;
+        for (int count : tickets) {
+            total += count;
+        }
+        return total;
+    }
+
+    public double getRevenue() {
+        long total = 0;
+        for (long revenue : revenueMicros) {
+            total += revenue;
+        }
+        return total / MICROS_PER_UNIT_OF_CURRENCY;
+    }
+
+    public long getAverageDwellMillis() {
+        long total = 0;
+        for (long dwell : dwellMillis) {
+            total += dwell;
+        }
+        int count = getTickets();
+        return count == 0 ? 0 : total / count;
+    }
+
+    @Override
+    public String toString() {
+        return getTickets() + " tickets closed, revenue " + getRevenue() + ", average stay "
+                + getAverageDwellMillis() / 60000 + " min";
+    }
+}
@@ -1,15 +1,18 @@
 package com.parkit.parkingsystem.model;
 
-import java.util.Calendar;
-import java.util.Date;
-
+//times are epoch millis, kept as longs so a gate operation does not allocate dates for them
 public class Ticket {
+    //the out time of a ticket whose vehicle has not left
+    public static final long NO_OUT_TIME = Long.MIN_VALUE;
+
     private int id;
+    //the seq of the journal record that opened the ticket, 0 when it did not come through the journal
+    private long journalSeq;
     private ParkingSpot parkingSpot;
     private String vehicleRegNumber;
     private double price;
-    private Date inTime;
-    private Date outTime;
+    private long inTimeMillis;
+    private long outTimeMillis = NO_OUT_TIME;
 
     public int getId() {
         return id;
@@ -19,6 +22,14 @@ public class Ticket {
         this.id = id;
     }
 
+    public long getJournalSeq() {
+        return journalSeq;
+    }
+
+    public void setJournalSeq(long journalSeq) {
+        this.journalSeq = journalSeq;
+    }
+
     public ParkingSpot getParkingSpot() {
         return parkingSpot;
     }
@@ -43,19 +54,23 @@ public class Ticket {
         this.price = price;
     }
 
-    public Date getInTime() {
-        return inTime;
+    public long getInTimeMillis() {
+        return inTimeMillis;
+    }
+
+    public void setInTimeMillis(long inTimeMillis) {
+        this.inTimeMillis = inTimeMillis;
     }
 
-    public void setInTime(Date inTime) {
-        this.inTime = inTime;
+    public long getOutTimeMillis() {
+        return outTimeMillis;
     }
 
-    public Date getOutTime() {
-        return outTime;
+    public void setOutTimeMillis(long outTimeMillis) {
+        this.outTimeMillis = outTimeMillis;
     }
 
-    public void setOutTime(Date outTime) {
-        this.outTime = outTime;
+    public boolean hasOutTime() {
+        return outTimeMillis != NO_OUT_TIME;
     }
 }
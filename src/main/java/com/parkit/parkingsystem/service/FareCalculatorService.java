@@ -1,31 +1,29 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.tariff.Tariff;
+
+import java.time.ZoneId;
+import java.util.Date;
 
 public class FareCalculatorService {
 
+    private final Tariff tariff;
+
+    public FareCalculatorService() {
+        this(Tariff.standard(ZoneId.systemDefault()));
+    }
+
+    public FareCalculatorService(Tariff tariff) {
+        this.tariff = tariff;
+    }
+
     public void calculateFare(Ticket ticket){
-        if( (ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime())) ){
-            throw new IllegalArgumentException("Out time provided is incorrect:"+ticket.getOutTime().toString());
+        if( (!ticket.hasOutTime()) || (ticket.getOutTimeMillis() < ticket.getInTimeMillis()) ){
+            throw new IllegalArgumentException("Out time provided is incorrect:"+(ticket.hasOutTime() ? new Date(ticket.getOutTimeMillis()) : null));
         }
 
-        int inHour = ticket.getInTime().getHours();
-        int outHour = ticket.getOutTime().getHours();
-
-        //TODO: Some tests are failing here. Need to check if this logic is correct
-        int duration = outHour - inHour;
-
-        switch (ticket.getParkingSpot().getParkingType()){
-            case CAR: {
-                ticket.setPrice(duration * Fare.CAR_RATE_PER_HOUR);
-                break;
-            }
-            case BIKE: {
-                ticket.setPrice(duration * Fare.BIKE_RATE_PER_HOUR);
-                break;
-            }
-            default: throw new IllegalArgumentException("Unkown Parking Type");
-        }
+        ticket.setPrice(tariff.calculateFare(ticket.getParkingSpot().getParkingType(),
+                ticket.getInTimeMillis(), ticket.getOutTimeMillis()));
     }
-}
\ No newline at end of file
+}
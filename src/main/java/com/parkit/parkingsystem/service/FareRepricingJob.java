@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+import com.parkit.parkingsystem.model.RepricingResult;
+import com.parkit.parkingsystem.tariff.Tariff;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.stream.IntStream;
+
+//re-prices closed tickets chunk by chunk in ticket id order, each chunk commits with its checkpoint so a run resumes where it stopped
+public class FareRepricingJob {
+
+    private static final Logger logger = LogManager.getLogger("FareRepricingJob");
+
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    private final TicketHistoryDAO ticketHistoryDAO;
+    private final Tariff tariff;
+    private final int chunkSize;
+
+    public FareRepricingJob(TicketHistoryDAO ticketHistoryDAO, Tariff tariff, int chunkSize) {
+        this.ticketHistoryDAO = ticketHistoryDAO;
+        this.tariff = tariff;
+        this.chunkSize = chunkSize;
+    }
+
+    //a finished job only picks up tickets with a higher id next time, reset it to re-price everything again
+    public RepricingResult run(String jobName) throws ClassNotFoundException, SQLException {
+        int lastTicketId = ticketHistoryDAO.getCheckpoint(jobName);
+        if(lastTicketId > 0){
+            logger.info("Resuming repricing job {} after ticket {}", jobName, lastTicketId);
+        }
+        ClosedTicketBatch batch = new ClosedTicketBatch(chunkSize);
+        long ticketsRead = 0;
+        long ticketsRepriced = 0;
+        long start = System.nanoTime();
+        while(ticketHistoryDAO.readClosedTickets(lastTicketId, batch) > 0){
+            price(batch);
+            ticketsRepriced += ticketHistoryDAO.savePrices(jobName, batch);
+            ticketsRead += batch.size();
+            lastTicketId = batch.getLastId();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            logger.info("Repricing job {}: {}", jobName, new RepricingResult(ticketsRead, ticketsRepriced, lastTicketId, elapsedMillis));
+        }
+        RepricingResult result = new RepricingResult(ticketsRead, ticketsRepriced, lastTicketId, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Repricing job {} done: {}", jobName, result);
+        return result;
+    }
+
+    public void reset(String jobName) throws ClassNotFoundException, SQLException {
+        ticketHistoryDAO.deleteCheckpoint(jobName);
+    }
+
+    private void price(ClosedTicketBatch batch) {
+        //each index is written by one fork/join task only, the common pool splits the range across cores
+        IntStream.range(0, batch.size()).parallel().forEach(i -> batch.setNewPrice(i,
+                tariff.calculateFare(batch.getParkingType(i), batch.getInTime(i), batch.getOutTime(i))));
+    }
+}
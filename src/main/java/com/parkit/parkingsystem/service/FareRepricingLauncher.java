@@ -0,0 +1,24 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.tariff.Tariff;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.ZoneId;
+
+//the reprice mode: re-prices closed tickets with the current tariff, resuming an interrupted run of the same job
+public class FareRepricingLauncher {
+
+    private static final Logger logger = LogManager.getLogger("FareRepricingLauncher");
+
+    public static void reprice(String jobName){
+        FareRepricingJob job = new FareRepricingJob(new TicketHistoryDAO(), Tariff.standard(ZoneId.systemDefault()),
+                FareRepricingJob.DEFAULT_CHUNK_SIZE);
+        try {
+            System.out.println(job.run(jobName));
+        } catch (Exception e) {
+            logger.error("Repricing job {} stopped, run it again to resume", jobName, e);
+        }
+    }
+}
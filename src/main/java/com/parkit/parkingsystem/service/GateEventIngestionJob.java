@@ -0,0 +1,224 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.allocation.ParkingSpotAllocator;
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.GateEventReplayDAO;
+import com.parkit.parkingsystem.dao.OpenTicketIndex;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.GateEventBatch;
+import com.parkit.parkingsystem.model.GateEventLog;
+import com.parkit.parkingsystem.model.IngestionResult;
+import com.parkit.parkingsystem.model.OpenTicket;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.GateEventFileReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Replays a dump of buffered gate events in time order with the rules of ParkingService.enter() and exit(): a vehicle
+ * already parked cannot enter, a full type turns the vehicle away, an exit needs an open ticket. Spots and open tickets
+ * are decided on the in-memory allocator and index, and the writes go to the database a chunk at a time in one
+ * transaction each. The gates of the site are expected to be offline while their dump is replayed.
+ */
+public class GateEventIngestionJob {
+
+    private static final Logger logger = LogManager.getLogger("GateEventIngestionJob");
+
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+    private final ParkingSpotDAO parkingSpotDAO;
+    private final TicketDAO ticketDAO;
+    private final GateEventReplayDAO gateEventReplayDAO;
+    private final FareCalculatorService fareCalculatorService;
+    private final int chunkSize;
+
+    public GateEventIngestionJob(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO, GateEventReplayDAO gateEventReplayDAO,
+                                 FareCalculatorService fareCalculatorService, int chunkSize) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+        this.gateEventReplayDAO = gateEventReplayDAO;
+        this.fareCalculatorService = fareCalculatorService;
+        this.chunkSize = chunkSize;
+    }
+
+    //the rejected lines are also written to <file>.rejected, as "line,reason"
+    public IngestionResult run(Path file) throws IOException, ClassNotFoundException, SQLException {
+        long start = System.nanoTime();
+        if(!parkingSpotDAO.parkingSpotAllocator.isLoaded() && !parkingSpotDAO.loadParkingSpots()){
+            throw new SQLException("Unable to load the parking spots");
+        }
+        if(!ticketDAO.openTicketIndex.isLoaded() && !ticketDAO.loadOpenTickets()){
+            throw new SQLException("Unable to load the open tickets");
+        }
+        GateEventLog log = new GateEventFileReader().read(file);
+        log.sortByTime();
+        logger.info("Read {} events from {} in {} ms", log.size(), file, (System.nanoTime() - start) / 1_000_000);
+
+        Map<String, Integer> rejectedByReason = new HashMap<>();
+        for(int i = 0; i < log.getRejectedCount(); i++){
+            rejectedByReason.merge(log.getRejectedReason(i), 1, Integer::sum);
+        }
+        Path rejectedFile = file.resolveSibling(file.getFileName() + ".rejected");
+        long eventsApplied = 0;
+        try (BufferedWriter rejected = Files.newBufferedWriter(rejectedFile, StandardCharsets.UTF_8)) {
+            for(int i = 0; i < log.getRejectedCount(); i++){
+                writeRejected(rejected, log.getRejectedLine(i), log.getRejectedReason(i));
+            }
+            Replay replay = new Replay();
+            for(int i = 0; i < log.size(); i++){
+                GateStatus status = replay.apply(log, i);
+                if(status == GateStatus.OK){
+                    eventsApplied++;
+                }else{
+                    rejectedByReason.merge(status.name(), 1, Integer::sum);
+                    writeRejected(rejected, log.getLineNumber(i), status.name());
+                }
+                if(replay.events == chunkSize){
+                    replay.save();
+                }
+            }
+            replay.save();
+        }
+        IngestionResult result = new IngestionResult(log.size() + log.getRejectedCount(), eventsApplied, rejectedByReason,
+                (System.nanoTime() - start) / 1_000_000);
+        logger.info("Ingested {}: {}", file, result);
+        if(result.getRejected() > 0){
+            logger.warn("{} lines of {} were rejected, see {}", result.getRejected(), file, rejectedFile);
+        }else{
+            Files.delete(rejectedFile);
+        }
+        return result;
+    }
+
+    private static void writeRejected(BufferedWriter rejected, int lineNumber, String reason) throws IOException {
+        rejected.write(Integer.toString(lineNumber));
+        rejected.write(',');
+        rejected.write(reason);
+        rejected.newLine();
+    }
+
+    //the state of the chunk being replayed, the index only learns about it once the chunk is committed
+    private class Replay {
+        private final ParkingSpotAllocator allocator = parkingSpotDAO.parkingSpotAllocator;
+        private final OpenTicketIndex openTicketIndex = ticketDAO.openTicketIndex;
+        private final GateEventBatch batch = new GateEventBatch();
+        //tickets opened by the chunk and still open, by normalized registration number
+        private final Map<String, Ticket> opened = new HashMap<>();
+        //vehicles whose indexed ticket the chunk closed
+        private final Set<String> closed = new HashSet<>();
+        private int events;
+
+        private GateStatus apply(GateEventLog log, int i) {
+            events++;
+            batch.setLastLineNumber(log.getLineNumber(i));
+            String vehicleRegNumber = log.getVehicleRegNumber(i);
+            String key = OpenTicketIndex.normalize(vehicleRegNumber);
+            if(log.getEventType(i) == GateEventType.ENTRY){
+                return enter(vehicleRegNumber, key, log.getParkingType(i), log.getTime(i));
+            }
+            return exit(key, log.getTime(i));
+        }
+
+        private GateStatus enter(String vehicleRegNumber, String key, ParkingType parkingType, long timeMillis) {
+            if(opened.containsKey(key) || (!closed.contains(key) && openTicketIndex.get(key) != null)){
+                return GateStatus.ALREADY_PARKED;
+            }
+            int number = allocator.claimNextAvailable(parkingType);
+            if(number == 0){
+                return GateStatus.FULL;
+            }
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(allocator.getParkingSpot(number));
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(0);
+            ticket.setInTimeMillis(timeMillis);
+            ticket.setOutTimeMillis(Ticket.NO_OUT_TIME);
+            batch.addOpenedTicket(ticket);
+            batch.setSpotAvailable(number, false);
+            opened.put(key, ticket);
+            return GateStatus.OK;
+        }
+
+        private GateStatus exit(String key, long timeMillis) {
+            Ticket ticket = opened.get(key);
+            boolean indexed = false;
+            if(ticket == null){
+                OpenTicket openTicket = closed.contains(key) ? null : openTicketIndex.get(key);
+                if(openTicket == null){
+                    return GateStatus.NOT_FOUND;
+                }
+                ticket = toTicket(openTicket);
+                indexed = true;
+            }
+            ticket.setOutTimeMillis(timeMillis);
+            try {
+                fareCalculatorService.calculateFare(ticket);
+            }catch(IllegalArgumentException e){
+                //the exit is older than the entry it would close
+                ticket.setOutTimeMillis(Ticket.NO_OUT_TIME);
+                return GateStatus.INVALID_REQUEST;
+            }
+            if(indexed){
+                batch.addClosedTicket(ticket);
+                closed.add(key);
+            }else{
+                opened.remove(key);
+            }
+            int number = ticket.getParkingSpot().getId();
+            allocator.setAvailable(number, true);
+            batch.setSpotAvailable(number, true);
+            return GateStatus.OK;
+        }
+
+        private void save() throws ClassNotFoundException, SQLException {
+            events = 0;
+            if(batch.isEmpty()){
+                return;
+            }
+            try {
+                gateEventReplayDAO.saveBatch(batch);
+            }catch(ClassNotFoundException | SQLException | RuntimeException e){
+                //the allocator already holds the chunk's spots, read them back from the database
+                logger.error("Unable to save the gate events up to line {}, the earlier chunks are committed",
+                        batch.getLastLineNumber(), e);
+                parkingSpotDAO.loadParkingSpots();
+                throw e;
+            }
+            for(Ticket ticket : batch.getClosedTickets()){
+                openTicketIndex.remove(ticket.getVehicleRegNumber(), ticket.getId());
+            }
+            for(Ticket ticket : opened.values()){
+                openTicketIndex.put(new OpenTicket(ticket.getId(), ticket.getVehicleRegNumber(), ticket.getParkingSpot(),
+                        ticket.getInTimeMillis()));
+            }
+            batch.clear();
+            opened.clear();
+            closed.clear();
+        }
+    }
+
+    private static Ticket toTicket(OpenTicket openTicket){
+        Ticket ticket = new Ticket();
+        ticket.setId(openTicket.getTicketId());
+        ticket.setParkingSpot(openTicket.getParkingSpot());
+        ticket.setVehicleRegNumber(openTicket.getVehicleRegNumber());
+        ticket.setPrice(0);
+        ticket.setInTimeMillis(openTicket.getInTimeMillis());
+        ticket.setOutTimeMillis(Ticket.NO_OUT_TIME);
+        return ticket;
+    }
+}
@@ -0,0 +1,25 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.GateEventReplayDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.file.Paths;
+
+//the ingest mode: replays a dump of gate events buffered by the controllers while the site was offline
+public class GateEventIngestionLauncher {
+
+    private static final Logger logger = LogManager.getLogger("GateEventIngestionLauncher");
+
+    public static void ingest(String file){
+        GateEventIngestionJob job = new GateEventIngestionJob(new ParkingSpotDAO(), new TicketDAO(), new GateEventReplayDAO(),
+                new FareCalculatorService(), GateEventIngestionJob.DEFAULT_CHUNK_SIZE);
+        try {
+            System.out.println(job.run(Paths.get(file)));
+        } catch (Exception e) {
+            logger.error("Ingestion of {} stopped", file, e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.model.GateEvent;
+import com.parkit.parkingsystem.model.GateResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//serves every gate event on its own virtual thread, so blocking JDBC calls do not tie up platform threads
+public class GateEventRunner implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("GateEventRunner");
+
+    private final ParkingService parkingService;
+    private final ExecutorService executor;
+
+    public GateEventRunner(ParkingService parkingService) {
+        this.parkingService = parkingService;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gate-", 0).factory());
+    }
+
+    public CompletableFuture<GateResult> submit(GateEvent gateEvent) {
+        return CompletableFuture.supplyAsync(() -> handle(gateEvent), executor);
+    }
+
+    public GateResult handle(GateEvent gateEvent) {
+        if (gateEvent == null || gateEvent.getType() == null) {
+            return GateResult.of(GateStatus.INVALID_REQUEST);
+        }
+        switch (gateEvent.getType()) {
+            case ENTRY:
+                return parkingService.enter(gateEvent.getVehicleRegNumber(), gateEvent.getParkingType());
+            case EXIT:
+                return parkingService.exit(gateEvent.getVehicleRegNumber());
+            default:
+                logger.error("Unsupported gate event {}", gateEvent.getType());
+                return GateResult.of(GateStatus.INVALID_REQUEST);
+        }
+    }
+
+    //waits for the events already submitted to finish
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -17,7 +17,9 @@ public class InteractiveShell {
         boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
         ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.loadParkingSpots();
         TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.loadOpenTickets();
         ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
 
         while(continueApp){
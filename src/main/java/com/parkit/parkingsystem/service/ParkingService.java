@@ -1,73 +1,213 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.analytics.TicketAnalytics;
+import com.parkit.parkingsystem.constants.GateStatus;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.AsyncParkingDAO;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationMetrics;
+import com.parkit.parkingsystem.model.GateResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.model.ReservationResult;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
+    private static final OperationMetrics PROCESS_INCOMING_VEHICLE = Metrics.operation("ParkingService.processIncomingVehicle");
+    private static final OperationMetrics ENTER = Metrics.operation("ParkingService.enter");
+    private static final OperationMetrics PROCESS_EXITING_VEHICLE = Metrics.operation("ParkingService.processExitingVehicle");
+    private static final OperationMetrics EXIT = Metrics.operation("ParkingService.exit");
+    private static final OperationMetrics QUOTE = Metrics.operation("ParkingService.quote");
+    private static final OperationMetrics ENTER_ASYNC = Metrics.operation("ParkingService.enterAsync");
+    private static final OperationMetrics EXIT_ASYNC = Metrics.operation("ParkingService.exitAsync");
+    private static final OperationMetrics RESERVE = Metrics.operation("ParkingService.reserve");
+    private static final OperationMetrics CANCEL_RESERVATION = Metrics.operation("ParkingService.cancelReservation");
+
+    private static final int VEHICLE_LOCK_STRIPES = 256;
+    //how long an async flow backs off when a synchronous gate holds its vehicle's permit
+    private static final Executor PERMIT_RETRY = CompletableFuture.delayedExecutor(1, TimeUnit.MILLISECONDS);
+
     private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
 
     private InputReaderUtil inputReaderUtil;
     private ParkingSpotDAO parkingSpotDAO;
     private  TicketDAO ticketDAO;
+    //null when closed tickets are not counted
+    private volatile TicketAnalytics ticketAnalytics;
+    //null when the async flows run on the caller's thread
+    private volatile AsyncParkingDAO asyncParkingDAO;
+    //null when spots cannot be booked
+    private volatile ReservationDAO reservationDAO;
+
+    //serializes entry and exit of the same vehicle across gates, striped to keep the lock count fixed
+    //permits rather than locks, an async flow releases its permit from whichever thread finishes it
+    private final Semaphore[] vehicleLocks = new Semaphore[VEHICLE_LOCK_STRIPES];
+    //the last async flow queued on each stripe, the next one starts when it is done
+    private final AtomicReferenceArray<CompletableFuture<Void>> asyncTails = new AtomicReferenceArray<>(VEHICLE_LOCK_STRIPES);
 
     public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        for(int i = 0; i < vehicleLocks.length; i++){
+            vehicleLocks[i] = new Semaphore(1);
+            asyncTails.set(i, CompletableFuture.completedFuture(null));
+        }
+    }
+
+    public ParkingService(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+        this(null, parkingSpotDAO, ticketDAO);
+    }
+
+    public TicketAnalytics getTicketAnalytics() {
+        return ticketAnalytics;
+    }
+
+    public void setTicketAnalytics(TicketAnalytics ticketAnalytics) {
+        this.ticketAnalytics = ticketAnalytics;
+    }
+
+    public AsyncParkingDAO getAsyncParkingDAO() {
+        return asyncParkingDAO;
+    }
+
+    public void setAsyncParkingDAO(AsyncParkingDAO asyncParkingDAO) {
+        this.asyncParkingDAO = asyncParkingDAO;
+    }
+
+    public ReservationDAO getReservationDAO() {
+        return reservationDAO;
+    }
+
+    public void setReservationDAO(ReservationDAO reservationDAO) {
+        this.reservationDAO = reservationDAO;
     }
 
     public void processIncomingVehicle() {
+        long start = System.nanoTime();
+        try {
+            doProcessIncomingVehicle();
+        } finally {
+            PROCESS_INCOMING_VEHICLE.record(start);
+        }
+    }
+
+    private void doProcessIncomingVehicle() {
         try{
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-            if(parkingSpot !=null && parkingSpot.getId() > 0){
-                String vehicleRegNumber = getVehichleRegNumber();
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
-
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                //ticket.setId(ticketID);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
+            ParkingType parkingType = getVehichleType();
+            String vehicleRegNumber = getVehichleRegNumber();
+            //the gate flow, so a vehicle already parked through another gate is not given a second ticket
+            GateResult result = enter(vehicleRegNumber, parkingType);
+            Ticket ticket = result.getTicket();
+            if(result.isSuccess()){
                 System.out.println("Generated Ticket and saved in DB");
-                System.out.println("Please park your vehicle in spot number:"+parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+                System.out.printf("Please park your vehicle in spot number:%d%n", ticket.getParkingSpot().getId());
+                System.out.printf("Recorded in-time for vehicle number:%s is:%s%n", vehicleRegNumber, new Date(ticket.getInTimeMillis()));
+            }else if(result.getStatus() == GateStatus.ALREADY_PARKED){
+                System.out.printf("Vehicle already parked with registration number:%s%n", vehicleRegNumber);
+            }else if(result.getStatus() == GateStatus.FULL){
+                logger.error("Error fetching next available parking slot, {} slots might be full", parkingType);
+                System.out.printf("No parking slot available for vehicle type:%s%n", parkingType);
+            }else{
+                System.out.println("Unable to save ticket information. Error occurred");
+            }
+        }catch(IllegalArgumentException ie){
+            logger.error("Error parsing user input for type of vehicle", ie);
+        }catch(Exception e){
+            logger.error("Unable to process incoming vehicle", e);
+            PROCESS_INCOMING_VEHICLE.recordError();
+        }
+    }
+
+    public GateResult enter(String vehicleRegNumber, ParkingType parkingType){
+        long start = System.nanoTime();
+        try {
+            return doEnter(vehicleRegNumber, parkingType);
+        } finally {
+            ENTER.record(start);
+        }
+    }
+
+    private GateResult doEnter(String vehicleRegNumber, ParkingType parkingType){
+        if(!isValidRegNumber(vehicleRegNumber) || parkingType == null){
+            return GateResult.of(GateStatus.INVALID_REQUEST);
+        }
+        Semaphore lock = lockFor(vehicleRegNumber);
+        lock.acquireUninterruptibly();
+        try{
+            if(ticketDAO.getOpenTicket(vehicleRegNumber) != null){
+                return GateResult.of(GateStatus.ALREADY_PARKED);
+            }
+            ParkingSpot parkingSpot = parkingSpotDAO.claimNextAvailableSlot(parkingType, vehicleRegNumber);
+            if(parkingSpot == null){
+                return GateResult.of(GateStatus.FULL);
             }
+            Ticket ticket = openTicket(parkingSpot, vehicleRegNumber);
+            return new GateResult(ticket != null ? GateStatus.OK : GateStatus.ERROR, ticket);
         }catch(Exception e){
-            logger.error("Unable to process incoming vehicle",e);
+            logger.error("Unable to process incoming vehicle {}", vehicleRegNumber, e);
+            ENTER.recordError();
+            return GateResult.of(GateStatus.ERROR);
+        }finally {
+            lock.release();
         }
     }
 
+    private Ticket openTicket(ParkingSpot parkingSpot, String vehicleRegNumber){
+        Ticket ticket = newTicket(parkingSpot, vehicleRegNumber);
+        if(ticketDAO.saveTicket(ticket)){
+            return ticket;
+        }
+        //the entry was not recorded, so the spot must not stay taken
+        releaseParkingSpot(parkingSpot);
+        return null;
+    }
+
+    private static Ticket newTicket(ParkingSpot parkingSpot, String vehicleRegNumber){
+        Ticket ticket = new Ticket();
+        //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTimeMillis(System.currentTimeMillis());
+        ticket.setOutTimeMillis(Ticket.NO_OUT_TIME);
+        return ticket;
+    }
+
+    private void releaseParkingSpot(ParkingSpot parkingSpot){
+        parkingSpotDAO.updateParking(parkingSpot, true);
+    }
+
     private String getVehichleRegNumber() throws Exception {
         System.out.println("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
     }
 
     public ParkingSpot getNextParkingNumberIfAvailable(){
-        int parkingNumber=0;
         ParkingSpot parkingSpot = null;
         try{
             ParkingType parkingType = getVehichleType();
-            parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
-            if(parkingNumber > 0){
-                parkingSpot = new ParkingSpot(parkingNumber,parkingType, true);
-            }else{
+            //claims the spot atomically, it comes back already marked as unavailable
+            parkingSpot = parkingSpotDAO.claimNextAvailableSlot(parkingType);
+            if(parkingSpot == null){
                 throw new Exception("Error fetching parking number from DB. Parking slots might be full");
             }
         }catch(IllegalArgumentException ie){
@@ -82,6 +222,8 @@ public class ParkingService {
         System.out.println("Please select vehicle type from menu");
         System.out.println("1 CAR");
         System.out.println("2 BIKE");
+        System.out.println("3 EV");
+        System.out.println("4 OVERSIZE");
         int input = inputReaderUtil.readSelection();
         switch(input){
             case 1: {
@@ -90,6 +232,12 @@ public class ParkingService {
             case 2: {
                 return ParkingType.BIKE;
             }
+            case 3: {
+                return ParkingType.EV;
+            }
+            case 4: {
+                return ParkingType.OVERSIZE;
+            }
             default: {
                 System.out.println("Incorrect input provided");
                 throw new IllegalArgumentException("Entered input is invalid");
@@ -98,23 +246,331 @@ public class ParkingService {
     }
 
     public void processExitingVehicle() {
+        long start = System.nanoTime();
+        try {
+            doProcessExitingVehicle();
+        } finally {
+            PROCESS_EXITING_VEHICLE.record(start);
+        }
+    }
+
+    private void doProcessExitingVehicle() {
         try{
             String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
-            ticket.setOutTime(outTime);
-            fareCalculatorService.calculateFare(ticket);
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-                System.out.println("Please pay the parking fare:" + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
+            //the gate flow, so a vehicle that already left is not charged again nor its old spot freed
+            GateResult result = exit(vehicleRegNumber);
+            Ticket ticket = result.getTicket();
+            if(result.isSuccess()) {
+                System.out.printf("Please pay the parking fare:%s%n", ticket.getPrice());
+                System.out.printf("Recorded out-time for vehicle number:%s is:%s%n", ticket.getVehicleRegNumber(), new Date(ticket.getOutTimeMillis()));
+            }else if(result.getStatus() == GateStatus.NOT_FOUND){
+                System.out.printf("No parked vehicle found with registration number:%s%n", vehicleRegNumber);
             }else{
                 System.out.println("Unable to update ticket information. Error occurred");
             }
         }catch(Exception e){
-            logger.error("Unable to process exiting vehicle",e);
+            logger.error("Unable to process exiting vehicle", e);
+            PROCESS_EXITING_VEHICLE.recordError();
+        }
+    }
+
+    public GateResult exit(String vehicleRegNumber){
+        long start = System.nanoTime();
+        try {
+            return doExit(vehicleRegNumber);
+        } finally {
+            EXIT.record(start);
+        }
+    }
+
+    private GateResult doExit(String vehicleRegNumber){
+        if(!isValidRegNumber(vehicleRegNumber)){
+            return GateResult.of(GateStatus.INVALID_REQUEST);
+        }
+        Semaphore lock = lockFor(vehicleRegNumber);
+        lock.acquireUninterruptibly();
+        try{
+            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+            if(ticket == null || ticket.hasOutTime()){
+                return GateResult.of(GateStatus.NOT_FOUND);
+            }
+            return new GateResult(closeTicket(ticket) ? GateStatus.OK : GateStatus.ERROR, ticket);
+        }catch(Exception e){
+            logger.error("Unable to process exiting vehicle {}", vehicleRegNumber, e);
+            EXIT.recordError();
+            return GateResult.of(GateStatus.ERROR);
+        }finally {
+            lock.release();
+        }
+    }
+
+    //enter() composed from async DAO calls: the open ticket check and the spot claim run side by side
+    public CompletableFuture<GateResult> enterAsync(String vehicleRegNumber, ParkingType parkingType){
+        long start = System.nanoTime();
+        AsyncParkingDAO async = asyncParkingDAO;
+        if(async == null){
+            return CompletableFuture.completedFuture(enter(vehicleRegNumber, parkingType));
+        }
+        if(!isValidRegNumber(vehicleRegNumber) || parkingType == null){
+            return CompletableFuture.completedFuture(GateResult.of(GateStatus.INVALID_REQUEST));
+        }
+        return serialized(vehicleRegNumber, async, () -> doEnterAsync(async, vehicleRegNumber, parkingType))
+                .exceptionally(e -> {
+                    logger.error("Unable to process incoming vehicle {}", vehicleRegNumber, e);
+                    ENTER_ASYNC.recordError();
+                    return GateResult.of(GateStatus.ERROR);
+                })
+                .whenComplete((result, e) -> ENTER_ASYNC.record(start));
+    }
+
+    private CompletableFuture<GateResult> doEnterAsync(AsyncParkingDAO async, String vehicleRegNumber, ParkingType parkingType){
+        CompletableFuture<Boolean> parked = async.getOpenTicket(vehicleRegNumber).thenApply(openTicket -> openTicket != null);
+        CompletableFuture<ParkingSpot> claimed = async.claimNextAvailableSlot(parkingType, vehicleRegNumber);
+        return parked.thenCombine(claimed, (alreadyParked, parkingSpot) -> {
+            if(parkingSpot == null){
+                return CompletableFuture.completedFuture(GateResult.of(alreadyParked ? GateStatus.ALREADY_PARKED : GateStatus.FULL));
+            }
+            if(alreadyParked){
+                //claimed for nothing, the spot goes back
+                return async.updateParking(parkingSpot, true).thenApply(released -> GateResult.of(GateStatus.ALREADY_PARKED));
+            }
+            Ticket ticket = newTicket(parkingSpot, vehicleRegNumber);
+            return async.saveTicket(ticket).thenCompose(saved -> {
+                if(saved){
+                    return CompletableFuture.completedFuture(new GateResult(GateStatus.OK, ticket));
+                }
+                return async.updateParking(parkingSpot, true).thenApply(released -> GateResult.of(GateStatus.ERROR));
+            });
+        }).thenCompose(result -> result);
+    }
+
+    //exit() composed from async DAO calls: once priced, the ticket is written and the spot freed side by side
+    public CompletableFuture<GateResult> exitAsync(String vehicleRegNumber){
+        long start = System.nanoTime();
+        AsyncParkingDAO async = asyncParkingDAO;
+        if(async == null){
+            return CompletableFuture.completedFuture(exit(vehicleRegNumber));
+        }
+        if(!isValidRegNumber(vehicleRegNumber)){
+            return CompletableFuture.completedFuture(GateResult.of(GateStatus.INVALID_REQUEST));
+        }
+        return serialized(vehicleRegNumber, async, () -> doExitAsync(async, vehicleRegNumber))
+                .exceptionally(e -> {
+                    logger.error("Unable to process exiting vehicle {}", vehicleRegNumber, e);
+                    EXIT_ASYNC.recordError();
+                    return GateResult.of(GateStatus.ERROR);
+                })
+                .whenComplete((result, e) -> EXIT_ASYNC.record(start));
+    }
+
+    private CompletableFuture<GateResult> doExitAsync(AsyncParkingDAO async, String vehicleRegNumber){
+        return async.getTicket(vehicleRegNumber).thenCompose(ticket -> {
+            if(ticket == null || ticket.hasOutTime()){
+                return CompletableFuture.completedFuture(GateResult.of(GateStatus.NOT_FOUND));
+            }
+            ticket.setOutTimeMillis(System.currentTimeMillis());
+            fareCalculatorService.calculateFare(ticket);
+            return async.closeTicket(ticket).thenApply(closed -> {
+                if(!closed){
+                    return GateResult.of(GateStatus.ERROR);
+                }
+                recordClosed(ticket);
+                return new GateResult(GateStatus.OK, ticket);
+            });
+        });
+    }
+
+    //runs the flow once the vehicle's previous async flow is done, holding the stripe's permit shared with enter() and exit()
+    private CompletableFuture<GateResult> serialized(String vehicleRegNumber, AsyncParkingDAO async,
+                                                    Supplier<CompletableFuture<GateResult>> flow){
+        int stripe = stripeOf(vehicleRegNumber);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = asyncTails.getAndSet(stripe, done);
+        CompletableFuture<GateResult> result = new CompletableFuture<>();
+        previous.whenComplete((ignored, e) -> startWhenPermitted(vehicleLocks[stripe], async.getExecutor(), flow, result));
+        result.whenComplete((gateResult, e) -> done.complete(null));
+        return result;
+    }
+
+    private static void startWhenPermitted(Semaphore lock, Executor executor, Supplier<CompletableFuture<GateResult>> flow,
+                                           CompletableFuture<GateResult> result){
+        try{
+            executor.execute(() -> runWhenPermitted(lock, executor, flow, result));
+        }catch(RejectedExecutionException e){
+            result.completeExceptionally(e);
+        }
+    }
+
+    //never waits for the permit on a JDBC thread: while a synchronous enter() or exit() holds it the flow is submitted again
+    private static void runWhenPermitted(Semaphore lock, Executor executor, Supplier<CompletableFuture<GateResult>> flow,
+                                         CompletableFuture<GateResult> result){
+        if(!lock.tryAcquire()){
+            PERMIT_RETRY.execute(() -> startWhenPermitted(lock, executor, flow, result));
+            return;
+        }
+        try{
+            flow.get().whenComplete((gateResult, e) -> {
+                lock.release();
+                if(e != null){
+                    result.completeExceptionally(e);
+                }else{
+                    result.complete(gateResult);
+                }
+            });
+        }catch(RuntimeException e){
+            lock.release();
+            result.completeExceptionally(e);
+        }
+    }
+
+    //books the lowest spot of the type free from from to to for the vehicle, which is given that spot when it enters
+    public ReservationResult reserve(String vehicleRegNumber, ParkingType parkingType, long from, long to){
+        long start = System.nanoTime();
+        try {
+            return doReserve(vehicleRegNumber, parkingType, from, to);
+        } finally {
+            RESERVE.record(start);
+        }
+    }
+
+    private ReservationResult doReserve(String vehicleRegNumber, ParkingType parkingType, long from, long to){
+        if(!isValidRegNumber(vehicleRegNumber) || parkingType == null || from >= to || to <= System.currentTimeMillis()){
+            return new ReservationResult(GateStatus.INVALID_REQUEST, null);
+        }
+        ReservationDAO reservations = reservationDAO;
+        if(reservations == null){
+            return new ReservationResult(GateStatus.ERROR, null);
+        }
+        try{
+            Reservation reservation = new Reservation(vehicleRegNumber, parkingType, from, to);
+            int number = parkingSpotDAO.bookNextAvailableSlot(reservation);
+            if(number <= 0){
+                return new ReservationResult(number == 0 ? GateStatus.FULL : GateStatus.ERROR, null);
+            }
+            if(!reservations.saveReservation(reservation, parkingSpotDAO.reservationIndex)){
+                //the booking was not recorded, so the spot must not stay booked
+                parkingSpotDAO.cancelBooking(reservation);
+                return new ReservationResult(GateStatus.ERROR, null);
+            }
+            return new ReservationResult(GateStatus.OK, reservation);
+        }catch(Exception e){
+            logger.error("Unable to book a spot for vehicle {}", vehicleRegNumber, e);
+            RESERVE.recordError();
+            return new ReservationResult(GateStatus.ERROR, null);
         }
     }
+
+    public ReservationResult cancelReservation(String vehicleRegNumber, int reservationId){
+        long start = System.nanoTime();
+        try {
+            return doCancelReservation(vehicleRegNumber, reservationId);
+        } finally {
+            CANCEL_RESERVATION.record(start);
+        }
+    }
+
+    private ReservationResult doCancelReservation(String vehicleRegNumber, int reservationId){
+        if(!isValidRegNumber(vehicleRegNumber)){
+            return new ReservationResult(GateStatus.INVALID_REQUEST, null);
+        }
+        ReservationDAO reservations = reservationDAO;
+        if(reservations == null){
+            return new ReservationResult(GateStatus.ERROR, null);
+        }
+        try{
+            Reservation reservation = parkingSpotDAO.reservationIndex.getReservation(vehicleRegNumber, reservationId);
+            if(reservation == null){
+                return new ReservationResult(GateStatus.NOT_FOUND, null);
+            }
+            if(!reservations.deleteReservation(reservation)){
+                return new ReservationResult(GateStatus.ERROR, null);
+            }
+            parkingSpotDAO.cancelBooking(reservation);
+            return new ReservationResult(GateStatus.OK, reservation);
+        }catch(Exception e){
+            logger.error("Unable to cancel reservation {} of vehicle {}", reservationId, vehicleRegNumber, e);
+            CANCEL_RESERVATION.recordError();
+            return new ReservationResult(GateStatus.ERROR, null);
+        }
+    }
+
+    //whether a spot of the type could be booked from from to to, answered from memory
+    public boolean isAvailable(ParkingType parkingType, long from, long to){
+        return parkingSpotDAO.isAvailable(parkingType, from, to);
+    }
+
+    //what the vehicle would pay if it left now, the ticket stays open
+    public GateResult quote(String vehicleRegNumber){
+        long start = System.nanoTime();
+        try {
+            return doQuote(vehicleRegNumber);
+        } finally {
+            QUOTE.record(start);
+        }
+    }
+
+    private GateResult doQuote(String vehicleRegNumber){
+        if(!isValidRegNumber(vehicleRegNumber)){
+            return GateResult.of(GateStatus.INVALID_REQUEST);
+        }
+        try{
+            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+            if(ticket == null || ticket.hasOutTime()){
+                return GateResult.of(GateStatus.NOT_FOUND);
+            }
+            ticket.setOutTimeMillis(System.currentTimeMillis());
+            fareCalculatorService.calculateFare(ticket);
+            return new GateResult(GateStatus.OK, ticket);
+        }catch(Exception e){
+            logger.error("Unable to quote the fare of vehicle {}", vehicleRegNumber, e);
+            QUOTE.recordError();
+            return GateResult.of(GateStatus.ERROR);
+        }
+    }
+
+    //-1 when the spots could not be read
+    public int getAvailableSpots(ParkingType parkingType){
+        return parkingSpotDAO.getAvailableCount(parkingType);
+    }
+
+    //-1 when the spots could not be read
+    public int getCapacity(ParkingType parkingType){
+        return parkingSpotDAO.getCapacity(parkingType);
+    }
+
+    //-1 when the spots could not be read
+    public int getOccupiedSpots(ParkingType parkingType){
+        return parkingSpotDAO.getOccupiedCount(parkingType);
+    }
+
+    private boolean closeTicket(Ticket ticket){
+        ticket.setOutTimeMillis(System.currentTimeMillis());
+        fareCalculatorService.calculateFare(ticket);
+        if(!ticketDAO.updateTicket(ticket)){
+            return false;
+        }
+        releaseParkingSpot(ticket.getParkingSpot());
+        recordClosed(ticket);
+        return true;
+    }
+
+    private void recordClosed(Ticket ticket){
+        TicketAnalytics analytics = ticketAnalytics;
+        if(analytics != null){
+            analytics.record(ticket);
+        }
+    }
+
+    private static boolean isValidRegNumber(String vehicleRegNumber){
+        return vehicleRegNumber != null && vehicleRegNumber.trim().length() > 0;
+    }
+
+    private Semaphore lockFor(String vehicleRegNumber){
+        return vehicleLocks[stripeOf(vehicleRegNumber)];
+    }
+
+    private static int stripeOf(String vehicleRegNumber){
+        int hash = vehicleRegNumber.trim().toUpperCase().hashCode();
+        return (hash ^ (hash >>> 16)) & (VEHICLE_LOCK_STRIPES - 1);
+    }
 }
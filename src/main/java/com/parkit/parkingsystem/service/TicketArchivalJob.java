@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import com.parkit.parkingsystem.model.ArchivalResult;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Moves closed tickets older than the archival age out of the ticket table, so the table the gates query stays at the
+ * open visits plus recent history. Small batches with a pause between them keep each transaction short and leave the
+ * connections to the gates. Every batch commits on its own, an interrupted run simply continues on the next one.
+ */
+public class TicketArchivalJob {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchivalJob");
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_PAUSE_MILLIS = 200;
+
+    private final TicketArchiveDAO ticketArchiveDAO;
+    private final Duration maxAge;
+    private final int batchSize;
+    private final long pauseMillis;
+    private ScheduledExecutorService archiver;
+
+    public TicketArchivalJob(TicketArchiveDAO ticketArchiveDAO, Duration maxAge, int batchSize, long pauseMillis) {
+        this.ticketArchiveDAO = ticketArchiveDAO;
+        this.maxAge = maxAge;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    //archives until no closed ticket is older than the archival age
+    public ArchivalResult run() throws ClassNotFoundException, SQLException, InterruptedException {
+        long start = System.nanoTime();
+        long archived = 0;
+        int batches = 0;
+        Date cutoff = new Date(System.currentTimeMillis() - maxAge.toMillis());
+        List<Ticket> tickets;
+        do {
+            tickets = ticketArchiveDAO.readArchivable(cutoff, batchSize);
+            if(tickets.isEmpty()){
+                break;
+            }
+            ticketArchiveDAO.archive(tickets);
+            archived += tickets.size();
+            batches++;
+            if(tickets.size() == batchSize && pauseMillis > 0){
+                Thread.sleep(pauseMillis);
+            }
+        } while(tickets.size() == batchSize);
+        ArchivalResult result = new ArchivalResult(archived, batches, (System.nanoTime() - start) / 1_000_000);
+        if(archived > 0){
+            logger.info("Archived closed tickets older than {}: {}", cutoff, result);
+        }
+        return result;
+    }
+
+    public synchronized void start(long periodMinutes) {
+        if(archiver == null){
+            archiver = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ticket-archiver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            archiver.scheduleWithFixedDelay(this::runQuietly, periodMinutes, periodMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    public synchronized void stop() {
+        if(archiver != null){
+            archiver.shutdownNow();
+            archiver = null;
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Ticket archival stopped, it resumes at the next run", e);
+        }
+    }
+}
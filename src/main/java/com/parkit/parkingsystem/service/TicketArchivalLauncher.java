@@ -0,0 +1,41 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+
+//the archive mode, and the archival the gate server runs in the background for each lot
+public class TicketArchivalLauncher {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchivalLauncher");
+
+    //moves the tickets closed longer ago than maxAge to the monthly archive tables, once
+    public static void archive(Duration maxAge){
+        TicketArchivalJob job = new TicketArchivalJob(new TicketArchiveDAO(), maxAge, TicketArchivalJob.DEFAULT_BATCH_SIZE,
+                TicketArchivalJob.DEFAULT_PAUSE_MILLIS);
+        try {
+            System.out.println(job.run());
+        } catch (Exception e) {
+            logger.error("Ticket archival stopped, run it again to resume", e);
+        }
+    }
+
+    //-Dparkit.archive.afterDays=N archives the tickets closed more than N days ago, every parkit.archive.periodMinutes;
+    //the started job, null when archival is off
+    public static TicketArchivalJob startPeriodic(DataBaseConfig lotConfig){
+        long archiveAfterDays = Long.getLong("parkit.archive.afterDays", 0);
+        long archivePeriodMinutes = Long.getLong("parkit.archive.periodMinutes", 60);
+        if(archiveAfterDays <= 0){
+            return null;
+        }
+        TicketArchiveDAO ticketArchiveDAO = new TicketArchiveDAO();
+        ticketArchiveDAO.dataBaseConfig = lotConfig;
+        TicketArchivalJob archivalJob = new TicketArchivalJob(ticketArchiveDAO, Duration.ofDays(archiveAfterDays),
+                TicketArchivalJob.DEFAULT_BATCH_SIZE, TicketArchivalJob.DEFAULT_PAUSE_MILLIS);
+        archivalJob.start(archivePeriodMinutes);
+        return archivalJob;
+    }
+}
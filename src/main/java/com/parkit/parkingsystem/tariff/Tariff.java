@@ -0,0 +1,145 @@
+package com.parkit.parkingsystem.tariff;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+//tariff rules compiled once into per minute price tables, a fare is then a few array reads with no allocation
+public final class Tariff {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    private static final long MILLIS_PER_DAY = MINUTES_PER_DAY * MILLIS_PER_MINUTE;
+    //table units are millionths of the currency times 60, so an hourly rate is a whole number per minute
+    private static final long UNITS_PER_MICRO = 60;
+    private static final long MICROS_PER_UNIT_OF_CURRENCY = 1_000_000;
+    //offsets past the last transition compiled keep the offset of that transition
+    private static final Instant LAST_TRANSITION = Instant.parse("2100-01-01T00:00:00Z");
+
+    //per parking type, price of the first m minutes of a local day at index m
+    private final long[][] dayTables;
+    private final int[] freeMinutes;
+    private final long[] dailyCaps;
+    //offsets[i] applies before transitions[i], the last offset after the last transition
+    private final long[] transitions;
+    private final long[] offsets;
+
+    private Tariff(long[][] dayTables, int[] freeMinutes, long[] dailyCaps, long[] transitions, long[] offsets) {
+        this.dayTables = dayTables;
+        this.freeMinutes = freeMinutes;
+        this.dailyCaps = dailyCaps;
+        this.transitions = transitions;
+        this.offsets = offsets;
+    }
+
+    //the flat hourly rates of Fare, no free time, bands or caps
+    public static Tariff standard(ZoneId zoneId) {
+        List<TariffRule> rules = new ArrayList<>();
+        rules.add(new TariffRule(ParkingType.CAR, Fare.CAR_RATE_PER_HOUR));
+        rules.add(new TariffRule(ParkingType.BIKE, Fare.BIKE_RATE_PER_HOUR));
+        rules.add(new TariffRule(ParkingType.EV, Fare.EV_RATE_PER_HOUR));
+        rules.add(new TariffRule(ParkingType.OVERSIZE, Fare.OVERSIZE_RATE_PER_HOUR));
+        return compile(rules, zoneId);
+    }
+
+    public static Tariff compile(Collection<TariffRule> rules, ZoneId zoneId) {
+        int types = ParkingType.values().length;
+        long[][] dayTables = new long[types][];
+        int[] freeMinutes = new int[types];
+        long[] dailyCaps = new long[types];
+        for (TariffRule rule : rules) {
+            int type = rule.getParkingType().ordinal();
+            dayTables[type] = dayTable(rule);
+            freeMinutes[type] = rule.getFreeMinutes();
+            dailyCaps[type] = rule.getDailyCap() > 0 ? toUnits(rule.getDailyCap()) * UNITS_PER_MICRO : Long.MAX_VALUE;
+        }
+
+        ZoneRules zoneRules = zoneId.getRules();
+        List<ZoneOffsetTransition> zoneTransitions = new ArrayList<>();
+        ZoneOffsetTransition next = zoneRules.nextTransition(Instant.EPOCH);
+        while (next != null && next.getInstant().isBefore(LAST_TRANSITION)) {
+            zoneTransitions.add(next);
+            next = zoneRules.nextTransition(next.getInstant());
+        }
+        long[] transitions = new long[zoneTransitions.size()];
+        long[] offsets = new long[zoneTransitions.size() + 1];
+        offsets[0] = zoneRules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L;
+        for (int i = 0; i < transitions.length; i++) {
+            transitions[i] = zoneTransitions.get(i).toEpochSecond() * 1000L;
+            offsets[i + 1] = zoneTransitions.get(i).getOffsetAfter().getTotalSeconds() * 1000L;
+        }
+        return new Tariff(dayTables, freeMinutes, dailyCaps, transitions, offsets);
+    }
+
+    private static long[] dayTable(TariffRule rule) {
+        //an hourly rate in millionths is also the price of one minute in table units
+        long dayRate = toUnits(rule.getDayRatePerHour());
+        long nightRate = toUnits(rule.getNightRatePerHour());
+        int dayStart = rule.getDayStartMinute();
+        int nightStart = rule.getNightStartMinute();
+        long[] table = new long[MINUTES_PER_DAY + 1];
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            boolean night = nightStart < dayStart
+                    ? minute >= nightStart && minute < dayStart
+                    : nightStart > dayStart && (minute >= nightStart || minute < dayStart);
+            table[minute + 1] = table[minute] + (night ? nightRate : dayRate);
+        }
+        return table;
+    }
+
+    private static long toUnits(double amount) {
+        return Math.round(amount * MICROS_PER_UNIT_OF_CURRENCY);
+    }
+
+    public double calculateFare(ParkingType parkingType, long inTimeMillis, long outTimeMillis) {
+        return (double) calculateFareMicros(parkingType, inTimeMillis, outTimeMillis) / MICROS_PER_UNIT_OF_CURRENCY;
+    }
+
+    //fare in millionths of the currency, only completed minutes are charged
+    public long calculateFareMicros(ParkingType parkingType, long inTimeMillis, long outTimeMillis) {
+        if (outTimeMillis < inTimeMillis) {
+            throw new IllegalArgumentException("Out time provided is incorrect:" + outTimeMillis);
+        }
+        int type = parkingType.ordinal();
+        long[] table = dayTables[type];
+        if (table == null) {
+            throw new IllegalArgumentException("Unkown Parking Type");
+        }
+        long chargedMinutes = (outTimeMillis - inTimeMillis) / MILLIS_PER_MINUTE - freeMinutes[type];
+        if (chargedMinutes <= 0) {
+            return 0;
+        }
+        //bands follow the wall clock at entry, a DST change during the stay does not move them
+        long localMillis = inTimeMillis + offsetAt(inTimeMillis);
+        int firstMinute = (int) ((Math.floorMod(localMillis, MILLIS_PER_DAY) / MILLIS_PER_MINUTE + freeMinutes[type]) % MINUTES_PER_DAY);
+        long cap = dailyCaps[type];
+        long fullDays = chargedMinutes / MINUTES_PER_DAY;
+        int remainingMinutes = (int) (chargedMinutes % MINUTES_PER_DAY);
+        //any 24 hours cover each minute of the day once
+        long units = fullDays * Math.min(table[MINUTES_PER_DAY], cap)
+                + Math.min(priceOf(table, firstMinute, remainingMinutes), cap);
+        return (units + UNITS_PER_MICRO / 2) / UNITS_PER_MICRO;
+    }
+
+    private static long priceOf(long[] table, int firstMinute, int minutes) {
+        int end = firstMinute + minutes;
+        if (end <= MINUTES_PER_DAY) {
+            return table[end] - table[firstMinute];
+        }
+        return table[MINUTES_PER_DAY] - table[firstMinute] + table[end - MINUTES_PER_DAY];
+    }
+
+    private long offsetAt(long epochMillis) {
+        int index = Arrays.binarySearch(transitions, epochMillis);
+        //an exact hit is the first instant of the new offset
+        return offsets[index >= 0 ? index + 1 : -index - 1];
+    }
+}
@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem.tariff;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+//how one parking type is priced, compiled into a Tariff before use
+public class TariffRule {
+
+    private final ParkingType parkingType;
+    private int freeMinutes;
+    private double dayRatePerHour;
+    private double nightRatePerHour;
+    //minute of the local day, night runs from nightStartMinute up to dayStartMinute
+    private int dayStartMinute;
+    private int nightStartMinute;
+    //highest price for any 24 hours of the stay, 0 for no cap
+    private double dailyCap;
+
+    public TariffRule(ParkingType parkingType, double ratePerHour) {
+        this.parkingType = parkingType;
+        this.dayRatePerHour = ratePerHour;
+        this.nightRatePerHour = ratePerHour;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public int getFreeMinutes() {
+        return freeMinutes;
+    }
+
+    public void setFreeMinutes(int freeMinutes) {
+        this.freeMinutes = freeMinutes;
+    }
+
+    public double getDayRatePerHour() {
+        return dayRatePerHour;
+    }
+
+    public void setDayRatePerHour(double dayRatePerHour) {
+        this.dayRatePerHour = dayRatePerHour;
+    }
+
+    public double getNightRatePerHour() {
+        return nightRatePerHour;
+    }
+
+    public void setNightRatePerHour(double nightRatePerHour) {
+        this.nightRatePerHour = nightRatePerHour;
+    }
+
+    public int getDayStartMinute() {
+        return dayStartMinute;
+    }
+
+    public void setDayStartMinute(int dayStartMinute) {
+        this.dayStartMinute = dayStartMinute;
+    }
+
+    public int getNightStartMinute() {
+        return nightStartMinute;
+    }
+
+    public void setNightStartMinute(int nightStartMinute) {
+        this.nightStartMinute = nightStartMinute;
+    }
+
+    public double getDailyCap() {
+        return dailyCap;
+    }
+
+    public void setDailyCap(double dailyCap) {
+        this.dailyCap = dailyCap;
+    }
+}
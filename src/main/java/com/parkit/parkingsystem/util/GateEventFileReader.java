@@ -0,0 +1,321 @@
+package com.parkit.parkingsystem.util;
+
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.GateEventLog;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Reads a gate event dump, one "time,ENTRY|EXIT,vehicle,parkingType" line per event, the parking type only needed for
+ * entries, after an optional "time,event,vehicle,type" header. The time is epoch milliseconds or ISO-8601 with an offset (2024-03-01T08:15:00Z, 2024-03-01T09:15:00.250+01:00).
+ * The file is memory-mapped window by window and parsed from the bytes, a line that cannot be read is rejected with
+ * its reason and the others are kept.
+ */
+public class GateEventFileReader {
+
+    //a window ends at its last complete line, so a line longer than this cannot be read
+    private static final int WINDOW_BYTES = 256 * 1024 * 1024;
+    //the width of the VEHICLE_REG_NUMBER columns
+    private static final int MAX_VEHICLE_BYTES = 10;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final byte[] ENTRY = "ENTRY".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EXIT = "EXIT".getBytes(StandardCharsets.US_ASCII);
+    //the column names of the header line
+    private static final byte[][] HEADER_COLUMNS = {
+            "TIME".getBytes(StandardCharsets.US_ASCII),
+            "EVENT".getBytes(StandardCharsets.US_ASCII),
+            "VEHICLE".getBytes(StandardCharsets.US_ASCII),
+            "TYPE".getBytes(StandardCharsets.US_ASCII)};
+    private static final byte[] PARKING_TYPE_COLUMN = "PARKINGTYPE".getBytes(StandardCharsets.US_ASCII);
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+    private static final byte[][] PARKING_TYPE_NAMES = new byte[PARKING_TYPES.length][];
+
+    static {
+        for (int i = 0; i < PARKING_TYPES.length; i++) {
+            PARKING_TYPE_NAMES[i] = PARKING_TYPES[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    public GateEventLog read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            //about 32 bytes per line, the log grows if the guess is short
+            GateEventLog log = new GateEventLog((int) Math.min(Integer.MAX_VALUE - 8, fileSize / 32));
+            long position = 0;
+            int lineNumber = 0;
+            while (position < fileSize) {
+                int length = (int) Math.min(WINDOW_BYTES, fileSize - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean lastWindow = position + length == fileSize;
+                int end = lastWindow ? length : lastNewline(window, length) + 1;
+                if (end <= 0) {
+                    throw new IOException("Line " + (lineNumber + 1) + " of " + file + " is longer than " + WINDOW_BYTES + " bytes");
+                }
+                int lineStart = 0;
+                for (int i = 0; i < end; i++) {
+                    if (window.get(i) == '\n') {
+                        parseLine(window, lineStart, i, ++lineNumber, log);
+                        lineStart = i + 1;
+                    }
+                }
+                if (lineStart < end) {
+                    parseLine(window, lineStart, end, ++lineNumber, log);
+                }
+                position += end;
+            }
+            return log;
+        }
+    }
+
+    private static int lastNewline(MappedByteBuffer window, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void parseLine(MappedByteBuffer line, int start, int end, int lineNumber, GateEventLog log) {
+        if (end > start && line.get(end - 1) == '\r') {
+            end--;
+        }
+        start = skipSpaces(line, start, end);
+        if (start == end) {
+            return;
+        }
+        //a header line starts with a column name rather than a time, any other first line that does is not a header
+        if (lineNumber == 1 && !isDigit(line.get(start))) {
+            if (!isHeader(line, start, end)) {
+                log.reject(lineNumber, "unexpected header");
+            }
+            return;
+        }
+        int timeEnd = indexOf(line, ',', start, end);
+        int typeEnd = timeEnd < 0 ? -1 : indexOf(line, ',', timeEnd + 1, end);
+        if (typeEnd < 0) {
+            log.reject(lineNumber, "malformed line");
+            return;
+        }
+        int vehicleEnd = indexOf(line, ',', typeEnd + 1, end);
+        if (vehicleEnd < 0) {
+            vehicleEnd = end;
+        }
+        long time = parseTime(line, start, trimEnd(line, start, timeEnd));
+        if (time == NO_TIME) {
+            log.reject(lineNumber, "bad timestamp");
+            return;
+        }
+        int typeStart = skipSpaces(line, timeEnd + 1, typeEnd);
+        GateEventType eventType = parseEventType(line, typeStart, trimEnd(line, typeStart, typeEnd));
+        if (eventType == null) {
+            log.reject(lineNumber, "unknown event type");
+            return;
+        }
+        int vehicleStart = skipSpaces(line, typeEnd + 1, vehicleEnd);
+        int vehicleLength = trimEnd(line, vehicleStart, vehicleEnd) - vehicleStart;
+        if (vehicleLength == 0) {
+            log.reject(lineNumber, "missing vehicle");
+            return;
+        }
+        if (vehicleLength > MAX_VEHICLE_BYTES) {
+            log.reject(lineNumber, "vehicle too long");
+            return;
+        }
+        ParkingType parkingType = null;
+        if (vehicleEnd < end) {
+            int parkingTypeStart = skipSpaces(line, vehicleEnd + 1, end);
+            int parkingTypeEnd = trimEnd(line, parkingTypeStart, end);
+            if (parkingTypeEnd > parkingTypeStart) {
+                parkingType = parseParkingType(line, parkingTypeStart, parkingTypeEnd);
+                if (parkingType == null) {
+                    log.reject(lineNumber, "unknown parking type");
+                    return;
+                }
+            }
+        }
+        if (eventType == GateEventType.ENTRY && parkingType == null) {
+            log.reject(lineNumber, "missing parking type");
+            return;
+        }
+        log.add(time, eventType, parkingType, lineNumber, line, vehicleStart, vehicleLength);
+    }
+
+    //"time,event,vehicle" and an optional "type" or "parkingType" column, in any case
+    private static boolean isHeader(MappedByteBuffer line, int start, int end) {
+        int column = 0;
+        for (int columnStart = start; columnStart <= end; column++) {
+            int columnEnd = indexOf(line, ',', columnStart, end);
+            if (columnEnd < 0) {
+                columnEnd = end;
+            }
+            int nameStart = skipSpaces(line, columnStart, columnEnd);
+            int nameEnd = trimEnd(line, nameStart, columnEnd);
+            if (column >= HEADER_COLUMNS.length || !(equalsIgnoreCase(line, nameStart, nameEnd, HEADER_COLUMNS[column])
+                    || (column == HEADER_COLUMNS.length - 1 && equalsIgnoreCase(line, nameStart, nameEnd, PARKING_TYPE_COLUMN)))) {
+                return false;
+            }
+            columnStart = columnEnd + 1;
+        }
+        return column >= HEADER_COLUMNS.length - 1;
+    }
+
+    private static GateEventType parseEventType(MappedByteBuffer line, int start, int end) {
+        if (equalsIgnoreCase(line, start, end, ENTRY)) {
+            return GateEventType.ENTRY;
+        }
+        if (equalsIgnoreCase(line, start, end, EXIT)) {
+            return GateEventType.EXIT;
+        }
+        return null;
+    }
+
+    private static ParkingType parseParkingType(MappedByteBuffer line, int start, int end) {
+        for (int i = 0; i < PARKING_TYPES.length; i++) {
+            if (equalsIgnoreCase(line, start, end, PARKING_TYPE_NAMES[i])) {
+                return PARKING_TYPES[i];
+            }
+        }
+        return null;
+    }
+
+    //epoch milliseconds, or ISO-8601 with a Z or +HH:MM offset, NO_TIME when neither
+    private static long parseTime(MappedByteBuffer line, int start, int end) {
+        if (end - start > 0 && end - start <= 18 && allDigits(line, start, end)) {
+            return digits(line, start, end);
+        }
+        //yyyy-MM-ddTHH:mm:ss is 19 bytes, then an optional fraction and the offset
+        if (end - start < 20 || line.get(start + 4) != '-' || line.get(start + 7) != '-'
+                || (line.get(start + 10) != 'T' && line.get(start + 10) != ' ')
+                || line.get(start + 13) != ':' || line.get(start + 16) != ':') {
+            return NO_TIME;
+        }
+        long year = digitsOrFail(line, start, start + 4);
+        long month = digitsOrFail(line, start + 5, start + 7);
+        long day = digitsOrFail(line, start + 8, start + 10);
+        long hour = digitsOrFail(line, start + 11, start + 13);
+        long minute = digitsOrFail(line, start + 14, start + 16);
+        long second = digitsOrFail(line, start + 17, start + 19);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return NO_TIME;
+        }
+        int i = start + 19;
+        long millis = 0;
+        if (line.get(i) == '.') {
+            int fractionStart = ++i;
+            while (i < end && isDigit(line.get(i))) {
+                if (i - fractionStart < 3) {
+                    millis = millis * 10 + (line.get(i) - '0');
+                }
+                i++;
+            }
+            if (i == fractionStart) {
+                return NO_TIME;
+            }
+            for (int scale = i - fractionStart; scale < 3; scale++) {
+                millis *= 10;
+            }
+        }
+        long offsetSeconds;
+        if (i == end - 1 && (line.get(i) == 'Z' || line.get(i) == 'z')) {
+            offsetSeconds = 0;
+        } else if (i == end - 6 && (line.get(i) == '+' || line.get(i) == '-') && line.get(i + 3) == ':') {
+            long offsetHours = digitsOrFail(line, i + 1, i + 3);
+            long offsetMinutes = digitsOrFail(line, i + 4, i + 6);
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                return NO_TIME;
+            }
+            offsetSeconds = (offsetHours * 3600 + offsetMinutes * 60) * (line.get(i) == '-' ? -1 : 1);
+        } else {
+            return NO_TIME;
+        }
+        long epochSecond = daysFromCivil(year, month, day) * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+        return epochSecond * 1000 + millis;
+    }
+
+    //days since 1970-01-01 of a proleptic Gregorian date, without going through java.time objects
+    private static long daysFromCivil(long year, long month, long day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static long daysInMonth(long year, long month) {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
+    private static long digitsOrFail(MappedByteBuffer line, int start, int end) {
+        return allDigits(line, start, end) ? digits(line, start, end) : -1;
+    }
+
+    private static long digits(MappedByteBuffer line, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (line.get(i) - '0');
+        }
+        return value;
+    }
+
+    private static boolean allDigits(MappedByteBuffer line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isDigit(line.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean equalsIgnoreCase(MappedByteBuffer line, int start, int end, byte[] upperCase) {
+        if (end - start != upperCase.length) {
+            return false;
+        }
+        for (int i = 0; i < upperCase.length; i++) {
+            byte b = line.get(start + i);
+            if (b != upperCase[i] && b - ('a' - 'A') != upperCase[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(MappedByteBuffer line, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(MappedByteBuffer line, int start, int end) {
+        while (start < end && (line.get(start) == ' ' || line.get(start) == '\t')) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(MappedByteBuffer line, int start, int end) {
+        while (end > start && (line.get(end - 1) == ' ' || line.get(end - 1) == '\t')) {
+            end--;
+        }
+        return end;
+    }
+}
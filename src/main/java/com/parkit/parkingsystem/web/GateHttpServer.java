@@ -0,0 +1,596 @@
+package com.parkit.parkingsystem.web;
+
+import com.parkit.parkingsystem.analytics.Granularity;
+import com.parkit.parkingsystem.analytics.TicketAnalytics;
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.LotRouter;
+import com.parkit.parkingsystem.model.GateResult;
+import com.parkit.parkingsystem.model.LotTicket;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.model.ReservationResult;
+import com.parkit.parkingsystem.model.RevenueSummary;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * HTTP front end for the networked gate controllers and pay stations, on the JDK's built-in server.
+ *
+ * POST /entry?vehicle=ABC123&type=CAR, POST /exit?vehicle=ABC123, GET /quote?vehicle=ABC123, GET /availability and
+ * GET /occupancy answer JSON carrying the GateStatus of the operation. Each request runs on its own virtual thread, connections are
+ * kept alive between requests, and requests beyond the in-flight limit are turned away with 503 instead of queueing.
+ * Entries and exits run the async gate flows, the request's thread is let go while the database answers.
+ *
+ * GET /revenue?from=2024-01-01T00:00:00Z&to=2024-02-01T00:00:00Z answers the tickets closed in the range with their revenue
+ * and average stay by parking type, from the analytics in memory, and by=minute|hour|day|spot adds a breakdown.
+ *
+ * POST /reservations?vehicle=ABC123&type=CAR&from=...&to=... books a spot for the window and POST
+ * /reservations/cancel?vehicle=ABC123&id=N gives it back. GET /availability?from=...&to=... tells for each type whether a
+ * spot could be booked for the window. Availability and occupancy only list the types the lot has spots of.
+ *
+ * A site split across several lots takes a lot=NAME parameter on every request, and GET /locate?vehicle=ABC123 asks all
+ * lots where the vehicle is parked.
+ */
+public class GateHttpServer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("GateHttpServer");
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+    private static final int BACKLOG = 1024;
+
+    static {
+        //the server writes headers and body separately, with Nagle's algorithm on every small response waits for a delayed ack
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    //keyed by lot name, empty for a single lot
+    private final Map<String, ParkingService> parkingServices;
+    //null when the site is split into lots
+    private final ParkingService singleLotService;
+    //null for a single lot
+    private final LotRouter lotRouter;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+
+    public GateHttpServer(ParkingService parkingService, InetSocketAddress address, int maxInFlight) throws IOException {
+        this(Collections.emptyMap(), parkingService, null, address, maxInFlight);
+    }
+
+    public GateHttpServer(Map<String, ParkingService> parkingServices, LotRouter lotRouter, InetSocketAddress address,
+                          int maxInFlight) throws IOException {
+        this(parkingServices, null, lotRouter, address, maxInFlight);
+    }
+
+    private GateHttpServer(Map<String, ParkingService> parkingServices, ParkingService singleLotService, LotRouter lotRouter,
+                           InetSocketAddress address, int maxInFlight) throws IOException {
+        this.parkingServices = parkingServices;
+        this.singleLotService = singleLotService;
+        this.lotRouter = lotRouter;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-", 0).factory());
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/entry", limitedAsync("POST", this::entry));
+        server.createContext("/exit", limitedAsync("POST", this::exit));
+        server.createContext("/quote", limited("GET", this::quote));
+        server.createContext("/availability", limited("GET", this::availability));
+        server.createContext("/occupancy", limited("GET", this::occupancy));
+        server.createContext("/revenue", limited("GET", this::revenue));
+        server.createContext("/reservations", limited("POST", this::reserve));
+        server.createContext("/reservations/cancel", limited("POST", this::cancelReservation));
+        if (lotRouter != null) {
+            server.createContext("/locate", limited("GET", this::locate));
+        }
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Gate API listening on port {}", getPort());
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    //stops accepting, then waits for the requests being served
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private HttpHandler limited(String method, HttpHandler handler) {
+        return exchange -> {
+            try {
+                //the body is read to its end whatever happens, so the connection can serve the next request
+                try (InputStream body = exchange.getRequestBody()) {
+                    body.transferTo(OutputStream.nullOutputStream());
+                }
+                if (!isContextPath(exchange)) {
+                    send(exchange, 404, "{\"error\": \"not found\"}");
+                } else if (!method.equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    send(exchange, 405, "{\"error\": \"method not allowed\"}");
+                } else if (!inFlight.tryAcquire()) {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    send(exchange, 503, "{\"error\": \"too many requests in flight\"}");
+                } else {
+                    try {
+                        handler.handle(exchange);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            } catch (MalformedQueryException e) {
+                send(exchange, GateResult.of(GateStatus.INVALID_REQUEST));
+            } catch (Exception e) {
+                logger.error("Unable to serve {}", exchange.getRequestURI(), e);
+                send(exchange, 500, "{\"error\": \"internal error\"}");
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    //like limited, the result is sent and the request let go when the future completes, null when already answered
+    private HttpHandler limitedAsync(String method, AsyncHandler handler) {
+        return exchange -> {
+            CompletableFuture<GateResult> response = null;
+            try {
+                try (InputStream body = exchange.getRequestBody()) {
+                    body.transferTo(OutputStream.nullOutputStream());
+                }
+                if (!isContextPath(exchange)) {
+                    send(exchange, 404, "{\"error\": \"not found\"}");
+                } else if (!method.equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    send(exchange, 405, "{\"error\": \"method not allowed\"}");
+                } else if (!inFlight.tryAcquire()) {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    send(exchange, 503, "{\"error\": \"too many requests in flight\"}");
+                } else {
+                    try {
+                        response = handler.handle(exchange);
+                    } finally {
+                        if (response == null) {
+                            inFlight.release();
+                        }
+                    }
+                    //answered on a virtual thread of the server, the JDBC threads go back to the database
+                    response.whenCompleteAsync((result, e) -> {
+                        try {
+                            if (e != null) {
+                                logger.error("Unable to serve {}", exchange.getRequestURI(), e);
+                                send(exchange, 500, "{\"error\": \"internal error\"}");
+                            } else if (result != null) {
+                                send(exchange, result);
+                            }
+                        } catch (IOException ioe) {
+                            logger.error("Unable to answer {}", exchange.getRequestURI(), ioe);
+                        } finally {
+                            inFlight.release();
+                            exchange.close();
+                        }
+                    }, executor);
+                }
+            } catch (MalformedQueryException e) {
+                send(exchange, GateResult.of(GateStatus.INVALID_REQUEST));
+            } catch (Exception e) {
+                logger.error("Unable to serve {}", exchange.getRequestURI(), e);
+                send(exchange, 500, "{\"error\": \"internal error\"}");
+            } finally {
+                if (response == null) {
+                    exchange.close();
+                }
+            }
+        };
+    }
+
+    //contexts match by prefix, /entryX and /entry/anything would otherwise reach the entry handler
+    private static boolean isContextPath(HttpExchange exchange) {
+        return exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath());
+    }
+
+    private interface AsyncHandler {
+        CompletableFuture<GateResult> handle(HttpExchange exchange) throws IOException;
+    }
+
+    //a query string that does not decode, the client's mistake and answered with INVALID_REQUEST
+    private static class MalformedQueryException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private MalformedQueryException(String pair, IllegalArgumentException cause) {
+            super("Malformed query parameter " + pair, cause);
+        }
+    }
+
+    private CompletableFuture<GateResult> entry(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        ParkingService parkingService = parkingService(exchange, parameters);
+        if (parkingService == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ParkingType parkingType = parkingType(parameters.get("type"));
+        return parkingService.enterAsync(parameters.get("vehicle"), parkingType);
+    }
+
+    private CompletableFuture<GateResult> exit(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        ParkingService parkingService = parkingService(exchange, parameters);
+        if (parkingService == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return parkingService.exitAsync(parameters.get("vehicle"));
+    }
+
+    private void quote(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        ParkingService parkingService = parkingService(exchange, parameters);
+        if (parkingService != null) {
+            send(exchange, parkingService.quote(parameters.get("vehicle")));
+        }
+    }
+
+    //the lot the vehicle is parked in, whichever lot's database holds its ticket
+    private void locate(HttpExchange exchange) throws IOException {
+        String vehicleRegNumber = parameters(exchange).get("vehicle");
+        if (vehicleRegNumber == null || vehicleRegNumber.trim().isEmpty()) {
+            send(exchange, GateResult.of(GateStatus.INVALID_REQUEST));
+            return;
+        }
+        LotTicket located = lotRouter.locate(vehicleRegNumber);
+        if (located == null) {
+            send(exchange, GateResult.of(GateStatus.NOT_FOUND));
+            return;
+        }
+        String ticket = toJson(new GateResult(GateStatus.OK, located.getTicket()));
+        StringBuilder json = new StringBuilder("{\"lot\": ");
+        appendString(json, located.getLot());
+        send(exchange, 200, json.append(", ").append(ticket, 1, ticket.length()).toString());
+    }
+
+    //the service of the lot named by the request, answered with 404 when the lot is missing or unknown
+    private ParkingService parkingService(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        String lot = parameters.get("lot");
+        ParkingService parkingService = singleLotService != null ? singleLotService : lot == null ? null : parkingServices.get(lot);
+        if (parkingService == null) {
+            send(exchange, 404, "{\"error\": \"unknown lot\"}");
+        }
+        return parkingService;
+    }
+
+    private void availability(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        ParkingService parkingService = parkingService(exchange, parameters);
+        if (parkingService == null) {
+            return;
+        }
+        if (parameters.containsKey("from") || parameters.containsKey("to")) {
+            long[] window = window(exchange, parameters);
+            if (window != null) {
+                StringBuilder json = new StringBuilder("{\"from\": \"").append(Instant.ofEpochMilli(window[0]))
+                        .append("\", \"to\": \"").append(Instant.ofEpochMilli(window[1])).append('"');
+                for (ParkingType parkingType : ParkingType.values()) {
+                    if (parkingService.getCapacity(parkingType) == 0) {
+                        continue;
+                    }
+                    json.append(", \"").append(parkingType).append("\": ")
+                            .append(parkingService.isAvailable(parkingType, window[0], window[1]));
+                }
+                send(exchange, 200, json.append('}').toString());
+            }
+            return;
+        }
+        StringBuilder json = new StringBuilder("{");
+        for (ParkingType parkingType : ParkingType.values()) {
+            if (parkingService.getCapacity(parkingType) == 0) {
+                continue;
+            }
+            int available = parkingService.getAvailableSpots(parkingType);
+            if (available < 0) {
+                send(exchange, 500, "{\"status\": \"ERROR\"}");
+                return;
+            }
+            json.append(json.length() > 1 ? ", " : "").append('"').append(parkingType).append("\": ").append(available);
+        }
+        send(exchange, 200, json.append('}').toString());
+    }
+
+    private void reserve(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        ParkingService parkingService = reservingService(exchange, parameters);
+        if (parkingService == null) {
+            return;
+        }
+        long[] window = window(exchange, parameters);
+        if (window != null) {
+            send(exchange, parkingService.reserve(parameters.get("vehicle"), parkingType(parameters.get("type")), window[0], window[1]));
+        }
+    }
+
+    private void cancelReservation(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        ParkingService parkingService = reservingService(exchange, parameters);
+        if (parkingService == null) {
+            return;
+        }
+        int reservationId;
+        try {
+            reservationId = Integer.parseInt(parameters.get("id"));
+        } catch (NumberFormatException e) {
+            send(exchange, new ReservationResult(GateStatus.INVALID_REQUEST, null));
+            return;
+        }
+        send(exchange, parkingService.cancelReservation(parameters.get("vehicle"), reservationId));
+    }
+
+    //like parkingService, also answered with 404 when the lot takes no bookings
+    private ParkingService reservingService(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        ParkingService parkingService = parkingService(exchange, parameters);
+        if (parkingService != null && parkingService.getReservationDAO() == null) {
+            send(exchange, 404, "{\"error\": \"reservations disabled\"}");
+            return null;
+        }
+        return parkingService;
+    }
+
+    //the from and to instants of the request, answered with 400 when either is missing or they are not in order
+    private static long[] window(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+        try {
+            String from = parameters.get("from");
+            String to = parameters.get("to");
+            if (from != null && to != null) {
+                long[] window = {Instant.parse(from).toEpochMilli(), Instant.parse(to).toEpochMilli()};
+                if (window[0] < window[1]) {
+                    return window;
+                }
+            }
+        } catch (DateTimeParseException e) {
+            //answered below
+        }
+        send(exchange, 400, "{\"error\": \"from and to must be instants such as 2024-01-01T14:00:00Z, from before to\"}");
+        return null;
+    }
+
+    //the free and occupied spots of each type, for the display boards, answered from counters in memory
+    private void occupancy(HttpExchange exchange) throws IOException {
+        ParkingService parkingService = parkingService(exchange, parameters(exchange));
+        if (parkingService == null) {
+            return;
+        }
+        StringBuilder json = new StringBuilder("{");
+        for (ParkingType parkingType : ParkingType.values()) {
+            if (parkingService.getCapacity(parkingType) == 0) {
+                continue;
+            }
+            int free = parkingService.getAvailableSpots(parkingType);
+            int occupied = parkingService.getOccupiedSpots(parkingType);
+            if (free < 0 || occupied < 0) {
+                send(exchange, 500, "{\"status\": \"ERROR\"}");
+                return;
+            }
+            json.append(json.length() > 1 ? ", " : "").append('"').append(parkingType).append("\": {\"free\": ").append(free)
+                    .append(", \"occupied\": ").append(occupied).append('}');
+        }
+        send(exchange, 200, json.append('}').toString());
+    }
+
+    //the last 24 hours unless from and to are given
+    private void revenue(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parameters(exchange);
+        ParkingService parkingService = parkingService(exchange, parameters);
+        if (parkingService == null) {
+            return;
+        }
+        TicketAnalytics analytics = parkingService.getTicketAnalytics();
+        if (analytics == null) {
+            send(exchange, 404, "{\"error\": \"analytics disabled\"}");
+            return;
+        }
+        long from;
+        long to;
+        try {
+            to = parameters.containsKey("to") ? Instant.parse(parameters.get("to")).toEpochMilli() : System.currentTimeMillis();
+            from = parameters.containsKey("from") ? Instant.parse(parameters.get("from")).toEpochMilli()
+                    : to - Granularity.DAY.getMillis();
+        } catch (DateTimeParseException e) {
+            send(exchange, 400, "{\"error\": \"from and to must be instants such as 2024-01-01T00:00:00Z\"}");
+            return;
+        }
+        String by = parameters.get("by");
+        if (from > to || (by != null && !by.equals("spot") && granularity(by) == null)) {
+            send(exchange, 400, "{\"error\": \"invalid range\"}");
+            return;
+        }
+        RevenueSummary summary = analytics.summarize(from, to);
+        StringBuilder json = new StringBuilder("{\"from\": \"").append(Instant.ofEpochMilli(from))
+                .append("\", \"to\": \"").append(Instant.ofEpochMilli(to)).append('"');
+        json.append(", \"tickets\": ").append(summary.getTickets());
+        appendAmount(json.append(", \"revenue\": "), summary.getRevenue());
+        json.append(", \"averageStayMinutes\": ").append(summary.getAverageDwellMillis() / 60000);
+        for (ParkingType parkingType : ParkingType.values()) {
+            json.append(", \"").append(parkingType).append("\": {\"tickets\": ").append(summary.getTickets(parkingType));
+            appendAmount(json.append(", \"revenue\": "), summary.getRevenue(parkingType));
+            json.append(", \"averageStayMinutes\": ").append(summary.getAverageDwellMillis(parkingType) / 60000).append('}');
+        }
+        if ("spot".equals(by)) {
+            double[] revenueBySpot = analytics.revenueBySpot(from, to);
+            json.append(", \"spots\": {");
+            String separator = "";
+            for (int spot = 0; spot < revenueBySpot.length; spot++) {
+                if (revenueBySpot[spot] != 0) {
+                    json.append(separator).append('"').append(spot).append("\": ");
+                    appendAmount(json, revenueBySpot[spot]);
+                    separator = ", ";
+                }
+            }
+            json.append('}');
+        } else if (by != null) {
+            double[] series;
+            try {
+                series = analytics.revenueSeries(granularity(by), from, to);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, "{\"error\": \"too many buckets\"}");
+                return;
+            }
+            //one amount per bucket from the one holding from, null for buckets no longer kept
+            json.append(", \"").append(by.toLowerCase(Locale.ROOT)).append("\": [");
+            for (int i = 0; i < series.length; i++) {
+                json.append(i > 0 ? ", " : "");
+                if (Double.isNaN(series[i])) {
+                    json.append("null");
+                } else {
+                    appendAmount(json, series[i]);
+                }
+            }
+            json.append(']');
+        }
+        send(exchange, 200, json.append('}').toString());
+    }
+
+    private static void send(HttpExchange exchange, GateResult result) throws IOException {
+        send(exchange, statusCode(result.getStatus()), toJson(result));
+    }
+
+    private static String toJson(GateResult result) {
+        StringBuilder json = new StringBuilder("{\"status\": \"").append(result.getStatus()).append('"');
+        Ticket ticket = result.getTicket();
+        if (ticket != null) {
+            json.append(", \"vehicle\": ");
+            appendString(json, ticket.getVehicleRegNumber());
+            json.append(", \"parkingSpot\": ").append(ticket.getParkingSpot().getId());
+            json.append(", \"parkingType\": \"").append(ticket.getParkingSpot().getParkingType()).append('"');
+            json.append(", \"inTime\": \"").append(Instant.ofEpochMilli(ticket.getInTimeMillis())).append('"');
+            if (ticket.hasOutTime()) {
+                json.append(", \"outTime\": \"").append(Instant.ofEpochMilli(ticket.getOutTimeMillis())).append('"');
+                json.append(", \"price\": ").append(String.format(Locale.ROOT, "%.2f", ticket.getPrice()));
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    private static void send(HttpExchange exchange, ReservationResult result) throws IOException {
+        StringBuilder json = new StringBuilder("{\"status\": \"").append(result.getStatus()).append('"');
+        Reservation reservation = result.getReservation();
+        if (reservation != null) {
+            json.append(", \"id\": ").append(reservation.getId()).append(", \"vehicle\": ");
+            appendString(json, reservation.getVehicleRegNumber());
+            json.append(", \"parkingSpot\": ").append(reservation.getParkingNumber());
+            json.append(", \"parkingType\": \"").append(reservation.getParkingType()).append('"');
+            json.append(", \"from\": \"").append(Instant.ofEpochMilli(reservation.getStartMillis())).append('"');
+            json.append(", \"to\": \"").append(Instant.ofEpochMilli(reservation.getEndMillis())).append('"');
+        }
+        send(exchange, statusCode(result.getStatus()), json.append('}').toString());
+    }
+
+    private static int statusCode(GateStatus status) {
+        switch (status) {
+            case OK:
+                return 200;
+            case FULL:
+            case ALREADY_PARKED:
+                return 409;
+            case NOT_FOUND:
+                return 404;
+            case INVALID_REQUEST:
+                return 400;
+            default:
+                return 500;
+        }
+    }
+
+    //always with a content length: a chunked or unterminated response would cost the client its connection
+    private static void send(HttpExchange exchange, int statusCode, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    try {
+                        parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                                URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                    } catch (IllegalArgumentException e) {
+                        //an escape such as %G1 that is not two hex digits
+                        throw new MalformedQueryException(pair, e);
+                    }
+                }
+            }
+        }
+        return parameters;
+    }
+
+    //null for a missing or unknown type, which the service answers with INVALID_REQUEST
+    private static ParkingType parkingType(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ParkingType.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Granularity granularity(String value) {
+        try {
+            return Granularity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void appendAmount(StringBuilder json, double amount) {
+        json.append(String.format(Locale.ROOT, "%.2f", amount));
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
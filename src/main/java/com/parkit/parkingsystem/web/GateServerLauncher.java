@@ -0,0 +1,165 @@
+package com.parkit.parkingsystem.web;
+
+import com.parkit.parkingsystem.allocation.AllocationPolicy;
+import com.parkit.parkingsystem.allocation.LevelBalancedPolicy;
+import com.parkit.parkingsystem.allocation.LowestNumberPolicy;
+import com.parkit.parkingsystem.allocation.NearestEntryPolicy;
+import com.parkit.parkingsystem.allocation.ParkingSpotAllocator;
+import com.parkit.parkingsystem.allocation.ReservationIndex;
+import com.parkit.parkingsystem.allocation.VehicleFitPolicy;
+import com.parkit.parkingsystem.analytics.TicketAnalyticsLauncher;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.LotDataBaseConfig;
+import com.parkit.parkingsystem.dao.AsyncParkingDAO;
+import com.parkit.parkingsystem.dao.LotRouter;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.journal.FsyncPolicy;
+import com.parkit.parkingsystem.journal.TicketJournal;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.TicketArchivalJob;
+import com.parkit.parkingsystem.service.TicketArchivalLauncher;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//the serve mode: the gate HTTP API over every lot of the site, runs until the process is stopped
+public class GateServerLauncher {
+
+    private static final Logger logger = LogManager.getLogger("GateServerLauncher");
+    private static final String DEFAULT_LOT = "default";
+
+    public static void serve(int port){
+        //-Dparkit.lots=north=URL,south=URL splits the site into lots, each with its own database
+        String lots = System.getProperty("parkit.lots");
+        Map<String, DataBaseConfig> lotConfigs = new LinkedHashMap<>();
+        if(lots == null){
+            lotConfigs.put(DEFAULT_LOT, new DataBaseConfig());
+        }else{
+            lotConfigs.putAll(LotDataBaseConfig.parseLots(lots));
+        }
+        LotRouter lotRouter = new LotRouter(lotConfigs);
+        AllocationPolicy allocationPolicy = allocationPolicy();
+        for(String lot : lotRouter.getLots()){
+            lotRouter.getParkingSpotDAO(lot).parkingSpotAllocator = new ParkingSpotAllocator(allocationPolicy);
+        }
+        lotRouter.load();
+        //-Dparkit.journal.dir=DIR records entries and exits in a journal there, the tables follow in the background
+        String journalDir = System.getProperty("parkit.journal.dir");
+        FsyncPolicy fsyncPolicy = FsyncPolicy.valueOf(System.getProperty("parkit.journal.fsync", "interval").toUpperCase());
+        int maxInFlight = Integer.getInteger("parkit.http.maxInFlight", GateHttpServer.DEFAULT_MAX_IN_FLIGHT);
+        //the occupancy counters are checked against the parking table every N seconds
+        long reconcileSeconds = Long.getLong("parkit.occupancy.reconcileSeconds", 60);
+        //the gate flows of each lot run their database calls on this many threads
+        int jdbcThreads = Integer.getInteger("parkit.jdbc.threads", DataBaseConfig.POOL_MAX_SIZE);
+        //-Dparkit.writeBehind.capacity=N queues up to N ticket inserts and writes them in batches, the journal already does
+        int writeBehindCapacity = Integer.getInteger("parkit.writeBehind.capacity", 0);
+        int writeBehindBatchSize = Integer.getInteger("parkit.writeBehind.batchSize", TicketWriteBehind.DEFAULT_BATCH_SIZE);
+        long writeBehindLingerMillis = Long.getLong("parkit.writeBehind.lingerMillis", TicketWriteBehind.DEFAULT_LINGER_MILLIS);
+        if(writeBehindCapacity > 0 && journalDir != null){
+            logger.warn("Ticket write-behind is ignored, the journal takes the ticket writes off the gates");
+            writeBehindCapacity = 0;
+        }
+        //walk-ins are not given a spot booked within this many minutes
+        long holdMinutes = Long.getLong("parkit.reservations.holdMinutes", ReservationIndex.DEFAULT_HOLD_MILLIS / 60000);
+        List<TicketArchivalJob> archivalJobs = new ArrayList<>();
+        List<AsyncParkingDAO> asyncParkingDAOs = new ArrayList<>();
+        Map<String, ParkingService> parkingServices = new LinkedHashMap<>();
+        for(String lot : lotRouter.getLots()){
+            ParkingSpotDAO parkingSpotDAO = lotRouter.getParkingSpotDAO(lot);
+            TicketDAO ticketDAO = lotRouter.getTicketDAO(lot);
+            if(journalDir != null){
+                //each lot journals into its own directory
+                Path lotJournalDir = lots == null ? Paths.get(journalDir) : Paths.get(journalDir, lot);
+                try {
+                    if(!ticketDAO.enableJournal(TicketJournal.open(lotJournalDir, fsyncPolicy), parkingSpotDAO)){
+                        logger.error("Unable to replay the ticket journal in {}, the gates are not started", lotJournalDir);
+                        lotRouter.close();
+                        DataBaseConfig.closeAllPools();
+                        return;
+                    }
+                } catch (IOException e) {
+                    logger.error("Unable to open the ticket journal in {}", lotJournalDir, e);
+                    lotRouter.close();
+                    DataBaseConfig.closeAllPools();
+                    return;
+                }
+            }
+            if(writeBehindCapacity > 0){
+                ticketDAO.enableWriteBehind(writeBehindCapacity, writeBehindBatchSize, writeBehindLingerMillis, parkingSpotDAO);
+                Metrics.publish("TicketWriteBehind", lot, ticketDAO.getTicketWriteBehind());
+            }
+            if(reconcileSeconds > 0){
+                parkingSpotDAO.startOccupancyReconciliation(reconcileSeconds);
+            }
+            TicketArchivalJob archivalJob = TicketArchivalLauncher.startPeriodic(lotConfigs.get(lot));
+            if(archivalJob != null){
+                archivalJobs.add(archivalJob);
+            }
+            ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+            parkingService.setTicketAnalytics(TicketAnalyticsLauncher.rebuild(lot, lotConfigs.get(lot)));
+            ReservationDAO reservationDAO = new ReservationDAO();
+            reservationDAO.dataBaseConfig = lotConfigs.get(lot);
+            parkingSpotDAO.reservationIndex.setHoldMillis(holdMinutes * 60000);
+            if(reservationDAO.loadReservations(parkingSpotDAO.reservationIndex)){
+                parkingService.setReservationDAO(reservationDAO);
+            }else{
+                logger.error("Unable to load the reservations of lot {}, it takes no bookings", lot);
+            }
+            //an exit queues two calls at once, so requests within the in-flight limit are never turned away
+            AsyncParkingDAO asyncParkingDAO = new AsyncParkingDAO(parkingSpotDAO, ticketDAO, jdbcThreads, 2 * maxInFlight);
+            parkingService.setAsyncParkingDAO(asyncParkingDAO);
+            asyncParkingDAOs.add(asyncParkingDAO);
+            parkingServices.put(lot, parkingService);
+        }
+        try {
+            GateHttpServer server = lots == null
+                    ? new GateHttpServer(parkingServices.get(DEFAULT_LOT), new InetSocketAddress(port), maxInFlight)
+                    : new GateHttpServer(parkingServices, lotRouter, new InetSocketAddress(port), maxInFlight);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                asyncParkingDAOs.forEach(AsyncParkingDAO::close);
+                archivalJobs.forEach(TicketArchivalJob::stop);
+                lotRouter.close();
+                Metrics.stopSummaryDump();
+                DataBaseConfig.closeAllPools();
+            }, "shutdown"));
+            server.start();
+        } catch (IOException e) {
+            logger.error("Unable to start the gate API on port {}", port, e);
+            asyncParkingDAOs.forEach(AsyncParkingDAO::close);
+            archivalJobs.forEach(TicketArchivalJob::stop);
+            lotRouter.close();
+            DataBaseConfig.closeAllPools();
+        }
+    }
+
+    //-Dparkit.allocation.policy=lowest|nearest|balanced picks the spots by number, by the way from the entry or by the
+    //free spots of each level, and -Dparkit.allocation.vehicleFit=true lets EVs overflow to car spots
+    private static AllocationPolicy allocationPolicy(){
+        String name = System.getProperty("parkit.allocation.policy", "lowest");
+        AllocationPolicy allocationPolicy;
+        if(name.equals("nearest")){
+            allocationPolicy = new NearestEntryPolicy();
+        }else if(name.equals("balanced")){
+            allocationPolicy = new LevelBalancedPolicy();
+        }else{
+            if(!name.equals("lowest")){
+                logger.warn("Unknown allocation policy {}, the lowest spot number is given", name);
+            }
+            allocationPolicy = new LowestNumberPolicy();
+        }
+        return Boolean.getBoolean("parkit.allocation.vehicleFit") ? new VehicleFitPolicy(allocationPolicy) : allocationPolicy;
+    }
+}
@@ -0,0 +1,7 @@
+-- registrations are stored and looked up trimmed and upper case, the way the open ticket index keys them
+-- the index already refused a second entry under another spelling, so no two open tickets share a normalized registration
+update ticket set VEHICLE_REG_NUMBER = upper(trim(VEHICLE_REG_NUMBER))
+ where VEHICLE_REG_NUMBER <> upper(trim(VEHICLE_REG_NUMBER));
+
+update open_ticket set VEHICLE_REG_NUMBER = upper(trim(VEHICLE_REG_NUMBER))
+ where VEHICLE_REG_NUMBER <> upper(trim(VEHICLE_REG_NUMBER));
@@ -0,0 +1,4 @@
+-- covers GET_TICKET: equality on the registration, newest IN_TIME first, every selected ticket column in the index
+create index TICKET_VEHICLE_IN_TIME_IDX on ticket(VEHICLE_REG_NUMBER, IN_TIME, OUT_TIME, PARKING_NUMBER, PRICE);
+
+create index TICKET_OUT_TIME_IDX on ticket(OUT_TIME);
@@ -0,0 +1,14 @@
+-- one row per parked vehicle, so finding the active ticket is a primary key lookup on a table the size of the lot
+-- no foreign key to ticket, so ticket can still be truncated or archived independently
+create table open_ticket(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ TICKET_ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ IN_TIME DATETIME NOT NULL);
+
+create unique index OPEN_TICKET_TICKET_ID_IDX on open_ticket(TICKET_ID);
+
+insert into open_ticket(VEHICLE_REG_NUMBER, TICKET_ID, PARKING_NUMBER, IN_TIME)
+ select t.VEHICLE_REG_NUMBER, t.ID, t.PARKING_NUMBER, t.IN_TIME from ticket t
+ where t.OUT_TIME is null
+ and t.ID = (select max(t2.ID) from ticket t2 where t2.VEHICLE_REG_NUMBER = t.VEHICLE_REG_NUMBER and t2.OUT_TIME is null);
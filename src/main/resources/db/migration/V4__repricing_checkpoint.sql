@@ -0,0 +1,5 @@
+-- last ticket a repricing job has written, so a job stopped halfway resumes after it
+create table repricing_checkpoint(
+ JOB_NAME varchar(50) PRIMARY KEY,
+ LAST_TICKET_ID int NOT NULL,
+ UPDATED_ON DATETIME NOT NULL);
@@ -0,0 +1,10 @@
+-- tickets written from the gate journal carry the sequence number of their entry record, so exits can find them
+alter table ticket add column JOURNAL_SEQ bigint;
+
+create unique index TICKET_JOURNAL_SEQ_IDX on ticket(JOURNAL_SEQ);
+
+-- last journal record applied to the tables, moved in the same transaction as the records
+create table journal_checkpoint(
+ JOURNAL_NAME varchar(50) PRIMARY KEY,
+ LAST_SEQ bigint NOT NULL,
+ UPDATED_ON DATETIME NOT NULL);
@@ -0,0 +1,6 @@
+-- written on the primary every heartbeat, how old it is on a replica tells how far behind the replica is
+create table replica_heartbeat(
+ ID int PRIMARY KEY,
+ BEAT_MILLIS bigint NOT NULL);
+
+insert into replica_heartbeat(ID, BEAT_MILLIS) values(1, 0);
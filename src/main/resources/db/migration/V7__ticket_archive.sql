@@ -0,0 +1,6 @@
+-- closed tickets older than the archival age move to one ticket_archive_YYYYMM table per month of their OUT_TIME,
+-- created by the archival job on first use and listed here so lookups know which ones exist
+create table ticket_archive_partition(
+ PARTITION_MONTH int PRIMARY KEY,
+ TABLE_NAME varchar(30) NOT NULL,
+ CREATED_ON DATETIME NOT NULL);
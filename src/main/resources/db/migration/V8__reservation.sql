@@ -0,0 +1,11 @@
+-- spots booked for a time window, the bookings that have not ended are loaded into memory when the gates start
+create table reservation(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ START_TIME DATETIME NOT NULL,
+ END_TIME DATETIME NOT NULL,
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+
+create index RESERVATION_END_TIME_IDX on reservation(END_TIME);
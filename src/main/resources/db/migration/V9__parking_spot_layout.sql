@@ -0,0 +1,4 @@
+-- where each spot is, so the allocation policies can pick by level or by the way from the entry gate
+alter table parking add column LEVEL_NUMBER int default 0 NOT NULL;
+
+alter table parking add column ENTRY_DISTANCE int default 0 NOT NULL;
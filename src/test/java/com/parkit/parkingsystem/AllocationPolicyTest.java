@@ -0,0 +1,234 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.AllocationPolicy;
+import com.parkit.parkingsystem.allocation.LevelBalancedPolicy;
+import com.parkit.parkingsystem.allocation.NearestEntryPolicy;
+import com.parkit.parkingsystem.allocation.ParkingSpotAllocator;
+import com.parkit.parkingsystem.allocation.ReservationIndex;
+import com.parkit.parkingsystem.allocation.VehicleFitPolicy;
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.GateResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AllocationPolicyTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Test
+    public void nearestEntryGivesTheClosestFreeSpot() {
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(new NearestEntryPolicy());
+        allocator.load(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, true, 0, 40),
+                new ParkingSpot(2, ParkingType.CAR, true, 0, 10),
+                new ParkingSpot(3, ParkingType.CAR, true, 0, 25),
+                new ParkingSpot(4, ParkingType.CAR, true, 0, 10)));
+
+        assertEquals(2, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(4, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(3, allocator.getNextAvailable(ParkingType.CAR));
+        allocator.setAvailable(4, true);
+        assertEquals(4, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(3, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(1, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(0, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(0, allocator.getAvailableCount(ParkingType.CAR));
+    }
+
+    @Test
+    public void levelBalancedFillsTheEmptiestLevel() {
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(new LevelBalancedPolicy());
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        //three spots on level 0, two on level 1 and three on level 2
+        for (int number = 1; number <= 8; number++) {
+            int level = number <= 3 ? 0 : number <= 5 ? 1 : 2;
+            parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, true, level, 9 - number));
+        }
+        allocator.load(parkingSpots);
+
+        //levels 0 and 2 tie, the lower one goes first and is the nearest spot of the level
+        assertEquals(3, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(8, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(2, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(5, allocator.claimNextAvailable(ParkingType.CAR));
+        allocator.setAvailable(3, true);
+        allocator.setAvailable(2, true);
+        assertEquals(3, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(2, allocator.claimNextAvailable(ParkingType.CAR));
+    }
+
+    @Test
+    public void vehicleFitKeepsChargersForEvs() {
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(new VehicleFitPolicy());
+        allocator.load(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, true),
+                new ParkingSpot(2, ParkingType.EV, true),
+                new ParkingSpot(3, ParkingType.OVERSIZE, true)));
+
+        assertEquals(2, allocator.claimNextAvailable(ParkingType.EV));
+        assertEquals(1, allocator.claimNextAvailable(ParkingType.EV));
+        assertEquals(0, allocator.claimNextAvailable(ParkingType.CAR));
+        allocator.setAvailable(2, true);
+        assertEquals(0, allocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(3, allocator.claimNextAvailable(ParkingType.OVERSIZE));
+        assertEquals(0, allocator.claimNextAvailable(ParkingType.OVERSIZE));
+
+        //without the policy an EV only fits a charging spot
+        ParkingSpotAllocator strict = new ParkingSpotAllocator();
+        strict.load(Arrays.asList(new ParkingSpot(1, ParkingType.CAR, true), new ParkingSpot(2, ParkingType.EV, false)));
+        assertEquals(0, strict.claimNextAvailable(ParkingType.EV));
+    }
+
+    @Test
+    public void agreesWithCheckingEverySpot() {
+        for (AllocationPolicy policy : new AllocationPolicy[]{new NearestEntryPolicy(), new LevelBalancedPolicy()}) {
+            Random random = new Random(11);
+            List<ParkingSpot> parkingSpots = new ArrayList<>();
+            for (int number = 1; number <= 200; number++) {
+                parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, random.nextBoolean(), random.nextInt(5), random.nextInt(50)));
+            }
+            ParkingSpotAllocator allocator = new ParkingSpotAllocator(policy);
+            allocator.load(parkingSpots);
+            boolean[] free = new boolean[201];
+            for (ParkingSpot parkingSpot : parkingSpots) {
+                free[parkingSpot.getId()] = parkingSpot.isAvailable();
+            }
+            for (int i = 0; i < 5000; i++) {
+                if (random.nextBoolean()) {
+                    int number = allocator.claimNextAvailable(ParkingType.CAR);
+                    assertEquals(pickByScan(parkingSpots, free, policy.balancesZones()), number);
+                    free[number] = false;
+                } else {
+                    int number = 1 + random.nextInt(200);
+                    allocator.setAvailable(number, true);
+                    free[number] = true;
+                }
+            }
+        }
+    }
+
+    private static int pickByScan(List<ParkingSpot> parkingSpots, boolean[] free, boolean byLevel) {
+        int[] freeByLevel = new int[5];
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            freeByLevel[parkingSpot.getLevel()] += free[parkingSpot.getId()] ? 1 : 0;
+        }
+        int level = 0;
+        for (int other = 1; other < freeByLevel.length; other++) {
+            level = freeByLevel[other] > freeByLevel[level] ? other : level;
+        }
+        ParkingSpot best = null;
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            if (free[parkingSpot.getId()] && (!byLevel || parkingSpot.getLevel() == level) && (best == null
+                    || parkingSpot.getEntryDistance() < best.getEntryDistance()
+                    || (parkingSpot.getEntryDistance() == best.getEntryDistance() && parkingSpot.getId() < best.getId()))) {
+                best = parkingSpot;
+            }
+        }
+        return best == null ? 0 : best.getId();
+    }
+
+    @Test
+    public void walkInsSkipBookedSpotsInThePolicyOrder() {
+        List<ParkingSpot> parkingSpots = Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, true, 0, 30),
+                new ParkingSpot(2, ParkingType.CAR, true, 0, 10),
+                new ParkingSpot(3, ParkingType.CAR, true, 0, 20));
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(new NearestEntryPolicy());
+        allocator.load(parkingSpots);
+        ReservationIndex reservations = new ReservationIndex();
+        reservations.load(parkingSpots);
+        Reservation booked = new Reservation("BOOKED", ParkingType.CAR, HOUR, 2 * HOUR);
+        booked.setParkingNumber(2);
+        assertTrue(reservations.book(booked));
+
+        assertEquals(3, allocator.claimNextAvailable(ParkingType.CAR, reservations, 0, 3 * HOUR));
+        //after the booking ends the nearest spot is given again
+        assertEquals(2, allocator.claimNextAvailable(ParkingType.CAR, reservations, 2 * HOUR, 3 * HOUR));
+        Reservation soon = new Reservation("SOON", ParkingType.CAR, HOUR, 2 * HOUR);
+        assertEquals(1, allocator.bookNextAvailable(reservations, soon));
+        assertEquals(0, allocator.claimNextAvailable(ParkingType.CAR, reservations, 0, 3 * HOUR));
+    }
+
+    @Test
+    public void walkInsAgreeWithCheckingEveryFreeUnbookedSpot() {
+        Random random = new Random(13);
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= 200; number++) {
+            parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, true, 0, random.nextInt(50)));
+        }
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(new NearestEntryPolicy());
+        allocator.load(parkingSpots);
+        ReservationIndex reservations = new ReservationIndex();
+        reservations.load(parkingSpots);
+        boolean[] free = new boolean[201];
+        Arrays.fill(free, true);
+        List<Reservation> booked = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            long from = random.nextInt(100) * HOUR;
+            long to = from + (1 + random.nextInt(6)) * HOUR;
+            int choice = random.nextInt(4);
+            if (choice == 0) {
+                Reservation reservation = new Reservation("V" + i, ParkingType.CAR, from, to);
+                reservation.setParkingNumber(1 + random.nextInt(200));
+                if (reservations.book(reservation)) {
+                    booked.add(reservation);
+                }
+            } else if (choice == 1 && !booked.isEmpty()) {
+                assertTrue(reservations.cancel(booked.remove(random.nextInt(booked.size()))));
+            } else if (choice == 2) {
+                int number = 1 + random.nextInt(200);
+                allocator.setAvailable(number, true);
+                free[number] = true;
+            } else {
+                boolean[] unbooked = free.clone();
+                for (Reservation reservation : booked) {
+                    unbooked[reservation.getParkingNumber()] &= reservation.getEndMillis() <= from || reservation.getStartMillis() >= to;
+                }
+                int number = allocator.claimNextAvailable(ParkingType.CAR, reservations, from, to);
+                assertEquals(pickByScan(parkingSpots, unbooked, false), number);
+                free[number] = false;
+            }
+        }
+    }
+
+    @Test
+    public void gatesGiveTheSpotThePolicyPicks() throws Exception {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("allocation" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 3, ParkingType.CAR);
+        dataBaseConfig.addParkingSpots(4, 1, ParkingType.EV);
+        dataBaseConfig.setSpotLayout(3, 1, 5);
+        dataBaseConfig.setSpotLayout(1, 0, 50);
+        dataBaseConfig.setSpotLayout(2, 0, 60);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.parkingSpotAllocator = new ParkingSpotAllocator(new VehicleFitPolicy(new NearestEntryPolicy()));
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(ticketDAO.loadOpenTickets());
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+
+        assertEquals(3, parkingService.enter("CAR1", ParkingType.CAR).getTicket().getParkingSpot().getId());
+        assertEquals(4, parkingService.enter("EV1", ParkingType.EV).getTicket().getParkingSpot().getId());
+        //the charger is taken, the EV parks in the nearest car spot and pays the car rate
+        GateResult overflow = parkingService.enter("EV2", ParkingType.EV);
+        assertEquals(1, overflow.getTicket().getParkingSpot().getId());
+        assertEquals(ParkingType.CAR, overflow.getTicket().getParkingSpot().getParkingType());
+        assertEquals(ParkingType.CAR, ticketDAO.getTicket("EV2").getParkingSpot().getParkingType());
+        assertEquals(GateStatus.FULL, parkingService.enter("EV3", ParkingType.OVERSIZE).getStatus());
+        assertEquals(0, parkingService.getCapacity(ParkingType.OVERSIZE));
+    }
+}
@@ -0,0 +1,183 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.AsyncParkingDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.GateResult;
+import com.parkit.parkingsystem.model.OpenTicket;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncGateFlowTest {
+
+    private static final int CAR_SPOTS = 3;
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private ParkingSpotDAO parkingSpotDAO;
+    private AsyncParkingDAO asyncParkingDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("async" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, CAR_SPOTS, ParkingType.CAR);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(parkingSpotDAO.loadParkingSpots());
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        if (asyncParkingDAO != null) {
+            asyncParkingDAO.close();
+        }
+    }
+
+    private ParkingService createParkingService(TicketDAO ticketDAO) {
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(ticketDAO.loadOpenTickets());
+        asyncParkingDAO = new AsyncParkingDAO(parkingSpotDAO, ticketDAO, 2, 100);
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+        parkingService.setAsyncParkingDAO(asyncParkingDAO);
+        return parkingService;
+    }
+
+    @Test
+    public void concurrentVisitsFillAndFreeTheLot() throws Exception {
+        ParkingService parkingService = createParkingService(new TicketDAO());
+        List<CompletableFuture<GateResult>> entries = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            entries.add(parkingService.enterAsync("V" + i, ParkingType.CAR));
+        }
+        List<String> parked = new ArrayList<>();
+        int full = 0;
+        for (CompletableFuture<GateResult> entry : entries) {
+            GateResult result = entry.get(5, TimeUnit.SECONDS);
+            if (result.getStatus() == GateStatus.OK) {
+                parked.add(result.getTicket().getVehicleRegNumber());
+            } else {
+                assertEquals(GateStatus.FULL, result.getStatus());
+                full++;
+            }
+        }
+        assertEquals(CAR_SPOTS, parked.size());
+        assertEquals(10 - CAR_SPOTS, full);
+        assertEquals(0, countAvailable());
+
+        List<CompletableFuture<GateResult>> exits = new ArrayList<>();
+        for (String vehicle : parked) {
+            exits.add(parkingService.exitAsync(vehicle));
+        }
+        for (CompletableFuture<GateResult> exit : exits) {
+            assertEquals(GateStatus.OK, exit.get(5, TimeUnit.SECONDS).getStatus());
+        }
+        assertEquals(CAR_SPOTS, countAvailable());
+        assertEquals(CAR_SPOTS, parkingService.getAvailableSpots(ParkingType.CAR));
+        assertEquals(GateStatus.NOT_FOUND, parkingService.exitAsync(parked.get(0)).get(5, TimeUnit.SECONDS).getStatus());
+    }
+
+    @Test
+    public void aVehicleEntersOnceWhateverTheGates() throws Exception {
+        ParkingService parkingService = createParkingService(new TicketDAO());
+        List<CompletableFuture<GateResult>> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            entries.add(parkingService.enterAsync("ABC", ParkingType.CAR));
+        }
+        //the synchronous gate waits for the same permit
+        GateResult syncEntry = parkingService.enter("ABC", ParkingType.CAR);
+        int ok = syncEntry.getStatus() == GateStatus.OK ? 1 : 0;
+        for (CompletableFuture<GateResult> entry : entries) {
+            GateStatus status = entry.get(5, TimeUnit.SECONDS).getStatus();
+            if (status == GateStatus.OK) {
+                ok++;
+            } else {
+                assertEquals(GateStatus.ALREADY_PARKED, status);
+            }
+        }
+        assertEquals(1, ok);
+        //the spots claimed by the refused entries went back
+        assertEquals(CAR_SPOTS - 1, countAvailable());
+        assertEquals(CAR_SPOTS - 1, parkingService.getAvailableSpots(ParkingType.CAR));
+    }
+
+    @Test
+    public void aHeldPermitDoesNotStallOtherVehicles() throws Exception {
+        CountDownLatch syncGateInside = new CountDownLatch(1);
+        CountDownLatch releaseSyncGate = new CountDownLatch(1);
+        TicketDAO ticketDAO = new TicketDAO() {
+            @Override
+            public OpenTicket getOpenTicket(String vehicleRegNumber) {
+                if (!Thread.currentThread().getName().startsWith("jdbc-")) {
+                    syncGateInside.countDown();
+                    try {
+                        releaseSyncGate.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getOpenTicket(vehicleRegNumber);
+            }
+        };
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(ticketDAO.loadOpenTickets());
+        //a single JDBC thread, a flow waiting on it for the permit would stall every other vehicle
+        asyncParkingDAO = new AsyncParkingDAO(parkingSpotDAO, ticketDAO, 1, 100);
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+        parkingService.setAsyncParkingDAO(asyncParkingDAO);
+
+        CompletableFuture<GateResult> syncEntry = CompletableFuture.supplyAsync(() -> parkingService.enter("ABC", ParkingType.CAR));
+        assertTrue(syncGateInside.await(5, TimeUnit.SECONDS));
+        CompletableFuture<GateResult> sameVehicle = parkingService.enterAsync("ABC", ParkingType.CAR);
+        CompletableFuture<GateResult> otherVehicle = parkingService.enterAsync("XYZ", ParkingType.CAR);
+
+        assertEquals(GateStatus.OK, otherVehicle.get(5, TimeUnit.SECONDS).getStatus());
+        assertFalse(sameVehicle.isDone());
+        releaseSyncGate.countDown();
+        assertEquals(GateStatus.OK, syncEntry.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(GateStatus.ALREADY_PARKED, sameVehicle.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(CAR_SPOTS - 2, countAvailable());
+    }
+
+    @Test
+    public void spotStaysTakenWhenTheTicketCannotBeClosed() throws Exception {
+        ParkingService parkingService = createParkingService(new TicketDAO() {
+            @Override
+            public boolean updateTicket(Ticket ticket) {
+                return false;
+            }
+        });
+        assertEquals(GateStatus.OK, parkingService.enterAsync("ABC", ParkingType.CAR).get(5, TimeUnit.SECONDS).getStatus());
+
+        assertEquals(GateStatus.ERROR, parkingService.exitAsync("ABC").get(5, TimeUnit.SECONDS).getStatus());
+
+        assertEquals(CAR_SPOTS - 1, countAvailable());
+        assertEquals(CAR_SPOTS - 1, parkingService.getAvailableSpots(ParkingType.CAR));
+        assertEquals(GateStatus.OK, parkingService.quote("ABC").getStatus());
+    }
+
+    private int countAvailable() throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (ResultSet rs = con.createStatement().executeQuery("select count(*) from parking where AVAILABLE=true")) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.PoolStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+
+    private ConnectionPool connectionPool;
+
+    @AfterEach
+    public void tearDownPerTest() {
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+    }
+
+    private ConnectionPool createPool(int minSize, int maxSize, long acquireTimeoutMillis, long idleTimeoutMillis) {
+        return new ConnectionPool("jdbc:h2:mem:pool" + System.nanoTime(), "sa", "",
+                minSize, maxSize, acquireTimeoutMillis, idleTimeoutMillis);
+    }
+
+    @Test
+    public void returnedConnectionIsReused() throws Exception {
+        connectionPool = createPool(0, 2, 1000, 60000);
+        Connection first = connectionPool.getConnection();
+        first.close();
+        Connection second = connectionPool.getConnection();
+        second.close();
+
+        PoolStats stats = connectionPool.getStats();
+        assertEquals(1, stats.getCreatedCount());
+        assertEquals(2, stats.getAcquireCount());
+        assertEquals(0, stats.getActiveConnections());
+        assertEquals(1, stats.getIdleConnections());
+    }
+
+    @Test
+    public void closedLeaseCannotBeUsed() throws Exception {
+        connectionPool = createPool(0, 1, 1000, 60000);
+        Connection connection = connectionPool.getConnection();
+        connection.close();
+        connection.close();
+
+        assertTrue(connection.isClosed());
+        assertThrows(SQLException.class, () -> connection.prepareStatement("select 1"));
+        assertEquals(1, connectionPool.getStats().getIdleConnections());
+    }
+
+    @Test
+    public void statementsLeftOpenAreClosedWithTheLease() throws Exception {
+        connectionPool = createPool(0, 1, 1000, 60000);
+        Connection connection = connectionPool.getConnection();
+        PreparedStatement ps = connection.prepareStatement("select 1");
+        ResultSet rs = ps.executeQuery();
+        assertSame(connection, ps.getConnection());
+        assertSame(ps, rs.getStatement());
+        Statement closedEarly = connection.createStatement();
+        closedEarly.close();
+        connection.close();
+
+        assertTrue(ps.isClosed());
+        assertTrue(rs.isClosed());
+        assertEquals(1, connectionPool.getStats().getIdleConnections());
+    }
+
+    @Test
+    public void acquireTimesOutWhenPoolIsExhausted() throws Exception {
+        connectionPool = createPool(0, 1, 50, 60000);
+        Connection connection = connectionPool.getConnection();
+
+        assertThrows(SQLTimeoutException.class, () -> connectionPool.getConnection());
+        connection.close();
+
+        PoolStats stats = connectionPool.getStats();
+        assertEquals(1, stats.getTimeoutCount());
+        assertEquals(1, stats.getTotalConnections());
+    }
+
+    @Test
+    public void brokenConnectionIsReplaced() throws Exception {
+        connectionPool = createPool(0, 1, 1000, 60000);
+        Connection connection = connectionPool.getConnection();
+        connection.unwrap(Connection.class).close();
+        connection.close();
+
+        Connection replacement = connectionPool.getConnection();
+        assertFalse(replacement.isClosed());
+        replacement.close();
+        assertEquals(2, connectionPool.getStats().getCreatedCount());
+    }
+
+    @Test
+    public void idleConnectionsAreEvictedDownToMinSize() throws Exception {
+        connectionPool = createPool(1, 3, 1000, 50);
+        Connection first = connectionPool.getConnection();
+        Connection second = connectionPool.getConnection();
+        Connection third = connectionPool.getConnection();
+        first.close();
+        second.close();
+        third.close();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (connectionPool.getStats().getTotalConnections() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        PoolStats stats = connectionPool.getStats();
+        assertEquals(1, stats.getTotalConnections());
+        assertTrue(stats.getEvictedCount() >= 2);
+    }
+}
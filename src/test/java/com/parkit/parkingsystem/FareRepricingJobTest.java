@@ -0,0 +1,116 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ClosedTicketBatch;
+import com.parkit.parkingsystem.model.RepricingResult;
+import com.parkit.parkingsystem.service.FareRepricingJob;
+import com.parkit.parkingsystem.tariff.Tariff;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FareRepricingJobTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final int TICKETS = 25;
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private TicketHistoryDAO ticketHistoryDAO;
+    private Tariff tariff;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("reprice" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 1, ParkingType.CAR);
+        dataBaseConfig.addParkingSpots(2, 1, ParkingType.BIKE);
+        ticketHistoryDAO = new TicketHistoryDAO();
+        ticketHistoryDAO.dataBaseConfig = dataBaseConfig;
+        tariff = Tariff.standard(ZoneOffset.UTC);
+
+        //ticket i stayed i hours and was billed nothing, every other one is a bike, the last one is still parked
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(
+                "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,0,?,?)")) {
+            for (int i = 1; i <= TICKETS + 1; i++) {
+                ps.setInt(1, i % 2 == 0 ? 2 : 1);
+                ps.setString(2, "V" + i);
+                ps.setTimestamp(3, new Timestamp(0));
+                ps.setTimestamp(4, i > TICKETS ? null : new Timestamp(i * HOUR));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Test
+    public void repricesClosedTicketsInChunks() throws Exception {
+        RepricingResult result = new FareRepricingJob(ticketHistoryDAO, tariff, 4).run("audit");
+
+        assertEquals(TICKETS, result.getTicketsRead());
+        assertEquals(TICKETS, result.getTicketsRepriced());
+        assertEquals(TICKETS, result.getLastTicketId());
+        assertEquals(TICKETS, ticketHistoryDAO.getCheckpoint("audit"));
+        for (int i = 1; i <= TICKETS; i++) {
+            assertEquals(i * (i % 2 == 0 ? 1.0 : 1.5), priceOf(i));
+        }
+        assertEquals(0, priceOf(TICKETS + 1));
+
+        //nothing left after the checkpoint, unchanged prices are not written again after a reset
+        assertEquals(0, new FareRepricingJob(ticketHistoryDAO, tariff, 4).run("audit").getTicketsRead());
+        FareRepricingJob again = new FareRepricingJob(ticketHistoryDAO, tariff, 4);
+        again.reset("audit");
+        assertEquals(0, again.run("audit").getTicketsRepriced());
+    }
+
+    @Test
+    public void resumesAfterLastCommittedChunk() throws Exception {
+        TicketHistoryDAO failingDAO = new TicketHistoryDAO() {
+            private int chunks;
+
+            @Override
+            public int savePrices(String jobName, ClosedTicketBatch batch) throws ClassNotFoundException, SQLException {
+                if (++chunks == 3) {
+                    throw new SQLException("connection lost");
+                }
+                return super.savePrices(jobName, batch);
+            }
+        };
+        failingDAO.dataBaseConfig = dataBaseConfig;
+
+        assertThrows(SQLException.class, () -> new FareRepricingJob(failingDAO, tariff, 5).run("audit"));
+        assertEquals(10, ticketHistoryDAO.getCheckpoint("audit"));
+        assertEquals(0, priceOf(11));
+
+        RepricingResult result = new FareRepricingJob(ticketHistoryDAO, tariff, 5).run("audit");
+
+        assertEquals(TICKETS - 10, result.getTicketsRead());
+        assertEquals(11 * 1.5, priceOf(11));
+        assertEquals(TICKETS, ticketHistoryDAO.getCheckpoint("audit"));
+    }
+
+    private double priceOf(int ticketId) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement("select PRICE from ticket where ID = ?")) {
+            ps.setInt(1, ticketId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getDouble(1);
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.GateEventReplayDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.IngestionResult;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateEventIngestionJob;
+import com.parkit.parkingsystem.tariff.Tariff;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GateEventIngestionJobTest {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private TicketDAO ticketDAO;
+    private GateEventIngestionJob job;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("ingest" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 2, ParkingType.CAR);
+        dataBaseConfig.addParkingSpots(3, 1, ParkingType.BIKE);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        GateEventReplayDAO gateEventReplayDAO = new GateEventReplayDAO();
+        gateEventReplayDAO.dataBaseConfig = dataBaseConfig;
+        job = new GateEventIngestionJob(parkingSpotDAO, ticketDAO, gateEventReplayDAO,
+                new FareCalculatorService(Tariff.standard(ZoneOffset.UTC)), 3);
+    }
+
+    @Test
+    public void replaysEventsInTimeOrderAndRejectsTheRest() throws Exception {
+        Path file = write("events.csv",
+                "time,event,vehicle,type",
+                "7200000,EXIT,car-1",
+                "0,ENTRY,CAR-1,CAR",
+                "1970-01-01T00:30:00Z,ENTRY,CAR-2,car",
+                "1970-01-01T01:30:00+01:00,ENTRY,car-1,CAR\r",
+                "3600000,ENTRY,CAR-3,CAR",
+                "3600000,EXIT,NOBODY",
+                "not-a-time,ENTRY,X,CAR",
+                "100,PARK,X,CAR",
+                "200,ENTRY,X,TRUCK",
+                "300,ENTRY,X",
+                "garbage",
+                "",
+                "4000000, ENTRY , BIKE-1 , BIKE");
+
+        IngestionResult result = job.run(file);
+
+        assertEquals(12, result.getLinesRead());
+        assertEquals(4, result.getEventsApplied());
+        assertEquals(8, result.getRejected());
+        assertEquals(1, result.getRejected("ALREADY_PARKED"));
+        assertEquals(1, result.getRejected("FULL"));
+        assertEquals(1, result.getRejected("NOT_FOUND"));
+        assertEquals(1, result.getRejected("bad timestamp"));
+        assertEquals(1, result.getRejected("malformed line"));
+        assertEquals(Arrays.asList("5,ALREADY_PARKED", "6,FULL", "7,NOT_FOUND", "8,bad timestamp", "9,unknown event type",
+                "10,unknown parking type", "11,missing parking type", "12,malformed line"),
+                rejectedLines(file).stream().sorted(Comparator.comparingInt(GateEventIngestionJobTest::lineOf)).toList());
+
+        //CAR-1 entered in the first chunk and left two hours later in the third
+        assertEquals("3.0 7200000", query("select PRICE, OUT_TIME from ticket where VEHICLE_REG_NUMBER = 'CAR-1'"));
+        assertEquals("2", query("select count(*) from open_ticket"));
+        assertEquals("TRUE FALSE FALSE", query("select p1.AVAILABLE, p2.AVAILABLE, p3.AVAILABLE from parking p1, parking p2, parking p3"
+                + " where p1.PARKING_NUMBER = 1 and p2.PARKING_NUMBER = 2 and p3.PARKING_NUMBER = 3"));
+        assertNull(ticketDAO.getOpenTicket("CAR-1"));
+        assertEquals(2, ticketDAO.getOpenTicket("car-2").getParkingNumber());
+        assertEquals(3, ticketDAO.getOpenTicket("BIKE-1").getParkingNumber());
+    }
+
+    @Test
+    public void rejectsAnExitOlderThanTheTicketItWouldClose() throws Exception {
+        IngestionResult first = job.run(write("first.csv", "0,ENTRY,A,BIKE", "3600000,EXIT,A", "7200000,ENTRY,A,BIKE"));
+
+        assertEquals(3, first.getEventsApplied());
+        assertEquals(0, first.getRejected());
+        assertFalse(Files.exists(directory.resolve("first.csv.rejected")));
+
+        Path second = write("second.csv", "1800000,EXIT,A", "9000000,EXIT,A", "9500000,ENTRY,A,BIKE");
+        IngestionResult result = job.run(second);
+
+        assertEquals(1, result.getRejected("INVALID_REQUEST"));
+        assertEquals(Arrays.asList("1,INVALID_REQUEST"), rejectedLines(second));
+        //the ticket opened by the first file is closed and A parks again within one chunk
+        assertEquals("2", query("select count(*) from ticket where OUT_TIME is not null"));
+        assertEquals("0.5", query("select PRICE from ticket where IN_TIME = (select max(IN_TIME) from ticket where OUT_TIME is not null)"));
+        assertEquals(9500000, ticketDAO.getOpenTicket("A").getInTimeMillis());
+        assertEquals("1", query("select count(*) from open_ticket"));
+    }
+
+    @Test
+    public void skipsOnlyAHeaderWithTheExpectedColumns() throws Exception {
+        IngestionResult header = job.run(write("header.csv", " Time , EVENT, vehicle,parkingType", "0,ENTRY,A,BIKE"));
+
+        assertEquals(1, header.getEventsApplied());
+        assertEquals(0, header.getRejected());
+
+        Path other = write("other.csv", "vehicle,event,time", "3600000,EXIT,A");
+        IngestionResult result = job.run(other);
+
+        assertEquals(1, result.getEventsApplied());
+        assertEquals(Arrays.asList("1,unexpected header"), rejectedLines(other));
+    }
+
+    private Path write(String name, String... lines) throws Exception {
+        Path file = directory.resolve(name);
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static List<String> rejectedLines(Path file) throws Exception {
+        return Files.readAllLines(file.resolveSibling(file.getFileName() + ".rejected"), StandardCharsets.UTF_8);
+    }
+
+    private static int lineOf(String rejectedLine) {
+        return Integer.parseInt(rejectedLine.substring(0, rejectedLine.indexOf(',')));
+    }
+
+    //the columns of the first row separated by spaces, timestamps as epoch milliseconds
+    private String query(String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            StringBuilder row = new StringBuilder();
+            for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                Object value = rs.getObject(i);
+                if (value instanceof java.sql.Timestamp) {
+                    value = ((java.sql.Timestamp) value).getTime();
+                } else if (value instanceof Boolean) {
+                    value = value.toString().toUpperCase();
+                }
+                row.append(i > 1 ? " " : "").append(value);
+            }
+            return row.toString();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
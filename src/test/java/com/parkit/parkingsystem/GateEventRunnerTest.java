@@ -0,0 +1,100 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.GateEvent;
+import com.parkit.parkingsystem.model.GateResult;
+import com.parkit.parkingsystem.service.GateEventRunner;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GateEventRunnerTest {
+
+    private static final int CAR_SPOTS = 40;
+    private static final int VEHICLES = 60;
+
+    private ParkingService parkingService;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("gates" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, CAR_SPOTS, ParkingType.CAR);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadParkingSpots();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadOpenTickets();
+        parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+    }
+
+    @Test
+    public void rejectsInvalidRequests() {
+        assertEquals(GateStatus.INVALID_REQUEST, parkingService.enter(" ", ParkingType.CAR).getStatus());
+        assertEquals(GateStatus.INVALID_REQUEST, parkingService.enter("ABCDEF", null).getStatus());
+        assertEquals(GateStatus.INVALID_REQUEST, parkingService.exit(null).getStatus());
+        assertEquals(GateStatus.NOT_FOUND, parkingService.exit("UNKNOWN").getStatus());
+    }
+
+    @Test
+    public void rejectsSecondEntryOfParkedVehicle() {
+        assertEquals(GateStatus.OK, parkingService.enter("ABCDEF", ParkingType.CAR).getStatus());
+        assertEquals(GateStatus.ALREADY_PARKED, parkingService.enter("abcdef", ParkingType.CAR).getStatus());
+        assertEquals(GateStatus.OK, parkingService.exit("ABCDEF").getStatus());
+        assertEquals(GateStatus.OK, parkingService.enter("ABCDEF", ParkingType.CAR).getStatus());
+    }
+
+    @Test
+    public void concurrentEntriesAndExitsOnVirtualThreads() {
+        Map<GateStatus, Integer> entries;
+        Set<Integer> spots = new HashSet<>();
+        try (GateEventRunner runner = new GateEventRunner(parkingService)) {
+            List<CompletableFuture<GateResult>> results = new ArrayList<>();
+            for (int i = 0; i < VEHICLES; i++) {
+                results.add(runner.submit(GateEvent.entry("CAR" + i, ParkingType.CAR)));
+            }
+            entries = countStatuses(results);
+            for (CompletableFuture<GateResult> result : results) {
+                if (result.join().isSuccess()) {
+                    assertTrue(spots.add(result.join().getTicket().getParkingSpot().getId()));
+                }
+            }
+
+            results.clear();
+            for (int i = 0; i < VEHICLES; i++) {
+                results.add(runner.submit(GateEvent.exit("CAR" + i)));
+            }
+            Map<GateStatus, Integer> exits = countStatuses(results);
+            assertEquals(CAR_SPOTS, exits.get(GateStatus.OK));
+            assertEquals(VEHICLES - CAR_SPOTS, exits.get(GateStatus.NOT_FOUND));
+        }
+
+        assertEquals(CAR_SPOTS, entries.get(GateStatus.OK));
+        assertEquals(VEHICLES - CAR_SPOTS, entries.get(GateStatus.FULL));
+        assertEquals(CAR_SPOTS, spots.size());
+        assertEquals(GateStatus.OK, parkingService.enter("LATE", ParkingType.CAR).getStatus());
+    }
+
+    private static Map<GateStatus, Integer> countStatuses(List<CompletableFuture<GateResult>> results) {
+        Map<GateStatus, Integer> counts = new EnumMap<>(GateStatus.class);
+        for (CompletableFuture<GateResult> result : results) {
+            counts.merge(result.join().getStatus(), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,189 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.analytics.TicketAnalytics;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.AsyncParkingDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.web.GateHttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GateHttpServerTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private ParkingService parkingService;
+    private AsyncParkingDAO asyncParkingDAO;
+    private GateHttpServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("http" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 2, ParkingType.CAR);
+        dataBaseConfig.addParkingSpots(3, 1, ParkingType.BIKE);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadParkingSpots();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadOpenTickets();
+        parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+        asyncParkingDAO = new AsyncParkingDAO(parkingSpotDAO, ticketDAO, 2, 100);
+        parkingService.setAsyncParkingDAO(asyncParkingDAO);
+        server = new GateHttpServer(parkingService, new InetSocketAddress("localhost", 0), GateHttpServer.DEFAULT_MAX_IN_FLIGHT);
+        server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        server.close();
+        asyncParkingDAO.close();
+    }
+
+    @Test
+    public void servesAVisitFromEntryToExit() throws Exception {
+        HttpResponse<String> entry = post(server, "/entry?vehicle=AB%20123&type=car");
+        assertEquals(200, entry.statusCode());
+        assertTrue(entry.body().contains("\"status\": \"OK\""));
+        assertTrue(entry.body().contains("\"vehicle\": \"AB 123\""));
+        assertTrue(entry.body().contains("\"parkingSpot\": 1"));
+
+        assertEquals(409, post(server, "/entry?vehicle=AB%20123&type=CAR").statusCode());
+        assertEquals("{\"CAR\": 1, \"BIKE\": 1}", get(server, "/availability").body());
+        assertEquals("{\"CAR\": {\"free\": 1, \"occupied\": 1}, \"BIKE\": {\"free\": 1, \"occupied\": 0}}",
+                get(server, "/occupancy").body());
+
+        HttpResponse<String> quote = get(server, "/quote?vehicle=AB%20123");
+        assertEquals(200, quote.statusCode());
+        assertTrue(quote.body().contains("\"price\": 0.00"));
+
+        HttpResponse<String> exit = post(server, "/exit?vehicle=AB%20123");
+        assertEquals(200, exit.statusCode());
+        assertTrue(exit.body().contains("\"outTime\""));
+        assertEquals(404, post(server, "/exit?vehicle=AB%20123").statusCode());
+        assertEquals(404, get(server, "/quote?vehicle=AB%20123").statusCode());
+        assertEquals("{\"CAR\": 2, \"BIKE\": 1}", get(server, "/availability").body());
+    }
+
+    @Test
+    public void answersRevenueFromTheAnalytics() throws Exception {
+        assertEquals(404, get(server, "/revenue").statusCode());
+        TicketAnalytics analytics = new TicketAnalytics(ZoneOffset.UTC);
+        long t0 = Instant.parse("2024-03-04T00:00:00Z").toEpochMilli();
+        analytics.record(ParkingType.CAR, 1, t0 + 8 * 3600_000L, t0 + 10 * 3600_000L, 3.0);
+        analytics.record(ParkingType.BIKE, 3, t0 + 9 * 3600_000L, t0 + 10 * 3600_000L, 1.0);
+        parkingService.setTicketAnalytics(analytics);
+
+        HttpResponse<String> revenue = get(server, "/revenue?from=2024-03-04T09:00:00Z&to=2024-03-04T11:00:00Z&by=hour");
+        assertEquals(200, revenue.statusCode());
+        assertTrue(revenue.body().contains("\"tickets\": 2, \"revenue\": 4.00, \"averageStayMinutes\": 90"));
+        assertTrue(revenue.body().contains("\"CAR\": {\"tickets\": 1, \"revenue\": 3.00, \"averageStayMinutes\": 120}"));
+        assertTrue(revenue.body().contains("\"hour\": [0.00, 4.00]"));
+        assertTrue(get(server, "/revenue?from=2024-03-04T00:00:00Z&to=2024-03-05T00:00:00Z&by=spot").body()
+                .contains("\"spots\": {\"1\": 3.00, \"3\": 1.00}"));
+        assertEquals(400, get(server, "/revenue?from=yesterday").statusCode());
+        assertEquals(400, get(server, "/revenue?by=week").statusCode());
+    }
+
+    @Test
+    public void booksAndCancelsReservations() throws Exception {
+        Instant tomorrow = Instant.now().plus(Duration.ofDays(1)).truncatedTo(ChronoUnit.SECONDS);
+        String window = "from=" + tomorrow + "&to=" + tomorrow.plus(Duration.ofHours(3));
+        assertEquals(404, post(server, "/reservations?vehicle=AB123&type=BIKE&" + window).statusCode());
+        ReservationDAO reservationDAO = new ReservationDAO();
+        reservationDAO.dataBaseConfig = dataBaseConfig;
+        parkingService.setReservationDAO(reservationDAO);
+
+        HttpResponse<String> booked = post(server, "/reservations?vehicle=AB123&type=BIKE&" + window);
+        assertEquals(200, booked.statusCode());
+        assertTrue(booked.body().contains("\"parkingSpot\": 3"));
+        assertTrue(booked.body().contains("\"from\": \"" + tomorrow + "\""));
+        assertEquals(409, post(server, "/reservations?vehicle=CD456&type=BIKE&" + window).statusCode());
+        assertTrue(get(server, "/availability?" + window).body().endsWith("\"CAR\": true, \"BIKE\": false}"));
+        assertEquals(400, post(server, "/reservations?vehicle=CD456&type=BIKE&from=tomorrow&to=later").statusCode());
+
+        Matcher id = Pattern.compile("\"id\": (\\d+)").matcher(booked.body());
+        assertTrue(id.find());
+        assertEquals(404, post(server, "/reservations/cancel?vehicle=CD456&id=" + id.group(1)).statusCode());
+        assertEquals(200, post(server, "/reservations/cancel?vehicle=AB123&id=" + id.group(1)).statusCode());
+        assertTrue(get(server, "/availability?" + window).body().endsWith("\"BIKE\": true}"));
+    }
+
+    @Test
+    public void rejectsBadRequests() throws Exception {
+        assertEquals(400, post(server, "/entry?vehicle=AB123&type=TRUCK").statusCode());
+        assertEquals(400, post(server, "/exit").statusCode());
+        HttpResponse<String> wrongMethod = get(server, "/entry?vehicle=AB123&type=CAR");
+        assertEquals(405, wrongMethod.statusCode());
+        assertEquals("POST", wrongMethod.headers().firstValue("Allow").orElse(null));
+        assertEquals(404, get(server, "/unknown").statusCode());
+        assertEquals(404, post(server, "/entryX?vehicle=AB123&type=CAR").statusCode());
+        assertEquals(404, post(server, "/entry/anything?vehicle=AB123&type=CAR").statusCode());
+        assertEquals(404, get(server, "/quote/?vehicle=AB123").statusCode());
+        assertEquals(404, post(server, "/reservations/cancelled?vehicle=AB123&id=1").statusCode());
+        assertEquals(400, sendRaw(server, "POST", "/entry?vehicle=%G1&type=CAR"));
+        assertEquals(400, sendRaw(server, "GET", "/quote?vehicle=AB%2"));
+    }
+
+    @Test
+    public void turnsAwayRequestsBeyondTheInFlightLimit() throws Exception {
+        try (GateHttpServer saturated = new GateHttpServer(parkingService, new InetSocketAddress("localhost", 0), 0)) {
+            saturated.start();
+            HttpResponse<String> response = post(saturated, "/entry?vehicle=AB123&type=CAR");
+            assertEquals(503, response.statusCode());
+            assertTrue(response.headers().firstValue("Retry-After").isPresent());
+        }
+        assertEquals(200, post(server, "/entry?vehicle=AB123&type=CAR").statusCode());
+    }
+
+    private HttpResponse<String> post(GateHttpServer target, String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(target, path)).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(GateHttpServer target, String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(target, path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    //URI refuses a malformed escape, so the request is written by hand; answers the status code
+    private static int sendRaw(GateHttpServer target, String method, String path) throws Exception {
+        try (Socket socket = new Socket("localhost", target.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write((method + " " + path + " HTTP/1.1\r\nHost: localhost\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            return Integer.parseInt(in.readLine().split(" ")[1]);
+        }
+    }
+
+    private static URI uri(GateHttpServer target, String path) {
+        return URI.create("http://localhost:" + target.getPort() + path);
+    }
+}
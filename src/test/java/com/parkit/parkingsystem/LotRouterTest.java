@@ -0,0 +1,122 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.LotRouter;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.LotTicket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.web.GateHttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LotRouterTest {
+
+    private EmbeddedDataBaseTestConfig north;
+    private EmbeddedDataBaseTestConfig south;
+    private LotRouter lotRouter;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        north = new EmbeddedDataBaseTestConfig("north" + System.nanoTime());
+        north.createSchema();
+        north.addParkingSpots(1, 2, ParkingType.CAR);
+        south = new EmbeddedDataBaseTestConfig("south" + System.nanoTime());
+        south.createSchema();
+        south.addParkingSpots(1, 1, ParkingType.CAR);
+        south.addParkingSpots(2, 1, ParkingType.BIKE);
+        Map<String, EmbeddedDataBaseTestConfig> lots = new LinkedHashMap<>();
+        lots.put("north", north);
+        lots.put("south", south);
+        lotRouter = new LotRouter(lots);
+        assertTrue(lotRouter.load());
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        lotRouter.close();
+    }
+
+    @Test
+    public void eachLotAllocatesFromItsOwnDatabase() throws Exception {
+        ParkingService northGates = new ParkingService(lotRouter.getParkingSpotDAO("north"), lotRouter.getTicketDAO("north"));
+        ParkingService southGates = new ParkingService(lotRouter.getParkingSpotDAO("south"), lotRouter.getTicketDAO("south"));
+
+        assertEquals(1, northGates.enter("N1", ParkingType.CAR).getTicket().getParkingSpot().getId());
+        assertEquals(1, southGates.enter("S1", ParkingType.CAR).getTicket().getParkingSpot().getId());
+        assertFalse(southGates.enter("S2", ParkingType.CAR).isSuccess());
+        assertTrue(northGates.enter("S2", ParkingType.CAR).isSuccess());
+
+        assertEquals(2, count(north, "select count(*) from ticket"));
+        assertEquals(1, count(south, "select count(*) from ticket"));
+        assertEquals(0, count(north, "select count(*) from parking where AVAILABLE=true and TYPE='CAR'"));
+        assertEquals(0, northGates.getAvailableSpots(ParkingType.CAR));
+        assertEquals(1, southGates.getAvailableSpots(ParkingType.BIKE));
+        assertThrows(IllegalArgumentException.class, () -> lotRouter.getTicketDAO("east"));
+    }
+
+    @Test
+    public void locateAsksEveryLot() {
+        ParkingService southGates = new ParkingService(lotRouter.getParkingSpotDAO("south"), lotRouter.getTicketDAO("south"));
+        assertTrue(southGates.enter("AB123", ParkingType.BIKE).isSuccess());
+
+        LotTicket located = lotRouter.locate("ab123");
+        assertNotNull(located);
+        assertEquals("south", located.getLot());
+        assertEquals(2, located.getTicket().getParkingSpot().getId());
+
+        assertTrue(southGates.exit("AB123").isSuccess());
+        assertNull(lotRouter.locate("AB123"));
+        assertNull(lotRouter.locate("NOWHERE"));
+    }
+
+    @Test
+    public void gateApiRoutesByLot() throws Exception {
+        Map<String, ParkingService> parkingServices = new LinkedHashMap<>();
+        for (String lot : lotRouter.getLots()) {
+            parkingServices.put(lot, new ParkingService(lotRouter.getParkingSpotDAO(lot), lotRouter.getTicketDAO(lot)));
+        }
+        try (GateHttpServer server = new GateHttpServer(parkingServices, lotRouter, new InetSocketAddress("localhost", 0),
+                GateHttpServer.DEFAULT_MAX_IN_FLIGHT)) {
+            server.start();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://localhost:" + server.getPort();
+
+            HttpResponse<String> entry = client.send(HttpRequest.newBuilder(URI.create(base + "/entry?lot=north&vehicle=XY9&type=CAR"))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, entry.statusCode());
+            HttpResponse<String> unknown = client.send(HttpRequest.newBuilder(URI.create(base + "/entry?vehicle=XY8&type=CAR"))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(404, unknown.statusCode());
+            assertEquals("{\"CAR\": 1, \"BIKE\": 1}", client.send(HttpRequest.newBuilder(URI.create(base + "/availability?lot=south"))
+                    .build(), HttpResponse.BodyHandlers.ofString()).body());
+
+            HttpResponse<String> locate = client.send(HttpRequest.newBuilder(URI.create(base + "/locate?vehicle=XY9")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, locate.statusCode());
+            assertTrue(locate.body().startsWith("{\"lot\": \"north\", \"status\": \"OK\""));
+        }
+    }
+
+    private int count(EmbeddedDataBaseTestConfig dataBaseConfig, String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (ResultSet rs = con.createStatement().executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
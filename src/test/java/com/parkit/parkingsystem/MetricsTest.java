@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationMetrics;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    private static final long MICRO = 1000;
+
+    @Test
+    public void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * MICRO);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000 * MICRO, histogram.getMax());
+        assertEquals(500.5 * MICRO, histogram.getMean(), 0.001);
+        assertEquals(500 * MICRO, histogram.getValueAtPercentile(50), 500 * MICRO / 64.0);
+        assertEquals(990 * MICRO, histogram.getValueAtPercentile(99), 990 * MICRO / 64.0);
+        assertEquals(1000 * MICRO, histogram.getValueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void operationIsPublishedOverJmx() throws Exception {
+        OperationMetrics metrics = Metrics.operation("MetricsTest.published");
+        assertSame(metrics, Metrics.operation("MetricsTest.published"));
+        long start = System.nanoTime();
+        metrics.record(start);
+        metrics.record(start);
+        metrics.recordError();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.parkit.parkingsystem:type=Operation,name="
+                + ObjectName.quote("MetricsTest.published"));
+        assertEquals(2L, server.getAttribute(name, "Count"));
+        assertEquals(1L, server.getAttribute(name, "ErrorCount"));
+        assertTrue((Double) server.getAttribute(name, "P99Millis") >= 0);
+
+        server.invoke(name, "reset", null, null);
+        assertEquals(0, metrics.getCount());
+        assertEquals(0, metrics.getErrorCount());
+    }
+
+    @Test
+    public void daoCallsAreTimed() throws Exception {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("metrics" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 3, ParkingType.CAR);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        OperationMetrics loads = Metrics.operation("ParkingSpotDAO.loadParkingSpots");
+        OperationMetrics connections = Metrics.operation("DataBaseConfig.getConnection");
+        long loadsBefore = loads.getCount();
+        long connectionsBefore = connections.getCount();
+
+        assertTrue(parkingSpotDAO.loadParkingSpots());
+
+        assertEquals(loadsBefore + 1, loads.getCount());
+        assertTrue(connections.getCount() > connectionsBefore);
+        assertTrue(Metrics.summary().contains("ParkingSpotDAO.loadParkingSpots count="));
+    }
+}
@@ -0,0 +1,68 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OccupancyReconciliationTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("occupancy" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 3, ParkingType.CAR);
+        dataBaseConfig.addParkingSpots(4, 2, ParkingType.BIKE);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadParkingSpots();
+    }
+
+    @Test
+    public void countersFollowTheGatesWithoutReadingTheTable() {
+        ParkingSpot parkingSpot = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+        assertEquals(2, parkingSpotDAO.getAvailableCount(ParkingType.CAR));
+        assertEquals(1, parkingSpotDAO.getOccupiedCount(ParkingType.CAR));
+
+        parkingSpot.setAvailable(true);
+        parkingSpotDAO.updateParking(parkingSpot);
+        assertEquals(3, parkingSpotDAO.getAvailableCount(ParkingType.CAR));
+        assertEquals(0, parkingSpotDAO.getOccupiedCount(ParkingType.CAR));
+        assertTrue(parkingSpotDAO.reconcileOccupancy());
+        assertEquals(3, parkingSpotDAO.getAvailableCount(ParkingType.CAR));
+    }
+
+    @Test
+    public void reloadsWhenAnotherProcessChangedTheTable() throws Exception {
+        execute("update parking set AVAILABLE = false where PARKING_NUMBER in (1, 4)");
+        dataBaseConfig.addParkingSpots(6, 1, ParkingType.BIKE);
+        assertEquals(3, parkingSpotDAO.getAvailableCount(ParkingType.CAR));
+
+        assertTrue(parkingSpotDAO.reconcileOccupancy());
+
+        assertEquals(2, parkingSpotDAO.getAvailableCount(ParkingType.CAR));
+        assertEquals(1, parkingSpotDAO.getOccupiedCount(ParkingType.CAR));
+        assertEquals(2, parkingSpotDAO.getAvailableCount(ParkingType.BIKE));
+        assertEquals(1, parkingSpotDAO.getOccupiedCount(ParkingType.BIKE));
+        assertEquals(2, parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR).getId());
+    }
+
+    private void execute(String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.executeUpdate();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.OpenTicket;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenTicketIndexTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("openticket" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 3, ParkingType.CAR);
+        dataBaseConfig.addParkingSpots(4, 2, ParkingType.BIKE);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(ticketDAO.loadOpenTickets());
+    }
+
+    private Ticket newTicket(String vehicleRegNumber, int parkingNumber, ParkingType parkingType) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTimeMillis(System.currentTimeMillis() - 60 * 60 * 1000);
+        return ticket;
+    }
+
+    @Test
+    public void savedTicketIsServedFromMemory() throws Exception {
+        Ticket ticket = newTicket("ab-123", 4, ParkingType.BIKE);
+        assertTrue(ticketDAO.saveTicket(ticket));
+        executeUpdate("delete from ticket");
+
+        Ticket found = ticketDAO.getTicket(" AB-123 ");
+
+        assertNotNull(found);
+        assertEquals(ticket.getId(), found.getId());
+        assertEquals(4, found.getParkingSpot().getId());
+        assertEquals(ParkingType.BIKE, found.getParkingSpot().getParkingType());
+        assertEquals(ticket.getInTimeMillis(), found.getInTimeMillis());
+        assertFalse(found.hasOutTime());
+    }
+
+    @Test
+    public void closedTicketLeavesIndex() {
+        Ticket ticket = newTicket("ABCDEF", 1, ParkingType.CAR);
+        ticketDAO.saveTicket(ticket);
+        ticket.setOutTimeMillis(System.currentTimeMillis());
+        ticket.setPrice(1.5);
+
+        assertTrue(ticketDAO.updateTicket(ticket));
+
+        assertNull(ticketDAO.getOpenTicket("ABCDEF"));
+        //a vehicle missing from the index is not parked, its closed ticket is read through the history lookup
+        assertNull(ticketDAO.getTicket("ABCDEF"));
+        assertTrue(ticketDAO.getTicket(" abcdef ", false).hasOutTime());
+    }
+
+    @Test
+    public void failedWriteIsNotIndexed() {
+        //spot 99 does not exist, the foreign key rejects the insert
+        assertFalse(ticketDAO.saveTicket(newTicket("GHOST", 99, ParkingType.CAR)));
+
+        assertNull(ticketDAO.getOpenTicket("GHOST"));
+    }
+
+    @Test
+    public void indexIsRebuiltFromOpenTicketsOnly() {
+        ticketDAO.saveTicket(newTicket("OPEN", 2, ParkingType.CAR));
+        Ticket closed = newTicket("CLOSED", 3, ParkingType.CAR);
+        ticketDAO.saveTicket(closed);
+        closed.setOutTimeMillis(System.currentTimeMillis());
+        ticketDAO.updateTicket(closed);
+
+        TicketDAO restarted = new TicketDAO();
+        restarted.dataBaseConfig = dataBaseConfig;
+        assertTrue(restarted.loadOpenTickets());
+
+        OpenTicket openTicket = restarted.getOpenTicket("open");
+        assertNotNull(openTicket);
+        assertEquals(2, openTicket.getParkingNumber());
+        assertNull(restarted.getOpenTicket("CLOSED"));
+        assertEquals(1, restarted.openTicketIndex.size());
+    }
+
+    private void executeUpdate(String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try {
+            con.createStatement().executeUpdate(sql);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.parkit.parkingsystem;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.OpenTicket;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.ParkingService;
@@ -14,7 +15,6 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.Date;
 
 import static org.mockito.Mockito.*;
 
@@ -37,13 +37,13 @@ public class ParkingServiceTest {
 
             ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR,false);
             Ticket ticket = new Ticket();
-            ticket.setInTime(new Date(System.currentTimeMillis() - (60*60*1000)));
+            ticket.setInTimeMillis(System.currentTimeMillis() - (60*60*1000));
             ticket.setParkingSpot(parkingSpot);
             ticket.setVehicleRegNumber("ABCDEF");
             when(ticketDAO.getTicket(anyString())).thenReturn(ticket);
             when(ticketDAO.updateTicket(any(Ticket.class))).thenReturn(true);
 
-            when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+            when(parkingSpotDAO.updateParking(any(ParkingSpot.class), eq(true))).thenReturn(true);
 
             parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
         } catch (Exception e) {
@@ -55,7 +55,26 @@ public class ParkingServiceTest {
     @Test
     public void processExitingVehicleTest(){
         parkingService.processExitingVehicle();
-        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class));
+        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class), eq(true));
+    }
+
+    @Test
+    public void processExitingVehicleTwiceClosesTheTicketOnce(){
+        parkingService.processExitingVehicle();
+        parkingService.processExitingVehicle();
+        verify(ticketDAO, Mockito.times(1)).updateTicket(any(Ticket.class));
+        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class), eq(true));
+    }
+
+    @Test
+    public void processIncomingVehicleAlreadyParkedOpensNoSecondTicket(){
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(ticketDAO.getOpenTicket("ABCDEF")).thenReturn(new OpenTicket(1, "ABCDEF", 1, ParkingType.CAR, System.currentTimeMillis()));
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+        verify(parkingSpotDAO, never()).claimNextAvailableSlot(any(ParkingType.class), anyString());
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+        verify(parkingSpotDAO, Mockito.times(1)).updateParking(any(ParkingSpot.class), eq(true));
     }
 
 }
@@ -0,0 +1,86 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.ParkingSpotAllocator;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingSpotAllocatorTest {
+
+    private ParkingSpotAllocator parkingSpotAllocator;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        parkingSpotAllocator = new ParkingSpotAllocator();
+        parkingSpotAllocator.load(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, true),
+                new ParkingSpot(3, ParkingType.CAR, true),
+                new ParkingSpot(4, ParkingType.BIKE, true),
+                new ParkingSpot(5, ParkingType.BIKE, true)));
+    }
+
+    @Test
+    public void lowestAvailableSpotPerType() {
+        assertEquals(2, parkingSpotAllocator.getNextAvailable(ParkingType.CAR));
+        assertEquals(4, parkingSpotAllocator.getNextAvailable(ParkingType.BIKE));
+        assertEquals(2, parkingSpotAllocator.getAvailableCount(ParkingType.CAR));
+    }
+
+    @Test
+    public void releasedSpotIsHandedOutFirst() {
+        parkingSpotAllocator.setAvailable(2, false);
+        assertEquals(3, parkingSpotAllocator.getNextAvailable(ParkingType.CAR));
+
+        parkingSpotAllocator.setAvailable(1, true);
+        assertEquals(1, parkingSpotAllocator.getNextAvailable(ParkingType.CAR));
+    }
+
+    @Test
+    public void fullTypeReturnsZero() {
+        parkingSpotAllocator.setAvailable(4, false);
+        parkingSpotAllocator.setAvailable(5, false);
+        assertEquals(0, parkingSpotAllocator.getNextAvailable(ParkingType.BIKE));
+        assertEquals(0, parkingSpotAllocator.getAvailableCount(ParkingType.BIKE));
+    }
+
+    @Test
+    public void countersFollowClaimsAndReleases() {
+        assertEquals(3, parkingSpotAllocator.getCapacity(ParkingType.CAR));
+        assertEquals(1, parkingSpotAllocator.getOccupiedCount(ParkingType.CAR));
+
+        assertEquals(2, parkingSpotAllocator.claimNextAvailable(ParkingType.CAR));
+        assertEquals(1, parkingSpotAllocator.getAvailableCount(ParkingType.CAR));
+        assertEquals(2, parkingSpotAllocator.getOccupiedCount(ParkingType.CAR));
+
+        //setting a spot to the state it already has does not move the counters
+        parkingSpotAllocator.setAvailable(2, false);
+        parkingSpotAllocator.setAvailable(4, true);
+        assertEquals(1, parkingSpotAllocator.getAvailableCount(ParkingType.CAR));
+        assertEquals(2, parkingSpotAllocator.getAvailableCount(ParkingType.BIKE));
+
+        parkingSpotAllocator.setAvailable(1, true);
+        parkingSpotAllocator.setAvailable(2, true);
+        assertEquals(3, parkingSpotAllocator.getAvailableCount(ParkingType.CAR));
+        assertEquals(0, parkingSpotAllocator.getOccupiedCount(ParkingType.CAR));
+    }
+
+    @Test
+    public void unknownSpotIsIgnored() {
+        parkingSpotAllocator.setAvailable(42, true);
+        assertFalse(parkingSpotAllocator.isAvailable(42));
+        assertNull(parkingSpotAllocator.getParkingType(42));
+    }
+
+    @Test
+    public void notLoadedAllocatorRejectsLookups() {
+        ParkingSpotAllocator empty = new ParkingSpotAllocator();
+        assertFalse(empty.isLoaded());
+        assertThrows(IllegalStateException.class, () -> empty.getNextAvailable(ParkingType.CAR));
+    }
+}
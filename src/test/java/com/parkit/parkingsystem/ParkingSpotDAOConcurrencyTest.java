@@ -0,0 +1,105 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingSpotDAOConcurrencyTest {
+
+    private static final int CAR_SPOTS = 300;
+    private static final int GATES = 16;
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("claim" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, CAR_SPOTS, ParkingType.CAR);
+        dataBaseConfig.addParkingSpots(CAR_SPOTS + 1, 10, ParkingType.BIKE);
+    }
+
+    private ParkingSpotDAO createParkingSpotDAO() {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(parkingSpotDAO.loadParkingSpots());
+        return parkingSpotDAO;
+    }
+
+    @Test
+    public void claimReturnsLowestSpotAlreadyTaken() throws Exception {
+        ParkingSpotDAO parkingSpotDAO = createParkingSpotDAO();
+
+        ParkingSpot parkingSpot = parkingSpotDAO.claimNextAvailableSlot(ParkingType.BIKE);
+
+        assertEquals(CAR_SPOTS + 1, parkingSpot.getId());
+        assertFalse(parkingSpot.isAvailable());
+        assertEquals(CAR_SPOTS + 2, parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE));
+        assertEquals(9, countAvailable("BIKE"));
+    }
+
+    @Test
+    public void concurrentGatesNeverShareASpot() throws Exception {
+        //two DAOs stand in for two application nodes whose in-memory views go stale
+        ParkingSpotDAO[] nodes = {createParkingSpotDAO(), createParkingSpotDAO()};
+        Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService gates = Executors.newFixedThreadPool(GATES);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int gate = 0; gate < GATES; gate++) {
+                ParkingSpotDAO parkingSpotDAO = nodes[gate % nodes.length];
+                futures.add(gates.submit(() -> {
+                    start.await();
+                    ParkingSpot parkingSpot;
+                    while ((parkingSpot = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR)) != null) {
+                        if (!claimed.add(parkingSpot.getId())) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            gates.shutdownNow();
+        }
+
+        assertEquals(0, duplicates.get());
+        assertEquals(CAR_SPOTS, claimed.size());
+        assertEquals(0, countAvailable("CAR"));
+        assertEquals(10, countAvailable("BIKE"));
+    }
+
+    private int countAvailable(String type) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (ResultSet rs = con.createStatement().executeQuery(
+                "select count(*) from parking where AVAILABLE = true and TYPE = '" + type + "'")) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
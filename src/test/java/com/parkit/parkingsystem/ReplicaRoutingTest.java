@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.Replica;
+import com.parkit.parkingsystem.config.ReplicaSet;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplicaRoutingTest {
+
+    private EmbeddedDataBaseTestConfig primary;
+    private EmbeddedDataBaseTestConfig replicaDataBase;
+    private TicketDAO ticketDAO;
+    private Replica replica;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        String replicaName = "replica" + System.nanoTime();
+        replicaDataBase = new EmbeddedDataBaseTestConfig(replicaName);
+        replicaDataBase.createSchema();
+        replicaDataBase.addParkingSpots(1, 2, ParkingType.CAR);
+        //a visit the replica has and the primary does not, so a read that finds it was served by the replica
+        execute(replicaDataBase, "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) "
+                + "values(2, 'HIST', 1.5, '2024-01-01 08:00:00', '2024-01-01 09:00:00')");
+        primary = new EmbeddedDataBaseTestConfig("primary" + System.nanoTime(), replicaName);
+        primary.createSchema();
+        primary.addParkingSpots(1, 2, ParkingType.CAR);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = primary;
+        ticketDAO.loadOpenTickets();
+        replica = primary.getReplicaSet().getReplicas().get(0);
+    }
+
+    @Test
+    public void laggingReplicaGetsNoReads() throws Exception {
+        awaitCheck(() -> replica.getLagMillis() >= 0);
+        assertFalse(replica.isHealthy());
+        assertTrue(replica.getLagMillis() > 5000);
+        assertNull(ticketDAO.getTicket("HIST", false));
+
+        replicate();
+
+        assertNotNull(ticketDAO.getTicket("HIST", false));
+        assertEquals(1, replica.getReadCount());
+    }
+
+    @Test
+    public void vehicleThatJustLeftIsReadFromThePrimary() throws Exception {
+        replicate();
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("NEW");
+        ticket.setInTimeMillis(System.currentTimeMillis() - 60 * 60 * 1000);
+        assertTrue(ticketDAO.saveTicket(ticket));
+        ticket.setOutTimeMillis(System.currentTimeMillis());
+        ticket.setPrice(1.5);
+        assertTrue(ticketDAO.updateTicket(ticket));
+
+        //the replica has not received the visit yet, the read still sees it
+        Ticket saved = ticketDAO.getTicket("NEW", false);
+        assertNotNull(saved);
+        assertTrue(saved.hasOutTime());
+        ReplicaSet replicaSet = primary.getReplicaSet();
+        assertEquals(1, replicaSet.getPrimaryReadCount());
+        assertEquals(0, replica.getReadCount());
+
+        assertNotNull(ticketDAO.getTicket("HIST", false));
+        assertEquals(1, replica.getReadCount());
+    }
+
+    //the replica catches up with the primary's heartbeat as it is now
+    private void replicate() throws Exception {
+        execute(replicaDataBase, "update replica_heartbeat set BEAT_MILLIS=" + System.currentTimeMillis() + " where ID=1");
+        awaitCheck(replica::isHealthy);
+    }
+
+    private void awaitCheck(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "replica check timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private void execute(EmbeddedDataBaseTestConfig dataBaseConfig, String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.executeUpdate();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
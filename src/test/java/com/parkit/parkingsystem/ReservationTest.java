@@ -0,0 +1,194 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.allocation.ReservationIndex;
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.model.ReservationResult;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReservationTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Test
+    public void findsTheLowestSpotFreeOverAWindow() {
+        ReservationIndex index = new ReservationIndex();
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= 5; number++) {
+            parkingSpots.add(new ParkingSpot(number, number == 3 ? ParkingType.BIKE : ParkingType.CAR, true));
+        }
+        index.load(parkingSpots);
+
+        assertEquals(1, index.bookLowest(new Reservation("A", ParkingType.CAR, 14 * HOUR, 18 * HOUR)));
+        assertEquals(2, index.bookLowest(new Reservation("B", ParkingType.CAR, 16 * HOUR, 20 * HOUR)));
+        //back to back with the first booking
+        assertEquals(1, index.bookLowest(new Reservation("C", ParkingType.CAR, 18 * HOUR, 19 * HOUR)));
+        assertEquals(2, index.lowestFree(ParkingType.CAR, 1, 10 * HOUR, 16 * HOUR));
+        assertEquals(4, index.lowestFree(ParkingType.CAR, 1, 15 * HOUR, 17 * HOUR));
+        assertEquals(5, index.lowestFree(ParkingType.CAR, 5, 15 * HOUR, 17 * HOUR));
+        assertEquals(3, index.lowestFree(ParkingType.BIKE, 1, 15 * HOUR, 17 * HOUR));
+
+        Reservation d = new Reservation("D", ParkingType.CAR, 12 * HOUR, 22 * HOUR);
+        Reservation e = new Reservation("E", ParkingType.CAR, 12 * HOUR, 22 * HOUR);
+        assertEquals(4, index.bookLowest(d));
+        assertEquals(5, index.bookLowest(e));
+        assertFalse(index.isAnyFree(ParkingType.CAR, 17 * HOUR, 18 * HOUR));
+        assertEquals(0, index.bookLowest(new Reservation("F", ParkingType.CAR, 17 * HOUR, 18 * HOUR)));
+        assertTrue(index.isAnyFree(ParkingType.CAR, 22 * HOUR, 23 * HOUR));
+
+        assertTrue(index.cancel(d));
+        assertFalse(index.cancel(d));
+        assertEquals(4, index.lowestFree(ParkingType.CAR, 1, 17 * HOUR, 18 * HOUR));
+        assertEquals(5, index.getReservedSpot("e", ParkingType.CAR, 11 * HOUR));
+        assertEquals(0, index.getReservedSpot("E", ParkingType.CAR, 22 * HOUR));
+
+        //only the bookings that had ended are dropped
+        assertEquals(2, index.expire(19 * HOUR));
+        assertEquals(1, index.lowestFree(ParkingType.CAR, 1, 19 * HOUR, 30 * HOUR));
+        assertEquals(2, index.lowestFree(ParkingType.CAR, 2, 20 * HOUR, 30 * HOUR));
+        assertTrue(index.hasBookings(ParkingType.CAR));
+        assertFalse(index.hasBookings(ParkingType.BIKE));
+    }
+
+    @Test
+    public void agreesWithCheckingEverySpot() {
+        Random random = new Random(7);
+        ReservationIndex index = new ReservationIndex();
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int number = 1; number <= 300; number++) {
+            parkingSpots.add(new ParkingSpot(number, ParkingType.CAR, true));
+        }
+        index.load(parkingSpots);
+        List<Reservation> booked = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            long from = random.nextInt(200) * HOUR;
+            long to = from + (1 + random.nextInt(12)) * HOUR;
+            if (random.nextInt(4) == 0 && !booked.isEmpty()) {
+                assertTrue(index.cancel(booked.remove(random.nextInt(booked.size()))));
+            } else if (random.nextBoolean()) {
+                Reservation reservation = new Reservation("V" + i, ParkingType.CAR, from, to);
+                int number = index.bookLowest(reservation);
+                assertEquals(lowestFreeByScan(booked, 300, 1, from, to), number);
+                if (number > 0) {
+                    booked.add(reservation);
+                }
+            } else {
+                int fromNumber = 1 + random.nextInt(300);
+                assertEquals(lowestFreeByScan(booked, 300, fromNumber, from, to), index.lowestFree(ParkingType.CAR, fromNumber, from, to));
+            }
+        }
+        //a reload keeps the bookings
+        index.load(parkingSpots);
+        assertEquals(lowestFreeByScan(booked, 300, 1, 50 * HOUR, 60 * HOUR), index.lowestFree(ParkingType.CAR, 1, 50 * HOUR, 60 * HOUR));
+    }
+
+    private static int lowestFreeByScan(List<Reservation> booked, int spots, int fromNumber, long from, long to) {
+        for (int number = fromNumber; number <= spots; number++) {
+            boolean free = true;
+            for (Reservation reservation : booked) {
+                free &= reservation.getParkingNumber() != number
+                        || reservation.getEndMillis() <= from || reservation.getStartMillis() >= to;
+            }
+            if (free) {
+                return number;
+            }
+        }
+        return 0;
+    }
+
+    @Test
+    public void walkInsKeepOffBookedSpotsAndTheBookerGetsItsOwn() throws Exception {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("reservation" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 3, ParkingType.CAR);
+        ParkingService parkingService = createParkingService(dataBaseConfig);
+        long now = System.currentTimeMillis();
+
+        ReservationResult booked = parkingService.reserve("BOOKED", ParkingType.CAR, now + HOUR, now + 3 * HOUR);
+        assertEquals(GateStatus.OK, booked.getStatus());
+        assertEquals(1, booked.getReservation().getParkingNumber());
+        assertTrue(booked.getReservation().getId() > 0);
+        //starts after the hold time, so walk-ins may still take spot 1 until then
+        assertEquals(GateStatus.OK, parkingService.reserve("LATER", ParkingType.CAR, now + 10 * HOUR, now + 11 * HOUR).getStatus());
+
+        assertEquals(2, parkingService.enter("WALKIN1", ParkingType.CAR).getTicket().getParkingSpot().getId());
+        assertEquals(3, parkingService.enter("WALKIN2", ParkingType.CAR).getTicket().getParkingSpot().getId());
+        assertEquals(GateStatus.FULL, parkingService.enter("WALKIN3", ParkingType.CAR).getStatus());
+        assertEquals(1, parkingService.enter("booked", ParkingType.CAR).getTicket().getParkingSpot().getId());
+        assertEquals(GateStatus.FULL, parkingService.reserve("SOON", ParkingType.CAR, now + HOUR, now + 2 * HOUR).getStatus());
+
+        //a fresh process finds the bookings in the table
+        ParkingService restarted = createParkingService(dataBaseConfig);
+        assertFalse(restarted.isAvailable(ParkingType.CAR, now + HOUR, now + 2 * HOUR));
+        assertEquals(GateStatus.NOT_FOUND, restarted.cancelReservation("OTHER", booked.getReservation().getId()).getStatus());
+        assertEquals(GateStatus.OK, restarted.cancelReservation("BOOKED", booked.getReservation().getId()).getStatus());
+        assertEquals(GateStatus.INVALID_REQUEST, restarted.reserve("X", ParkingType.CAR, now + 2 * HOUR, now + HOUR).getStatus());
+    }
+
+    @Test
+    public void concurrentBookingsNeverShareASpot() throws Exception {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("reservation" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 5, ParkingType.CAR);
+        ParkingService parkingService = createParkingService(dataBaseConfig);
+        long now = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<ReservationResult>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                //half start within the hold time and book against the free spots as well
+                long from = now + (i % 2 == 0 ? HOUR : 24 * HOUR);
+                String vehicle = "V" + i;
+                results.add(executor.submit(() -> parkingService.reserve(vehicle, ParkingType.CAR, from, from + 4 * HOUR)));
+            }
+            Set<String> spots = new HashSet<>();
+            int full = 0;
+            for (Future<ReservationResult> result : results) {
+                ReservationResult reservation = result.get();
+                if (reservation.getStatus() == GateStatus.OK) {
+                    assertTrue(spots.add(reservation.getReservation().getStartMillis() + "/" + reservation.getReservation().getParkingNumber()));
+                } else {
+                    assertEquals(GateStatus.FULL, reservation.getStatus());
+                    full++;
+                }
+            }
+            assertEquals(10, spots.size());
+            assertEquals(30, full);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static ParkingService createParkingService(EmbeddedDataBaseTestConfig dataBaseConfig) {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(parkingSpotDAO.loadParkingSpots());
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(ticketDAO.loadOpenTickets());
+        ReservationDAO reservationDAO = new ReservationDAO();
+        reservationDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(reservationDAO.loadReservations(parkingSpotDAO.reservationIndex));
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+        parkingService.setReservationDAO(reservationDAO);
+        return parkingService;
+    }
+}
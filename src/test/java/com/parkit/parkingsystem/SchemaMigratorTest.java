@@ -0,0 +1,109 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaMigratorTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private SchemaMigrator schemaMigrator;
+
+    @BeforeEach
+    public void setUpPerTest() {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("migration" + System.nanoTime());
+        schemaMigrator = new SchemaMigrator(dataBaseConfig);
+    }
+
+    @Test
+    public void migrationsAreAppliedOnce() throws Exception {
+        int version = schemaMigrator.migrate();
+
+        assertEquals(10, version);
+        assertEquals(version, schemaMigrator.getCurrentVersion());
+        assertEquals(version, schemaMigrator.migrate());
+        assertEquals(10, queryInt("select count(*) from schema_version"));
+    }
+
+    @Test
+    public void openTicketsAreBackfilled() throws Exception {
+        //a database created by Data.sql before migrations existed, with one parked and one departed vehicle
+        execute("create table parking(PARKING_NUMBER int PRIMARY KEY, AVAILABLE bool NOT NULL, TYPE varchar(10) NOT NULL)");
+        execute("create table ticket(ID int PRIMARY KEY AUTO_INCREMENT, PARKING_NUMBER int NOT NULL,"
+                + " VEHICLE_REG_NUMBER varchar(10) NOT NULL, PRICE double, IN_TIME DATETIME NOT NULL, OUT_TIME DATETIME,"
+                + " FOREIGN KEY (PARKING_NUMBER) REFERENCES parking(PARKING_NUMBER))");
+        execute("insert into parking values(1,false,'CAR'),(2,true,'CAR')");
+        execute("insert into ticket(PARKING_NUMBER,VEHICLE_REG_NUMBER,PRICE,IN_TIME,OUT_TIME) values"
+                + "(2,'LEFT',1.5,'2024-01-01 08:00:00','2024-01-01 09:00:00'),(1,'PARKED',0,'2024-01-01 10:00:00',null)");
+
+        schemaMigrator.migrate();
+
+        assertEquals(1, queryInt("select count(*) from open_ticket"));
+        assertEquals(2, queryInt("select TICKET_ID from open_ticket where VEHICLE_REG_NUMBER = 'PARKED'"));
+    }
+
+    @Test
+    public void ticketLookupUsesCoveringIndex() throws Exception {
+        schemaMigrator.migrate();
+
+        String plan = explain(DBConstants.GET_TICKET);
+
+        assertTrue(plan.contains("ticket_vehicle_in_time_idx"), plan);
+        assertFalse(plan.contains("ticket.tablescan"), plan);
+    }
+
+    @Test
+    public void activeTicketLookupIsPrimaryKeyLookup() throws Exception {
+        schemaMigrator.migrate();
+
+        String plan = explain(DBConstants.GET_OPEN_TICKET);
+
+        //H2 names primary key indexes primary_key_<suffix>
+        assertTrue(Pattern.compile("primary_key_\\w*: vehicle_reg_number = \\?1").matcher(plan).find(), plan);
+        assertFalse(plan.contains("open_ticket.tablescan"), plan);
+    }
+
+    private String explain(String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement("explain " + sql)) {
+            ps.setString(1, "ABCDEF");
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            return plan.toString().toLowerCase().replace("\"", "");
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void execute(String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try {
+            con.createStatement().execute(sql);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private int queryInt(String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (ResultSet rs = con.createStatement().executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.TariffRule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TariffTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final ZoneId PARIS = ZoneId.of("Europe/Paris");
+
+    //free first 15 minutes, 2.0 per hour from 07:00, 0.5 per hour from 20:00, at most 12.0 per day
+    private static Tariff bandedTariff(ZoneId zoneId) {
+        TariffRule rule = new TariffRule(ParkingType.CAR, 2.0);
+        rule.setFreeMinutes(15);
+        rule.setNightRatePerHour(0.5);
+        rule.setDayStartMinute(7 * 60);
+        rule.setNightStartMinute(20 * 60);
+        rule.setDailyCap(12.0);
+        return Tariff.compile(Collections.singletonList(rule), zoneId);
+    }
+
+    private static long millis(String localDateTime, ZoneId zoneId) {
+        return LocalDateTime.parse(localDateTime).atZone(zoneId).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void standardTariffChargesCompletedMinutesAtHourlyRate() {
+        Tariff tariff = Tariff.standard(ZoneOffset.UTC);
+        long in = millis("2024-03-10T23:30:00", ZoneOffset.UTC);
+
+        assertEquals(0.75, tariff.calculateFare(ParkingType.BIKE, in, in + 45 * MINUTE + 59_999));
+        assertEquals(1.5 * 25, tariff.calculateFare(ParkingType.CAR, in, in + 25 * HOUR));
+        assertEquals(0, tariff.calculateFare(ParkingType.CAR, in, in + 59_999));
+    }
+
+    @Test
+    public void freeMinutesAreNotCharged() {
+        Tariff tariff = bandedTariff(ZoneOffset.UTC);
+        long in = millis("2024-03-11T10:00:00", ZoneOffset.UTC);
+
+        assertEquals(0, tariff.calculateFare(ParkingType.CAR, in, in + 15 * MINUTE));
+        assertEquals(1.0, tariff.calculateFare(ParkingType.CAR, in, in + 45 * MINUTE));
+    }
+
+    @Test
+    public void minutesArePricedByBand() {
+        Tariff tariff = bandedTariff(ZoneOffset.UTC);
+        //19:00 to 22:00, 15 free minutes then 45 day minutes and 2 night hours
+        long in = millis("2024-03-11T19:00:00", ZoneOffset.UTC);
+
+        assertEquals(1.5 + 1.0, tariff.calculateFare(ParkingType.CAR, in, in + 3 * HOUR));
+        //wraps midnight: 22:00 to 08:15 is 8h45 of night and 1h15 of day after the free minutes
+        long late = millis("2024-03-11T22:00:00", ZoneOffset.UTC);
+        assertEquals(8.75 * 0.5 + 2.5, tariff.calculateFare(ParkingType.CAR, late, late + 10 * HOUR + 15 * MINUTE));
+    }
+
+    @Test
+    public void dailyCapAppliesToEachDay() {
+        Tariff tariff = bandedTariff(ZoneOffset.UTC);
+        long in = millis("2024-03-11T07:00:00", ZoneOffset.UTC);
+
+        //a full day is 13h of day and 11h of night, 31.5 uncapped
+        assertEquals(12.0, tariff.calculateFare(ParkingType.CAR, in, in + 24 * HOUR + 15 * MINUTE));
+        assertEquals(12.0 * 2 + 2.0, tariff.calculateFare(ParkingType.CAR, in, in + 49 * HOUR + 15 * MINUTE));
+    }
+
+    @Test
+    public void bandsFollowLocalTimeAcrossDaylightSaving() {
+        Tariff tariff = bandedTariff(PARIS);
+        //19:45 local, an hour of night in both summer and winter
+        long winter = millis("2024-01-15T19:45:00", PARIS);
+        long summer = millis("2024-07-15T19:45:00", PARIS);
+
+        assertEquals(0.5, tariff.calculateFare(ParkingType.CAR, winter, winter + HOUR + 15 * MINUTE));
+        assertEquals(0.5, tariff.calculateFare(ParkingType.CAR, summer, summer + HOUR + 15 * MINUTE));
+        //entering on the first instant of summer time, 03:15 to 07:15 local is 3h45 of night and 15 minutes of day
+        long transition = millis("2024-03-31T03:00:00", PARIS);
+        assertEquals(3.75 * 0.5 + 0.5, tariff.calculateFare(ParkingType.CAR, transition, transition + 4 * HOUR + 15 * MINUTE));
+    }
+
+    @Test
+    public void rejectsOutTimeBeforeInTimeAndUnknownType() {
+        Tariff tariff = bandedTariff(ZoneOffset.UTC);
+
+        assertThrows(IllegalArgumentException.class, () -> tariff.calculateFare(ParkingType.CAR, HOUR, 0));
+        assertThrows(IllegalArgumentException.class, () -> tariff.calculateFare(ParkingType.BIKE, 0, HOUR));
+    }
+}
@@ -0,0 +1,151 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.analytics.Granularity;
+import com.parkit.parkingsystem.analytics.TicketAnalytics;
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketHistoryDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.RevenueSummary;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketAnalyticsTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final long T0 = Instant.parse("2024-03-04T00:00:00Z").toEpochMilli();
+
+    @Test
+    public void summarizesRangesByParkingType() {
+        TicketAnalytics analytics = new TicketAnalytics(ZoneOffset.UTC);
+        analytics.record(ParkingType.CAR, 1, T0 + 8 * HOUR, T0 + 10 * HOUR, 3.0);
+        analytics.record(ParkingType.BIKE, 2, T0 + 9 * HOUR, T0 + 9 * HOUR + 30 * MINUTE, 0.5);
+        analytics.record(ParkingType.CAR, 1, T0 + DAY + 9 * HOUR + 15 * MINUTE, T0 + DAY + 12 * HOUR + 15 * MINUTE, 4.5);
+
+        RevenueSummary twoDays = analytics.summarize(T0, T0 + 2 * DAY);
+        assertEquals(3, twoDays.getTickets());
+        assertEquals(8.0, twoDays.getRevenue());
+        assertEquals(2, twoDays.getTickets(ParkingType.CAR));
+        assertEquals(7.5, twoDays.getRevenue(ParkingType.CAR));
+        assertEquals(150 * MINUTE, twoDays.getAverageDwellMillis(ParkingType.CAR));
+        assertEquals(30 * MINUTE, twoDays.getAverageDwellMillis(ParkingType.BIKE));
+
+        //from included, to excluded
+        RevenueSummary halfHour = analytics.summarize(T0 + 9 * HOUR + 30 * MINUTE, T0 + 10 * HOUR);
+        assertEquals(1, halfHour.getTickets(ParkingType.BIKE));
+        assertEquals(0, halfHour.getTickets(ParkingType.CAR));
+        assertEquals(1, analytics.summarize(T0 + 10 * HOUR, T0 + 10 * HOUR + MINUTE).getTickets(ParkingType.CAR));
+        assertEquals(2, analytics.summarize(T0 + 9 * HOUR + 59 * MINUTE, T0 + DAY + 12 * HOUR + 16 * MINUTE).getTickets());
+
+        assertArrayEquals(new double[]{3.5, 4.5}, analytics.revenueSeries(Granularity.DAY, T0, T0 + 2 * DAY));
+        assertArrayEquals(new double[]{0.5, 3.0}, analytics.revenueSeries(Granularity.HOUR, T0 + 9 * HOUR, T0 + 11 * HOUR));
+    }
+
+    @Test
+    public void olderRangesAreAnsweredFromCoarserBuckets() {
+        TicketAnalytics analytics = new TicketAnalytics(ZoneOffset.UTC, 60, 48, 10);
+        analytics.record(ParkingType.CAR, 1, T0 + 9 * HOUR, T0 + 10 * HOUR + 30 * MINUTE, 2.0);
+        analytics.record(ParkingType.CAR, 1, T0 + DAY + 11 * HOUR, T0 + DAY + 12 * HOUR, 1.0);
+
+        //the minutes of the first day are gone, its hours are not
+        assertEquals(1, analytics.summarize(T0 + 10 * HOUR, T0 + 11 * HOUR).getTickets());
+        assertEquals(0, analytics.summarize(T0 + 10 * HOUR + 15 * MINUTE, T0 + 11 * HOUR).getTickets());
+        assertEquals(1, analytics.summarize(T0, T0 + DAY).getTickets());
+
+        analytics.record(ParkingType.BIKE, 2, T0 + 5 * DAY, T0 + 5 * DAY + HOUR, 1.0);
+        assertEquals(0, analytics.summarize(T0 + 10 * HOUR, T0 + 11 * HOUR).getTickets());
+        assertEquals(1, analytics.summarize(T0, T0 + DAY).getTickets());
+        assertEquals(4.0, analytics.summarize(T0 - DAY, T0 + 6 * DAY).getRevenue());
+        double[] hours = analytics.revenueSeries(Granularity.HOUR, T0 + 10 * HOUR, T0 + 12 * HOUR);
+        assertTrue(Double.isNaN(hours[0]) && Double.isNaN(hours[1]));
+        assertThrows(IllegalArgumentException.class, () -> analytics.revenueSeries(Granularity.MINUTE, T0, T0 + DAY));
+
+        //older than the days kept
+        analytics.record(ParkingType.CAR, 1, T0 - 20 * DAY - HOUR, T0 - 20 * DAY, 9.0);
+        assertEquals(0, analytics.summarize(T0 - 21 * DAY, T0).getTickets());
+    }
+
+    @Test
+    public void revenueBySpotCoversWholeDays() {
+        TicketAnalytics analytics = new TicketAnalytics(ZoneOffset.UTC);
+        analytics.record(ParkingType.CAR, 3, T0 + 8 * HOUR, T0 + 10 * HOUR, 3.0);
+        analytics.record(ParkingType.CAR, 3, T0 + DAY + 8 * HOUR, T0 + DAY + 9 * HOUR, 1.5);
+        analytics.record(ParkingType.CAR, 100, T0 + 8 * HOUR, T0 + 9 * HOUR, 1.5);
+
+        double[] firstDay = analytics.revenueBySpot(T0, T0 + DAY);
+        assertEquals(3.0, firstDay[3]);
+        assertEquals(1.5, firstDay[100]);
+        assertEquals(4.5, analytics.revenueBySpot(T0, T0 + 2 * DAY)[3]);
+        assertEquals(1.5, analytics.revenueBySpot(T0 + HOUR, T0 + 2 * DAY)[3]);
+    }
+
+    @Test
+    public void countsExitsAndRebuildsFromHistory() throws Exception {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("analytics" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 2, ParkingType.CAR);
+        dataBaseConfig.addParkingSpots(3, 1, ParkingType.BIKE);
+        long now = System.currentTimeMillis();
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(
+                "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            for (int i = 1; i <= 5; i++) {
+                ps.setInt(1, i % 2 == 0 ? 3 : 2);
+                ps.setString(2, "H" + i);
+                ps.setDouble(3, i);
+                ps.setTimestamp(4, new Timestamp(now - i * DAY - HOUR));
+                ps.setTimestamp(5, new Timestamp(now - i * DAY));
+                ps.addBatch();
+            }
+            //too old to be kept
+            ps.setInt(1, 2);
+            ps.setString(2, "OLD");
+            ps.setDouble(3, 100);
+            ps.setTimestamp(4, new Timestamp(now - 500 * DAY - HOUR));
+            ps.setTimestamp(5, new Timestamp(now - 500 * DAY));
+            ps.addBatch();
+            ps.executeBatch();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadParkingSpots();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadOpenTickets();
+        TicketHistoryDAO ticketHistoryDAO = new TicketHistoryDAO();
+        ticketHistoryDAO.dataBaseConfig = dataBaseConfig;
+
+        TicketAnalytics analytics = new TicketAnalytics(ZoneOffset.UTC);
+        assertEquals(5, analytics.rebuild(ticketHistoryDAO, 2));
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+        parkingService.setTicketAnalytics(analytics);
+        assertEquals(GateStatus.OK, parkingService.enter("ABC", ParkingType.CAR).getStatus());
+        assertEquals(GateStatus.OK, parkingService.exit("ABC").getStatus());
+
+        RevenueSummary week = analytics.summarize(now - 7 * DAY, System.currentTimeMillis() + MINUTE);
+        assertEquals(6, week.getTickets());
+        assertEquals(15.0, week.getRevenue());
+        assertEquals(2, week.getTickets(ParkingType.BIKE));
+        assertEquals(4, week.getTickets(ParkingType.CAR));
+        assertEquals(1, analytics.summarize(now - MINUTE, System.currentTimeMillis() + MINUTE).getTickets());
+
+        //a restart finds the same history in the table
+        TicketAnalytics rebuilt = new TicketAnalytics(ZoneOffset.UTC);
+        assertEquals(6, rebuilt.rebuild(ticketHistoryDAO, 4));
+        assertEquals(15.0, rebuilt.summarize(now - 7 * DAY, System.currentTimeMillis() + MINUTE).getRevenue());
+    }
+}
@@ -0,0 +1,100 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ArchivalResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.TicketArchivalJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketArchivalJobTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private TicketArchivalJob job;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("archive" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 3, ParkingType.CAR);
+        LocalDateTime now = LocalDateTime.now();
+        insertTicket("OLD", 1, 1.5, LocalDateTime.of(2024, 1, 10, 8, 0), LocalDateTime.of(2024, 1, 10, 9, 0));
+        insertTicket("GONE", 2, 3.0, LocalDateTime.of(2024, 1, 20, 8, 0), LocalDateTime.of(2024, 1, 20, 10, 0));
+        insertTicket("OTHER", 3, 0.0, LocalDateTime.of(2024, 1, 31, 23, 0), LocalDateTime.of(2024, 2, 1, 0, 20));
+        insertTicket("OLD", 1, 4.5, LocalDateTime.of(2024, 2, 5, 8, 0), LocalDateTime.of(2024, 2, 5, 11, 0));
+        insertTicket("RECENT", 2, 1.5, now.minusDays(1).minusHours(1), now.minusDays(1));
+        insertTicket("PARKED", 3, 0.0, now.minusHours(2), null);
+        TicketArchiveDAO ticketArchiveDAO = new TicketArchiveDAO();
+        ticketArchiveDAO.dataBaseConfig = dataBaseConfig;
+        job = new TicketArchivalJob(ticketArchiveDAO, Duration.ofDays(30), 2, 0);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    public void movesOldClosedTicketsIntoMonthlyTables() throws Exception {
+        ArchivalResult result = job.run();
+
+        assertEquals(4, result.getTicketsArchived());
+        assertEquals(2, result.getBatches());
+        assertEquals(2, count("select count(*) from ticket"));
+        assertEquals(1, count("select count(*) from ticket where OUT_TIME is null"));
+        assertEquals(2, count("select count(*) from ticket_archive_202401"));
+        assertEquals(2, count("select count(*) from ticket_archive_202402"));
+        assertEquals(2, count("select count(*) from ticket_archive_partition"));
+
+        assertEquals(0, job.run().getTicketsArchived());
+    }
+
+    @Test
+    public void lookupsReachTheArchiveOnlyWhenAsked() throws Exception {
+        job.run();
+
+        assertNull(ticketDAO.getTicket("GONE", false));
+        Ticket gone = ticketDAO.getTicket("GONE", true);
+        assertNotNull(gone);
+        assertEquals(3.0, gone.getPrice());
+        assertEquals(2, gone.getParkingSpot().getId());
+        assertEquals(4.5, ticketDAO.getTicket("OLD", true).getPrice());
+        assertEquals("RECENT", ticketDAO.getTicket("RECENT", true).getVehicleRegNumber());
+        assertNull(ticketDAO.getTicket("NEVER", true));
+    }
+
+    private void insertTicket(String vehicle, int parkingNumber, double price, LocalDateTime in, LocalDateTime out) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(
+                "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, vehicle);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, Timestamp.valueOf(in));
+            ps.setTimestamp(5, out == null ? null : Timestamp.valueOf(out));
+            ps.executeUpdate();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private int count(String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (ResultSet rs = con.createStatement().executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.GateEventType;
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.journal.FsyncPolicy;
+import com.parkit.parkingsystem.journal.JournalRecord;
+import com.parkit.parkingsystem.journal.TicketJournal;
+import com.parkit.parkingsystem.model.GateResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketJournalTest {
+
+    @TempDir
+    Path journalDir;
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("journal" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 3, ParkingType.CAR);
+        dataBaseConfig.addParkingSpots(4, 2, ParkingType.BIKE);
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        if (ticketDAO != null) {
+            ticketDAO.close();
+        }
+    }
+
+    private ParkingService start() throws Exception {
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(ticketDAO.enableJournal(TicketJournal.open(journalDir, 4, FsyncPolicy.NEVER, 0), parkingSpotDAO));
+        return new ParkingService(parkingSpotDAO, ticketDAO);
+    }
+
+    @Test
+    public void gatesKeepWorkingWhileTheDatabaseIsDown() throws Exception {
+        ParkingService parkingService = start();
+        assertTrue(parkingService.enter("EARLY", ParkingType.CAR).isSuccess());
+        assertTrue(ticketDAO.getJournalProjector().awaitProjected(1, 5000));
+
+        //the checkpoint table going missing fails every projection, like an outage would
+        execute("alter table journal_checkpoint rename to journal_checkpoint_down");
+        GateResult entry = parkingService.enter("ABCDEF", ParkingType.CAR);
+        assertTrue(entry.isSuccess());
+        assertEquals(2, entry.getTicket().getJournalSeq());
+        assertEquals(2, entry.getTicket().getParkingSpot().getId());
+        assertTrue(parkingService.exit("EARLY").isSuccess());
+        assertTrue(parkingService.enter("BIKE1", ParkingType.BIKE).isSuccess());
+        assertEquals(1, parkingService.getOccupiedSpots(ParkingType.CAR));
+        //a vehicle that is not parked is answered from memory, not after waiting on the projector
+        long start = System.currentTimeMillis();
+        assertEquals(GateStatus.NOT_FOUND, parkingService.exit("NEVER").getStatus());
+        assertEquals(GateStatus.NOT_FOUND, parkingService.quote("EARLY").getStatus());
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertFalse(ticketDAO.getJournalProjector().awaitProjected(4, 300));
+        assertEquals(1, count("select count(*) from ticket"));
+
+        execute("alter table journal_checkpoint_down rename to journal_checkpoint");
+        assertTrue(ticketDAO.getJournalProjector().awaitProjected(4, 5000));
+        assertTrue(ticketDAO.getJournalProjector().getFailedCount() > 0);
+
+        assertEquals(3, count("select count(*) from ticket"));
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER='EARLY' and OUT_TIME is not null"));
+        assertEquals(2, count("select count(*) from open_ticket"));
+        assertEquals(4, count("select LAST_SEQ from journal_checkpoint"));
+        assertEquals(1, count("select count(*) from parking where AVAILABLE=false and TYPE='CAR'"));
+        assertEquals(1, count("select count(*) from parking where AVAILABLE=false and TYPE='BIKE'"));
+    }
+
+    @Test
+    public void gateFlowsShareTheSpotsAndTicketlessResults() throws Exception {
+        ParkingService parkingService = start();
+        GateResult entry = parkingService.enter("ABCDEF", ParkingType.CAR);
+        GateResult exit = parkingService.exit("ABCDEF");
+        assertTrue(exit.isSuccess());
+        assertSame(entry.getTicket().getParkingSpot(), exit.getTicket().getParkingSpot());
+        //released through the DAO, the shared instance itself still reads as taken
+        assertFalse(exit.getTicket().getParkingSpot().isAvailable());
+        assertTrue(exit.getTicket().getOutTimeMillis() >= exit.getTicket().getInTimeMillis());
+        assertSame(entry.getTicket().getParkingSpot(), parkingService.enter("GHIJKL", ParkingType.CAR).getTicket().getParkingSpot());
+        assertSame(parkingService.exit("UNKNOWN"), parkingService.exit("UNKNOWN"));
+    }
+
+    @Test
+    public void restartReplaysWhatTheDatabaseMissed() throws Exception {
+        ParkingService parkingService = start();
+        execute("alter table journal_checkpoint rename to journal_checkpoint_down");
+        for (int i = 0; i < 3; i++) {
+            assertTrue(parkingService.enter("CAR" + i, ParkingType.CAR).isSuccess());
+        }
+        assertTrue(parkingService.exit("CAR1").isSuccess());
+        assertTrue(parkingService.enter("BIKE1", ParkingType.BIKE).isSuccess());
+        //the process dies before the database comes back, the final drain fails too
+        ticketDAO.close();
+        execute("alter table journal_checkpoint_down rename to journal_checkpoint");
+        assertEquals(0, count("select count(*) from ticket"));
+
+        parkingService = start();
+
+        assertEquals(2, parkingService.getOccupiedSpots(ParkingType.CAR));
+        assertFalse(parkingService.enter("CAR0", ParkingType.CAR).isSuccess());
+        GateResult reentry = parkingService.enter("CAR1", ParkingType.CAR);
+        assertTrue(reentry.isSuccess());
+        assertEquals(2, reentry.getTicket().getParkingSpot().getId());
+        assertTrue(parkingService.exit("CAR2").isSuccess());
+        assertTrue(ticketDAO.getJournalProjector().awaitProjected(7, 5000));
+
+        assertEquals(5, count("select count(*) from ticket"));
+        assertEquals(2, count("select count(*) from ticket where OUT_TIME is not null"));
+        assertEquals(3, count("select count(*) from open_ticket"));
+        assertEquals(2, count("select count(*) from parking where AVAILABLE=false and TYPE='CAR'"));
+        //the journal kept only the segment still being written
+        try (Stream<Path> segments = Files.list(journalDir)) {
+            assertEquals(1, segments.count());
+        }
+    }
+
+    @Test
+    public void restartReplaysAnExitOfAProjectedEntry() throws Exception {
+        ParkingService parkingService = start();
+        assertTrue(parkingService.enter("ABCDEF", ParkingType.CAR).isSuccess());
+        assertTrue(ticketDAO.getJournalProjector().awaitProjected(1, 5000));
+        execute("alter table journal_checkpoint rename to journal_checkpoint_down");
+        assertTrue(parkingService.exit("ABCDEF").isSuccess());
+        assertEquals(1, parkingService.enter("GHIJKL", ParkingType.CAR).getTicket().getParkingSpot().getId());
+        ticketDAO.close();
+        execute("alter table journal_checkpoint_down rename to journal_checkpoint");
+
+        parkingService = start();
+
+        //the vehicle left before the restart, its projected ticket is not open again
+        assertEquals(1, parkingService.getOccupiedSpots(ParkingType.CAR));
+        assertEquals(GateStatus.NOT_FOUND, parkingService.exit("ABCDEF").getStatus());
+        GateResult reentry = parkingService.enter("ABCDEF", ParkingType.CAR);
+        assertTrue(reentry.isSuccess());
+        assertEquals(2, reentry.getTicket().getParkingSpot().getId());
+        assertTrue(ticketDAO.getJournalProjector().awaitProjected(4, 5000));
+
+        assertEquals(3, count("select count(*) from ticket"));
+        assertEquals(1, count("select count(*) from ticket where OUT_TIME is not null"));
+        assertEquals(2, count("select count(*) from open_ticket"));
+        assertEquals(2, count("select count(*) from parking where AVAILABLE=false and TYPE='CAR'"));
+    }
+
+    @Test
+    public void ticketsKeepTheirJournalSeqPastTheIntRange() throws Exception {
+        //a journal that already went through Integer.MAX_VALUE - 1 records and released them
+        long firstSeq = Integer.MAX_VALUE;
+        Files.write(journalDir.resolve(String.format("tickets-%020d.journal", firstSeq)), new byte[4 * TicketJournal.RECORD_BYTES]);
+        execute("insert into journal_checkpoint(JOURNAL_NAME, LAST_SEQ, UPDATED_ON) values('tickets', " + (firstSeq - 1) + ", now())");
+        ParkingService parkingService = start();
+
+        assertTrue(parkingService.enter("ABCDEF", ParkingType.CAR).isSuccess());
+        GateResult entry = parkingService.enter("GHIJKL", ParkingType.CAR);
+        assertTrue(entry.isSuccess());
+        assertEquals(firstSeq + 1, entry.getTicket().getJournalSeq());
+        assertTrue(parkingService.exit("GHIJKL").isSuccess());
+        assertTrue(ticketDAO.getJournalProjector().awaitProjected(firstSeq + 2, 5000));
+        assertEquals(1, count("select count(*) from ticket where JOURNAL_SEQ=" + (firstSeq + 1) + " and OUT_TIME is not null"));
+        ticketDAO.close();
+
+        parkingService = start();
+
+        assertEquals(1, parkingService.getOccupiedSpots(ParkingType.CAR));
+        assertTrue(parkingService.exit("ABCDEF").isSuccess());
+        assertTrue(ticketDAO.getJournalProjector().awaitProjected(firstSeq + 3, 5000));
+        assertEquals(2, count("select count(*) from ticket where OUT_TIME is not null"));
+        assertEquals(0, count("select count(*) from open_ticket"));
+    }
+
+    @Test
+    public void recoveryStopsAtATornRecord() throws Exception {
+        try (TicketJournal journal = TicketJournal.open(journalDir, 16, FsyncPolicy.ALWAYS, 0)) {
+            for (int i = 0; i < 3; i++) {
+                journal.appendEntry(newTicket("CAR" + i, i + 1));
+            }
+        }
+        Path segment;
+        try (Stream<Path> segments = Files.list(journalDir)) {
+            segment = segments.findFirst().get();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(2L * TicketJournal.RECORD_BYTES + 30);
+            file.write(0x7f);
+        }
+
+        try (TicketJournal journal = TicketJournal.open(journalDir, 16, FsyncPolicy.ALWAYS, 0)) {
+            assertEquals(2, journal.getLastSeq());
+            assertEquals(3, journal.appendEntry(newTicket("CAR9", 3)));
+            List<JournalRecord> records = journal.read(1, 10);
+            assertEquals(3, records.size());
+            assertEquals(GateEventType.ENTRY, records.get(1).getType());
+            assertEquals("CAR1", records.get(1).getVehicleRegNumber());
+            assertEquals(2, records.get(1).getJournalSeq());
+            assertEquals("CAR9", records.get(2).getVehicleRegNumber());
+        }
+    }
+
+    private Ticket newTicket(String vehicleRegNumber, int parkingNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTimeMillis(System.currentTimeMillis());
+        return ticket;
+    }
+
+    private void execute(String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.executeUpdate();
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private int count(String sql) throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (ResultSet rs = con.createStatement().executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
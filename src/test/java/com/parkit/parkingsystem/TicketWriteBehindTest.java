@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.GateStatus;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.GateResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketWriteBehindTest {
+
+    private static final int TICKETS = 120;
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    public void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("writebehind" + System.nanoTime());
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(1, 3, ParkingType.CAR);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.enableWriteBehind(1000, 50, 20, parkingSpotDAO);
+    }
+
+    @AfterEach
+    public void tearDownPerTest() {
+        ticketDAO.close();
+    }
+
+    private Ticket newTicket(String vehicleRegNumber) {
+        return newTicket(vehicleRegNumber, new ParkingSpot(1, ParkingType.CAR, false));
+    }
+
+    private Ticket newTicket(String vehicleRegNumber, ParkingSpot parkingSpot) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTimeMillis(System.currentTimeMillis());
+        return ticket;
+    }
+
+    @Test
+    public void queuedTicketsAreWrittenInBatches() throws Exception {
+        for (int i = 0; i < TICKETS; i++) {
+            assertTrue(ticketDAO.saveTicket(newTicket("CAR" + i)));
+        }
+        TicketWriteBehind writeBehind = ticketDAO.getTicketWriteBehind();
+        assertTrue(writeBehind.flush(5000));
+
+        assertEquals(0, writeBehind.getQueueDepth());
+        assertEquals(TICKETS, writeBehind.getWrittenCount());
+        assertTrue(writeBehind.getBatchCount() < TICKETS);
+        assertEquals(TICKETS, countTickets());
+    }
+
+    @Test
+    public void lookupSeesQueuedTicket() {
+        Ticket ticket = newTicket("ABCDEF");
+        assertTrue(ticketDAO.saveTicket(ticket));
+
+        Ticket saved = ticketDAO.getTicket("ABCDEF");
+
+        assertNotNull(saved);
+        assertTrue(ticket.getId() > 0);
+        assertEquals(ticket.getId(), saved.getId());
+    }
+
+    @Test
+    public void reentryWhileQueuedFindsTheVehicleParked() {
+        //a long linger keeps the entry queued while the vehicle comes back
+        ticketDAO.close();
+        ticketDAO.enableWriteBehind(1000, 50, 500, parkingSpotDAO);
+        assertTrue(ticketDAO.loadOpenTickets());
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+
+        assertTrue(parkingService.enter("ABCDEF", ParkingType.CAR).isSuccess());
+        assertEquals(GateStatus.ALREADY_PARKED, parkingService.enter("ABCDEF", ParkingType.CAR).getStatus());
+        assertEquals(1, parkingService.getOccupiedSpots(ParkingType.CAR));
+        GateResult exit = parkingService.exit("ABCDEF");
+        assertTrue(exit.isSuccess());
+        assertTrue(exit.getTicket().getId() > 0);
+        assertEquals(0, parkingService.getOccupiedSpots(ParkingType.CAR));
+    }
+
+    @Test
+    public void unwrittenTicketGivesItsSpotBack() throws Exception {
+        ParkingSpot first = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+        ParkingSpot second = parkingSpotDAO.claimNextAvailableSlot(ParkingType.CAR);
+        assertTrue(ticketDAO.saveTicket(newTicket("ABCDEF", first)));
+        //a second open ticket of the vehicle breaks the open_ticket key once it reaches the table
+        assertTrue(ticketDAO.saveTicket(newTicket("ABCDEF", second)));
+        TicketWriteBehind writeBehind = ticketDAO.getTicketWriteBehind();
+        assertTrue(writeBehind.flush(5000));
+
+        assertEquals(1, writeBehind.getFailedCount());
+        Metrics.publish("TicketWriteBehind", "test", writeBehind);
+        ObjectName name = new ObjectName("com.parkit.parkingsystem:type=TicketWriteBehind,name="
+                + ObjectName.quote("test"));
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "FailedCount"));
+        assertEquals(0, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "QueueDepth"));
+        assertEquals(1, countTickets());
+        assertEquals(2, parkingSpotDAO.getAvailableCount(ParkingType.CAR));
+        assertEquals(second.getId(), parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void closeDrainsQueueAndFallsBackToSynchronousWrites() throws Exception {
+        for (int i = 0; i < TICKETS; i++) {
+            ticketDAO.saveTicket(newTicket("BIKE" + i));
+        }
+        ticketDAO.close();
+        assertEquals(TICKETS, countTickets());
+
+        Ticket ticket = newTicket("LATE");
+        assertTrue(ticketDAO.saveTicket(ticket));
+        assertTrue(ticket.getId() > 0);
+    }
+
+    private int countTickets() throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        try (ResultSet rs = con.createStatement().executeQuery("select count(*) from ticket")) {
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
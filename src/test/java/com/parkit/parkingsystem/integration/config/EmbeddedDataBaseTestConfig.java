@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.integration.config;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+//in-memory H2 database, so DAO tests run without a MySQL server
+//not in MySQL mode: H2 hands out duplicate AUTO_INCREMENT ids there under concurrent inserts
+public class EmbeddedDataBaseTestConfig extends DataBaseConfig {
+
+    private final String name;
+    private final String[] replicaNames;
+
+    public EmbeddedDataBaseTestConfig(String name, String... replicaNames) {
+        this.name = name;
+        this.replicaNames = replicaNames;
+    }
+
+    @Override
+    protected String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+
+    @Override
+    protected String getUrl() {
+        return urlOf(name);
+    }
+
+    //the replicas are separate in-memory databases, tests play replication by writing to them directly
+    @Override
+    protected List<String> getReplicaUrls() {
+        List<String> urls = new ArrayList<>();
+        for (String replicaName : replicaNames) {
+            urls.add(urlOf(replicaName));
+        }
+        return urls;
+    }
+
+    @Override
+    protected long getReplicaHeartbeatMillis() {
+        return 50;
+    }
+
+    private static String urlOf(String name) {
+        return "jdbc:h2:mem:" + name + ";DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    protected String getUser() {
+        return "sa";
+    }
+
+    @Override
+    protected String getPassword() {
+        return "";
+    }
+
+    public void createSchema() throws Exception {
+        new SchemaMigrator(this).migrate();
+    }
+
+    public void addParkingSpots(int firstNumber, int count, ParkingType parkingType) throws Exception {
+        Connection con = getConnection();
+        try (PreparedStatement ps = con.prepareStatement(
+                "insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,true,?)")) {
+            for (int number = firstNumber; number < firstNumber + count; number++) {
+                ps.setInt(1, number);
+                ps.setString(2, parkingType.toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } finally {
+            closeConnection(con);
+        }
+    }
+
+    public void setSpotLayout(int number, int level, int entryDistance) throws Exception {
+        Connection con = getConnection();
+        try (PreparedStatement ps = con.prepareStatement(
+                "update parking set LEVEL_NUMBER = ?, ENTRY_DISTANCE = ? where PARKING_NUMBER = ?")) {
+            ps.setInt(1, level);
+            ps.setInt(2, entryDistance);
+            ps.setInt(3, number);
+            ps.executeUpdate();
+        } finally {
+            closeConnection(con);
+        }
+    }
+}